@@ -65,6 +65,7 @@ public class SearchServer implements BaseServer {
 
 		builder.getWebServiceContext().jaxrs(webServices);
 		serviceBuilder = new IndexServiceBuilder(clusterManager, indexManager);
+		indexManager.registerClusterShards(serviceBuilder::node);
 		server = builder.build();
 	}
 
@@ -58,6 +58,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ExecutionException;
 
@@ -645,8 +646,79 @@ public class AnnotatedIndexService<T> {
         return searchQuery(query, fieldMapWrappers.get(objectClass));
     }
 
+    private <C> List<ResultDefinition.WithObject<C>> searchQueries(final List<QueryDefinition> queries,
+                                                                   final FieldMapWrapper<C> wrapper) {
+        checkParameters();
+        if (annotatedService != null)
+            return annotatedService.searchQueries(schemaName, indexName, queries, wrapper);
+        final List<ResultDefinition.WithMap> results = indexService.searchQueries(schemaName, indexName, queries);
+        final List<ResultDefinition.WithObject<C>> records = new ArrayList<>(results.size());
+        for (ResultDefinition.WithMap result : results)
+            records.add(toRecords(result, wrapper));
+        return records;
+    }
+
+    /**
+     * Execute a batch of search queries on the same searcher
+     *
+     * @param queries the queries to execute
+     * @return the results, in the order of the queries
+     */
+    public List<ResultDefinition.WithObject<T>> searchQueries(final List<QueryDefinition> queries) {
+        return searchQueries(queries, schemaFieldMapWrapper);
+    }
+
+    /**
+     * Execute a batch of search queries on the same searcher
+     *
+     * @param queries     the queries to execute
+     * @param objectClass the type of the objects to return
+     * @param <C>         the type of the objects
+     * @return the results, in the order of the queries
+     */
+    public <C> List<ResultDefinition.WithObject<C>> searchQueries(final List<QueryDefinition> queries,
+                                                                  final Class<C> objectClass) {
+        checkParameters();
+        return searchQueries(queries, fieldMapWrappers.get(objectClass));
+    }
+
+    private <C> ResultDefinition.WithObject<C> searchFederated(final Set<String> indexNames,
+                                                               final QueryDefinition query, final FieldMapWrapper<C> wrapper) {
+        checkParameters();
+        if (annotatedService != null)
+            return annotatedService.searchFederated(schemaName, indexName, indexNames, query, wrapper);
+        return toRecords(indexService.searchFederated(schemaName, indexName, indexNames, query), wrapper);
+    }
+
+    /**
+     * Execute a search query on this index and the given indexes of the schema, viewed as one index
+     *
+     * @param indexNames the names of the other indexes
+     * @param query      the query to execute
+     * @return the merged result
+     */
+    public ResultDefinition.WithObject<T> searchFederated(final Set<String> indexNames, final QueryDefinition query) {
+        return searchFederated(indexNames, query, schemaFieldMapWrapper);
+    }
+
+    /**
+     * Execute a search query on this index and the given indexes of the schema, viewed as one index
+     *
+     * @param indexNames  the names of the other indexes
+     * @param query       the query to execute
+     * @param objectClass the type of the objects to return
+     * @param <C>         the type of the objects
+     * @return the merged result
+     */
+    public <C> ResultDefinition.WithObject<C> searchFederated(final Set<String> indexNames,
+                                                              final QueryDefinition query, final Class<C> objectClass) {
+        checkParameters();
+        return searchFederated(indexNames, query, fieldMapWrappers.get(objectClass));
+    }
+
     /**
-     * Iterator over any document who is matching the query
+     * Iterator over any document who is matching the query.
+     * The pages are collected after the last document of the previous page, on a point in time of the index.
      *
      * @param query       the query to execute
      * @param objectClass the type of the objects to return
@@ -68,4 +68,16 @@ public @interface Index {
 	double nrtCachingDirectoryMaxMergeSizeMB() default IndexSettingsDefinition.DEFAULT_NRT_CACHING_DIRECTORY_MERGE_SIZE_MB;
 
 	double nrtCachingDirectoryMaxCachedMB() default IndexSettingsDefinition.DEFAULT_NRT_CACHING_DIRECTORY_MAX_CACHED_MB;
+
+	int commitMaxLatencyMs() default 0;
+
+	int commitMaxDocs() default 0;
+
+	long commitMaxBytes() default 0;
+
+	int refreshIntervalMs() default 0;
+
+	int indexingThreads() default 0;
+
+	boolean translog() default false;
 }
@@ -73,6 +73,8 @@ public @interface IndexField {
 
 	boolean facetRequireDimCount() default false;
 
+	boolean preAnalyzed() default false;
+
 	@Deprecated
 	enum FieldTypeNumeric {
 
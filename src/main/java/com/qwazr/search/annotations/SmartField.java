@@ -48,4 +48,6 @@ public @interface SmartField {
 
 	boolean stored() default false;
 
+	boolean preAnalyzed() default false;
+
 }
\ No newline at end of file
@@ -13,15 +13,16 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.qwazr.search.field.Converters;
 
 import com.qwazr.search.index.BytesRefUtils;
+import com.qwazr.utils.StringUtils;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -30,63 +31,130 @@ import org.apache.lucene.util.BytesRef;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Reads the doc values of the documents of a result. The doc values of each field are loaded once per segment and
+ * reused by all the documents, the terms of the sorted doc values are looked up once per ordinal.
+ * <p>
+ * A MultiReader is not thread safe: it is used by the thread building the result.
+ */
 public class MultiReader {
 
-	final int[] docBases;
-	final LeafReader[] leafReaders;
+	final List<LeafReaderContext> leaves;
+
+	private final DocValuesCache<NumericDocValues> numerics;
+	private final DocValuesCache<OrdinalTerms<SortedDocValues>> sorted;
+	private final DocValuesCache<BinaryDocValues> binaries;
+	private final DocValuesCache<SortedNumericDocValues> sortedNumerics;
+	private final DocValuesCache<OrdinalTerms<SortedSetDocValues>> sortedSets;
 
 	public MultiReader(final IndexReader reader) {
-		docBases = new int[reader.leaves().size()];
-		leafReaders = new LeafReader[docBases.length];
-		int i = 0;
-		for (LeafReaderContext leafReaderContext : reader.leaves()) {
-			docBases[i] = leafReaderContext.docBase;
-			leafReaders[i++] = leafReaderContext.reader();
-		}
+		leaves = reader.leaves();
+		numerics = new DocValuesCache<>(LeafReader::getNumericDocValues);
+		sorted = new DocValuesCache<>(MultiReader::loadSorted);
+		binaries = new DocValuesCache<>(LeafReader::getBinaryDocValues);
+		sortedNumerics = new DocValuesCache<>(LeafReader::getSortedNumericDocValues);
+		sortedSets = new DocValuesCache<>(MultiReader::loadSortedSet);
 	}
 
 	final static int NOT_FOUND = -1;
 
 	int getLeafReader(final int docId) {
-		int i = NOT_FOUND;
-		for (final int docBase : docBases) {
-			if (docBase > docId)
-				break;
-			i++;
+		return leaves.isEmpty() ? NOT_FOUND : ReaderUtil.subIndex(docId, leaves);
+	}
+
+	@FunctionalInterface
+	private interface DocValuesLoader<T> {
+		T load(LeafReader leafReader, String field) throws IOException;
+	}
+
+	/**
+	 * The doc values of one type, per segment and per field. A field without doc values in a segment is cached as null.
+	 */
+	private final class DocValuesCache<T> {
+
+		private final DocValuesLoader<T> loader;
+		private final List<Map<String, T>> leavesDocValues;
+
+		private DocValuesCache(final DocValuesLoader<T> loader) {
+			this.loader = loader;
+			this.leavesDocValues = new ArrayList<>(Collections.nCopies(leaves.size(), null));
+		}
+
+		private T get(final int pos, final String field) throws IOException {
+			Map<String, T> docValuesByField = leavesDocValues.get(pos);
+			if (docValuesByField == null) {
+				docValuesByField = new HashMap<>();
+				leavesDocValues.set(pos, docValuesByField);
+			}
+			if (docValuesByField.containsKey(field))
+				return docValuesByField.get(field);
+			final T docValues = loader.load(leaves.get(pos).reader(), field);
+			docValuesByField.put(field, docValues);
+			return docValues;
 		}
-		return i <= docBases.length ? i : NOT_FOUND;
+	}
+
+	/**
+	 * The sorted doc values of a segment with the terms already looked up
+	 */
+	private static final class OrdinalTerms<T> {
+
+		private final T docValues;
+		private final Map<Long, String> terms;
+
+		private OrdinalTerms(final T docValues) {
+			this.docValues = docValues;
+			this.terms = new HashMap<>();
+		}
+	}
+
+	private static OrdinalTerms<SortedDocValues> loadSorted(final LeafReader leafReader, final String field)
+			throws IOException {
+		final SortedDocValues docValues = leafReader.getSortedDocValues(field);
+		return docValues == null ? null : new OrdinalTerms<>(docValues);
+	}
+
+	private static OrdinalTerms<SortedSetDocValues> loadSortedSet(final LeafReader leafReader, final String field)
+			throws IOException {
+		final SortedSetDocValues docValues = leafReader.getSortedSetDocValues(field);
+		return docValues == null ? null : new OrdinalTerms<>(docValues);
 	}
 
 	long getNumericDocValues(final int docId, final String field) throws IOException {
 		final int pos = getLeafReader(docId);
 		if (pos == NOT_FOUND)
 			return 0;
-		final NumericDocValues docValues = leafReaders[pos].getNumericDocValues(field);
+		final NumericDocValues docValues = numerics.get(pos, field);
 		if (docValues == null)
 			return 0;
-		return docValues.get(docId - docBases[pos]);
+		return docValues.get(docId - leaves.get(pos).docBase);
 	}
 
-	BytesRef getSortedDocValues(final int docId, final String field) throws IOException {
+	String getSortedDocValues(final int docId, final String field) throws IOException {
 		final int pos = getLeafReader(docId);
 		if (pos == NOT_FOUND)
-			return BytesRefUtils.EMPTY;
-		final SortedDocValues docValues = leafReaders[pos].getSortedDocValues(field);
-		if (docValues == null)
-			return BytesRefUtils.EMPTY;
-		return BytesRef.deepCopyOf(docValues.get(docId - docBases[pos]));
+			return StringUtils.EMPTY;
+		final OrdinalTerms<SortedDocValues> sortedTerms = sorted.get(pos, field);
+		if (sortedTerms == null)
+			return StringUtils.EMPTY;
+		final int ord = sortedTerms.docValues.getOrd(docId - leaves.get(pos).docBase);
+		if (ord < 0)
+			return StringUtils.EMPTY;
+		return sortedTerms.terms.computeIfAbsent((long) ord, o -> sortedTerms.docValues.lookupOrd(ord).utf8ToString());
 	}
 
 	BytesRef getBinaryDocValues(final int docId, final String field) throws IOException {
 		final int pos = getLeafReader(docId);
 		if (pos == NOT_FOUND)
 			return BytesRefUtils.EMPTY;
-		final BinaryDocValues docValues = leafReaders[pos].getBinaryDocValues(field);
+		final BinaryDocValues docValues = binaries.get(pos, field);
 		if (docValues == null)
 			return BytesRefUtils.EMPTY;
-		return docValues.get(docId - docBases[pos]);
+		return docValues.get(docId - leaves.get(pos).docBase);
 	}
 
 	final static long[] empty = new long[0];
@@ -95,10 +163,10 @@ public class MultiReader {
 		final int pos = getLeafReader(docId);
 		if (pos == NOT_FOUND)
 			return empty;
-		final SortedNumericDocValues docValues = leafReaders[pos].getSortedNumericDocValues(field);
+		final SortedNumericDocValues docValues = sortedNumerics.get(pos, field);
 		if (docValues == null)
 			return empty;
-		docValues.setDocument(docId - docBases[pos]);
+		docValues.setDocument(docId - leaves.get(pos).docBase);
 		final int count = docValues.count();
 		if (count == 0)
 			return empty;
@@ -112,14 +180,15 @@ public class MultiReader {
 		final int pos = getLeafReader(docId);
 		if (pos == NOT_FOUND)
 			return Collections.emptyList();
-		final SortedSetDocValues docValues = leafReaders[pos].getSortedSetDocValues(field);
-		if (docValues == null)
+		final OrdinalTerms<SortedSetDocValues> sortedSet = sortedSets.get(pos, field);
+		if (sortedSet == null)
 			return Collections.emptyList();
-		docValues.setDocument(docId - docBases[pos]);
+		final SortedSetDocValues docValues = sortedSet.docValues;
+		docValues.setDocument(docId - leaves.get(pos).docBase);
 		final List<String> values = new ArrayList<>();
 		long ord;
 		while ((ord = docValues.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS)
-			values.add(docValues.lookupOrd(ord).utf8ToString());
+			values.add(sortedSet.terms.computeIfAbsent(ord, o -> docValues.lookupOrd(o).utf8ToString()));
 		return values;
 	}
 
@@ -119,7 +119,7 @@ public abstract class SingleDVConverter<T> extends ValueConverter<T> {
 
 		@Override
 		final public String convert(final int docId) throws IOException {
-			return reader.getSortedDocValues(docId, field).utf8ToString();
+			return reader.getSortedDocValues(docId, field);
 		}
 
 		@Override
@@ -62,6 +62,8 @@ public class CustomFieldDefinition extends FieldDefinition {
     public final Integer dimensionCount;
     @JsonProperty("dimension_num_bytes")
     public final Integer dimensionNumBytes;
+    @JsonProperty("pre_analyzed")
+    public final Boolean preAnalyzed;
 
     @JsonCreator
     public CustomFieldDefinition(@JsonProperty("template") final Template template,
@@ -80,7 +82,8 @@ public class CustomFieldDefinition extends FieldDefinition {
                                  @JsonProperty("docvalues_type") final DocValuesType docValuesType,
                                  @JsonProperty("dimension_count") final Integer dimensionCount,
                                  @JsonProperty("dimension_num_bytes") final Integer dimensionNumBytes,
-                                 @JsonProperty("copy_from") String[] copyFrom) {
+                                 @JsonProperty("copy_from") String[] copyFrom,
+                                 @JsonProperty("pre_analyzed") final Boolean preAnalyzed) {
         super(null, analyzer, queryAnalyzer, copyFrom);
         this.template = template;
         this.tokenized = tokenized;
@@ -98,6 +101,7 @@ public class CustomFieldDefinition extends FieldDefinition {
         this.docValuesType = docValuesType;
         this.dimensionCount = dimensionCount;
         this.dimensionNumBytes = dimensionNumBytes;
+        this.preAnalyzed = preAnalyzed;
     }
 
     private CustomFieldDefinition(CustomBuilder builder) {
@@ -118,6 +122,7 @@ public class CustomFieldDefinition extends FieldDefinition {
         this.docValuesType = builder.docValuesType;
         this.dimensionCount = builder.dimensionCount;
         this.dimensionNumBytes = builder.dimensionNumBytes;
+        this.preAnalyzed = builder.preAnalyzed;
     }
 
     public CustomFieldDefinition(final String fieldName, final IndexField indexField, final Map<String, Copy> copyMap) {
@@ -139,6 +144,7 @@ public class CustomFieldDefinition extends FieldDefinition {
         facetMultivalued = indexField.facetMultivalued();
         facetHierarchical = indexField.facetHierarchical();
         facetRequireDimCount = indexField.facetRequireDimCount();
+        preAnalyzed = indexField.preAnalyzed();
     }
 
     @Override
@@ -166,7 +172,8 @@ public class CustomFieldDefinition extends FieldDefinition {
                 Objects.equals(dimensionNumBytes, f.dimensionNumBytes) &&
                 Objects.equals(facetMultivalued, f.facetMultivalued) &&
                 Objects.equals(facetHierarchical, f.facetHierarchical) &&
-                Objects.equals(facetRequireDimCount, f.facetRequireDimCount);
+                Objects.equals(facetRequireDimCount, f.facetRequireDimCount) &&
+                Objects.equals(preAnalyzed, f.preAnalyzed);
     }
 
     @Override
@@ -202,6 +209,7 @@ public class CustomFieldDefinition extends FieldDefinition {
         private Boolean facetMultivalued;
         private Boolean facetHierarchical;
         private Boolean facetRequireDimCount;
+        private Boolean preAnalyzed;
 
         public CustomBuilder template(Template template) {
             this.template = template;
@@ -283,6 +291,11 @@ public class CustomFieldDefinition extends FieldDefinition {
             return this;
         }
 
+        public CustomBuilder preAnalyzed(Boolean preAnalyzed) {
+            this.preAnalyzed = preAnalyzed;
+            return this;
+        }
+
         public CustomFieldDefinition build() {
             return new CustomFieldDefinition(this);
         }
@@ -33,6 +33,7 @@ import java.util.function.Consumer;
 final class CustomFieldType extends CustomFieldTypeAbstract.OneField {
 
 	private final List<Consumer<FieldType>> typeSetters;
+	private final boolean preAnalyzed;
 
 	CustomFieldType(final String genericFieldName, final WildcardMatcher wildcardMatcher,
 			final FieldDefinition definition) {
@@ -42,6 +43,7 @@ final class CustomFieldType extends CustomFieldTypeAbstract.OneField {
 				.sortFieldProvider(buildSortFieldProvider((CustomFieldDefinition) definition)));
 		final CustomFieldDefinition customFieldDefinition = (CustomFieldDefinition) definition;
 		typeSetters = buildTypeSetters(customFieldDefinition);
+		preAnalyzed = customFieldDefinition.preAnalyzed != null && customFieldDefinition.preAnalyzed;
 	}
 
 	private static List<Consumer<FieldType>> buildTypeSetters(CustomFieldDefinition definition) {
@@ -132,7 +134,9 @@ final class CustomFieldType extends CustomFieldTypeAbstract.OneField {
 		if (typeSetters != null)
 			for (Consumer<FieldType> ts : typeSetters)
 				ts.accept(type);
-		fieldConsumer.accept(genericFieldName, fieldName, new CustomField(fieldName, type, value));
+		fieldConsumer.accept(genericFieldName, fieldName, preAnalyzed ?
+				PreAnalyzedTokenStream.newField(fieldName, type, value) :
+				new CustomField(fieldName, type, value));
 	}
 
 	private final static EnumMap<FieldType.LegacyNumericType, ValueConverter.Supplier> legacySingleTypeValueConverters;
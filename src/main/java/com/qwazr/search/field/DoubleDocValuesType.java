@@ -21,7 +21,6 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.DoubleDocValuesField;
 import org.apache.lucene.document.Field;
 
 final class DoubleDocValuesType extends CustomFieldTypeAbstract.OneField {
@@ -36,9 +35,9 @@ final class DoubleDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final protected void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final Field field;
 		if (value instanceof Number)
-			field = new DoubleDocValuesField(fieldName, ((Number) value).doubleValue());
+			field = consumer.doubleDocValuesField(fieldName, ((Number) value).doubleValue());
 		else
-			field = new DoubleDocValuesField(fieldName, Double.parseDouble(value.toString()));
+			field = consumer.doubleDocValuesField(fieldName, Double.parseDouble(value.toString()));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
@@ -18,8 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.DoublePoint;
-import org.apache.lucene.document.StoredField;
 
 final class DoublePointType extends StorableFieldType {
 
@@ -31,14 +29,14 @@ final class DoublePointType extends StorableFieldType {
 
 	@Override
 	void newFieldNoStore(final String fieldName, final Object value, final FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new DoublePoint(fieldName, FieldUtils.getDoubleValue(value)));
+		consumer.accept(genericFieldName, fieldName, consumer.doublePoint(fieldName, FieldUtils.getDoubleValue(value)));
 	}
 
 	@Override
 	void newFieldWithStore(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final double doubleValue = FieldUtils.getDoubleValue(value);
-		consumer.accept(genericFieldName, fieldName, new DoublePoint(fieldName, doubleValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, doubleValue));
+		consumer.accept(genericFieldName, fieldName, consumer.doublePoint(fieldName, doubleValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, doubleValue));
 	}
 
 }
@@ -18,7 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.StoredField;
 import org.apache.lucene.facet.FacetField;
 
 import java.util.Arrays;
@@ -34,7 +33,7 @@ final class FacetType extends StorableFieldType {
 	final protected void fillArray(final String fieldName, final String[] values, final FieldConsumer consumer) {
 		consumer.accept(genericFieldName, fieldName, new FacetField(fieldName, values));
 		if (store)
-			consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, Arrays.toString(values)));
+			consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, Arrays.toString(values)));
 	}
 
 	private String getStringValue(Object value) {
@@ -50,7 +49,7 @@ final class FacetType extends StorableFieldType {
 		if (stringValue == null)
 			return;
 		consumer.accept(genericFieldName, fieldName, new FacetField(fieldName, stringValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, stringValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, stringValue));
 	}
 
 	@Override
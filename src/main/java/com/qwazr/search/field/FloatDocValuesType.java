@@ -21,7 +21,6 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.FloatDocValuesField;
 
 final class FloatDocValuesType extends CustomFieldTypeAbstract.OneField {
 
@@ -33,11 +32,11 @@ final class FloatDocValuesType extends CustomFieldTypeAbstract.OneField {
 
 	@Override
 	void newField(String fieldName, Object value, FieldConsumer consumer) {
-		final FloatDocValuesField field;
+		final Field field;
 		if (value instanceof Number)
-			field = new FloatDocValuesField(fieldName, ((Number) value).floatValue());
+			field = consumer.floatDocValuesField(fieldName, ((Number) value).floatValue());
 		else
-			field = new FloatDocValuesField(fieldName, Float.parseFloat(value.toString()));
+			field = consumer.floatDocValuesField(fieldName, Float.parseFloat(value.toString()));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
@@ -18,8 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.FloatPoint;
-import org.apache.lucene.document.StoredField;
 
 final class FloatPointType extends StorableFieldType {
 
@@ -31,14 +29,14 @@ final class FloatPointType extends StorableFieldType {
 
 	@Override
 	void newFieldNoStore(final String fieldName, final Object value, final FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new FloatPoint(fieldName, FieldUtils.getFloatValue(value)));
+		consumer.accept(genericFieldName, fieldName, consumer.floatPoint(fieldName, FieldUtils.getFloatValue(value)));
 	}
 
 	@Override
 	void newFieldWithStore(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final float floatValue = FieldUtils.getFloatValue(value);
-		consumer.accept(genericFieldName, fieldName, new FloatPoint(fieldName, floatValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, floatValue));
+		consumer.accept(genericFieldName, fieldName, consumer.floatPoint(fieldName, floatValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, floatValue));
 	}
 
 }
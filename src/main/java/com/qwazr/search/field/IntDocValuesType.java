@@ -22,7 +22,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.NumericDocValuesField;
 
 final class IntDocValuesType extends CustomFieldTypeAbstract.OneField {
 
@@ -36,9 +35,9 @@ final class IntDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final public void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final Field field;
 		if (value instanceof Number)
-			field = new NumericDocValuesField(fieldName, ((Number) value).intValue());
+			field = consumer.numericDocValuesField(fieldName, ((Number) value).intValue());
 		else
-			field = new NumericDocValuesField(fieldName, Integer.parseInt(value.toString()));
+			field = consumer.numericDocValuesField(fieldName, Integer.parseInt(value.toString()));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
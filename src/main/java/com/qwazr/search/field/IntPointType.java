@@ -18,8 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.IntPoint;
-import org.apache.lucene.document.StoredField;
 
 final class IntPointType extends StorableFieldType {
 
@@ -32,12 +30,12 @@ final class IntPointType extends StorableFieldType {
 	@Override
 	void newFieldWithStore(String fieldName, Object value, FieldConsumer consumer) {
 		final int intValue = FieldUtils.getIntValue(value);
-		consumer.accept(genericFieldName, fieldName, new IntPoint(fieldName, intValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, intValue));
+		consumer.accept(genericFieldName, fieldName, consumer.intPoint(fieldName, intValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, intValue));
 	}
 
 	@Override
 	void newFieldNoStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new IntPoint(fieldName, FieldUtils.getIntValue(value)));
+		consumer.accept(genericFieldName, fieldName, consumer.intPoint(fieldName, FieldUtils.getIntValue(value)));
 	}
 }
@@ -22,7 +22,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.NumericDocValuesField;
 
 final class LongDocValuesType extends CustomFieldTypeAbstract.OneField {
 
@@ -36,9 +35,9 @@ final class LongDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final Field field;
 		if (value instanceof Number)
-			field = new NumericDocValuesField(fieldName, ((Number) value).longValue());
+			field = consumer.numericDocValuesField(fieldName, ((Number) value).longValue());
 		else
-			field = new NumericDocValuesField(fieldName, Long.parseLong(value.toString()));
+			field = consumer.numericDocValuesField(fieldName, Long.parseLong(value.toString()));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
@@ -18,8 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.LongPoint;
-import org.apache.lucene.document.StoredField;
 
 final class LongPointType extends StorableFieldType {
 
@@ -32,13 +30,13 @@ final class LongPointType extends StorableFieldType {
 	@Override
 	void newFieldWithStore(String fieldName, Object value, FieldConsumer consumer) {
 		final long longValue = FieldUtils.getLongValue(value);
-		consumer.accept(genericFieldName, fieldName, new LongPoint(fieldName, longValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, longValue));
+		consumer.accept(genericFieldName, fieldName, consumer.longPoint(fieldName, longValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, longValue));
 	}
 
 	@Override
 	void newFieldNoStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new LongPoint(fieldName, FieldUtils.getLongValue(value)));
+		consumer.accept(genericFieldName, fieldName, consumer.longPoint(fieldName, FieldUtils.getLongValue(value)));
 	}
 
 }
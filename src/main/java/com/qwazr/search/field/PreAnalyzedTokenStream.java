@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.field;
+
+import com.qwazr.server.ServerException;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.util.BytesRef;
+
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A TokenStream replaying the tokens produced by an external analysis.
+ * <p>
+ * The wire format is a whitespace separated list of tokens, optionally preceded by the text to store:
+ * <pre>
+ * =The quick fox= the,s=0,e=3 quick,s=4,e=9 fox,s=10,e=13,i=1,p=AAE=
+ * </pre>
+ * Each token is a term followed by optional attributes: <b>i</b> the position increment (default 1), <b>s</b> and
+ * <b>e</b> the start and end offsets (by default the term is supposed to follow the previous one after one
+ * character), and <b>p</b> the payload encoded in Base64. A backslash escapes the next character in the stored text
+ * and in the terms.
+ */
+final class PreAnalyzedTokenStream extends TokenStream {
+
+	final String storedValue;
+
+	private final String[] terms;
+	private final int[] positionIncrements;
+	private final int[] startOffsets;
+	private final int[] endOffsets;
+	private final BytesRef[] payloads;
+
+	private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+	private final PositionIncrementAttribute positionIncrementAttribute =
+			addAttribute(PositionIncrementAttribute.class);
+	private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
+	private final PayloadAttribute payloadAttribute;
+
+	private int current;
+
+	private PreAnalyzedTokenStream(final Parser parser) {
+		storedValue = parser.storedValue;
+		final int size = parser.terms.size();
+		terms = parser.terms.toArray(new String[size]);
+		positionIncrements = new int[size];
+		startOffsets = new int[size];
+		endOffsets = new int[size];
+		payloads = parser.payloads == null ? null : parser.payloads.toArray(new BytesRef[size]);
+		for (int i = 0; i < size; i++) {
+			positionIncrements[i] = parser.positionIncrements.get(i);
+			startOffsets[i] = parser.startOffsets.get(i);
+			endOffsets[i] = parser.endOffsets.get(i);
+		}
+		payloadAttribute = payloads == null ? null : addAttribute(PayloadAttribute.class);
+	}
+
+	@Override
+	final public boolean incrementToken() {
+		if (current >= terms.length)
+			return false;
+		clearAttributes();
+		termAttribute.append(terms[current]);
+		positionIncrementAttribute.setPositionIncrement(positionIncrements[current]);
+		offsetAttribute.setOffset(startOffsets[current], endOffsets[current]);
+		if (payloadAttribute != null)
+			payloadAttribute.setPayload(payloads[current]);
+		current++;
+		return true;
+	}
+
+	@Override
+	final public void end() throws IOException {
+		super.end();
+		final int lastOffset = endOffsets.length == 0 ? 0 : endOffsets[endOffsets.length - 1];
+		offsetAttribute.setOffset(lastOffset, lastOffset);
+	}
+
+	@Override
+	final public void reset() throws IOException {
+		super.reset();
+		current = 0;
+	}
+
+	/**
+	 * @param value the pre-analyzed value
+	 * @return a TokenStream replaying the tokens of the value
+	 */
+	static PreAnalyzedTokenStream of(final Object value) {
+		return new PreAnalyzedTokenStream(new Parser(value.toString()));
+	}
+
+	/**
+	 * Build a field indexing the tokens of the value, and storing its stored text if the type requires it
+	 *
+	 * @param fieldName the concrete name of the field
+	 * @param type      an indexed and tokenized type
+	 * @param value     the pre-analyzed value
+	 * @return a new field
+	 */
+	static Field newField(final String fieldName, final FieldType type, final Object value) {
+		return newField(fieldName, type, of(value));
+	}
+
+	static Field newField(final String fieldName, final FieldType type, final PreAnalyzedTokenStream tokenStream) {
+		if (!type.stored())
+			return new Field(fieldName, tokenStream, type);
+		final Field field =
+				new Field(fieldName, tokenStream.storedValue == null ? "" : tokenStream.storedValue, type);
+		field.setTokenStream(tokenStream);
+		return field;
+	}
+
+	private static final class Parser {
+
+		private final String value;
+		private final int length;
+		private final StringBuilder builder;
+		private int pos;
+
+		private String storedValue;
+		private final List<String> terms;
+		private final List<Integer> positionIncrements;
+		private final List<Integer> startOffsets;
+		private final List<Integer> endOffsets;
+		private List<BytesRef> payloads;
+
+		private Parser(final String value) {
+			this.value = value;
+			this.length = value.length();
+			this.builder = new StringBuilder();
+			this.terms = new ArrayList<>();
+			this.positionIncrements = new ArrayList<>();
+			this.startOffsets = new ArrayList<>();
+			this.endOffsets = new ArrayList<>();
+			skipWhitespaces();
+			if (pos < length && value.charAt(pos) == '=') {
+				pos++;
+				storedValue = readUntil('=');
+				if (pos >= length)
+					throw error("The stored text is not terminated");
+				pos++;
+			}
+			int lastEndOffset = -1;
+			for (skipWhitespaces(); pos < length; skipWhitespaces())
+				lastEndOffset = readToken(lastEndOffset);
+		}
+
+		private ServerException error(final String message) {
+			return new ServerException(Response.Status.NOT_ACCEPTABLE,
+					message + " at position " + pos + " of the pre-analyzed value: " + value);
+		}
+
+		private void skipWhitespaces() {
+			while (pos < length && Character.isWhitespace(value.charAt(pos)))
+				pos++;
+		}
+
+		private boolean isTokenEnd(final char c) {
+			return c == ',' || Character.isWhitespace(c);
+		}
+
+		/**
+		 * Read the characters until the given separator (or the end of the token if the separator is zero)
+		 */
+		private String readUntil(final char separator) {
+			builder.setLength(0);
+			while (pos < length) {
+				char c = value.charAt(pos);
+				if (separator == 0 ? isTokenEnd(c) : c == separator)
+					break;
+				if (c == '\\') {
+					if (++pos == length)
+						throw error("Dangling escape character");
+					c = value.charAt(pos);
+				}
+				builder.append(c);
+				pos++;
+			}
+			return builder.toString();
+		}
+
+		private int readInt(final String attribute) {
+			final String number = readUntil((char) 0);
+			try {
+				return Integer.parseInt(number);
+			} catch (NumberFormatException e) {
+				throw error("Wrong number for the attribute " + attribute + ": " + number);
+			}
+		}
+
+		private int readToken(final int lastEndOffset) {
+			final String term = readUntil((char) 0);
+			int positionIncrement = 1;
+			int startOffset = lastEndOffset + 1;
+			int endOffset = -1;
+			BytesRef payload = null;
+			while (pos < length && value.charAt(pos) == ',') {
+				pos++;
+				if (pos + 1 >= length || value.charAt(pos + 1) != '=')
+					throw error("Wrong attribute");
+				final char attribute = value.charAt(pos);
+				pos += 2;
+				switch (attribute) {
+				case 'i':
+					positionIncrement = readInt("i");
+					break;
+				case 's':
+					startOffset = readInt("s");
+					break;
+				case 'e':
+					endOffset = readInt("e");
+					break;
+				case 'p':
+					try {
+						payload = new BytesRef(Base64.getDecoder().decode(readUntil((char) 0)));
+					} catch (IllegalArgumentException e) {
+						throw error("Wrong Base64 payload");
+					}
+					break;
+				default:
+					throw error("Unknown attribute: " + attribute);
+				}
+			}
+			if (endOffset == -1)
+				endOffset = startOffset + term.length();
+			if (payload != null && payloads == null) {
+				payloads = new ArrayList<>(terms.size() + 1);
+				for (int i = 0; i < terms.size(); i++)
+					payloads.add(null);
+			}
+			terms.add(term);
+			positionIncrements.add(positionIncrement);
+			startOffsets.add(startOffset);
+			endOffsets.add(endOffset);
+			if (payloads != null)
+				payloads.add(payload);
+			return endOffset;
+		}
+	}
+}
@@ -33,6 +33,8 @@ public class SmartFieldDefinition extends FieldDefinition {
     final public Boolean facet;
     final public Boolean sort;
     final public Boolean stored;
+    @JsonProperty("pre_analyzed")
+    final public Boolean preAnalyzed;
 
     public enum Type {
         TEXT, LONG, INTEGER, DOUBLE, FLOAT
@@ -42,12 +44,14 @@ public class SmartFieldDefinition extends FieldDefinition {
     SmartFieldDefinition(@JsonProperty("type") Type type, @JsonProperty("facet") Boolean facet,
                          @JsonProperty("index") Boolean index, @JsonProperty("analyzer") final String analyzer,
                          @JsonProperty("query_analyzer") final String queryAnalyzer, @JsonProperty("sort") Boolean sort,
-                         @JsonProperty("stored") Boolean stored, @JsonProperty("copy_from") String[] copyFrom) {
+                         @JsonProperty("stored") Boolean stored, @JsonProperty("copy_from") String[] copyFrom,
+                         @JsonProperty("pre_analyzed") Boolean preAnalyzed) {
         super(type, analyzer, queryAnalyzer, copyFrom);
         this.facet = facet;
         this.index = index;
         this.sort = sort;
         this.stored = stored;
+        this.preAnalyzed = preAnalyzed;
     }
 
     private SmartFieldDefinition(SmartBuilder builder) {
@@ -56,6 +60,7 @@ public class SmartFieldDefinition extends FieldDefinition {
         index = builder.index;
         sort = builder.sort;
         stored = builder.stored;
+        preAnalyzed = builder.preAnalyzed;
     }
 
     public SmartFieldDefinition(final String fieldName, final SmartField smartField, final Map<String, Copy> copyMap) {
@@ -65,6 +70,7 @@ public class SmartFieldDefinition extends FieldDefinition {
         index = smartField.index();
         sort = smartField.sort();
         stored = smartField.stored();
+        preAnalyzed = smartField.preAnalyzed();
     }
 
     @Override
@@ -82,7 +88,7 @@ public class SmartFieldDefinition extends FieldDefinition {
             return false;
         final SmartFieldDefinition f = (SmartFieldDefinition) o;
         return Objects.equals(facet, f.facet) && Objects.equals(index, f.index) && Objects.equals(sort, f.sort) &&
-                Objects.equals(stored, f.stored);
+                Objects.equals(stored, f.stored) && Objects.equals(preAnalyzed, f.preAnalyzed);
     }
 
     @Override
@@ -101,6 +107,7 @@ public class SmartFieldDefinition extends FieldDefinition {
         public Boolean index;
         public Boolean sort;
         public Boolean stored;
+        public Boolean preAnalyzed;
 
         public SmartBuilder facet(Boolean facet) {
             this.facet = facet;
@@ -122,6 +129,11 @@ public class SmartFieldDefinition extends FieldDefinition {
             return this;
         }
 
+        public SmartBuilder preAnalyzed(Boolean preAnalyzed) {
+            this.preAnalyzed = preAnalyzed;
+            return this;
+        }
+
         public SmartFieldDefinition build() {
             return new SmartFieldDefinition(this);
         }
@@ -19,10 +19,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.search.index.QueryDefinition;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.SortedDocValuesField;
-import org.apache.lucene.document.SortedNumericDocValuesField;
-import org.apache.lucene.document.StoredField;
-import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
 import org.apache.lucene.index.Term;
@@ -93,27 +89,28 @@ class SmartFieldProviders {
 		}
 
 		void textField(final String fieldName, final Object value, final FieldConsumer consumer) {
-			consumer.accept(genericFieldName, fieldName, new StoredField(getTextName(fieldName), value.toString()));
+			consumer.accept(genericFieldName, fieldName,
+					consumer.storedField(getTextName(fieldName), value.toString()));
 		}
 
 		void longField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StoredField(getLongName(fieldName), FieldUtils.getLongValue(value)));
+					consumer.storedField(getLongName(fieldName), FieldUtils.getLongValue(value)));
 		}
 
 		void integerField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StoredField(getIntegerName(fieldName), FieldUtils.getIntValue(value)));
+					consumer.storedField(getIntegerName(fieldName), FieldUtils.getIntValue(value)));
 		}
 
 		void doubleField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StoredField(getDoubleName(fieldName), FieldUtils.getDoubleValue(value)));
+					consumer.storedField(getDoubleName(fieldName), FieldUtils.getDoubleValue(value)));
 		}
 
 		void floatField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StoredField(getFloatName(fieldName), FieldUtils.getFloatValue(value)));
+					consumer.storedField(getFloatName(fieldName), FieldUtils.getFloatValue(value)));
 		}
 	}
 
@@ -125,7 +122,7 @@ class SmartFieldProviders {
 
 		void textField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StringField(getTextName(fieldName), value.toString(), Field.Store.NO));
+					consumer.stringField(getTextName(fieldName), value.toString(), Field.Store.NO));
 		}
 
 		Term textTerm(final String fieldName, final Object value) {
@@ -138,7 +135,7 @@ class SmartFieldProviders {
 
 		void longField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StringField(getLongName(fieldName), getLongValue(value), Field.Store.NO));
+					consumer.stringField(getLongName(fieldName), getLongValue(value)));
 		}
 
 		Term longTerm(final String fieldName, final Object value) {
@@ -151,7 +148,7 @@ class SmartFieldProviders {
 
 		void integerField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StringField(getIntegerName(fieldName), getIntValue(value), Field.Store.NO));
+					consumer.stringField(getIntegerName(fieldName), getIntValue(value)));
 		}
 
 		Term integerTerm(final String fieldName, final Object value) {
@@ -164,7 +161,7 @@ class SmartFieldProviders {
 
 		void doubleField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StringField(getDoubleName(fieldName), getDoubleValue(value), Field.Store.NO));
+					consumer.stringField(getDoubleName(fieldName), getDoubleValue(value)));
 		}
 
 		Term doubleTerm(final String fieldName, final Object value) {
@@ -177,7 +174,7 @@ class SmartFieldProviders {
 
 		void floatField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new StringField(getFloatName(fieldName), getFloatValue(value), Field.Store.NO));
+					consumer.stringField(getFloatName(fieldName), getFloatValue(value)));
 		}
 
 		Term floatTerm(final String fieldName, final Object value) {
@@ -193,7 +190,7 @@ class SmartFieldProviders {
 
 		void textField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new SortedDocValuesField(getTextName(fieldName), new BytesRef(value.toString())));
+					consumer.sortedDocValuesField(getTextName(fieldName), new BytesRef(value.toString())));
 		}
 
 		SortField sortTextField(final String fieldName, final QueryDefinition.SortEnum sortEnum) {
@@ -202,7 +199,7 @@ class SmartFieldProviders {
 
 		void longField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new SortedNumericDocValuesField(getLongName(fieldName), FieldUtils.getLongValue(value)));
+					consumer.sortedNumericDocValuesField(getLongName(fieldName), FieldUtils.getLongValue(value)));
 		}
 
 		SortField sortLongField(final String fieldName, final QueryDefinition.SortEnum sortEnum) {
@@ -211,7 +208,7 @@ class SmartFieldProviders {
 
 		void integerField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new SortedNumericDocValuesField(getIntegerName(fieldName), FieldUtils.getIntValue(value)));
+					consumer.sortedNumericDocValuesField(getIntegerName(fieldName), FieldUtils.getIntValue(value)));
 		}
 
 		SortField sortIntegerField(final String fieldName, final QueryDefinition.SortEnum sortEnum) {
@@ -219,7 +216,7 @@ class SmartFieldProviders {
 		}
 
 		void doubleField(final String fieldName, final Object value, final FieldConsumer consumer) {
-			consumer.accept(genericFieldName, fieldName, new SortedNumericDocValuesField(getDoubleName(fieldName),
+			consumer.accept(genericFieldName, fieldName, consumer.sortedNumericDocValuesField(getDoubleName(fieldName),
 					NumericUtils.doubleToSortableLong(FieldUtils.getDoubleValue(value))));
 		}
 
@@ -228,7 +225,7 @@ class SmartFieldProviders {
 		}
 
 		void floatField(final String fieldName, final Object value, final FieldConsumer consumer) {
-			consumer.accept(genericFieldName, fieldName, new SortedNumericDocValuesField(getFloatName(fieldName),
+			consumer.accept(genericFieldName, fieldName, consumer.sortedNumericDocValuesField(getFloatName(fieldName),
 					NumericUtils.floatToSortableInt(FieldUtils.getFloatValue(value))));
 		}
 
@@ -257,7 +254,13 @@ class SmartFieldProviders {
 
 		void textField(final String fieldName, final Object value, final FieldConsumer consumer) {
 			consumer.accept(genericFieldName, fieldName,
-					new TextField(getTextName(fieldName), value.toString(), Field.Store.NO));
+					consumer.textField(getTextName(fieldName), value.toString(), Field.Store.NO));
+		}
+
+		void preAnalyzedField(final String fieldName, final PreAnalyzedTokenStream tokenStream,
+				final FieldConsumer consumer) {
+			consumer.accept(genericFieldName, fieldName,
+					PreAnalyzedTokenStream.newField(getTextName(fieldName), TextField.TYPE_NOT_STORED, tokenStream));
 		}
 	}
 
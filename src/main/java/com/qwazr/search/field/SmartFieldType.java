@@ -18,6 +18,9 @@ package com.qwazr.search.field;
 import com.qwazr.utils.StringUtils;
 import com.qwazr.utils.WildcardMatcher;
 
+import java.util.ArrayList;
+import java.util.List;
+
 final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
 
 	SmartFieldType(final String genericFieldName, final WildcardMatcher wildcardMatcher,
@@ -27,6 +30,9 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
 
 	@Override
 	Builder<SmartFieldDefinition> setup(Builder<SmartFieldDefinition> builder) {
+		if (builder.definition.preAnalyzed != null && builder.definition.preAnalyzed &&
+				getType(builder) == SmartFieldDefinition.Type.TEXT)
+			return preAnalyzedProvider(genericFieldName, builder);
 		if (builder.definition.stored != null && builder.definition.stored)
 			storeProvider(genericFieldName, builder);
 		if (builder.definition.index != null && builder.definition.index) {
@@ -143,15 +149,22 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
 
 	static void facetProvider(final String genericFieldName,
 			final FieldTypeAbstract.Builder<SmartFieldDefinition> builder) {
+		final SmartFieldProviders.FacetFieldProvider provider = facetConfig(genericFieldName, builder);
+		builder.fieldProvider(provider::textField);
+		builder.queryFieldNameProvider(provider::getTextName);
+	}
+
+	private static SmartFieldProviders.FacetFieldProvider facetConfig(final String genericFieldName,
+			final FieldTypeAbstract.Builder<SmartFieldDefinition> builder) {
 		final SmartFieldProviders.FacetFieldProvider provider =
 				new SmartFieldProviders.FacetFieldProvider(genericFieldName);
 		builder.facetConfig(((fieldName, fieldMap, facetsConfig) -> {
 			final String resolvedFieldName = provider.getTextName(fieldName);
 			facetsConfig.setMultiValued(resolvedFieldName, true);
-			facetsConfig.setIndexFieldName(resolvedFieldName, fieldMap.sortedSetFacetField);
+			facetsConfig.setIndexFieldName(resolvedFieldName,
+					fieldMap.getSortedSetFacetField(genericFieldName, fieldName));
 		}));
-		builder.fieldProvider(provider::textField);
-		builder.queryFieldNameProvider(provider::getTextName);
+		return provider;
 	}
 
 	static void fullTextProvider(final String genericFieldName,
@@ -162,4 +175,46 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
 		builder.queryFieldNameProvider(provider::getTextName);
 	}
 
+	/**
+	 * The tokens of a pre-analyzed value feed the full text field, the stored, sorted and facet fields receive its
+	 * stored text.
+	 */
+	static Builder<SmartFieldDefinition> preAnalyzedProvider(final String genericFieldName,
+			final FieldTypeAbstract.Builder<SmartFieldDefinition> builder) {
+		final SmartFieldDefinition definition = builder.definition;
+		final List<FieldProvider> storedTextProviders = new ArrayList<>();
+		if (definition.stored != null && definition.stored) {
+			final SmartFieldProviders.StoreFieldProvider provider =
+					new SmartFieldProviders.StoreFieldProvider(genericFieldName);
+			storedTextProviders.add(provider::textField);
+			builder.storedFieldNameProvider(provider::getTextName);
+		}
+		final SmartFieldProviders.TextFieldProvider textProvider;
+		if (definition.index != null && definition.index) {
+			textProvider = new SmartFieldProviders.TextFieldProvider(genericFieldName);
+			builder.queryFieldNameProvider(textProvider::getTextName);
+		} else
+			textProvider = null;
+		if (definition.sort != null && definition.sort) {
+			final SmartFieldProviders.SortedDocValuesFieldProvider provider =
+					new SmartFieldProviders.SortedDocValuesFieldProvider(genericFieldName);
+			storedTextProviders.add(provider::textField);
+			builder.sortFieldProvider(provider::sortTextField);
+		}
+		if (definition.facet != null && definition.facet) {
+			final SmartFieldProviders.FacetFieldProvider provider = facetConfig(genericFieldName, builder);
+			storedTextProviders.add(provider::textField);
+			builder.queryFieldNameProvider(provider::getTextName);
+		}
+		builder.fieldProvider((fieldName, value, consumer) -> {
+			final PreAnalyzedTokenStream tokenStream = PreAnalyzedTokenStream.of(value);
+			if (textProvider != null)
+				textProvider.preAnalyzedField(fieldName, tokenStream, consumer);
+			if (tokenStream.storedValue != null)
+				for (final FieldProvider provider : storedTextProviders)
+					provider.fillValue(fieldName, tokenStream.storedValue, consumer);
+		});
+		return builder;
+	}
+
 }
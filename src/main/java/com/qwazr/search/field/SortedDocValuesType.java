@@ -21,7 +21,6 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.util.BytesRef;
 
 final class SortedDocValuesType extends CustomFieldTypeAbstract.OneField {
@@ -35,7 +34,7 @@ final class SortedDocValuesType extends CustomFieldTypeAbstract.OneField {
 	@Override
 	protected void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		consumer.accept(genericFieldName, fieldName,
-				new SortedDocValuesField(fieldName, new BytesRef(value.toString())));
+				consumer.sortedDocValuesField(fieldName, new BytesRef(value.toString())));
 	}
 
 	@Override
@@ -22,7 +22,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.util.NumericUtils;
 
 final class SortedFloatDocValuesType extends CustomFieldTypeAbstract.OneField {
@@ -37,10 +36,10 @@ final class SortedFloatDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final Field field;
 		if (value instanceof Number)
-			field = new SortedNumericDocValuesField(fieldName,
+			field = consumer.sortedNumericDocValuesField(fieldName,
 					NumericUtils.floatToSortableInt(((Number) value).floatValue()));
 		else
-			field = new SortedNumericDocValuesField(fieldName,
+			field = consumer.sortedNumericDocValuesField(fieldName,
 					NumericUtils.floatToSortableInt(Float.parseFloat(value.toString())));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
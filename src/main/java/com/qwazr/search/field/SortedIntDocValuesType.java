@@ -22,7 +22,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.SortedNumericDocValuesField;
 
 final class SortedIntDocValuesType extends CustomFieldTypeAbstract.OneField {
 
@@ -36,9 +35,9 @@ final class SortedIntDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final public void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		final Field field;
 		if (value instanceof Number)
-			field = new SortedNumericDocValuesField(fieldName, ((Number) value).intValue());
+			field = consumer.sortedNumericDocValuesField(fieldName, ((Number) value).intValue());
 		else
-			field = new SortedNumericDocValuesField(fieldName, Integer.parseInt(value.toString()));
+			field = consumer.sortedNumericDocValuesField(fieldName, Integer.parseInt(value.toString()));
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
@@ -21,7 +21,6 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.SortedNumericDocValuesField;
 
 final class SortedLongDocValuesType extends CustomFieldTypeAbstract.OneField {
 
@@ -35,10 +34,10 @@ final class SortedLongDocValuesType extends CustomFieldTypeAbstract.OneField {
 	final void newField(final String fieldName, final Object value, final FieldConsumer consumer) {
 		if (value instanceof Number)
 			consumer.accept(genericFieldName, fieldName,
-					new SortedNumericDocValuesField(fieldName, ((Number) value).longValue()));
+					consumer.sortedNumericDocValuesField(fieldName, ((Number) value).longValue()));
 		else
 			consumer.accept(genericFieldName, fieldName,
-					new SortedNumericDocValuesField(fieldName, Long.parseLong(value.toString())));
+					consumer.sortedNumericDocValuesField(fieldName, Long.parseLong(value.toString())));
 	}
 
 	@Override
@@ -18,7 +18,6 @@ package com.qwazr.search.field;
 import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.lucene.document.StoredField;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
 
 final class SortedSetDocValuesFacetType extends StorableFieldType {
@@ -42,7 +41,7 @@ final class SortedSetDocValuesFacetType extends StorableFieldType {
 		if (stringValue == null)
 			return;
 		consumer.accept(genericFieldName, fieldName, new SortedSetDocValuesFacetField(fieldName, stringValue));
-		consumer.accept(genericFieldName, fieldName, new StoredField(fieldName, stringValue));
+		consumer.accept(genericFieldName, fieldName, consumer.storedField(fieldName, stringValue));
 	}
 
 	@Override
@@ -37,13 +37,13 @@ final class StoredFieldType extends CustomFieldTypeAbstract.OneField {
 		final Field field;
 		final byte[] bytes;
 		if (value instanceof String)
-			field = new StoredField(fieldName, (String) value);
+			field = consumer.storedField(fieldName, (String) value);
 		else if (value instanceof Integer)
-			field = new StoredField(fieldName, (int) value);
+			field = consumer.storedField(fieldName, (int) value);
 		else if (value instanceof Long)
-			field = new StoredField(fieldName, (long) value);
+			field = consumer.storedField(fieldName, (long) value);
 		else if (value instanceof Float)
-			field = new StoredField(fieldName, (float) value);
+			field = consumer.storedField(fieldName, (float) value);
 		else if ((bytes = TypeUtils.toPrimitiveByteArray(value)) != null)
 			field = new StoredField(fieldName, bytes);
 		else if (value instanceof Externalizable)
@@ -51,7 +51,7 @@ final class StoredFieldType extends CustomFieldTypeAbstract.OneField {
 		else if (value instanceof Serializable)
 			field = new StoredField(fieldName, TypeUtils.toBytes(fieldName, (Serializable) value));
 		else // Last change, convert to string
-			field = new StoredField(fieldName, value.toString());
+			field = consumer.storedField(fieldName, value.toString());
 		consumer.accept(genericFieldName, fieldName, field);
 	}
 
@@ -19,7 +19,6 @@ import com.qwazr.search.index.BytesRefUtils;
 import com.qwazr.search.index.FieldConsumer;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.document.StringField;
 
 final class StringFieldType extends StorableFieldType {
 
@@ -33,12 +32,13 @@ final class StringFieldType extends StorableFieldType {
 
 	@Override
 	void newFieldWithStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new StringField(fieldName, value.toString(), Field.Store.YES));
+		consumer.accept(genericFieldName, fieldName,
+				consumer.stringField(fieldName, value.toString(), Field.Store.YES));
 	}
 
 	@Override
 	void newFieldNoStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new StringField(fieldName, value.toString(), Field.Store.NO));
+		consumer.accept(genericFieldName, fieldName, consumer.stringField(fieldName, value.toString(), Field.Store.NO));
 	}
 
 }
@@ -23,19 +23,26 @@ import org.apache.lucene.document.TextField;
 
 final class TextFieldType extends StorableFieldType {
 
+	private final boolean preAnalyzed;
+
 	TextFieldType(final String genericFieldName, final WildcardMatcher wildcardMatcher,
 			final FieldDefinition definition) {
 		super(of(genericFieldName, wildcardMatcher, (CustomFieldDefinition) definition).bytesRefConverter(
 				BytesRefUtils.Converter.STRING).termProvider(FieldUtils::newStringTerm));
+		preAnalyzed = this.definition != null && this.definition.preAnalyzed != null && this.definition.preAnalyzed;
 	}
 
 	@Override
 	void newFieldWithStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new TextField(fieldName, value.toString(), Field.Store.YES));
+		consumer.accept(genericFieldName, fieldName, preAnalyzed ?
+				PreAnalyzedTokenStream.newField(fieldName, TextField.TYPE_STORED, value) :
+				consumer.textField(fieldName, value.toString(), Field.Store.YES));
 	}
 
 	@Override
 	void newFieldNoStore(String fieldName, Object value, FieldConsumer consumer) {
-		consumer.accept(genericFieldName, fieldName, new TextField(fieldName, value.toString(), Field.Store.NO));
+		consumer.accept(genericFieldName, fieldName, preAnalyzed ?
+				PreAnalyzedTokenStream.newField(fieldName, TextField.TYPE_NOT_STORED, value) :
+				consumer.textField(fieldName, value.toString(), Field.Store.NO));
 	}
 }
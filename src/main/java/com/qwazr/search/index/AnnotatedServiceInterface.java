@@ -22,6 +22,7 @@ import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface AnnotatedServiceInterface {
 
@@ -83,4 +84,10 @@ public interface AnnotatedServiceInterface {
 
 	ResultDefinition.Empty searchQuery(String schemaName, String indexName, QueryDefinition query,
 			ResultDocumentsInterface resultDocuments);
+
+	<T> List<ResultDefinition.WithObject<T>> searchQueries(String schemaName, String indexName,
+			List<QueryDefinition> queries, FieldMapWrapper<T> fieldMapWrapper);
+
+	<T> ResultDefinition.WithObject<T> searchFederated(String schemaName, String indexName, Set<String> indexNames,
+			QueryDefinition query, FieldMapWrapper<T> fieldMapWrapper);
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.query.BooleanQuery;
+import com.qwazr.search.query.DocIdsQuery;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.MatchNoDocsQuery;
+import com.qwazr.search.query.lucene.DocIdSetQuery;
+import com.qwazr.server.ServerException;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A search over the shards of an index: the same schema and index on each node of the cluster, each node holding a
+ * part of the documents. The search runs in two phases:
+ * <ul>
+ * <li>query: each shard collects its top start+rows hits with their cursor (the sort values) on a new point in time,
+ * and counts its facets,</li>
+ * <li>fetch: the hits are merged, each shard loads the returned fields and the highlights of its winning hits only,
+ * selected by their doc IDs on the same point in time.</li>
+ * </ul>
+ * The counts of the facets are summed; a shard returns more values than the top of the facet, the counts of the
+ * values which are not in the top of every shard may still be lower than the exact counts.
+ */
+final class ClusterSearch {
+
+    /**
+     * The points in time of the query phase are released by the fetch phase, or expire after this delay if the
+     * search failed.
+     */
+    private final static long FETCH_KEEP_ALIVE_MS = 30000;
+
+    private final ExecutorService executorService;
+    private final List<IndexServiceInterface> shards;
+    private final String schemaName;
+    private final String indexName;
+
+    ClusterSearch(final ExecutorService executorService, final List<IndexServiceInterface> shards,
+                  final String schemaName, final String indexName) {
+        this.executorService = executorService;
+        this.shards = shards;
+        this.schemaName = schemaName;
+        this.indexName = indexName;
+    }
+
+    /**
+     * @param queryDefinition the query
+     * @param sort            the sort of the query, built with the fields of the local shard, or null for relevance
+     * @return the merged result
+     * @throws IOException if a shard failed
+     */
+    ResultDefinition.WithMap search(final QueryDefinition queryDefinition, final Sort sort) throws IOException {
+        if (queryDefinition.searchAfter != null || queryDefinition.pointInTime != null ||
+                queryDefinition.pointInTimeKeepAliveMs != null || MapUtils.isNotEmpty(queryDefinition.collectors))
+            throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                    "The search_after, the point in time and the collectors cannot be used in a cluster search");
+        if (shards.isEmpty())
+            throw new ServerException(Response.Status.NOT_FOUND, "No shard available");
+
+        final int start = queryDefinition.getStartValue();
+        final int rows = queryDefinition.getRowsValue();
+
+        // Query phase
+        final QueryBuilder queryBuilder = QueryDefinition.of(queryDefinition)
+                .start(0)
+                .rows(start + rows)
+                .documentCursors(true)
+                .cache(null)
+                .pointInTimeKeepAliveMs(FETCH_KEEP_ALIVE_MS);
+        queryBuilder.returnedFields = null;
+        queryBuilder.highlighters = null;
+        queryBuilder.facets = queryDefinition.facets == null ? null : getShardFacets(queryDefinition.facets);
+        final QueryDefinition queryPhase = queryBuilder.build();
+        final List<ResultDefinition.WithMap> queryResults = MultiSearch.execute(executorService, shards.size(),
+                shard -> shards.get(shard).searchQuery(schemaName, indexName, queryPhase, false));
+
+        // Merge
+        final TopDocs[] shardHits = sort == null ? new TopDocs[shards.size()] : new TopFieldDocs[shards.size()];
+        long totalHits = 0;
+        ResultDefinition.TotalHitsRelation totalHitsRelation = null;
+        Boolean timedOut = null;
+        float maxScore = Float.NaN;
+        for (int shard = 0; shard < shardHits.length; shard++) {
+            final ResultDefinition.WithMap result = queryResults.get(shard);
+            final List<ResultDocumentMap> documents = result.getDocuments();
+            final ScoreDoc[] scoreDocs = sort == null ? new ScoreDoc[documents.size()] : new FieldDoc[documents.size()];
+            for (int pos = 0; pos < scoreDocs.length; pos++)
+                scoreDocs[pos] = SearchAfterCursor.decode(documents.get(pos).searchAfter, sort);
+            final long shardTotalHits = result.total_hits == null ? 0 : result.total_hits;
+            final float shardMaxScore = result.max_score == null ? Float.NaN : result.max_score;
+            // The merge only uses the hits, the total is summed as a long below
+            final int mergeTotalHits = (int) Math.min(shardTotalHits, Integer.MAX_VALUE);
+            shardHits[shard] = sort == null ?
+                    new TopDocs(mergeTotalHits, scoreDocs, shardMaxScore) :
+                    new TopFieldDocs(mergeTotalHits, scoreDocs, sort.getSort(), shardMaxScore);
+            totalHits += shardTotalHits;
+            if (!Float.isNaN(shardMaxScore) && (Float.isNaN(maxScore) || shardMaxScore > maxScore))
+                maxScore = shardMaxScore;
+            if (result.total_hits_relation != null && totalHitsRelation !=
+                    ResultDefinition.TotalHitsRelation.greater_than_or_equal_to)
+                totalHitsRelation = result.total_hits_relation;
+            if (result.timed_out != null)
+                timedOut = result.isTimedOut() || (timedOut != null && timedOut);
+        }
+        final TopDocs merged = sort == null ?
+                TopDocs.merge(start, rows, shardHits) :
+                TopDocs.merge(sort, start, rows, (TopFieldDocs[]) shardHits);
+
+        // Fetch phase: the winners of each shard, by doc ID
+        final List<List<Integer>> winners = new ArrayList<>(shardHits.length);
+        for (int shard = 0; shard < shardHits.length; shard++)
+            winners.add(new ArrayList<>());
+        for (ScoreDoc scoreDoc : merged.scoreDocs)
+            winners.get(scoreDoc.shardIndex).add(scoreDoc.doc);
+        final List<ResultDefinition.WithMap> fetchResults = MultiSearch.execute(executorService, shards.size(),
+                shard -> shards.get(shard)
+                        .searchQuery(schemaName, indexName,
+                                getFetchPhase(queryDefinition, queryResults.get(shard).point_in_time,
+                                        winners.get(shard)), false));
+        final List<Map<Integer, ResultDocumentMap>> fetchedDocuments = new ArrayList<>(shardHits.length);
+        for (ResultDefinition.WithMap fetchResult : fetchResults) {
+            final Map<Integer, ResultDocumentMap> fetched = new HashMap<>();
+            for (ResultDocumentMap document : fetchResult.getDocuments())
+                fetched.put(document.doc, document);
+            fetchedDocuments.add(fetched);
+            if (fetchResult.timed_out != null)
+                timedOut = fetchResult.isTimedOut() || (timedOut != null && timedOut);
+        }
+
+        final List<ResultDocumentMap> documents = new ArrayList<>(merged.scoreDocs.length);
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            final int shard = scoreDoc.shardIndex;
+            final ResultDocumentMap document = fetchedDocuments.get(shard).get(scoreDoc.doc);
+            if (document == null) {
+                // The fetch phase of the shard stopped before this document (timeout_ms)
+                timedOut = true;
+                continue;
+            }
+            documents.add(new ResultDocumentMap(scoreDoc.score, start + documents.size(), document.doc, shard,
+                    document.highlights, document.searchAfter, document.fields));
+        }
+
+        return new ResultDefinition.WithMap(totalHits, totalHitsRelation, Float.isNaN(maxScore) ? null : maxScore,
+                documents, queryDefinition.facets == null ? null : mergeFacets(queryDefinition.facets, queryResults),
+                timedOut);
+    }
+
+    /**
+     * The fetch phase of a shard: the query restricted to the winning doc IDs, or the release of its point in time if
+     * the shard has no winning hit
+     */
+    private static QueryDefinition getFetchPhase(final QueryDefinition queryDefinition, final String pointInTime,
+                                                 final List<Integer> docIds) {
+        final QueryBuilder fetchBuilder;
+        if (docIds.isEmpty())
+            fetchBuilder = QueryDefinition.of(new MatchNoDocsQuery()).rows(0);
+        else {
+            final int[] ids = new int[docIds.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = docIds.get(i);
+            // The query is kept for the highlighting, the doc IDs filter leads the conjunction
+            fetchBuilder = QueryDefinition.of(queryDefinition).start(0).rows(ids.length);
+            if (queryDefinition.luceneQuery != null)
+                fetchBuilder.query(new org.apache.lucene.search.BooleanQuery.Builder().add(queryDefinition.luceneQuery,
+                        BooleanClause.Occur.MUST).add(new DocIdSetQuery(ids), BooleanClause.Occur.FILTER).build());
+            else
+                fetchBuilder.query(BooleanQuery.of()
+                        .must(queryDefinition.query == null ? new MatchAllDocsQuery() : queryDefinition.query)
+                        .filter(new DocIdsQuery(ids))
+                        .build());
+        }
+        fetchBuilder.facets = null;
+        return fetchBuilder.cache(null).pointInTime(pointInTime).pointInTimeKeepAliveMs(0L).build();
+    }
+
+    /**
+     * Each shard returns more values than the top of the facet, to reduce the error of the merged counts
+     */
+    private static LinkedHashMap<String, FacetDefinition> getShardFacets(
+            final LinkedHashMap<String, FacetDefinition> facets) {
+        final LinkedHashMap<String, FacetDefinition> shardFacets = new LinkedHashMap<>();
+        facets.forEach((name, facet) -> {
+            final Integer top = getTop(facet);
+            shardFacets.put(name, top == null ?
+                    facet :
+                    new FacetDefinition(top + top / 2 + 10, facet.prefix, facet.sort, facet.queries,
+                            facet.specificValues, facet.genericFieldName));
+        });
+        return shardFacets;
+    }
+
+    /**
+     * @return the top of a facet counting the most frequent values, null for the queries and the specific values
+     */
+    private static Integer getTop(final FacetDefinition facet) {
+        if (MapUtils.isNotEmpty(facet.queries) || CollectionUtils.isNotEmpty(facet.specificValues))
+            return null;
+        return facet.top != null ? facet.top : FacetsBuilder.DEFAULT_TOP;
+    }
+
+    private static Map<String, Map<String, Number>> mergeFacets(final LinkedHashMap<String, FacetDefinition> facets,
+                                                                final List<ResultDefinition.WithMap> results) {
+        final Map<String, Map<String, Number>> mergedFacets = new LinkedHashMap<>();
+        facets.forEach((name, facet) -> {
+            final Map<String, Number> counts = new LinkedHashMap<>();
+            for (ResultDefinition.WithMap result : results) {
+                final Map<String, Number> shardCounts = result.getFacet(name);
+                if (shardCounts != null)
+                    shardCounts.forEach((label, count) -> counts.merge(label, count, ClusterSearch::sum));
+            }
+            final Integer top = getTop(facet);
+            final List<LabelAndValue> values = new ArrayList<>(counts.size());
+            counts.forEach((label, count) -> values.add(new LabelAndValue(label, count)));
+            if (top != null) {
+                values.sort(FacetBuilder.VALUE_DESCENDING);
+                if (values.size() > top)
+                    values.subList(top, values.size()).clear();
+            }
+            if (facet.sort != null)
+                values.sort(facet.sort);
+            final Map<String, Number> mergedCounts = new LinkedHashMap<>();
+            values.forEach(labelAndValue -> mergedCounts.put(labelAndValue.label, labelAndValue.value));
+            mergedFacets.put(name, mergedCounts);
+        });
+        return mergedFacets;
+    }
+
+    private static Number sum(final Number count1, final Number count2) {
+        if (count1 instanceof Float || count1 instanceof Double || count2 instanceof Float ||
+                count2 instanceof Double)
+            return count1.doubleValue() + count2.doubleValue();
+        return count1.longValue() + count2.longValue();
+    }
+}
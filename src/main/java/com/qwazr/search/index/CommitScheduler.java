@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the commits of the concurrent writers of one index.
+ * <p>
+ * Each write registers a new generation. A writer waiting for durability becomes either the leader,
+ * which commits every generation registered so far, or a follower waiting for the leader's commit.
+ * When a max latency is set, the writers which don't wait return immediately and the pending changes
+ * are committed when the latency expires, or sooner if the documents or bytes bound is reached.
+ * With a translog, each commit rolls the log first, and deletes the generations it includes once it succeeded.
+ */
+final class CommitScheduler implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(CommitScheduler.class);
+
+    /**
+     * When the translog is enabled, the acknowledged writes are already durable: the commits only bound the replay
+     */
+    private final static int DEFAULT_TRANSLOG_MAX_LATENCY_MS = 10000;
+
+    private final WriterAndSearcher writerAndSearcher;
+    private final Translog translog;
+    private final String indexName;
+    private final int maxLatencyMs;
+    private final int maxDocs;
+    private final long maxBytes;
+
+    private final ReentrantLock lock;
+    private final Condition committed;
+    private final ScheduledExecutorService timer;
+
+    private long writeGeneration;
+    private long durableGeneration;
+    private boolean committing;
+    private int pendingDocs;
+    private ScheduledFuture<?> scheduledCommit;
+
+    CommitScheduler(final WriterAndSearcher writerAndSearcher, final IndexSettingsDefinition settings,
+            final String indexName) {
+        this(writerAndSearcher, settings, indexName, null);
+    }
+
+    CommitScheduler(final WriterAndSearcher writerAndSearcher, final IndexSettingsDefinition settings,
+            final String indexName, final Translog translog) {
+        this.writerAndSearcher = writerAndSearcher;
+        this.translog = translog;
+        this.indexName = indexName;
+        if (settings != null && settings.commitMaxLatencyMs != null)
+            this.maxLatencyMs = settings.commitMaxLatencyMs;
+        else
+            this.maxLatencyMs = translog == null ? 0 : DEFAULT_TRANSLOG_MAX_LATENCY_MS;
+        this.maxDocs = settings == null || settings.commitMaxDocs == null ? 0 : settings.commitMaxDocs;
+        this.maxBytes = settings == null || settings.commitMaxBytes == null ? 0 : settings.commitMaxBytes;
+        this.lock = new ReentrantLock();
+        this.committed = lock.newCondition();
+        this.timer = maxLatencyMs > 0 ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "commit-scheduler-" + indexName);
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    private boolean isOverflow() {
+        if (maxDocs > 0 && pendingDocs >= maxDocs)
+            return true;
+        if (maxBytes <= 0)
+            return false;
+        final IndexWriter indexWriter = writerAndSearcher.getIndexWriter();
+        return indexWriter != null && indexWriter.ramBytesUsed() >= maxBytes;
+    }
+
+    /**
+     * Register the changes of a writer and commit them according to the policy.
+     *
+     * @param docs           the number of documents changed by the writer
+     * @param waitForDurable true if the call should block until the changes are committed
+     * @throws IOException if the commit failed
+     */
+    void commit(final int docs, final boolean waitForDurable) throws IOException {
+        final long generation;
+        lock.lock();
+        try {
+            generation = ++writeGeneration;
+            pendingDocs += docs;
+            if (!waitForDurable && timer != null && !isOverflow()) {
+                if (scheduledCommit == null)
+                    scheduledCommit = timer.schedule(this::latencyExpired, maxLatencyMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(generation);
+    }
+
+    /**
+     * Commit every pending change and wait for its completion.
+     *
+     * @throws IOException if the commit failed
+     */
+    void commitNow() throws IOException {
+        commit(0, true);
+    }
+
+    private void awaitDurable(final long generation) throws IOException {
+        lock.lock();
+        try {
+            while (durableGeneration < generation) {
+                if (committing) {
+                    committed.awaitUninterruptibly();
+                    continue;
+                }
+                committing = true;
+                final long targetGeneration = writeGeneration;
+                final int targetDocs = pendingDocs;
+                pendingDocs = 0;
+                if (scheduledCommit != null) {
+                    scheduledCommit.cancel(false);
+                    scheduledCommit = null;
+                }
+                boolean success = false;
+                lock.unlock();
+                try {
+                    final long nextLogGeneration = translog == null ? 0 : translog.roll();
+                    writerAndSearcher.commit();
+                    if (translog != null)
+                        translog.trim(nextLogGeneration);
+                    success = true;
+                } finally {
+                    lock.lock();
+                    committing = false;
+                    if (success)
+                        durableGeneration = targetGeneration;
+                    else
+                        pendingDocs += targetDocs;
+                    committed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void latencyExpired() {
+        final long generation;
+        lock.lock();
+        try {
+            scheduledCommit = null;
+            generation = writeGeneration;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitDurable(generation);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, e, () -> "Scheduled commit failed - Index: " + indexName);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (timer != null)
+            timer.shutdownNow();
+        final long generation;
+        lock.lock();
+        try {
+            generation = writeGeneration;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitDurable(generation);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Final commit failed - Index: " + indexName);
+        }
+    }
+}
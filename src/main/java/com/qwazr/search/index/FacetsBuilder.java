@@ -30,6 +30,7 @@ import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.LabelAndValue;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
 import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumFloatAssociations;
 import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumIntAssociations;
@@ -37,41 +38,64 @@ import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 abstract class FacetsBuilder {
 
 	protected final QueryContextImpl queryContext;
-	protected final String sortedSetFacetField;
 	private final LinkedHashMap<String, FacetDefinition> facetsDef;
 	protected final HashMap<String, String> resolvedDimensions;
 	private final Query searchQuery;
+	private final FacetsCollector facetsCollector;
 	private final TimeTracker timeTracker;
+	private final QueryDeadline deadline;
 
 	public final static int DEFAULT_TOP = 10;
 
 	final LinkedHashMap<String, Map<String, Number>> results = new LinkedHashMap<>();
 
 	private FacetsBuilder(final QueryContextImpl queryContext, final LinkedHashMap<String, FacetDefinition> facetsDef,
-			final Query searchQuery, final TimeTracker timeTracker) {
+			final Query searchQuery, final FacetsCollector facetsCollector, final TimeTracker timeTracker,
+			final QueryDeadline deadline) {
 		this.facetsDef = facetsDef;
 		this.queryContext = queryContext;
-		this.sortedSetFacetField = queryContext.fieldMap.getSortedSetFacetField();
 		this.resolvedDimensions = new HashMap<>();
 		getFields(facetsDef).forEach((concrete, generic) -> resolvedDimensions.put(concrete,
 				queryContext.fieldMap.resolveQueryFieldName(generic, concrete)));
 		this.searchQuery = searchQuery;
+		this.facetsCollector = facetsCollector;
 		this.timeTracker = timeTracker;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return true if the time budget of the query is spent: the remaining facets are not computed
+	 */
+	protected final boolean isExpired() {
+		return deadline != null && deadline.isExpired();
 	}
 
 	final FacetsBuilder build() throws Exception {
 		for (Map.Entry<String, FacetDefinition> entry : facetsDef.entrySet()) {
+			if (isExpired())
+				break;
 			final String dimension = entry.getKey();
 			final String resolvedDimension = resolvedDimensions.get(dimension);
 			final FacetDefinition facet = entry.getValue();
@@ -115,13 +139,86 @@ abstract class FacetsBuilder {
 
 	private void buildFacetQueries(final LinkedHashMap<String, AbstractQuery> queries, final FacetBuilder facetBuilder)
 			throws Exception {
-		final BiConsumerEx<String, AbstractQuery, Exception> consumer = (name, facetQuery) -> {
+		final int[] counts = facetsCollector == null ? countFacetQueries(queries) : countMatchingDocs(queries);
+		int i = 0;
+		for (String name : queries.keySet())
+			facetBuilder.put(new LabelAndValue(name, counts[i++]));
+	}
+
+	/**
+	 * Without the matching documents (drill sideways), each facet query is executed with the search query.
+	 */
+	private int[] countFacetQueries(final LinkedHashMap<String, AbstractQuery> queries) throws Exception {
+		final Map<Integer, AbstractQuery> indexedQueries = new HashMap<>();
+		for (AbstractQuery facetQuery : queries.values())
+			indexedQueries.put(indexedQueries.size(), facetQuery);
+		final int[] counts = new int[indexedQueries.size()];
+		final BiConsumerEx<Integer, AbstractQuery, Exception> consumer = (index, facetQuery) -> {
 			final BooleanQuery.Builder builder = new BooleanQuery.Builder();
 			builder.add(searchQuery, BooleanClause.Occur.FILTER);
 			builder.add(facetQuery.getQuery(queryContext), BooleanClause.Occur.FILTER);
-			facetBuilder.put(new LabelAndValue(name, queryContext.indexSearcher.count(builder.build())));
+			counts[index] = queryContext.indexSearcher.count(builder.build());
 		};
-		ConcurrentUtils.forEachEx(queries, consumer);
+		ConcurrentUtils.forEachEx(indexedQueries, consumer);
+		return counts;
+	}
+
+	/**
+	 * The facet queries are intersected with the documents already collected by the search query, in one pass over
+	 * the segments. The segments are counted in parallel.
+	 */
+	private int[] countMatchingDocs(final LinkedHashMap<String, AbstractQuery> queries) throws Exception {
+		final Weight[] weights = new Weight[queries.size()];
+		int i = 0;
+		for (AbstractQuery facetQuery : queries.values())
+			weights[i++] = queryContext.indexSearcher.createNormalizedWeight(facetQuery.getQuery(queryContext), false);
+		final List<FacetsCollector.MatchingDocs> matchingDocsList = facetsCollector.getMatchingDocs();
+		final int[] counts = new int[weights.length];
+		if (queryContext.executorService == null || matchingDocsList.size() <= 1) {
+			for (FacetsCollector.MatchingDocs matchingDocs : matchingDocsList)
+				sumCounts(counts, countMatchingDocs(weights, matchingDocs));
+			return counts;
+		}
+		final List<Future<int[]>> futures = new ArrayList<>(matchingDocsList.size());
+		for (FacetsCollector.MatchingDocs matchingDocs : matchingDocsList)
+			futures.add(queryContext.executorService.submit(() -> countMatchingDocs(weights, matchingDocs)));
+		for (Future<int[]> future : futures) {
+			try {
+				sumCounts(counts, future.get());
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+		}
+		return counts;
+	}
+
+	private static void sumCounts(final int[] counts, final int[] leafCounts) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += leafCounts[i];
+	}
+
+	private static int[] countMatchingDocs(final Weight[] weights, final FacetsCollector.MatchingDocs matchingDocs)
+			throws IOException {
+		final int[] counts = new int[weights.length];
+		if (matchingDocs.totalHits == 0)
+			return counts;
+		for (int i = 0; i < weights.length; i++) {
+			final Scorer scorer = weights[i].scorer(matchingDocs.context);
+			if (scorer == null)
+				continue;
+			final DocIdSetIterator docs = matchingDocs.bits.iterator();
+			if (docs == null)
+				return counts;
+			final TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+			final DocIdSetIterator iterator = ConjunctionDISI.intersectIterators(
+					Arrays.asList(docs, twoPhase == null ? scorer.iterator() : twoPhase.approximation()));
+			int count = 0;
+			for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc())
+				if (twoPhase == null || twoPhase.matches())
+					count++;
+			counts[i] = count;
+		}
+		return counts;
 	}
 
 	static Map<String, String> getFields(LinkedHashMap<String, FacetDefinition> facets) {
@@ -138,7 +235,7 @@ abstract class FacetsBuilder {
 
 	static class WithCollectors extends FacetsBuilder {
 
-		private final SortedSetDocValuesFacetCounts sortedSetCounts;
+		private final Map<String, SortedSetDocValuesFacetCounts> sortedSetCounts;
 		private final FastTaxonomyFacetCounts taxonomyCounts;
 		private final TaxonomyFacetSumFloatAssociations floatTaxonomyCounts;
 		private final TaxonomyFacetSumIntAssociations intTaxonomyCounts;
@@ -146,36 +243,42 @@ abstract class FacetsBuilder {
 
 		WithCollectors(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
 				final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
-				final TimeTracker timeTracker, final FacetsCollector facetsCollector)
+				final TimeTracker timeTracker, final QueryDeadline deadline, final FacetsCollector facetsCollector)
 				throws IOException, ParseException, ReflectiveOperationException, QueryNodeException {
-			super(queryContext, facetsDef, searchQuery, timeTracker);
+			super(queryContext, facetsDef, searchQuery, facetsCollector, timeTracker, deadline);
 			this.facetsConfig = facetsConfig;
-			int facetFlag = checkFacetTypeFlags(facetsConfig, facetsDef);
-			this.sortedSetCounts = queryContext.docValueReaderState == null ?
-					null :
-					(facetFlag & FACET_IS_SORTED) == FACET_IS_SORTED ?
-							new SortedSetDocValuesFacetCounts(queryContext.docValueReaderState, facetsCollector) :
-							null;
-			this.taxonomyCounts = (facetFlag & FACET_IS_TAXO) == FACET_IS_TAXO ?
+			final Set<String> sortedSetFields = new HashSet<>();
+			int facetFlag = checkFacetTypeFlags(facetsConfig, facetsDef, sortedSetFields);
+			// Only the sorted set facet fields used by the request are counted
+			this.sortedSetCounts = new HashMap<>();
+			for (String sortedSetField : sortedSetFields) {
+				if (isExpired())
+					break;
+				final SortedSetDocValuesReaderState docValueReaderState =
+						queryContext.getDocValueReaderState(sortedSetField);
+				if (docValueReaderState != null)
+					sortedSetCounts.put(sortedSetField,
+							new SortedSetDocValuesFacetCounts(docValueReaderState, facetsCollector));
+			}
+			this.taxonomyCounts = (facetFlag & FACET_IS_TAXO) == FACET_IS_TAXO && !isExpired() ?
 					new FastTaxonomyFacetCounts(queryContext.taxonomyReader, facetsConfig, facetsCollector) :
 					null;
-			this.floatTaxonomyCounts = (facetFlag & FACET_IS_TAXO_FLOAT) == FACET_IS_TAXO_FLOAT ?
+			this.floatTaxonomyCounts = (facetFlag & FACET_IS_TAXO_FLOAT) == FACET_IS_TAXO_FLOAT && !isExpired() ?
 					new TaxonomyFacetSumFloatAssociations(FieldDefinition.TAXONOMY_FLOAT_ASSOC_FACET_FIELD,
 							queryContext.taxonomyReader, facetsConfig, facetsCollector) :
 					null;
-			this.intTaxonomyCounts = (facetFlag & FACET_IS_TAXO_INT) == FACET_IS_TAXO_INT ?
+			this.intTaxonomyCounts = (facetFlag & FACET_IS_TAXO_INT) == FACET_IS_TAXO_INT && !isExpired() ?
 					new TaxonomyFacetSumIntAssociations(FieldDefinition.TAXONOMY_INT_ASSOC_FACET_FIELD,
 							queryContext.taxonomyReader, facetsConfig, facetsCollector) :
 					null;
 		}
 
-		private static int FACET_IS_SORTED = 1;
 		private static int FACET_IS_TAXO = 2;
 		private static int FACET_IS_TAXO_INT = 4;
 		private static int FACET_IS_TAXO_FLOAT = 8;
 
 		private int checkFacetTypeFlags(final FacetsConfig facetsConfig,
-				final LinkedHashMap<String, FacetDefinition> facetsDef) {
+				final LinkedHashMap<String, FacetDefinition> facetsDef, final Set<String> sortedSetFields) {
 			int flag = 0;
 			for (String dimName : facetsDef.keySet()) {
 				final String resolvedDimension = resolvedDimensions.get(dimName);
@@ -184,9 +287,10 @@ abstract class FacetsBuilder {
 				final String indexField = facetsConfig.getDimConfig(resolvedDimension).indexFieldName;
 				if (indexField == null)
 					continue;
-				if (indexField.equals(sortedSetFacetField)) {
-					flag = flag | FACET_IS_SORTED;
-				} else {
+				if (queryContext.fieldMap.isSortedSetFacetField(indexField)) {
+					sortedSetFields.add(indexField);
+				} else if (queryContext.taxonomyReader != null) {
+					// No taxonomy in a federated search
 					switch (indexField) {
 					case FieldDefinition.TAXONOMY_FACET_FIELD:
 						flag = flag | FACET_IS_TAXO;
@@ -210,10 +314,11 @@ abstract class FacetsBuilder {
 			final String indexFieldName = facetsConfig.getDimConfig(dimension).indexFieldName;
 			if (indexFieldName == null)
 				return null;
-			if (indexFieldName.equals(sortedSetFacetField)) {
-				if (queryContext.docValueReaderState != null)
-					if (queryContext.docValueReaderState.getOrdRange(dimension) != null)
-						return sortedSetCounts;
+			if (queryContext.fieldMap.isSortedSetFacetField(indexFieldName)) {
+				final SortedSetDocValuesFacetCounts counts = sortedSetCounts.get(indexFieldName);
+				if (counts != null)
+					if (queryContext.getDocValueReaderState(indexFieldName).getOrdRange(dimension) != null)
+						return counts;
 			} else {
 				switch (indexFieldName) {
 				case FieldDefinition.TAXONOMY_FACET_FIELD:
@@ -237,19 +342,23 @@ abstract class FacetsBuilder {
 
 		WithSideways(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
 				final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
-				final TimeTracker timeTracker, final DrillSideways.DrillSidewaysResult results)
+				final TimeTracker timeTracker, final QueryDeadline deadline,
+				final DrillSideways.DrillSidewaysResult results)
 				throws IOException, ParseException, ReflectiveOperationException, QueryNodeException {
-			super(queryContext, facetsDef, searchQuery, timeTracker);
+			super(queryContext, facetsDef, searchQuery, null, timeTracker, deadline);
 			this.facetsConfig = facetsConfig;
 			this.results = results;
 		}
 
 		@Override
 		final protected Facets getFacets(final String dimension) throws IOException {
-			if (sortedSetFacetField.equals(facetsConfig.getDimConfig(dimension).indexFieldName)) {
-				if (queryContext.docValueReaderState == null)
+			final String indexFieldName = facetsConfig.getDimConfig(dimension).indexFieldName;
+			if (queryContext.fieldMap.isSortedSetFacetField(indexFieldName)) {
+				final SortedSetDocValuesReaderState docValueReaderState =
+						queryContext.getDocValueReaderState(indexFieldName);
+				if (docValueReaderState == null)
 					return null;
-				if (queryContext.docValueReaderState.getOrdRange(dimension) == null)
+				if (docValueReaderState.getOrdRange(dimension) == null)
 					return null;
 			}
 			return results.facets;
@@ -16,13 +16,25 @@
 package com.qwazr.search.index;
 
 import com.qwazr.search.field.FieldDefinition;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.util.BytesRef;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
 public interface FieldConsumer {
 
@@ -30,22 +42,278 @@ public interface FieldConsumer {
 
 	void accept(final String genericFieldName, final String concreteFieldName, final Field field);
 
+	/*
+	 * The field factories. By default a new field is built for each value,
+	 * the document builder recycles the instances of the previous documents.
+	 */
+
+	default Field stringField(final String name, final String value, final Field.Store store) {
+		return new StringField(name, value, store);
+	}
+
+	default Field stringField(final String name, final BytesRef value) {
+		return new StringField(name, value, Field.Store.NO);
+	}
+
+	default Field textField(final String name, final String value, final Field.Store store) {
+		return new TextField(name, value, store);
+	}
+
+	default Field storedField(final String name, final String value) {
+		return new StoredField(name, value);
+	}
+
+	default Field storedField(final String name, final int value) {
+		return new StoredField(name, value);
+	}
+
+	default Field storedField(final String name, final long value) {
+		return new StoredField(name, value);
+	}
+
+	default Field storedField(final String name, final float value) {
+		return new StoredField(name, value);
+	}
+
+	default Field storedField(final String name, final double value) {
+		return new StoredField(name, value);
+	}
+
+	default Field intPoint(final String name, final int value) {
+		return new IntPoint(name, value);
+	}
+
+	default Field longPoint(final String name, final long value) {
+		return new LongPoint(name, value);
+	}
+
+	default Field floatPoint(final String name, final float value) {
+		return new FloatPoint(name, value);
+	}
+
+	default Field doublePoint(final String name, final double value) {
+		return new DoublePoint(name, value);
+	}
+
+	default Field numericDocValuesField(final String name, final long value) {
+		return new NumericDocValuesField(name, value);
+	}
+
+	default Field sortedNumericDocValuesField(final String name, final long value) {
+		return new SortedNumericDocValuesField(name, value);
+	}
+
+	default Field floatDocValuesField(final String name, final float value) {
+		return new FloatDocValuesField(name, value);
+	}
+
+	default Field doubleDocValuesField(final String name, final double value) {
+		return new DoubleDocValuesField(name, value);
+	}
+
+	default Field sortedDocValuesField(final String name, final BytesRef value) {
+		return new SortedDocValuesField(name, value);
+	}
+
 	final class ForDocument implements FieldConsumer {
 
-		final Map<String, String> dimensions = new HashMap<>();
 		final Document document = new Document();
 
+		private final FieldMap fieldMap;
+		private final ObjectOpenHashSet<String> checkedDimensions = new ObjectOpenHashSet<>();
+		private final FieldRecycler recycler = new FieldRecycler();
+
+		ForDocument(final FieldMap fieldMap) {
+			this.fieldMap = fieldMap;
+		}
+
 		@Override
 		final public void reset() {
-			dimensions.clear();
 			document.clear();
+			recycler.reset();
 		}
 
 		@Override
 		final public void accept(final String genericFieldName, final String concreteFieldName, final Field field) {
 			document.add(field);
-			dimensions.put(concreteFieldName == null ? genericFieldName : concreteFieldName,
-					genericFieldName == null ? concreteFieldName : genericFieldName);
+			final String dimension = concreteFieldName == null ? genericFieldName : concreteFieldName;
+			// The facet configuration is checked once per dimension and per poster
+			if (checkedDimensions.add(dimension))
+				fieldMap.getFacetsConfig(genericFieldName == null ? concreteFieldName : genericFieldName, dimension);
+		}
+
+		@Override
+		final public Field stringField(final String name, final String value, final Field.Store store) {
+			final FieldRecycler.Slots slots = recycler.slots(store == Field.Store.YES ?
+					FieldRecycler.Kind.storedStringField :
+					FieldRecycler.Kind.stringField, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StringField(name, value, store));
+			field.setStringValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field stringField(final String name, final BytesRef value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.bytesStringField, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StringField(name, value, Field.Store.NO));
+			field.setBytesValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field textField(final String name, final String value, final Field.Store store) {
+			final FieldRecycler.Slots slots = recycler.slots(store == Field.Store.YES ?
+					FieldRecycler.Kind.storedTextField :
+					FieldRecycler.Kind.textField, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new TextField(name, value, store));
+			field.setStringValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field storedField(final String name, final String value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.storedString, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StoredField(name, value));
+			field.setStringValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field storedField(final String name, final int value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.storedInt, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StoredField(name, value));
+			field.setIntValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field storedField(final String name, final long value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.storedLong, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StoredField(name, value));
+			field.setLongValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field storedField(final String name, final float value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.storedFloat, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StoredField(name, value));
+			field.setFloatValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field storedField(final String name, final double value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.storedDouble, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new StoredField(name, value));
+			field.setDoubleValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field intPoint(final String name, final int value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.intPoint, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new IntPoint(name, value));
+			field.setIntValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field longPoint(final String name, final long value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.longPoint, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new LongPoint(name, value));
+			field.setLongValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field floatPoint(final String name, final float value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.floatPoint, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new FloatPoint(name, value));
+			field.setFloatValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field doublePoint(final String name, final double value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.doublePoint, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new DoublePoint(name, value));
+			field.setDoubleValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field numericDocValuesField(final String name, final long value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.numericDocValues, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new NumericDocValuesField(name, value));
+			field.setLongValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field sortedNumericDocValuesField(final String name, final long value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.sortedNumericDocValues, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new SortedNumericDocValuesField(name, value));
+			field.setLongValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field floatDocValuesField(final String name, final float value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.floatDocValues, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new FloatDocValuesField(name, value));
+			field.setFloatValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field doubleDocValuesField(final String name, final double value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.doubleDocValues, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new DoubleDocValuesField(name, value));
+			field.setDoubleValue(value);
+			return field;
+		}
+
+		@Override
+		final public Field sortedDocValuesField(final String name, final BytesRef value) {
+			final FieldRecycler.Slots slots = recycler.slots(FieldRecycler.Kind.sortedDocValues, name);
+			final Field field = slots.next();
+			if (field == null)
+				return slots.add(new SortedDocValuesField(name, value));
+			field.setBytesValue(value);
+			return field;
 		}
 	}
 
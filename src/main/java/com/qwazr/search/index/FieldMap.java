@@ -26,10 +26,13 @@ import org.apache.lucene.facet.FacetsConfig;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -39,12 +42,27 @@ public class FieldMap {
     private final HashMap<String, FieldTypeInterface> nameDefMap;
     private final Collection<Pair<WildcardMatcher, FieldTypeInterface>> wildcardMap;
     private final FacetsConfig facetsConfig;
+    private final Set<String> configuredFacets;
     public final String sortedSetFacetField;
+    private final Map<String, String> sortedSetFacetFields;
+    private final Set<String> sortedSetFacetIndexFields;
 
     FieldMap(final LinkedHashMap<String, FieldDefinition> fieldDefinitionMap, final String sortedSetFacetField) {
+        this(fieldDefinitionMap, sortedSetFacetField, null);
+    }
+
+    /**
+     * @param sortedSetFacetField  the default field storing the sorted set facets
+     * @param sortedSetFacetFields the facets (by field name) stored in their own field, with their own ordinals
+     */
+    FieldMap(final LinkedHashMap<String, FieldDefinition> fieldDefinitionMap, final String sortedSetFacetField,
+            final Map<String, String> sortedSetFacetFields) {
 
         this.sortedSetFacetField =
                 sortedSetFacetField == null ? FieldDefinition.DEFAULT_SORTEDSET_FACET_FIELD : sortedSetFacetField;
+        this.sortedSetFacetFields = sortedSetFacetFields == null ? Collections.emptyMap() : sortedSetFacetFields;
+        this.sortedSetFacetIndexFields = new HashSet<>(this.sortedSetFacetFields.values());
+        this.sortedSetFacetIndexFields.add(this.sortedSetFacetField);
 
         nameDefMap = new HashMap<>();
         wildcardMap = new ArrayList<>();
@@ -81,6 +99,7 @@ public class FieldMap {
         this.fieldDefinitionMap = fieldDefinitionMap;
 
         facetsConfig = new FacetsConfig();
+        configuredFacets = ConcurrentHashMap.newKeySet();
 
     }
 
@@ -121,6 +140,18 @@ public class FieldMap {
     }
 
     private void checkFacetConfig(final String genericFieldName, final String concreteFieldName) {
+        if (configuredFacets.contains(concreteFieldName))
+            return;
+        synchronized (facetsConfig) {
+            if (configuredFacets.contains(concreteFieldName))
+                return;
+            setFacetConfig(genericFieldName, concreteFieldName);
+            // Published once complete, the concurrent writers never see a partial dimension configuration
+            configuredFacets.add(concreteFieldName);
+        }
+    }
+
+    private void setFacetConfig(final String genericFieldName, final String concreteFieldName) {
         if (facetsConfig.getDimConfigs().containsKey(concreteFieldName))
             return;
         final FieldTypeInterface fieldType = getFieldType(genericFieldName, concreteFieldName);
@@ -136,7 +167,8 @@ public class FieldMap {
                     customDef.template == null ? FieldDefinition.Template.NONE : customDef.template;
             switch (template) {
                 case SortedSetDocValuesFacetField:
-                    facetsConfig.setIndexFieldName(concreteFieldName, sortedSetFacetField);
+                    facetsConfig.setIndexFieldName(concreteFieldName,
+                            getSortedSetFacetField(genericFieldName, concreteFieldName));
                     break;
                 case FacetField:
                     facetsConfig.setIndexFieldName(concreteFieldName, FieldDefinition.TAXONOMY_FACET_FIELD);
@@ -198,6 +230,13 @@ public class FieldMap {
         return facetsConfig;
     }
 
+    /**
+     * @return the facets configuration, the dimensions being already checked
+     */
+    final FacetsConfig getFacetsConfig() {
+        return facetsConfig;
+    }
+
     final public FacetsConfig getFacetsConfig(final String genericFieldName, final String concreteFieldName) {
         checkFacetConfig(genericFieldName, concreteFieldName);
         return facetsConfig;
@@ -207,6 +246,33 @@ public class FieldMap {
         return sortedSetFacetField;
     }
 
+    /**
+     * @param genericFieldName  the name of the field definition
+     * @param concreteFieldName the name of the field
+     * @return the field storing the values of this sorted set facet
+     */
+    final public String getSortedSetFacetField(final String genericFieldName, final String concreteFieldName) {
+        String indexFieldName = sortedSetFacetFields.get(concreteFieldName);
+        if (indexFieldName == null && genericFieldName != null)
+            indexFieldName = sortedSetFacetFields.get(genericFieldName);
+        return indexFieldName == null ? sortedSetFacetField : indexFieldName;
+    }
+
+    /**
+     * @param indexFieldName the index field name of a facet dimension
+     * @return true if the dimension is a sorted set facet
+     */
+    final boolean isSortedSetFacetField(final String indexFieldName) {
+        return indexFieldName != null && sortedSetFacetIndexFields.contains(indexFieldName);
+    }
+
+    /**
+     * @return the fields storing the sorted set facets
+     */
+    final Set<String> getSortedSetFacetFields() {
+        return sortedSetFacetIndexFields;
+    }
+
     final Set<String> getStaticFieldSet() {
         return nameDefMap.keySet();
     }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.apache.lucene.document.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the Field instances of the previous documents of a poster.
+ * <p>
+ * The instances are grouped by kind (the Field class and the type of its value) and by concrete field name. The n-th
+ * field of a kind and a name in a document reuses the n-th instance built for the previous documents, only its value
+ * is replaced. The IndexWriter consumes the fields synchronously, so the instances are free once the document has
+ * been indexed.
+ */
+final class FieldRecycler {
+
+	enum Kind {
+		stringField, storedStringField, bytesStringField, textField, storedTextField, storedString, storedInt,
+		storedLong, storedFloat, storedDouble, intPoint, longPoint, floatPoint, doublePoint, numericDocValues,
+		sortedNumericDocValues, floatDocValues, doubleDocValues, sortedDocValues
+	}
+
+	private final Pool[] pools;
+	private final List<Slots> usedSlots;
+
+	FieldRecycler() {
+		final Kind[] kinds = Kind.values();
+		pools = new Pool[kinds.length];
+		for (int i = 0; i < kinds.length; i++)
+			pools[i] = new Pool();
+		usedSlots = new ArrayList<>();
+	}
+
+	/**
+	 * @param kind the kind of the field
+	 * @param name the concrete name of the field
+	 * @return the instances of this kind and name
+	 */
+	final Slots slots(final Kind kind, final String name) {
+		final Pool pool = pools[kind.ordinal()];
+		Slots slots = pool.get(name);
+		if (slots == null) {
+			slots = new Slots();
+			pool.put(name, slots);
+		}
+		return slots;
+	}
+
+	/**
+	 * Release the instances used by the current document
+	 */
+	final void reset() {
+		for (final Slots slots : usedSlots)
+			slots.used = 0;
+		usedSlots.clear();
+	}
+
+	private static final class Pool extends Object2ObjectOpenHashMap<String, Slots> {
+	}
+
+	final class Slots {
+
+		private final List<Field> fields = new ArrayList<>(1);
+		private int used;
+
+		/**
+		 * @return the next free instance, or null if a new instance must be built and added
+		 */
+		final Field next() {
+			if (used >= fields.size())
+				return null;
+			if (used == 0)
+				usedSlots.add(this);
+			return fields.get(used++);
+		}
+
+		final <T extends Field> T add(final T field) {
+			if (used == 0)
+				usedSlots.add(this);
+			fields.add(field);
+			used++;
+			return field;
+		}
+	}
+}
@@ -41,6 +41,7 @@ class IndexFileSet {
 	final static String FIELDS_FILE = "fields.json";
 	final static String ANALYZERS_FILE = "analyzers.json";
 	final static String RESOURCES_DIR = "resources";
+	final static String TRANSLOG_DIR = "translog";
 
 	final private File uuidFile;
 	final File uuidMasterFile;
@@ -52,6 +53,7 @@ class IndexFileSet {
 	final Path resourcesDirectoryPath;
 	final private File fieldMapFile;
 	final Path replWorkPath;
+	final Path translogDirectory;
 
 	IndexFileSet(final Path mainDirectory) {
 		this.uuidFile = mainDirectory.resolve(UUID_FILE).toFile();
@@ -64,6 +66,7 @@ class IndexFileSet {
 		this.fieldMapFile = mainDirectory.resolve(FIELDS_FILE).toFile();
 		this.settingsFile = mainDirectory.resolve(SETTINGS_FILE).toFile();
 		this.replWorkPath = mainDirectory.resolve(REPL_WORK);
+		this.translogDirectory = mainDirectory.resolve(TRANSLOG_DIR);
 	}
 
 	String checkIndexDirectory() throws IOException {
@@ -23,6 +23,7 @@ import com.qwazr.search.analysis.CustomAnalyzer;
 import com.qwazr.search.analysis.UpdatableAnalyzers;
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.search.field.SortUtils;
 import com.qwazr.search.query.JoinQuery;
 import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
@@ -37,8 +38,10 @@ import com.qwazr.utils.reflection.ConstructorParametersImpl;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
@@ -46,6 +49,8 @@ import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.join.JoinUtil;
 import org.apache.lucene.search.join.ScoreMode;
 import org.apache.lucene.store.Directory;
@@ -60,8 +65,10 @@ import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,7 +76,10 @@ import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -78,9 +88,25 @@ final public class IndexInstance implements Closeable {
 
     private final static Logger LOGGER = LoggerUtils.getLogger(IndexInstance.class);
 
+    private final static int DEFAULT_STREAM_CHUNK_SIZE = 1000;
+
     @FunctionalInterface
     public interface Provider {
         IndexInstance getIndex(String name);
+
+        /**
+         * @return the query cache shared by the searchers of the indexes
+         */
+        default QueryCache getQueryCache() {
+            return IndexSearcher.getDefaultQueryCache();
+        }
+
+        /**
+         * @return the executor of the searchers of the indexes, null to use the executor of the index
+         */
+        default SearchExecutor getSearchExecutor() {
+            return null;
+        }
     }
 
     private final IndexFileSet fileSet;
@@ -91,6 +117,11 @@ final public class IndexInstance implements Closeable {
     private final Directory dataDirectory;
     private final Directory taxonomyDirectory;
     private final WriterAndSearcher writerAndSearcher;
+    private final MultiThreadSearcherFactory searcherFactory;
+    private final CommitScheduler commitScheduler;
+    private final Translog translog;
+    private final QueryResultCache resultCache;
+    private final PointInTimes pointInTimes;
 
     private final ExecutorService executorService;
     private final IndexSettingsDefinition settings;
@@ -99,7 +130,6 @@ final public class IndexInstance implements Closeable {
     private final Provider indexProvider;
 
     private final ReentrantLock replicationLock;
-    private final ReentrantLock commitLock;
     private final ReentrantLock backupLock;
 
     private final UpdatableAnalyzers indexAnalyzers;
@@ -108,6 +138,12 @@ final public class IndexInstance implements Closeable {
     private final ReentrantLock fieldMapLock;
     private volatile FieldMap fieldMap;
 
+    /**
+     * The document writers share the index, the structural changes (fields, merge, delete all, replication) are
+     * exclusive.
+     */
+    private final ReentrantReadWriteLock writeAccessLock;
+
     private volatile LinkedHashMap<String, AnalyzerDefinition> analyzerDefinitionMap;
     private final LinkedHashMap<String, CustomAnalyzer.Factory> localAnalyzerFactoryMap;
     private final Map<String, AnalyzerFactory> globalAnalyzerFactoryMap;
@@ -127,8 +163,19 @@ final public class IndexInstance implements Closeable {
         this.analyzerDefinitionMap = CustomAnalyzer.createDefinitionMap(localAnalyzerFactoryMap);
         this.globalAnalyzerFactoryMap = builder.globalAnalyzerFactoryMap;
         this.fieldMapLock = new ReentrantLock(true);
+        this.writeAccessLock = new ReentrantReadWriteLock(true);
         this.fieldMap = builder.fieldMap;
         this.writerAndSearcher = builder.writerAndSearcher;
+        this.searcherFactory = builder.searcherFactory;
+        this.translog = builder.translog;
+        this.commitScheduler = new CommitScheduler(writerAndSearcher, builder.settings, indexName, translog);
+        final long resultCacheMaxBytes = builder.settings.resultCacheMaxBytes == null ?
+                IndexSettingsDefinition.DEFAULT_RESULT_CACHE_MAX_BYTES :
+                builder.settings.resultCacheMaxBytes;
+        this.resultCache = resultCacheMaxBytes > 0 ? new QueryResultCache(resultCacheMaxBytes) : null;
+        this.pointInTimes = new PointInTimes(writerAndSearcher, builder.settings.maxPointsInTime == null ?
+                IndexSettingsDefinition.DEFAULT_MAX_POINTS_IN_TIME :
+                builder.settings.maxPointsInTime);
         this.indexAnalyzers = builder.indexAnalyzers;
         this.queryAnalyzers = builder.queryAnalyzers;
         this.settings = builder.settings;
@@ -136,7 +183,6 @@ final public class IndexInstance implements Closeable {
         this.instanceFactory = builder.instanceFactory;
         this.fileResourceLoader = builder.fileResourceLoader;
         this.replicationLock = new ReentrantLock(true);
-        this.commitLock = new ReentrantLock(true);
         this.backupLock = new ReentrantLock(true);
         this.replicationMaster = builder.replicationMaster;
         this.replicationSlave = builder.replicationSlave;
@@ -149,7 +195,8 @@ final public class IndexInstance implements Closeable {
 
     @Override
     public void close() {
-        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers);
+        IOUtils.closeQuietly(commitScheduler, translog, pointInTimes, writerAndSearcher, replicationMaster,
+                indexAnalyzers, queryAnalyzers);
 
         if (taxonomyDirectory != null)
             IOUtils.closeQuietly(taxonomyDirectory);
@@ -186,6 +233,8 @@ final public class IndexInstance implements Closeable {
     }
 
     private void reloadAnalyzersAndFields() throws IOException {
+        final Lock exclusiveLock = writeAccessLock.writeLock();
+        exclusiveLock.lock();
         fieldMapLock.lock();
         try {
             synchronized (localAnalyzerFactoryMap) {
@@ -195,6 +244,7 @@ final public class IndexInstance implements Closeable {
             }
         } finally {
             fieldMapLock.unlock();
+            exclusiveLock.unlock();
         }
     }
 
@@ -204,19 +254,44 @@ final public class IndexInstance implements Closeable {
                         localAnalyzerFactoryMap);
         indexAnalyzers.update(analyzerContext.indexAnalyzerMap);
         queryAnalyzers.update(analyzerContext.queryAnalyzerMap);
+        // The cached results depend on the fields and on the analyzers
+        if (resultCache != null)
+            resultCache.clear();
     }
 
     void setFields(final LinkedHashMap<String, FieldDefinition> fields) throws ServerException, IOException {
+        final Lock exclusiveLock = writeAccessLock.writeLock();
+        exclusiveLock.lock();
         fieldMapLock.lock();
         try {
             fileSet.writeFieldMap(fields);
-            fieldMap = new FieldMap(fields, settings.sortedSetFacetField);
+            fieldMap = new FieldMap(fields, settings.sortedSetFacetField,
+                    settings.sortedSetFacetFields);
             refreshFieldsAnalyzers();
         } finally {
             fieldMapLock.unlock();
+            exclusiveLock.unlock();
         }
     }
 
+    /**
+     * The index sort is resolved from the fields when the writer is opened. If the fields were not defined yet, the
+     * writer must be reopened to apply it, which is only possible while the index is still empty.
+     *
+     * @return true if the index sort of the settings can now be applied to the writer
+     */
+    boolean isIndexSortPending() {
+        final IndexWriter indexWriter = writerAndSearcher.getIndexWriter();
+        if (indexWriter == null || indexWriter.getConfig().getIndexSort() != null)
+            return false;
+        if (IndexInstanceBuilder.buildIndexSort(settings, fieldMap, indexName) == null)
+            return false;
+        if (indexWriter.maxDoc() == 0)
+            return true;
+        LOGGER.warning(() -> "The index sort cannot be applied to a non empty index - Index: " + indexName);
+        return false;
+    }
+
     void setField(final String field_name, final FieldDefinition field) throws IOException, ServerException {
         final LinkedHashMap<String, FieldDefinition> fields = new LinkedHashMap<>(fieldMap.getFieldDefinitionMap());
         fields.put(field_name, field);
@@ -310,7 +385,7 @@ final public class IndexInstance implements Closeable {
     public Query createJoinQuery(final JoinQuery joinQuery) throws IOException {
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
-                try (final QueryContext queryContext = buildQueryContext(indexSearcher, taxonomyReader, null)) {
+                try (final QueryContext queryContext = buildQueryContext(indexSearcher, taxonomyReader, null, null)) {
                     final Query fromQuery = joinQuery.from_query == null ?
                             new MatchAllDocsQuery() :
                             joinQuery.from_query.getQuery(queryContext);
@@ -326,12 +401,7 @@ final public class IndexInstance implements Closeable {
     }
 
     private void nrtCommit() throws IOException {
-        commitLock.lock();
-        try {
-            writerAndSearcher.commit();
-        } finally {
-            commitLock.unlock();
-        }
+        commitScheduler.commitNow();
     }
 
     final BackupStatus backup(final Path backupIndexDirectory) throws IOException {
@@ -418,6 +488,8 @@ final public class IndexInstance implements Closeable {
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
             // We only want one replication at a time
             replicationLock.lock();
+            final Lock exclusiveLock = writeAccessLock.writeLock();
+            exclusiveLock.lock();
             try {
                 return replicationSlave.replicate(((strategy, remoteMasterUuid) -> {
                     if (strategy == ReplicationStatus.Strategy.incremental)
@@ -429,6 +501,7 @@ final public class IndexInstance implements Closeable {
                     // Add fields and analyzers reload
                 }));
             } finally {
+                exclusiveLock.unlock();
                 replicationLock.unlock();
             }
         }
@@ -437,13 +510,16 @@ final public class IndexInstance implements Closeable {
     final void deleteAll(Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
-            writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
-                indexWriter.deleteAll();
-                if (commitUserData != null)
-                    indexWriter.setLiveCommitData(commitUserData.entrySet());
+            exclusiveWrite(() -> {
+                writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
+                    indexWriter.deleteAll();
+                    if (commitUserData != null)
+                        indexWriter.setLiveCommitData(commitUserData.entrySet());
+                    return null;
+                });
+                nrtCommit();
                 return null;
             });
-            nrtCommit();
         }
     }
 
@@ -451,89 +527,213 @@ final public class IndexInstance implements Closeable {
             throws IOException {
         checkIsMaster();
         try (final ReadWriteSemaphores.Lock writeLock = readWriteSemaphores.acquireWriteSemaphore()) {
-            writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
-                try (final ReadWriteSemaphores.Lock readLock = mergedIndex.readWriteSemaphores.acquireReadSemaphore()) {
-                    indexWriter.addIndexes(mergedIndex.dataDirectory);
-                    if (commitUserData != null)
-                        indexWriter.setLiveCommitData(commitUserData.entrySet());
-                }
-                return null;
+            return exclusiveWrite(() -> {
+                writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
+                    try (final ReadWriteSemaphores.Lock readLock =
+                                 mergedIndex.readWriteSemaphores.acquireReadSemaphore()) {
+                        indexWriter.addIndexes(mergedIndex.dataDirectory);
+                        if (commitUserData != null)
+                            indexWriter.setLiveCommitData(commitUserData.entrySet());
+                    }
+                    return null;
+                });
+                nrtCommit();
+                return getIndexStatus();
             });
-            nrtCommit();
-            return getIndexStatus();
         }
     }
 
     private WriteContextImpl buildWriteContext(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
         return new WriteContextImpl(indexProvider, fileResourceLoader, executorService, indexAnalyzers, queryAnalyzers,
-                fieldMap, indexWriter, taxonomyWriter);
+                fieldMap, indexWriter, taxonomyWriter,
+                settings.indexingThreads == null ? 1 : settings.indexingThreads);
+    }
+
+    @FunctionalInterface
+    private interface WriteAccessAction<T> {
+        T get() throws IOException;
+    }
+
+    private <T> T withWriteAccess(final Lock lock, final WriteAccessAction<T> action) throws IOException {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run a write action concurrently with the other document writers of this index
+     */
+    private <T> T sharedWrite(final WriteAccessAction<T> action) throws IOException {
+        return withWriteAccess(writeAccessLock.readLock(), action);
+    }
+
+    /**
+     * Run a write action once every document writer of this index is done
+     */
+    private <T> T exclusiveWrite(final WriteAccessAction<T> action) throws IOException {
+        return withWriteAccess(writeAccessLock.writeLock(), action);
     }
 
     final <T> T write(final IndexServiceInterface.WriteActions<T> writeActions) throws IOException {
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
-            return writerAndSearcher.write(((indexWriter, taxonomyWriter) -> {
+            return sharedWrite(() -> writerAndSearcher.write(((indexWriter, taxonomyWriter) -> {
                 try (final WriteContext context = buildWriteContext(indexWriter, taxonomyWriter)) {
                     return writeActions.apply(context);
                 }
-            }));
+            })));
         }
     }
 
-    private int checkCommit(final int results, final Map<String, String> commitUserData) throws IOException {
-        if (results > 0 || (commitUserData != null && !commitUserData.isEmpty()))
-            nrtCommit();
+    private int checkCommit(final int results, final Map<String, String> commitUserData,
+            final boolean waitForDurable) throws IOException {
+        final boolean withCommitUserData = commitUserData != null && !commitUserData.isEmpty();
+        if (results > 0 || withCommitUserData)
+            commitScheduler.commit(results, (waitForDurable && translog == null) || withCommitUserData);
         return results;
     }
 
+    /**
+     * Apply a write action, and when the translog is enabled, return once the operation is synced in the log
+     */
+    private int logged(final Translog.OperationSupplier operation, final Translog.ActionEx action)
+            throws IOException {
+        return translog == null ? action.apply() : translog.append(operation, action);
+    }
+
+    /**
+     * Apply a write action on annotated records. The records are encoded for the translog before the action, a value
+     * which cannot be logged rejects the write before it reaches the index.
+     */
+    private int logged(final Map<String, Field> fields, final Collection<?> documents, final boolean docValues,
+            final boolean update, final Translog.ActionEx action) throws IOException {
+        if (translog == null)
+            return action.apply();
+        final Translog.Operation operation = documentsOperation(fields, documents, docValues, update);
+        return translog.append(() -> operation, action);
+    }
+
+    private static Translog.Operation documentsOperation(final Map<String, Field> fields,
+            final Collection<?> documents, final boolean docValues, final boolean update) {
+        final RecordAccessors.Getters getters = new RecordAccessors.Getters(fields);
+        final List<Map<String, Object>> maps = new ArrayList<>(documents.size());
+        for (final Object document : documents) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < getters.names.length; i++) {
+                final Object value = getters.get(i, document);
+                if (value != null)
+                    map.put(getters.names[i], Translog.Values.encode(getters.names[i], value));
+            }
+            maps.add(map);
+        }
+        return Translog.Operation.records(docValues, update, maps);
+    }
+
+    private static Translog.Operation documentsOperation(final PostDefinition post,
+            final List<? extends Map<String, ?>> documents, final boolean docValues) {
+        return docValues ?
+                Translog.Operation.docValues(documents) :
+                Translog.Operation.post(post.update == null || post.update, documents);
+    }
+
+    private int checkCommit(final int results, final Map<String, String> commitUserData) throws IOException {
+        return checkCommit(results, commitUserData, false);
+    }
+
     private int checkCommit(final int results, final PostDefinition post) throws IOException {
-        return checkCommit(results, post == null ? null : post.commitUserData);
+        if (post == null)
+            return checkCommit(results, null, false);
+        checkCommit(results, post.commitUserData, post.waitForDurable != null && post.waitForDurable);
+        if (results > 0 && post.waitForRefresh != null && post.waitForRefresh)
+            writerAndSearcher.awaitRefresh();
+        return results;
     }
 
     final <T> int postDocument(final Map<String, Field> fields, final T document,
             final Map<String, String> commitUserData, boolean update) throws IOException {
         checkIsMaster();
-        return write(
-                context -> checkCommit(context.postDocument(fields, document, commitUserData, update), commitUserData));
+        return write(context -> checkCommit(
+                logged(fields, Collections.singletonList(document), false, update,
+                        () -> context.postDocument(fields, document, commitUserData, update)), commitUserData));
     }
 
     final <T> int postDocuments(final Map<String, Field> fields, final Collection<T> documents,
             final Map<String, String> commitUserData, final boolean update) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postDocuments(fields, documents, commitUserData, update),
-                commitUserData));
+        return write(context -> checkCommit(logged(fields, documents, false, update,
+                () -> context.postDocuments(fields, documents, commitUserData, update)), commitUserData));
     }
 
     final int postMappedDocument(final PostDefinition.Document post) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postMappedDocument(post), post));
+        return write(context -> checkCommit(
+                logged(() -> documentsOperation(post, Collections.singletonList(post.document), false),
+                        () -> context.postMappedDocument(post)), post));
     }
 
     final int postMappedDocuments(final PostDefinition.Documents post) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postMappedDocuments(post), post));
+        return write(context -> checkCommit(logged(() -> documentsOperation(post, post.documents, false),
+                () -> context.postMappedDocuments(post)), post));
+    }
+
+    /**
+     * Index a stream of documents chunk by chunk. Each chunk is a distinct write, so the exclusive operations and the
+     * commits can take place between two chunks. The documents are pulled from the source only as fast as they are
+     * indexed.
+     *
+     * @return the number of documents posted by each chunk
+     */
+    final List<Integer> postMappedDocuments(final Iterator<? extends Map<String, ?>> documents, final Boolean update,
+            final Integer chunkSize) throws IOException {
+        checkIsMaster();
+        final int maxDocuments = chunkSize == null || chunkSize <= 0 ? DEFAULT_STREAM_CHUNK_SIZE : chunkSize;
+        final boolean updateDocuments = update == null ? true : update;
+        final List<Integer> counts = new ArrayList<>();
+        while (documents.hasNext())
+            counts.add(write(context -> {
+                if (translog == null)
+                    return checkCommit(context.postMappedDocuments(documents, maxDocuments, updateDocuments), null,
+                            false);
+                // The chunk is kept to be written in the translog
+                final List<Map<String, ?>> chunk = new ArrayList<>();
+                while (chunk.size() < maxDocuments && documents.hasNext())
+                    chunk.add(documents.next());
+                return checkCommit(logged(() -> Translog.Operation.post(updateDocuments, chunk),
+                        () -> context.postMappedDocuments(chunk.iterator(), maxDocuments, updateDocuments)), null,
+                        false);
+            }));
+        return counts;
     }
 
     final <T> int updateDocValues(final Map<String, Field> fields, final T document,
             final Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateDocValues(fields, document, commitUserData), commitUserData));
+        return write(context -> checkCommit(
+                logged(fields, Collections.singletonList(document), true, false,
+                        () -> context.updateDocValues(fields, document, commitUserData)), commitUserData));
     }
 
     final <T> int updateDocsValues(final Map<String, Field> fields, final Collection<T> documents,
             final Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
-        return write(
-                context -> checkCommit(context.updateDocsValues(fields, documents, commitUserData), commitUserData));
+        return write(context -> checkCommit(logged(fields, documents, true, false,
+                () -> context.updateDocsValues(fields, documents, commitUserData)), commitUserData));
     }
 
     final int updateMappedDocValues(final PostDefinition.Document post) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateMappedDocValues(post), post));
+        return write(context -> checkCommit(
+                logged(() -> documentsOperation(post, Collections.singletonList(post.document), true),
+                        () -> context.updateMappedDocValues(post)), post));
     }
 
     final int updateMappedDocsValues(final PostDefinition.Documents post) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateMappedDocsValues(post), post));
+        return write(context -> checkCommit(logged(() -> documentsOperation(post, post.documents, true),
+                () -> context.updateMappedDocsValues(post)), post));
     }
 
     final ResultDefinition.WithMap deleteByQuery(final QueryDefinition queryDefinition) throws IOException {
@@ -541,8 +741,8 @@ final public class IndexInstance implements Closeable {
         Objects.requireNonNull(queryDefinition, "The queryDefinition is missing - Index: " + indexName);
         Objects.requireNonNull(queryDefinition.query, "The query is missing - Index: " + indexName);
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
-            return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
-                try (final QueryContext queryContext = buildQueryContext(indexSearcher, taxonomyReader, null)) {
+            return sharedWrite(() -> writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
+                try (final QueryContext queryContext = buildQueryContext(indexSearcher, taxonomyReader, null, null)) {
                     final Query query = queryDefinition.query.getQuery(queryContext);
                     final IndexWriter indexWriter = writerAndSearcher.getIndexWriter();
                     int docs = indexWriter.numDocs();
@@ -555,7 +755,7 @@ final public class IndexInstance implements Closeable {
                 } catch (ParseException | ReflectiveOperationException | QueryNodeException e) {
                     throw ServerException.of(e);
                 }
-            });
+            }));
         }
     }
 
@@ -578,27 +778,118 @@ final public class IndexInstance implements Closeable {
     }
 
     private QueryContextImpl buildQueryContext(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader,
-            final FieldMapWrapper.Cache fieldMapWrappers) throws IOException {
+            final FieldMapWrapper.Cache fieldMapWrappers, final String pointInTime) throws IOException {
         return new QueryContextImpl(indexProvider, fileResourceLoader, executorService, indexAnalyzers, queryAnalyzers,
-                fieldMap, fieldMapWrappers, indexSearcher, taxonomyReader);
+                fieldMap, fieldMapWrappers, indexSearcher, taxonomyReader, pointInTime, resultCache);
     }
 
     final <T> T query(final FieldMapWrapper.Cache fieldMapWrappers,
             final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
+        pointInTimes.expire();
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader,
-                        fieldMapWrappers)) {
+                        fieldMapWrappers, null)) {
                     return queryActions.apply(context);
                 }
             });
         }
     }
 
+    /**
+     * Run the query, on the searcher of its point in time if it requests one
+     */
+    final <T> T query(final QueryDefinition queryDefinition, final IndexServiceInterface.QueryActions<T> queryActions)
+            throws IOException {
+        if (queryDefinition.pointInTime == null && queryDefinition.pointInTimeKeepAliveMs == null)
+            return query(null, queryActions);
+        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+            return pointInTimes.search(queryDefinition.pointInTime, queryDefinition.pointInTimeKeepAliveMs,
+                    (indexSearcher, taxonomyReader, pointInTime) -> {
+                        try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader, null,
+                                pointInTime)) {
+                            return queryActions.apply(context);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Run a batch of queries on the same searcher: the results are consistent with each other, and the queries share
+     * the query cache of the searcher. The queries run in parallel, the results are returned in the same order.
+     */
+    final <T> List<T> query(final List<QueryDefinition> queryDefinitions,
+            final Function<QueryDefinition, IndexServiceInterface.QueryActions<T>> queryActions) throws IOException {
+        for (QueryDefinition queryDefinition : queryDefinitions)
+            if (queryDefinition.pointInTime != null || queryDefinition.pointInTimeKeepAliveMs != null)
+                throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                        "A point in time cannot be used in a multi search");
+        pointInTimes.expire();
+        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+            return writerAndSearcher.search(
+                    (indexSearcher, taxonomyReader) -> MultiSearch.execute(executorService, queryDefinitions.size(),
+                            index -> {
+                                final QueryDefinition queryDefinition = queryDefinitions.get(index);
+                                try (final QueryContextImpl context = buildQueryContext(indexSearcher,
+                                        taxonomyReader, null, null)) {
+                                    return queryActions.apply(queryDefinition).apply(context);
+                                }
+                            }));
+        }
+    }
+
+    /**
+     * Run the query on this index and the given indexes viewed as one index (MultiReader): the term statistics, the
+     * scores, the sort, the paging and the sorted set facets are global. The fields, the analyzers and the similarity
+     * of this index apply. The taxonomy facets and the point in time are not available.
+     * <p>
+     * The searcher comes from the searcher factory of this index: it shares the search executor, the query cache and
+     * the similarity of the index. As the MultiReader is built for each request, the states of the sorted set facets
+     * cannot be reused: each federated query requesting them reads the ordinals of every segment again, a cost which
+     * grows with the number of unique values of the facet fields.
+     */
+    final <T> T federatedQuery(final Collection<IndexInstance> indexes, final QueryDefinition queryDefinition,
+                               final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
+        if (queryDefinition.pointInTime != null || queryDefinition.pointInTimeKeepAliveMs != null)
+            throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                    "A point in time cannot be used in a federated search");
+        final List<IndexInstance> federated = new ArrayList<>();
+        federated.add(this);
+        for (IndexInstance index : indexes)
+            if (!federated.contains(index))
+                federated.add(index);
+        // The indexes of a schema share the same semaphores: one read permit covers the whole federated query
+        final List<WriterAndSearcher.Lease> leases = new ArrayList<>(federated.size());
+        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+            for (IndexInstance index : federated)
+                leases.add(index.writerAndSearcher.lease());
+            final IndexReader[] indexReaders = new IndexReader[leases.size()];
+            for (int i = 0; i < indexReaders.length; i++)
+                indexReaders[i] = leases.get(i).indexSearcher.getIndexReader();
+            try (final MultiReader multiReader = new MultiReader(indexReaders, false)) {
+                final IndexSearcher indexSearcher = searcherFactory.newRequestSearcher(multiReader);
+                try (final QueryContextImpl context = new QueryContextImpl(indexProvider, fileResourceLoader,
+                        executorService, indexAnalyzers, queryAnalyzers, fieldMap, null, indexSearcher, null, null,
+                        null)) {
+                    return queryActions.apply(context);
+                }
+            }
+        } finally {
+            leases.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    /**
+     * @return the sort of the query, built with the fields of this index, or null if the query is not sorted
+     */
+    final Sort getSort(final QueryDefinition queryDefinition) {
+        return queryDefinition.sorts == null ? null : SortUtils.buildSort(fieldMap, queryDefinition.sorts);
+    }
+
     final Explanation explain(final QueryDefinition queryDefinition, final int docId) throws IOException {
         try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
-                try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader, null)) {
+                try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader, null, null)) {
                     return new QueryExecution<>(context, queryDefinition).explain(docId);
                 } catch (ReflectiveOperationException | ParseException | QueryNodeException e) {
                     throw ServerException.of(e);
@@ -20,25 +20,30 @@ import com.qwazr.search.analysis.AnalyzerFactory;
 import com.qwazr.search.analysis.CustomAnalyzer;
 import com.qwazr.search.analysis.UpdatableAnalyzers;
 import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SortUtils;
 import com.qwazr.server.ServerException;
 import com.qwazr.utils.ClassLoaderUtils;
 import com.qwazr.utils.IOUtils;
+import com.qwazr.utils.LoggerUtils;
 import com.qwazr.utils.concurrent.ReadWriteSemaphores;
 import com.qwazr.utils.reflection.ConstructorParametersImpl;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.codecs.simpletext.SimpleTextCodec;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.NoMergeScheduler;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.SimpleMergedSegmentWarmer;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.TieredMergePolicy;
-import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -52,9 +57,12 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
 
 class IndexInstanceBuilder {
 
+    private final static Logger LOGGER = LoggerUtils.getLogger(IndexInstanceBuilder.class);
+
     private final static String[] similarityClassPrefixes =
             { "", "com.qwazr.search.similarity.", "org.apache.lucene.search.similarities." };
 
@@ -89,9 +97,10 @@ class IndexInstanceBuilder {
     ReplicationMaster replicationMaster;
     ReplicationSlave replicationSlave;
     WriterAndSearcher writerAndSearcher = null;
+    Translog translog = null;
 
     private Similarity similarity;
-    private SearcherFactory searcherFactory;
+    MultiThreadSearcherFactory searcherFactory;
 
     IndexInstanceBuilder(final IndexInstance.Provider indexProvider, final ConstructorParametersImpl instanceFactory,
             final Map<String, SimilarityFactory> similarityFactoryMap,
@@ -116,14 +125,15 @@ class IndexInstanceBuilder {
 
         similarity = findSimilarity(settings.similarity, settings.similarityClass, fileResourceLoader);
 
-        searcherFactory = MultiThreadSearcherFactory.of(executorService,
+        searcherFactory = MultiThreadSearcherFactory.of(executorService, indexProvider::getSearchExecutor,
                 settings.indexReaderWarmer == null ? true : settings.indexReaderWarmer, similarity,
-                settings.sortedSetFacetField);
+                indexProvider::getQueryCache, settings.queryCachePolicy);
 
         localAnalyzerFactoryMap = fileSet.loadAnalyzerDefinitionMap();
         final LinkedHashMap<String, FieldDefinition> fieldMapDefinition = fileSet.loadFieldMap();
 
-        fieldMap = fieldMapDefinition == null ? null : new FieldMap(fieldMapDefinition, settings.sortedSetFacetField);
+        fieldMap = fieldMapDefinition == null ? null : new FieldMap(fieldMapDefinition, settings.sortedSetFacetField,
+                settings.sortedSetFacetFields);
 
         final AnalyzerContext context =
                 new AnalyzerContext(instanceFactory, fileResourceLoader, fieldMap, false, globalAnalyzerFactoryMap,
@@ -196,6 +206,9 @@ class IndexInstanceBuilder {
                 indexWriterConfig.setUseCompoundFile(settings.useCompoundFile);
             if(settings.useSimpleTextCodec != null && settings.useSimpleTextCodec)
                 indexWriterConfig.setCodec(new SimpleTextCodec());
+            final Sort indexSort = buildIndexSort(settings, fieldMap, indexName);
+            if (indexSort != null && isSortedWith(dataDirectory, indexSort, indexName))
+                indexWriterConfig.setIndexSort(indexSort);
 
             final TieredMergePolicy mergePolicy = new TieredMergePolicy();
             if (settings.maxMergeAtOnce != null)
@@ -240,6 +253,42 @@ class IndexInstanceBuilder {
         }
     }
 
+    /**
+     * Resolve the index sort of the settings using the fields of the index
+     *
+     * @return the index sort, or null if there is none or if the fields cannot resolve it yet
+     */
+    static Sort buildIndexSort(final IndexSettingsDefinition settings, final FieldMap fieldMap,
+            final String indexName) {
+        if (settings == null || settings.indexSort == null || settings.indexSort.isEmpty() || fieldMap == null)
+            return null;
+        try {
+            return SortUtils.buildSort(fieldMap, settings.indexSort);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning(() -> "The index sort is not applied: " + e.getMessage() + " - Index: " + indexName);
+            return null;
+        }
+    }
+
+    /**
+     * Lucene refuses to open an index whose segments were written with another sort
+     *
+     * @return true if the existing segments, if any, are sorted with the given sort
+     */
+    private static boolean isSortedWith(final Directory directory, final Sort indexSort, final String indexName)
+            throws IOException {
+        if (!DirectoryReader.indexExists(directory))
+            return true;
+        for (final SegmentCommitInfo segmentCommitInfo : SegmentInfos.readLatestCommit(directory)) {
+            if (!indexSort.equals(segmentCommitInfo.info.getIndexSort())) {
+                LOGGER.warning(() -> "The index sort is not applied: the existing segments are not sorted with "
+                        + indexSort + " - Index: " + indexName);
+                return false;
+            }
+        }
+        return true;
+    }
+
     private IndexWriter checkCommit(final IndexWriter indexWriter) throws IOException {
         if (indexWriter.hasUncommittedChanges())
             indexWriter.commit();
@@ -264,34 +313,70 @@ class IndexInstanceBuilder {
             replicationSlave = ReplicationSlave.withIndexAndTaxo(fileSet, indexService, settings.master, dataDirectory,
                     taxonomyDirectory);
             writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(null, null,
-                    () -> new SearcherTaxonomyManager(dataDirectory, taxonomyDirectory, searcherFactory));
+                    () -> new SearcherTaxonomyManager(dataDirectory, taxonomyDirectory, searcherFactory), 0);
         } else {
             replicationSlave = ReplicationSlave.withIndex(fileSet, indexService, settings.master, dataDirectory);
             writerAndSearcher =
-                    new WriterAndSearcher.WithIndex(null, () -> new SearcherManager(dataDirectory, searcherFactory));
+                    new WriterAndSearcher.WithIndex(null, () -> new SearcherManager(dataDirectory, searcherFactory), 0);
         }
 
     }
 
+    /**
+     * Apply the operations acknowledged after the last commit, then commit them
+     */
+    private void openAndReplayTranslog() throws IOException {
+        if (settings.translog == null || !settings.translog)
+            return;
+        translog = new Translog(fileSet.translogDirectory);
+        final int operations = translog.replay(this::replayOperation);
+        if (operations > 0) {
+            if (taxonomyWriter != null) {
+                taxonomyWriter.getIndexWriter().flush();
+                taxonomyWriter.commit();
+            }
+            indexWriter.flush();
+            indexWriter.commit();
+            LOGGER.info(() -> "Translog replayed: " + operations + " operation(s) - Index: " + indexName);
+        }
+        translog.trim(translog.roll());
+    }
+
+    private void replayOperation(final Translog.Operation operation) throws IOException {
+        if (fieldMap == null || operation.documents == null)
+            return;
+        final RecordsPoster.MapDocument poster = operation.type == Translog.Operation.Type.doc_values ?
+                new RecordsPoster.UpdateMapDocValues(fieldMap, indexWriter, taxonomyWriter) :
+                RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter,
+                        operation.update == null || operation.update);
+        for (final Map<String, ?> document : operation.getDocuments())
+            poster.accept(document);
+    }
+
     private void buildMaster() throws IOException {
 
         openOrCreateDataIndex(false);
 
+        final int refreshIntervalMs = settings.refreshIntervalMs == null ? 0 : settings.refreshIntervalMs;
+
         if (IndexSettingsDefinition.useTaxonomyIndex(settings)) {
             openOrCreateTaxonomyIndex(false);
+            openAndReplayTranslog();
             replicationMaster =
                     new ReplicationMaster.WithIndexAndTaxo(indexUuid.toString(), fileSet, indexWriter, taxonomyWriter);
             writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(indexWriter, taxonomyWriter,
-                    () -> new SearcherTaxonomyManager(indexWriter, true, searcherFactory, taxonomyWriter));
+                    () -> new SearcherTaxonomyManager(indexWriter, true, searcherFactory, taxonomyWriter),
+                    refreshIntervalMs);
         } else {
+            openAndReplayTranslog();
             replicationMaster = new ReplicationMaster.WithIndex(indexUuid.toString(), fileSet, indexWriter);
             writerAndSearcher = new WriterAndSearcher.WithIndex(indexWriter,
-                    () -> new SearcherManager(indexWriter, searcherFactory));
+                    () -> new SearcherManager(indexWriter, searcherFactory), refreshIntervalMs);
         }
     }
 
     private void abort() {
-        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers);
+        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers, translog);
 
         if (taxonomyWriter != null) {
             IOUtils.closeQuietly(taxonomyWriter);
@@ -105,6 +105,18 @@ class IndexInstanceManager implements Closeable {
         });
     }
 
+    /**
+     * Reopen the index if its sort can be applied now that the fields are known
+     */
+    void applyIndexSort() throws Exception {
+        rwl.writeEx(() -> {
+            if (indexInstance == null || !indexInstance.isIndexSortPending())
+                return;
+            closeIndex();
+            ensureOpen();
+        });
+    }
+
     CheckIndex.Status check() throws Exception {
         return rwl.writeEx(() -> {
             closeIndex();
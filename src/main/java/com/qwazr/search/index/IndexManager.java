@@ -35,6 +35,8 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -45,6 +47,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -67,6 +70,8 @@ public class IndexManager extends ConstructorParametersImpl implements Closeable
 
     private final ExecutorService executorService;
 
+    private volatile Function<String, IndexServiceInterface> clusterShards;
+
     public IndexManager(final Path indexesDirectory, final ExecutorService executorService,
                         final ConstructorParameters constructorParameters) {
         super(constructorParameters == null ? new ConcurrentHashMap<>() : constructorParameters.getMap());
@@ -116,6 +121,33 @@ public class IndexManager extends ConstructorParametersImpl implements Closeable
         return this;
     }
 
+    /**
+     * @param clusterShards builds the index service of a node from its address (the cluster_shards of the index
+     *                      settings), used by the cluster search
+     * @return this instance
+     */
+    public IndexManager registerClusterShards(final Function<String, IndexServiceInterface> clusterShards) {
+        this.clusterShards = clusterShards;
+        return this;
+    }
+
+    /**
+     * @param settings the settings of the index
+     * @return the shards of the cluster search, or null if the index does not set any shard
+     */
+    List<IndexServiceInterface> getClusterShards(final IndexSettingsDefinition settings) {
+        if (settings == null || settings.clusterShards == null || settings.clusterShards.isEmpty())
+            return null;
+        final Function<String, IndexServiceInterface> shardBuilder = clusterShards;
+        if (shardBuilder == null)
+            throw new ServerException(Status.NOT_ACCEPTABLE,
+                    "The index sets cluster shards but no cluster is available");
+        final List<IndexServiceInterface> shards = new ArrayList<>(settings.clusterShards.size());
+        for (String address : settings.clusterShards)
+            shards.add(shardBuilder.apply(address));
+        return shards;
+    }
+
     final public IndexServiceInterface getService() {
         return service;
     }
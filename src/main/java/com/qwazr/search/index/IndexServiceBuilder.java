@@ -18,6 +18,7 @@ package com.qwazr.search.index;
 import com.qwazr.cluster.ClusterManager;
 import com.qwazr.cluster.ServiceBuilderAbstract;
 import com.qwazr.server.RemoteService;
+import com.qwazr.server.ServerException;
 
 public class IndexServiceBuilder extends ServiceBuilderAbstract<IndexServiceInterface> {
 
@@ -26,6 +27,18 @@ public class IndexServiceBuilder extends ServiceBuilderAbstract<IndexServiceInte
 				indexManager == null ? null : indexManager.getService());
 	}
 
+	/**
+	 * @param address the address of a node of the cluster
+	 * @return a client of the index service of the node
+	 */
+	public IndexServiceInterface node(final String address) {
+		try {
+			return remote(RemoteService.of(address).build());
+		} catch (Exception e) {
+			throw ServerException.of(e);
+		}
+	}
+
 	@Override
 	public IndexServiceInterface remote(RemoteService remote) {
 		return new IndexSingleClient(remote);
@@ -15,6 +15,9 @@
  */
 package com.qwazr.search.index;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.qwazr.binder.FieldMapWrapper;
 import com.qwazr.search.analysis.AnalyzerDefinition;
 import com.qwazr.search.field.FieldDefinition;
@@ -24,6 +27,7 @@ import com.qwazr.search.replication.ReplicationSession;
 import com.qwazr.server.AbstractServiceImpl;
 import com.qwazr.server.ServerException;
 import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
 import com.qwazr.utils.concurrent.FunctionEx;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.apache.lucene.analysis.Analyzer;
@@ -46,12 +50,26 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 final class IndexServiceImpl extends AbstractServiceImpl implements IndexServiceInterface, AnnotatedServiceInterface {
 
     private static final Logger LOGGER = LoggerUtils.getLogger(IndexServiceImpl.class);
 
+    /**
+     * Reads a sequence of root level documents, either as NDJSON or as a Smile stream
+     */
+    private static final ObjectReader DOCUMENTS_STREAM_READER;
+
+    static {
+        final TypeReference<Map<String, Object>> documentType = new TypeReference<Map<String, Object>>() {
+        };
+        final ObjectReader jsonReader = ObjectMappers.JSON.readerFor(documentType);
+        DOCUMENTS_STREAM_READER =
+                jsonReader.withFormatDetection(jsonReader, ObjectMappers.SMILE.readerFor(documentType));
+    }
+
     private static final String QWAZR_INDEX_ROOT_USER;
 
     private final IndexManager indexManager;
@@ -213,7 +231,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                                                   final LinkedHashMap<String, FieldDefinition> fields) {
         try {
             checkRight(schemaName);
-            indexManager.get(schemaName).get(indexName, false).setFields(fields);
+            final SchemaInstance schemaInstance = indexManager.get(schemaName);
+            schemaInstance.get(indexName, false).setFields(fields);
+            schemaInstance.applyIndexSort(indexName);
             return fields;
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
@@ -288,7 +308,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                           final FieldDefinition field) {
         try {
             checkRight(schemaName);
-            indexManager.get(schemaName).get(indexName, false).setField(fieldName, field);
+            final SchemaInstance schemaInstance = indexManager.get(schemaName);
+            schemaInstance.get(indexName, false).setField(fieldName, field);
+            schemaInstance.applyIndexSort(indexName);
             return field;
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
@@ -465,6 +487,22 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
         }
     }
 
+    @Override
+    final public List<Integer> postMappedDocumentsStream(final String schemaName, final String indexName,
+                                                         final Boolean update, final Integer chunkSize,
+                                                         final InputStream inputStream) {
+        try {
+            checkRight(schemaName);
+            final IndexInstance indexInstance = indexManager.get(schemaName).get(indexName, true);
+            try (final MappingIterator<Map<String, Object>> documents = DOCUMENTS_STREAM_READER.readValues(
+                    inputStream)) {
+                return indexInstance.postMappedDocuments(documents, update, chunkSize);
+            }
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
     @Override
     final public <T> int postDocument(final String schemaName, final String indexName, final Map<String, Field> fields,
                                       final T document, final Map<String, String> commitUserData) throws IOException {
@@ -789,9 +827,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
             if (delete != null && delete)
                 return index.deleteByQuery(query);
             else
-                return index.query(null, context -> context.searchMap(query));
+                return index.query(query, context -> context.searchMap(query));
         } catch (Exception e) {
-            throw ServerException.getJsonException(LOGGER, e);
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
         }
     }
 
@@ -802,9 +840,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
             checkRight(schemaName);
             return indexManager.get(schemaName)
                     .get(indexName, false)
-                    .query(null, context -> context.searchObject(query, wrapper));
+                    .query(query, context -> context.searchObject(query, wrapper));
         } catch (Exception e) {
-            throw ServerException.getJsonException(LOGGER, e);
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
         }
     }
 
@@ -815,9 +853,106 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
             checkRight(schemaName);
             return indexManager.get(schemaName)
                     .get(indexName, false)
-                    .query(null, context -> context.searchInterface(query, resultDocuments));
+                    .query(query, context -> context.searchInterface(query, resultDocuments));
         } catch (Exception e) {
-            throw ServerException.getJsonException(LOGGER, e);
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
+        }
+    }
+
+    @Override
+    final public List<ResultDefinition.WithMap> searchQueries(final String schemaName, final String indexName,
+                                                              final List<QueryDefinition> queries) {
+        try {
+            checkRight(schemaName);
+            return indexManager.get(schemaName)
+                    .get(indexName, false)
+                    .query(queries, query -> context -> context.searchMap(query));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
+        }
+    }
+
+    @Override
+    final public <T> List<ResultDefinition.WithObject<T>> searchQueries(final String schemaName,
+                                                                        final String indexName, final List<QueryDefinition> queries,
+                                                                        final FieldMapWrapper<T> wrapper) {
+        try {
+            checkRight(schemaName);
+            return indexManager.get(schemaName)
+                    .get(indexName, false)
+                    .query(queries, query -> context -> context.searchObject(query, wrapper));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
+        }
+    }
+
+    @Override
+    final public ResultDefinition.WithMap searchCluster(final String schemaName, final String indexName,
+                                                        final QueryDefinition query) {
+        try {
+            checkRight(schemaName);
+            final IndexInstance index = indexManager.get(schemaName).get(indexName, false);
+            final List<IndexServiceInterface> shards = indexManager.getClusterShards(index.getSettings());
+            if (shards == null)
+                return searchQuery(schemaName, indexName, query, false);
+            return new ClusterSearch(executorService, shards, schemaName, indexName).search(query,
+                    index.getSort(query));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
+        }
+    }
+
+    /**
+     * A search rejected by the saturated search pool of the schema is answered with a 503
+     */
+    private static Exception checkRejected(final Exception e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof RejectedExecutionException)
+                return new ServerException(Response.Status.SERVICE_UNAVAILABLE, cause.getMessage());
+            cause = cause.getCause();
+        }
+        return e;
+    }
+
+    private <T> T federatedQuery(final String schemaName, final String indexName, final Set<String> indexNames,
+                                 final QueryDefinition query, final IndexServiceInterface.QueryActions<T> queryActions)
+            throws IOException {
+        checkRight(schemaName);
+        final SchemaInstance schema = indexManager.get(schemaName);
+        final Collection<String> names = new ArrayList<>();
+        if ("*".equals(indexName))
+            names.addAll(schema.getIndexMap().keySet());
+        else
+            names.add(indexName);
+        if (indexNames != null)
+            names.addAll(indexNames);
+        if (names.isEmpty())
+            throw new ServerException(Response.Status.NOT_FOUND, "No index in the schema: " + schemaName);
+        final List<IndexInstance> indexes = new ArrayList<>(names.size());
+        for (String name : names)
+            indexes.add(schema.get(name, false));
+        return indexes.get(0).federatedQuery(indexes, query, queryActions);
+    }
+
+    @Override
+    final public ResultDefinition.WithMap searchFederated(final String schemaName, final String indexName,
+                                                          final Set<String> indexNames, final QueryDefinition query) {
+        try {
+            return federatedQuery(schemaName, indexName, indexNames, query, context -> context.searchMap(query));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
+        }
+    }
+
+    @Override
+    final public <T> ResultDefinition.WithObject<T> searchFederated(final String schemaName, final String indexName,
+                                                                    final Set<String> indexNames, final QueryDefinition query, final FieldMapWrapper<T> wrapper) {
+        try {
+            return federatedQuery(schemaName, indexName, indexNames, query,
+                    context -> context.searchObject(query, wrapper));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, checkRejected(e));
         }
     }
 
@@ -861,7 +996,11 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                        final QueryActions<T> actions) throws IOException {
         checkRight(schemaName);
         final IndexInstance index = indexManager.get(schemaName).get(indexName, false);
-        return index.query(fieldMapWrappers, actions);
+        try {
+            return index.query(fieldMapWrappers, actions);
+        } catch (RejectedExecutionException e) {
+            throw new ServerException(Response.Status.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
     @Override
@@ -58,6 +58,8 @@ public interface IndexServiceInterface extends ServiceInterface {
 
     String MEDIATYPE_TEXT_GRAPHVIZ = "text/vnd.graphviz";
 
+    String MEDIATYPE_APPLICATION_NDJSON = "application/x-ndjson";
+
     @POST
     @Path("/{schema_name}")
     @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -274,6 +276,14 @@ public interface IndexServiceInterface extends ServiceInterface {
     Integer postMappedDocuments(@PathParam("schema_name") String schema_name,
                                 @PathParam("index_name") String index_name, PostDefinition.Documents documents);
 
+    @POST
+    @Path("/{schema_name}/{index_name}/docs/stream")
+    @Consumes({MEDIATYPE_APPLICATION_NDJSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    List<Integer> postMappedDocumentsStream(@PathParam("schema_name") String schema_name,
+                                            @PathParam("index_name") String index_name, @QueryParam("update") Boolean update,
+                                            @QueryParam("chunk_size") Integer chunkSize, InputStream inputStream);
+
     @POST
     @Path("/{schema_name}/{index_name}/doc/values")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -367,6 +377,54 @@ public interface IndexServiceInterface extends ServiceInterface {
     ResultDefinition.WithMap searchQuery(@PathParam("schema_name") String schema_name,
                                          @PathParam("index_name") String index_name, QueryDefinition query, @QueryParam("delete") Boolean delete);
 
+    /**
+     * Run a batch of queries on the same searcher of the index
+     *
+     * @param schema_name the name of the schema
+     * @param index_name  the name of the index
+     * @param queries     the queries, a point in time is not accepted
+     * @return the results, in the order of the queries
+     */
+    @POST
+    @Path("/{schema_name}/{index_name}/search/multi")
+    @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    List<ResultDefinition.WithMap> searchQueries(@PathParam("schema_name") String schema_name,
+                                                 @PathParam("index_name") String index_name, List<QueryDefinition> queries);
+
+    /**
+     * Run the query on several indexes of the schema viewed as one index: the scores, the sort, the paging and the
+     * sorted set facets are global. The fields, the analyzers and the similarity of the main index apply.
+     *
+     * @param schema_name  the name of the schema
+     * @param index_name   the name of the main index, or "*" for all the indexes of the schema (in name order)
+     * @param index_names  the names of the other indexes
+     * @param query        the query, a point in time is not accepted
+     * @return the merged result
+     */
+    @POST
+    @Path("/{schema_name}/{index_name}/search/federated")
+    @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    ResultDefinition.WithMap searchFederated(@PathParam("schema_name") String schema_name,
+                                             @PathParam("index_name") String index_name, @QueryParam("index") Set<String> index_names,
+                                             QueryDefinition query);
+
+    /**
+     * Run the query on the shards of the index registered in the cluster, and merge the results
+     *
+     * @param schema_name the name of the schema
+     * @param index_name  the name of the index, the same on every shard
+     * @param query       the query, a point in time, a search_after or collectors are not accepted
+     * @return the merged result
+     */
+    @POST
+    @Path("/{schema_name}/{index_name}/search/cluster")
+    @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    ResultDefinition.WithMap searchCluster(@PathParam("schema_name") String schema_name,
+                                           @PathParam("index_name") String index_name, QueryDefinition query);
+
     @POST
     @Path("/{schema_name}/{index_name}/search/explain/{doc}")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -418,12 +476,19 @@ public interface IndexServiceInterface extends ServiceInterface {
             new GenericType<LinkedHashMap<String, FieldDefinition>>() {
             };
 
+    GenericType<List<Integer>> listIntegerType = new GenericType<List<Integer>>() {
+    };
+
     GenericType<List<TermDefinition>> listTermDefinitionType = new GenericType<List<TermDefinition>>() {
     };
 
     GenericType<List<TermEnumDefinition>> listTermEnumDefinitionType = new GenericType<List<TermEnumDefinition>>() {
     };
 
+    GenericType<List<ResultDefinition.WithMap>> listResultDefinitionWithMapType =
+            new GenericType<List<ResultDefinition.WithMap>>() {
+            };
+
     GenericType<LinkedHashMap<String, AnalyzerDefinition>> mapStringAnalyzerType =
             new GenericType<LinkedHashMap<String, AnalyzerDefinition>>() {
             };
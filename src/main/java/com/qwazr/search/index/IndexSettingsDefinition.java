@@ -28,6 +28,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -45,11 +48,39 @@ public class IndexSettingsDefinition {
         NO, CONCURRENT, SERIAL
     }
 
+    /**
+     * When the filters are cached by the query cache of the schema
+     */
+    public enum QueryCachePolicy {
+
+        /**
+         * Lucene's default: a filter is cached once it has been used several times
+         */
+        USAGE_TRACKING,
+
+        /**
+         * The costly filters (ranges, multi-term and terms queries) are cached on their first use
+         */
+        HEAVY_FILTERS,
+
+        /**
+         * All the filters are cached on their first use
+         */
+        FIRST_USE,
+
+        /**
+         * The query cache is not used
+         */
+        DISABLED
+    }
+
     public static final int DEFAULT_MAX_MERGE_AT_ONCE = 10;
     public static final int DEFAULT_SEGMENTS_PER_TIER = 10;
     public static final double DEFAULT_MAX_MERGED_SEGMENT_MB = 5 * 1024 * 1024;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MERGE_SIZE_MB = 5;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MAX_CACHED_MB = 60;
+    public static final long DEFAULT_RESULT_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_POINTS_IN_TIME = 100;
 
     @JsonProperty("similarity")
     final public String similarity;
@@ -89,6 +120,9 @@ public class IndexSettingsDefinition {
     @JsonProperty("sorted_set_facet_field")
     final public String sortedSetFacetField;
 
+    @JsonProperty("sorted_set_facet_fields")
+    final public LinkedHashMap<String, String> sortedSetFacetFields;
+
     @JsonProperty("index_reader_warmer")
     final public Boolean indexReaderWarmer;
 
@@ -101,6 +135,46 @@ public class IndexSettingsDefinition {
     @JsonProperty("nrt_caching_directory_max_cached_mb")
     final public Double nrtCachingDirectoryMaxCachedMB;
 
+    @JsonProperty("commit_max_latency_ms")
+    final public Integer commitMaxLatencyMs;
+
+    @JsonProperty("commit_max_docs")
+    final public Integer commitMaxDocs;
+
+    @JsonProperty("commit_max_bytes")
+    final public Long commitMaxBytes;
+
+    @JsonProperty("refresh_interval_ms")
+    final public Integer refreshIntervalMs;
+
+    @JsonProperty("indexing_threads")
+    final public Integer indexingThreads;
+
+    @JsonProperty("translog")
+    final public Boolean translog;
+
+    @JsonProperty("result_cache_max_bytes")
+    final public Long resultCacheMaxBytes;
+
+    /**
+     * The maximum number of points in time held open at once by the queries, each one pins a searcher
+     */
+    @JsonProperty("max_points_in_time")
+    final public Integer maxPointsInTime;
+
+    @JsonProperty("query_cache_policy")
+    final public QueryCachePolicy queryCachePolicy;
+
+    @JsonProperty("index_sort")
+    final public LinkedHashMap<String, QueryDefinition.SortEnum> indexSort;
+
+    /**
+     * The addresses of the nodes holding the distinct partitions of the index, used by the cluster search. Without
+     * any shard, the cluster search runs on the local index only.
+     */
+    @JsonProperty("cluster_shards")
+    final public LinkedHashSet<String> clusterShards;
+
     private IndexSettingsDefinition() {
         this.directoryType = null;
         this.mergeScheduler = null;
@@ -115,10 +189,22 @@ public class IndexSettingsDefinition {
         this.segmentsPerTier = null;
         this.enableTaxonomyIndex = null;
         this.sortedSetFacetField = null;
+        this.sortedSetFacetFields = null;
         this.indexReaderWarmer = null;
         this.mergedSegmentWarmer = null;
         this.nrtCachingDirectoryMaxMergeSizeMB = null;
         this.nrtCachingDirectoryMaxCachedMB = null;
+        this.commitMaxLatencyMs = null;
+        this.commitMaxDocs = null;
+        this.commitMaxBytes = null;
+        this.refreshIntervalMs = null;
+        this.indexingThreads = null;
+        this.translog = null;
+        this.resultCacheMaxBytes = null;
+        this.maxPointsInTime = null;
+        this.queryCachePolicy = null;
+        this.indexSort = null;
+        this.clusterShards = null;
     }
 
     @JsonCreator
@@ -135,10 +221,23 @@ public class IndexSettingsDefinition {
                                     @JsonProperty("segments_per_tier") final Double segmentsPerTier,
                                     @JsonProperty("enable_taxonomy_index") final Boolean enableTaxonomyIndex,
                                     @JsonProperty("sorted_set_facet_field") final String sortedSetFacetField,
+                                    @JsonProperty("sorted_set_facet_fields") final LinkedHashMap<String, String> sortedSetFacetFields,
                                     @JsonProperty("index_reader_warmer") final Boolean indexReaderWarmer,
                                     @JsonProperty("merged_segment_warmer") final Boolean mergedSegmentWarmer,
                                     @JsonProperty("nrt_caching_directory_max_merge_size_mb") final Double nrtCachingDirectoryMaxMergeSizeMB,
-                                    @JsonProperty("nrt_caching_directory_max_cached_mb") final Double nrtCachingDirectoryMaxCachedMB) {
+                                    @JsonProperty("nrt_caching_directory_max_cached_mb") final Double nrtCachingDirectoryMaxCachedMB,
+                                    @JsonProperty("commit_max_latency_ms") final Integer commitMaxLatencyMs,
+                                    @JsonProperty("commit_max_docs") final Integer commitMaxDocs,
+                                    @JsonProperty("commit_max_bytes") final Long commitMaxBytes,
+                                    @JsonProperty("refresh_interval_ms") final Integer refreshIntervalMs,
+                                    @JsonProperty("indexing_threads") final Integer indexingThreads,
+                                    @JsonProperty("translog") final Boolean translog,
+                                    @JsonProperty("result_cache_max_bytes") final Long resultCacheMaxBytes,
+                                    @JsonProperty("max_points_in_time") final Integer maxPointsInTime,
+                                    @JsonProperty("query_cache_policy") final QueryCachePolicy queryCachePolicy,
+                                    @JsonProperty("index_sort")
+                                    final LinkedHashMap<String, QueryDefinition.SortEnum> indexSort,
+                                    @JsonProperty("cluster_shards") final LinkedHashSet<String> clusterShards) {
         this.directoryType = directoryType;
         this.mergeScheduler = mergeScheduler;
         this.similarity = similarity;
@@ -152,10 +251,22 @@ public class IndexSettingsDefinition {
         this.segmentsPerTier = segmentsPerTier;
         this.enableTaxonomyIndex = enableTaxonomyIndex;
         this.sortedSetFacetField = sortedSetFacetField;
+        this.sortedSetFacetFields = sortedSetFacetFields;
         this.indexReaderWarmer = indexReaderWarmer;
         this.mergedSegmentWarmer = mergedSegmentWarmer;
         this.nrtCachingDirectoryMaxMergeSizeMB = nrtCachingDirectoryMaxMergeSizeMB;
         this.nrtCachingDirectoryMaxCachedMB = nrtCachingDirectoryMaxCachedMB;
+        this.commitMaxLatencyMs = commitMaxLatencyMs;
+        this.commitMaxDocs = commitMaxDocs;
+        this.commitMaxBytes = commitMaxBytes;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.indexingThreads = indexingThreads;
+        this.translog = translog;
+        this.resultCacheMaxBytes = resultCacheMaxBytes;
+        this.maxPointsInTime = maxPointsInTime;
+        this.queryCachePolicy = queryCachePolicy;
+        this.indexSort = indexSort;
+        this.clusterShards = clusterShards;
     }
 
     private IndexSettingsDefinition(final Builder builder) {
@@ -172,10 +283,22 @@ public class IndexSettingsDefinition {
         this.segmentsPerTier = builder.segmentsPerTier;
         this.enableTaxonomyIndex = builder.enableTaxonomyIndex;
         this.sortedSetFacetField = builder.sortedSetFacetField;
+        this.sortedSetFacetFields = builder.sortedSetFacetFields;
         this.indexReaderWarmer = builder.indexReaderWarmer;
         this.mergedSegmentWarmer = builder.mergedSegmentWarmer;
         this.nrtCachingDirectoryMaxMergeSizeMB = builder.nrtCachingDirectoryMaxMergeSizeMB;
         this.nrtCachingDirectoryMaxCachedMB = builder.nrtCachingDirectoryMaxCachedMB;
+        this.commitMaxLatencyMs = builder.commitMaxLatencyMs;
+        this.commitMaxDocs = builder.commitMaxDocs;
+        this.commitMaxBytes = builder.commitMaxBytes;
+        this.refreshIntervalMs = builder.refreshIntervalMs;
+        this.indexingThreads = builder.indexingThreads;
+        this.translog = builder.translog;
+        this.resultCacheMaxBytes = builder.resultCacheMaxBytes;
+        this.maxPointsInTime = builder.maxPointsInTime;
+        this.queryCachePolicy = builder.queryCachePolicy;
+        this.indexSort = builder.indexSort;
+        this.clusterShards = builder.clusterShards;
     }
 
     final static IndexSettingsDefinition EMPTY = new IndexSettingsDefinition();
@@ -226,6 +349,8 @@ public class IndexSettingsDefinition {
             return false;
         if (!Objects.equals(sortedSetFacetField, s.sortedSetFacetField))
             return false;
+        if (!Objects.equals(sortedSetFacetFields, s.sortedSetFacetFields))
+            return false;
         if (!Objects.equals(indexReaderWarmer, s.indexReaderWarmer))
             return false;
         if (!Objects.equals(mergedSegmentWarmer, s.mergedSegmentWarmer))
@@ -234,6 +359,28 @@ public class IndexSettingsDefinition {
             return false;
         if (!Objects.equals(nrtCachingDirectoryMaxCachedMB, s.nrtCachingDirectoryMaxCachedMB))
             return false;
+        if (!Objects.equals(commitMaxLatencyMs, s.commitMaxLatencyMs))
+            return false;
+        if (!Objects.equals(commitMaxDocs, s.commitMaxDocs))
+            return false;
+        if (!Objects.equals(commitMaxBytes, s.commitMaxBytes))
+            return false;
+        if (!Objects.equals(refreshIntervalMs, s.refreshIntervalMs))
+            return false;
+        if (!Objects.equals(indexingThreads, s.indexingThreads))
+            return false;
+        if (!Objects.equals(translog, s.translog))
+            return false;
+        if (!Objects.equals(resultCacheMaxBytes, s.resultCacheMaxBytes))
+            return false;
+        if (!Objects.equals(maxPointsInTime, s.maxPointsInTime))
+            return false;
+        if (!Objects.equals(queryCachePolicy, s.queryCachePolicy))
+            return false;
+        if (!Objects.equals(indexSort, s.indexSort))
+            return false;
+        if (!Objects.equals(clusterShards, s.clusterShards))
+            return false;
         return true;
     }
 
@@ -264,10 +411,22 @@ public class IndexSettingsDefinition {
         private Double segmentsPerTier;
         private Boolean enableTaxonomyIndex;
         private String sortedSetFacetField;
+        private LinkedHashMap<String, String> sortedSetFacetFields;
         private Boolean indexReaderWarmer;
         private Boolean mergedSegmentWarmer;
         private Double nrtCachingDirectoryMaxMergeSizeMB;
         private Double nrtCachingDirectoryMaxCachedMB;
+        private Integer commitMaxLatencyMs;
+        private Integer commitMaxDocs;
+        private Long commitMaxBytes;
+        private Integer refreshIntervalMs;
+        private Integer indexingThreads;
+        private Boolean translog;
+        private Long resultCacheMaxBytes;
+        private Integer maxPointsInTime;
+        private QueryCachePolicy queryCachePolicy;
+        private LinkedHashMap<String, QueryDefinition.SortEnum> indexSort;
+        private LinkedHashSet<String> clusterShards;
 
         private Builder() {
         }
@@ -290,6 +449,17 @@ public class IndexSettingsDefinition {
             mergedSegmentWarmer = annotatedIndex.mergedSegmentWarmer();
             nrtCachingDirectoryMaxMergeSizeMB = annotatedIndex.nrtCachingDirectoryMaxMergeSizeMB();
             nrtCachingDirectoryMaxCachedMB = annotatedIndex.nrtCachingDirectoryMaxCachedMB();
+            // The annotation cannot hold a null: zero (the default) or a negative value leaves the setting unset
+            commitMaxLatencyMs = positiveOrNull(annotatedIndex.commitMaxLatencyMs());
+            commitMaxDocs = positiveOrNull(annotatedIndex.commitMaxDocs());
+            commitMaxBytes = annotatedIndex.commitMaxBytes() > 0 ? annotatedIndex.commitMaxBytes() : null;
+            refreshIntervalMs = positiveOrNull(annotatedIndex.refreshIntervalMs());
+            indexingThreads = positiveOrNull(annotatedIndex.indexingThreads());
+            translog = annotatedIndex.translog();
+        }
+
+        private static Integer positiveOrNull(final int value) {
+            return value > 0 ? value : null;
         }
 
         private Builder(final IndexSettingsDefinition settings) {
@@ -306,10 +476,22 @@ public class IndexSettingsDefinition {
             this.segmentsPerTier = settings.segmentsPerTier;
             this.enableTaxonomyIndex = settings.enableTaxonomyIndex;
             this.sortedSetFacetField = settings.sortedSetFacetField;
+            this.sortedSetFacetFields = settings.sortedSetFacetFields;
             this.indexReaderWarmer = settings.indexReaderWarmer;
             this.mergedSegmentWarmer = settings.mergedSegmentWarmer;
             this.nrtCachingDirectoryMaxMergeSizeMB = settings.nrtCachingDirectoryMaxMergeSizeMB;
             this.nrtCachingDirectoryMaxCachedMB = settings.nrtCachingDirectoryMaxCachedMB;
+            this.commitMaxLatencyMs = settings.commitMaxLatencyMs;
+            this.commitMaxDocs = settings.commitMaxDocs;
+            this.commitMaxBytes = settings.commitMaxBytes;
+            this.refreshIntervalMs = settings.refreshIntervalMs;
+            this.indexingThreads = settings.indexingThreads;
+            this.translog = settings.translog;
+            this.resultCacheMaxBytes = settings.resultCacheMaxBytes;
+            this.maxPointsInTime = settings.maxPointsInTime;
+            this.queryCachePolicy = settings.queryCachePolicy;
+            this.indexSort = settings.indexSort;
+            this.clusterShards = settings.clusterShards;
         }
 
         public Builder type(final Type directoryType) {
@@ -390,6 +572,23 @@ public class IndexSettingsDefinition {
             return this;
         }
 
+        public Builder sortedSetFacetFields(final LinkedHashMap<String, String> sortedSetFacetFields) {
+            this.sortedSetFacetFields = sortedSetFacetFields;
+            return this;
+        }
+
+        /**
+         * @param fieldName      the name of a sorted set facet field (or of a wildcard field)
+         * @param facetIndexName the dedicated field storing its values, with its own ordinals
+         * @return the current builder
+         */
+        public Builder sortedSetFacetField(final String fieldName, final String facetIndexName) {
+            if (sortedSetFacetFields == null)
+                sortedSetFacetFields = new LinkedHashMap<>();
+            sortedSetFacetFields.put(fieldName, facetIndexName);
+            return this;
+        }
+
         public Builder indexReaderWarmer(final Boolean indexReaderWarmer) {
             this.indexReaderWarmer = indexReaderWarmer;
             return this;
@@ -410,6 +609,70 @@ public class IndexSettingsDefinition {
             return this;
         }
 
+        public Builder commitMaxLatencyMs(final Integer commitMaxLatencyMs) {
+            this.commitMaxLatencyMs = commitMaxLatencyMs;
+            return this;
+        }
+
+        public Builder commitMaxDocs(final Integer commitMaxDocs) {
+            this.commitMaxDocs = commitMaxDocs;
+            return this;
+        }
+
+        public Builder commitMaxBytes(final Long commitMaxBytes) {
+            this.commitMaxBytes = commitMaxBytes;
+            return this;
+        }
+
+        public Builder refreshIntervalMs(final Integer refreshIntervalMs) {
+            this.refreshIntervalMs = refreshIntervalMs;
+            return this;
+        }
+
+        public Builder indexingThreads(final Integer indexingThreads) {
+            this.indexingThreads = indexingThreads;
+            return this;
+        }
+
+        public Builder translog(final Boolean translog) {
+            this.translog = translog;
+            return this;
+        }
+
+        public Builder resultCacheMaxBytes(final Long resultCacheMaxBytes) {
+            this.resultCacheMaxBytes = resultCacheMaxBytes;
+            return this;
+        }
+
+        public Builder maxPointsInTime(final Integer maxPointsInTime) {
+            this.maxPointsInTime = maxPointsInTime;
+            return this;
+        }
+
+        public Builder queryCachePolicy(final QueryCachePolicy queryCachePolicy) {
+            this.queryCachePolicy = queryCachePolicy;
+            return this;
+        }
+
+        public Builder indexSort(final LinkedHashMap<String, QueryDefinition.SortEnum> indexSort) {
+            this.indexSort = indexSort;
+            return this;
+        }
+
+        public Builder indexSort(final String fieldName, final QueryDefinition.SortEnum sortEnum) {
+            if (indexSort == null)
+                indexSort = new LinkedHashMap<>();
+            indexSort.put(fieldName, sortEnum);
+            return this;
+        }
+
+        public Builder clusterShard(final String... addresses) {
+            if (clusterShards == null)
+                clusterShards = new LinkedHashSet<>();
+            Collections.addAll(clusterShards, addresses);
+            return this;
+        }
+
         public IndexSettingsDefinition build() {
             return new IndexSettingsDefinition(this);
         }
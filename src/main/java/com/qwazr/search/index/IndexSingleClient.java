@@ -622,6 +622,23 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public List<Integer> postMappedDocumentsStream(final String schemaName, final String indexName,
+                                                   final Boolean update, final Integer chunkSize,
+                                                   final InputStream inputStream) {
+        try {
+            WebTarget target = indexTarget.path(schemaName).path(indexName).path("docs").path("stream");
+            if (update != null)
+                target = target.queryParam("update", update);
+            if (chunkSize != null)
+                target = target.queryParam("chunk_size", chunkSize);
+            return target.request(preferedSerializedMediaType)
+                    .post(Entity.entity(inputStream, MEDIATYPE_APPLICATION_NDJSON), listIntegerType);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
     @Override
     public Integer updateMappedDocValues(final String schemaName, final String indexName,
                                          final PostDefinition.Document post) {
@@ -709,6 +726,50 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public List<ResultDefinition.WithMap> searchQueries(final String schemaName, final String indexName,
+                                                        final List<QueryDefinition> queries) {
+        try {
+            return indexTarget.path(schemaName)
+                    .path(indexName)
+                    .path("search")
+                    .path("multi")
+                    .request(preferedSerializedMediaType)
+                    .post(Entity.entity(queries, preferedSerializedMediaType), listResultDefinitionWithMapType);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public ResultDefinition.WithMap searchCluster(final String schemaName, final String indexName,
+                                                  final QueryDefinition query) {
+        try {
+            return indexTarget.path(schemaName)
+                    .path(indexName)
+                    .path("search")
+                    .path("cluster")
+                    .request(preferedSerializedMediaType)
+                    .post(Entity.entity(query, preferedSerializedMediaType), ResultDefinition.WithMap.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public ResultDefinition.WithMap searchFederated(final String schemaName, final String indexName,
+                                                    final Set<String> indexNames, final QueryDefinition query) {
+        try {
+            WebTarget target = indexTarget.path(schemaName).path(indexName).path("search").path("federated");
+            if (indexNames != null && !indexNames.isEmpty())
+                target = target.queryParam("index", indexNames.toArray());
+            return target.request(preferedSerializedMediaType)
+                    .post(Entity.entity(query, preferedSerializedMediaType), ResultDefinition.WithMap.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
     @Override
     public ExplainDefinition explainQuery(final String schemaName, final String indexName, final QueryDefinition query,
                                           int docId) {
@@ -530,13 +530,17 @@ public class IndexStatus {
         @JsonProperty("miss_rate")
         public final Float missRate;
 
+        @JsonProperty("ram_bytes_used")
+        public final Long ramBytesUsed;
+
         private final int hashCode;
 
         @JsonCreator
         QueryCacheStats(@JsonProperty("cache_count") Long cacheCount, @JsonProperty("cache_size") Long cacheSize,
             @JsonProperty("eviction_count") Long evictionCount, @JsonProperty("hit_count") Long hitCount,
             @JsonProperty("miss_count") Long missCount, @JsonProperty("total_count") Long totalCount,
-            @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate) {
+            @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate,
+            @JsonProperty("ram_bytes_used") Long ramBytesUsed) {
             this.cacheCount = cacheCount;
             this.cacheSize = cacheSize;
             this.evictionCount = evictionCount;
@@ -545,15 +549,16 @@ public class IndexStatus {
             this.totalCount = totalCount;
             this.hitRate = hitRate;
             this.missRate = missRate;
-            this.hashCode =
-                Objects.hash(cacheCount, cacheSize, evictionCount, hitCount, missCount, totalCount, hitRate, missRate);
+            this.ramBytesUsed = ramBytesUsed;
+            this.hashCode = Objects.hash(cacheCount, cacheSize, evictionCount, hitCount, missCount, totalCount, hitRate,
+                missRate, ramBytesUsed);
         }
 
         private QueryCacheStats(final LRUQueryCache queryCache) {
             this(queryCache.getCacheCount(), queryCache.getCacheSize(), queryCache.getEvictionCount(),
                 queryCache.getHitCount(), queryCache.getMissCount(), queryCache.getTotalCount(),
                 (float) (queryCache.getHitCount() * 100) / queryCache.getTotalCount(),
-                (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount());
+                (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount(), queryCache.ramBytesUsed());
         }
 
         @Override
@@ -582,6 +587,8 @@ public class IndexStatus {
                 return false;
             if (!Objects.equals(missRate, cache.missRate))
                 return false;
+            if (!Objects.equals(ramBytesUsed, cache.ramBytesUsed))
+                return false;
             return true;
         }
     }
@@ -21,22 +21,30 @@ import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.MultiFacets;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class MixedDrillSideways extends DrillSideways {
 
-    private final String stateIndexField;
+    private final QueryContextImpl queryContext;
 
+    /**
+     * The states of the sorted set facets are given by the query context, only for the dimensions which are counted
+     */
     MixedDrillSideways(QueryExecution queryExecution) {
         super(queryExecution.queryContext.indexSearcher, queryExecution.facetsConfig,
-                queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.docValueReaderState,
-                queryExecution.queryContext.executorService);
-        this.stateIndexField = state == null ? null : state.getField();
+                queryExecution.queryContext.taxonomyReader, null, queryExecution.queryContext.executorService);
+        this.queryContext = queryExecution.queryContext;
+    }
+
+    private boolean isSortedSet(final String indexFieldName) {
+        return queryContext.fieldMap != null && queryContext.fieldMap.isSortedSetFacetField(indexFieldName);
     }
 
     protected Facets buildFacetsResult(final FacetsCollector drillDowns, final FacetsCollector[] drillSideways,
@@ -47,16 +55,14 @@ class MixedDrillSideways extends DrillSideways {
         final FastTaxonomyFacetCounts fastTaxonomyFacets = taxoReader == null ? null : new FastTaxonomyFacetCounts(
                 taxoReader, config, drillDowns);
 
-        final SortedSetDocValuesFacetCounts docValuesFacets = state == null ? null : new SortedSetDocValuesFacetCounts(
-                state, drillDowns);
-
         if (drillSideways != null) {
             for (int i = 0; i < drillSideways.length; i++) {
                 final String dim = drillSidewaysDims[i];
                 final Facets facets;
                 final String indexFieldName = config.getDimConfig(dim).indexFieldName;
-                if (state != null && stateIndexField.equals(indexFieldName)) {
-                    facets = new SortedSetDocValuesFacetCounts(state, drillSideways[i]);
+                if (isSortedSet(indexFieldName)) {
+                    final SortedSetDocValuesReaderState state = queryContext.getDocValueReaderState(indexFieldName);
+                    facets = state == null ? null : new SortedSetDocValuesFacetCounts(state, drillSideways[i]);
                 } else if (taxoReader != null) {
                     facets = new FastTaxonomyFacetCounts(taxoReader, config, drillSideways[i]);
                 } else
@@ -66,26 +72,43 @@ class MixedDrillSideways extends DrillSideways {
             }
         }
 
-        final Facets facets = new MixedFacets(docValuesFacets, fastTaxonomyFacets);
+        final Facets facets = new MixedFacets(drillDowns, fastTaxonomyFacets);
 
         return drillSidewaysFacets.isEmpty() ? facets : new MultiFacets(drillSidewaysFacets, facets);
     }
 
     class MixedFacets extends Facets {
 
-        private final SortedSetDocValuesFacetCounts docValuesFacets;
+        private final FacetsCollector drillDowns;
+        private final Map<String, SortedSetDocValuesFacetCounts> docValuesFacets;
         private final FastTaxonomyFacetCounts taxonomyFacets;
 
-        private MixedFacets(final SortedSetDocValuesFacetCounts docValuesFacets,
-                            final FastTaxonomyFacetCounts taxonomyFacets) {
-            this.docValuesFacets = docValuesFacets;
+        private MixedFacets(final FacetsCollector drillDowns, final FastTaxonomyFacetCounts taxonomyFacets) {
+            this.drillDowns = drillDowns;
+            this.docValuesFacets = new HashMap<>();
             this.taxonomyFacets = taxonomyFacets;
+        }
 
+        /**
+         * The sorted set facets are counted on the first use of their field
+         */
+        private synchronized SortedSetDocValuesFacetCounts getDocValuesFacets(final String indexFieldName)
+                throws IOException {
+            SortedSetDocValuesFacetCounts facets = docValuesFacets.get(indexFieldName);
+            if (facets != null)
+                return facets;
+            final SortedSetDocValuesReaderState state = queryContext.getDocValueReaderState(indexFieldName);
+            if (state == null)
+                return null;
+            facets = new SortedSetDocValuesFacetCounts(state, drillDowns);
+            docValuesFacets.put(indexFieldName, facets);
+            return facets;
         }
 
-        private Facets getFacets(String dim) {
-            if (stateIndexField != null && stateIndexField.equals(config.getDimConfig(dim).indexFieldName))
-                return docValuesFacets;
+        private Facets getFacets(String dim) throws IOException {
+            final String indexFieldName = config.getDimConfig(dim).indexFieldName;
+            if (isSortedSet(indexFieldName))
+                return getDocValuesFacets(indexFieldName);
             return taxonomyFacets;
         }
 
@@ -103,13 +126,16 @@ class MixedDrillSideways extends DrillSideways {
 
         @Override
         public List<FacetResult> getAllDims(int topN) throws IOException {
-            if (docValuesFacets == null) {
-                return taxonomyFacets == null ? null : taxonomyFacets.getAllDims(topN);
+            final List<FacetResult> facetResultList = new ArrayList<>();
+            if (taxonomyFacets != null)
+                facetResultList.addAll(taxonomyFacets.getAllDims(topN));
+            if (queryContext.fieldMap != null) {
+                for (String indexFieldName : queryContext.fieldMap.getSortedSetFacetFields()) {
+                    final SortedSetDocValuesFacetCounts facets = getDocValuesFacets(indexFieldName);
+                    if (facets != null)
+                        facetResultList.addAll(facets.getAllDims(topN));
+                }
             }
-            if (taxonomyFacets == null)
-                return docValuesFacets.getAllDims(topN);
-            final List<FacetResult> facetResultList = taxonomyFacets.getAllDims(topN);
-            facetResultList.addAll(docValuesFacets.getAllDims(topN));
             return facetResultList;
         }
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a batch of searches in parallel and returns the results in the order of the batch.
+ * <p>
+ * At most one search per processor runs at the same time: the calling thread and a bounded number of workers take the
+ * next search of the batch until the batch is done. The calling thread always takes its share: once it has taken the
+ * last search, the workers still waiting in the queue of a saturated executor are cancelled, only the started ones are
+ * awaited.
+ */
+final class MultiSearch {
+
+    private final static int MAX_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    @FunctionalInterface
+    interface Search<T> {
+        T search(int index) throws IOException;
+    }
+
+    /**
+     * @param executorService the executor running the workers, or null to run the searches in the calling thread
+     * @param count           the number of searches of the batch
+     * @param search          the search at the given position of the batch
+     * @return the results in the order of the batch
+     * @throws IOException if one of the searches failed, the batch is then stopped
+     */
+    static <T> List<T> execute(final ExecutorService executorService, final int count, final Search<T> search)
+            throws IOException {
+        final List<T> results = new ArrayList<>(Collections.nCopies(count, null));
+        final AtomicInteger next = new AtomicInteger();
+        final Runner runner = () -> {
+            try {
+                int index;
+                while ((index = next.getAndIncrement()) < count)
+                    results.set(index, search.search(index));
+            } catch (IOException | RuntimeException e) {
+                // Stop the other workers
+                next.set(count);
+                throw e;
+            }
+        };
+
+        final int workers = executorService == null ? 0 : Math.min(count, MAX_PARALLELISM) - 1;
+        final List<Worker> submitted = new ArrayList<>(Math.max(workers, 0));
+        IOException ioException = null;
+        RuntimeException runtimeException = null;
+        boolean interrupted = false;
+        try {
+            for (int i = 0; i < workers; i++) {
+                final Worker worker = new Worker();
+                try {
+                    worker.future = executorService.submit(() -> {
+                        if (worker.start())
+                            runner.run();
+                        return null;
+                    });
+                    submitted.add(worker);
+                } catch (RejectedExecutionException e) {
+                    // The calling thread runs the remaining searches
+                    break;
+                }
+            }
+            runner.run();
+        } catch (IOException e) {
+            ioException = e;
+        } catch (RuntimeException e) {
+            // Stop the workers already submitted
+            next.set(count);
+            runtimeException = e;
+        } finally {
+            // The started workers are always awaited: the searcher must not be released while they are using it
+            for (Worker worker : submitted) {
+                if (worker.start()) {
+                    // Still in the queue: there is nothing left to search
+                    worker.future.cancel(false);
+                    continue;
+                }
+                for (; ; ) {
+                    try {
+                        worker.future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        next.set(count);
+                    } catch (ExecutionException e) {
+                        if (ioException == null && runtimeException == null) {
+                            final Throwable cause = e.getCause();
+                            if (cause instanceof IOException)
+                                ioException = (IOException) cause;
+                            else if (cause instanceof RuntimeException)
+                                runtimeException = (RuntimeException) cause;
+                            else
+                                ioException = new IOException(cause);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (ioException == null && runtimeException == null)
+                throw new InterruptedIOException("The multi search has been interrupted");
+        }
+        if (ioException != null)
+            throw ioException;
+        if (runtimeException != null)
+            throw runtimeException;
+        return results;
+    }
+
+    private static final class Worker {
+
+        private final AtomicBoolean started = new AtomicBoolean();
+        private Future<?> future;
+
+        /**
+         * @return true for the first caller: either the worker starts, or the calling thread cancels it
+         */
+        private boolean start() {
+            return started.compareAndSet(false, true);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Runner {
+        void run() throws IOException;
+    }
+}
@@ -20,13 +20,36 @@ import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SimpleMergedSegmentWarmer;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PointInSetQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 class MultiThreadSearcherFactory extends SearcherFactory {
 
@@ -35,62 +58,310 @@ class MultiThreadSearcherFactory extends SearcherFactory {
 
     private final static ConsumerEx<IndexReader, IOException> WITH_WARM = MultiThreadSearcherFactory::warmReader;
 
-    static MultiThreadSearcherFactory of(final ExecutorService executorService, final boolean useWarmer,
-                                         final Similarity similarity, final String stateFacetField) {
+    /**
+     * @param searchExecutor   supplies the executor (and the slicing) of each new searcher, or null
+     * @param queryCache       supplies the query cache of each new searcher
+     * @param queryCachePolicy the policy of the query cache, null for Lucene's default
+     */
+    static MultiThreadSearcherFactory of(final ExecutorService executorService,
+                                         final Supplier<SearchExecutor> searchExecutor, final boolean useWarmer,
+                                         final Similarity similarity, final Supplier<QueryCache> queryCache,
+                                         final IndexSettingsDefinition.QueryCachePolicy queryCachePolicy) {
+        final QueryCachingPolicy queryCachingPolicy = getQueryCachingPolicy(queryCachePolicy);
+        final Supplier<QueryCache> cache =
+                queryCachePolicy == IndexSettingsDefinition.QueryCachePolicy.DISABLED ? () -> null : queryCache;
         return similarity == null ?
-                new MultiThreadSearcherFactory(executorService, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM) :
-                new WithSimilarity(executorService, similarity, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM);
+                new MultiThreadSearcherFactory(executorService, searchExecutor, useWarmer ? WITH_WARM : WITHOUT_WARM,
+                        cache, queryCachingPolicy) :
+                new WithSimilarity(executorService, searchExecutor, similarity, useWarmer ? WITH_WARM : WITHOUT_WARM,
+                        cache, queryCachingPolicy);
     }
 
+    /**
+     * Shared by every factory: the searchers of a recreated factory are still newer than the searchers of the
+     * previous one, the result cache of the index relies on it.
+     */
+    private final static AtomicLong GENERATIONS = new AtomicLong();
+
     protected final ExecutorService executorService;
-    private final String stateFacetField;
+    private final Supplier<SearchExecutor> searchExecutor;
     private final ConsumerEx<IndexReader, IOException> readerWarmer;
+    private final Supplier<QueryCache> queryCache;
+    private final QueryCachingPolicy queryCachingPolicy;
+    private volatile StateIndexSearcher lastSearcher;
 
-    private MultiThreadSearcherFactory(final ExecutorService executorService, final String stateFacetField,
-                                       final ConsumerEx<IndexReader, IOException> readerWarmer) {
+    private MultiThreadSearcherFactory(final ExecutorService executorService,
+                                       final Supplier<SearchExecutor> searchExecutor,
+                                       final ConsumerEx<IndexReader, IOException> readerWarmer,
+                                       final Supplier<QueryCache> queryCache,
+                                       final QueryCachingPolicy queryCachingPolicy) {
         this.executorService = executorService;
-        this.stateFacetField = stateFacetField;
+        this.searchExecutor = searchExecutor;
         this.readerWarmer = readerWarmer;
+        this.queryCache = queryCache;
+        this.queryCachingPolicy = queryCachingPolicy;
     }
 
     final protected StateIndexSearcher warm(final IndexReader indexReader, final StateIndexSearcher indexSearcher)
             throws IOException {
         readerWarmer.accept(indexReader);
+        // The states used by the previous searcher are built in the background while the searcher is already serving
+        final StateIndexSearcher previousSearcher = lastSearcher;
+        if (previousSearcher != null && executorService != null)
+            for (String stateFacetField : previousSearcher.usedStates)
+                executorService.execute(indexSearcher.getStateTask(stateFacetField));
+        lastSearcher = indexSearcher;
         return indexSearcher;
     }
 
     public StateIndexSearcher newSearcher(final IndexReader reader, final IndexReader previousReader)
             throws IOException {
-        return warm(reader, new StateIndexSearcher(reader));
+        return warm(reader, newRequestSearcher(reader));
+    }
+
+    /**
+     * A searcher over a reader opened for a single request (the MultiReader of a federated query). The reader is not
+     * warmed, and the searcher does not prepare the states of the next searcher of the index.
+     */
+    StateIndexSearcher newRequestSearcher(final IndexReader reader) throws IOException {
+        return new StateIndexSearcher(reader);
+    }
+
+    private SearchExecutor getSearchExecutor() {
+        return searchExecutor == null ? null : searchExecutor.get();
+    }
+
+    private ExecutorService getSearcherExecutor() {
+        final SearchExecutor executor = getSearchExecutor();
+        return executor == null ? executorService : executor.getSearcherExecutor();
     }
 
     static class WithSimilarity extends MultiThreadSearcherFactory {
 
         private final Similarity similarity;
 
-        private WithSimilarity(final ExecutorService executorService, final Similarity similarity,
-                               final String stateFacetField, final ConsumerEx<IndexReader, IOException> readerWarmer) {
-            super(executorService, stateFacetField, readerWarmer);
+        private WithSimilarity(final ExecutorService executorService, final Supplier<SearchExecutor> searchExecutor,
+                               final Similarity similarity, final ConsumerEx<IndexReader, IOException> readerWarmer,
+                               final Supplier<QueryCache> queryCache, final QueryCachingPolicy queryCachingPolicy) {
+            super(executorService, searchExecutor, readerWarmer, queryCache, queryCachingPolicy);
             this.similarity = similarity;
         }
 
-        public StateIndexSearcher newSearcher(final IndexReader reader, final IndexReader previousReader)
-                throws IOException {
+        @Override
+        StateIndexSearcher newRequestSearcher(final IndexReader reader) throws IOException {
             final StateIndexSearcher searcher = new StateIndexSearcher(reader);
             searcher.setSimilarity(similarity);
-            return warm(reader, searcher);
+            return searcher;
         }
     }
 
     class StateIndexSearcher extends IndexSearcher {
 
-        final SortedSetDocValuesReaderState state;
+        /**
+         * The state of each sorted set facet field is built once per searcher: by the first query requesting it, or
+         * in the background if the previous searcher had to build it.
+         */
+        final ConcurrentHashMap<String, FutureTask<SortedSetDocValuesReaderState>> states;
+
+        /**
+         * The fields whose state has been requested by a query. A state built in the background but never requested
+         * is not built again by the next searcher.
+         */
+        final Set<String> usedStates;
+
+        /**
+         * Incremented for each new searcher, across the factories. A taxonomy reopen always comes with a new searcher.
+         */
+        final long generation;
+
+        /**
+         * The executor running the partitions, and the partitions of the big segments (null if no segment is split)
+         */
+        private final SearchExecutor partitionExecutor;
+        private final List<SearchExecutor.Partition> partitions;
+
+        /**
+         * The executor searching the slices, null if the segments are searched by the calling thread
+         */
+        final ExecutorService searcherExecutor;
 
         StateIndexSearcher(IndexReader reader) throws IOException {
-            super(reader, executorService);
-            state = IndexUtils.getNewFacetsState(reader, stateFacetField);
+            this(reader, getSearcherExecutor());
+        }
+
+        private StateIndexSearcher(IndexReader reader, ExecutorService searcherExecutor) throws IOException {
+            super(reader, searcherExecutor);
+            this.searcherExecutor = searcherExecutor;
+            states = new ConcurrentHashMap<>();
+            usedStates = ConcurrentHashMap.newKeySet();
+            generation = GENERATIONS.incrementAndGet();
+            final SearchExecutor executor = getSearchExecutor();
+            if (executor != null && executor.getSearcherExecutor() != null) {
+                partitionExecutor = executor;
+                partitions = executor.partitions(reader.leaves());
+            } else {
+                partitionExecutor = null;
+                partitions = null;
+            }
+            setQueryCache(queryCache.get());
+            if (queryCachingPolicy != null)
+                setQueryCachingPolicy(queryCachingPolicy);
+        }
+
+        /**
+         * Called by the constructor of IndexSearcher
+         */
+        @Override
+        protected LeafSlice[] slices(final List<LeafReaderContext> leaves) {
+            final SearchExecutor executor = getSearchExecutor();
+            final LeafSlice[] slices = executor == null ? null : executor.slices(leaves);
+            return slices == null ? super.slices(leaves) : slices;
+        }
+
+        /**
+         * When a segment is split, each partition is collected concurrently by its own collector, the collectors are
+         * merged by the reduce of the collector manager. The collectors are reduced in the order of the partitions,
+         * which is the order of the doc IDs.
+         * <p>
+         * The partitions rejected by a saturated executor are collected by the calling thread. If a partition fails,
+         * the partitions not started yet are skipped, and the method returns once no partition is using the searcher.
+         */
+        @Override
+        public <C extends Collector, T> T search(final Query query, final CollectorManager<C, T> collectorManager)
+                throws IOException {
+            if (partitions == null)
+                return super.search(query, collectorManager);
+            final List<C> collectors = new ArrayList<>(partitions.size());
+            boolean needsScores = false;
+            for (int i = 0; i < partitions.size(); i++) {
+                final C collector = collectorManager.newCollector();
+                collectors.add(collector);
+                needsScores |= collector.needsScores();
+            }
+            final Weight weight = createNormalizedWeight(query, needsScores);
+            final AtomicBoolean aborted = new AtomicBoolean();
+            final List<FutureTask<C>> tasks = new ArrayList<>(partitions.size());
+            try {
+                for (int i = 0; i < partitions.size(); i++) {
+                    final SearchExecutor.Partition partition = partitions.get(i);
+                    final C collector = collectors.get(i);
+                    final FutureTask<C> task = new FutureTask<>(() -> {
+                        if (!aborted.get())
+                            partition.search(weight, collector);
+                        return collector;
+                    });
+                    tasks.add(task);
+                    try {
+                        partitionExecutor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // Saturated executor: collected by the calling thread
+                        task.run();
+                    }
+                }
+                for (FutureTask<C> task : tasks)
+                    getResult(task);
+            } catch (IOException | RuntimeException e) {
+                aborted.set(true);
+                throw e;
+            } finally {
+                awaitQuietly(tasks);
+            }
+            return collectorManager.reduce(collectors);
+        }
+
+        private FutureTask<SortedSetDocValuesReaderState> getStateTask(final String stateFacetField) {
+            return states.computeIfAbsent(stateFacetField,
+                    field -> new FutureTask<>(() -> IndexUtils.getNewFacetsState(getIndexReader(), field)));
         }
 
+        /**
+         * @param stateFacetField the field storing the sorted set facets
+         * @return the state of the sorted set facets, or null if the field is not indexed
+         * @throws IOException if the state cannot be built
+         */
+        SortedSetDocValuesReaderState getState(final String stateFacetField) throws IOException {
+            usedStates.add(stateFacetField);
+            final FutureTask<SortedSetDocValuesReaderState> stateTask = getStateTask(stateFacetField);
+            // Does nothing if the task is already running in the background or done
+            stateTask.run();
+            return getResult(stateTask);
+        }
+
+    }
+
+    /**
+     * Wait for the result of a task, the cause of its failure is thrown as is
+     */
+    private static <V> V getResult(final Future<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Wait for the end of the tasks, whatever their result
+     */
+    private static void awaitQuietly(final List<? extends Future<?>> tasks) {
+        boolean interrupted = false;
+        for (Future<?> task : tasks) {
+            for (; ; ) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static QueryCachingPolicy getQueryCachingPolicy(final IndexSettingsDefinition.QueryCachePolicy policy) {
+        if (policy == null)
+            return null;
+        switch (policy) {
+        case HEAVY_FILTERS:
+            return new FirstUseCachingPolicy(true);
+        case FIRST_USE:
+            return new FirstUseCachingPolicy(false);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Caches the filters (or only the costly ones) on their first use, the others follow the usage tracking
+     */
+    static final class FirstUseCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+        private final boolean heavyOnly;
+
+        FirstUseCachingPolicy(final boolean heavyOnly) {
+            this.heavyOnly = heavyOnly;
+        }
+
+        static boolean isHeavy(final Query query) {
+            return query instanceof MultiTermQuery || query instanceof TermInSetQuery ||
+                    query instanceof PointRangeQuery || query instanceof PointInSetQuery;
+        }
+
+        @Override
+        protected int minFrequencyToCache(final Query query) {
+            return !heavyOnly || isHeavy(query) ? 1 : super.minFrequencyToCache(query);
+        }
     }
 
     private static final SimpleMergedSegmentWarmer WARMER = new SimpleMergedSegmentWarmer(InfoStream.getDefault());
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.IOUtils;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import javax.ws.rs.core.Response;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The searchers pinned by the queries requesting a point in time. A point in time is released when its keep alive
+ * expires (checked by each query of the index), when a query sets a zero keep alive, or when the index is closed.
+ * Each point in time holds the files of its searcher: past the maximum, the new points in time are refused.
+ */
+final class PointInTimes implements Closeable {
+
+    private final WriterAndSearcher writerAndSearcher;
+    private final int maxOpen;
+    private final ConcurrentHashMap<String, PointInTime> pointInTimes;
+
+    PointInTimes(final WriterAndSearcher writerAndSearcher, final int maxOpen) {
+        this.writerAndSearcher = writerAndSearcher;
+        this.maxOpen = maxOpen;
+        this.pointInTimes = new ConcurrentHashMap<>();
+    }
+
+    @FunctionalInterface
+    interface SearchAction<T> {
+        T apply(IndexSearcher indexSearcher, TaxonomyReader taxonomyReader, String pointInTime) throws IOException;
+    }
+
+    /**
+     * Run the action on the searcher of the point in time
+     *
+     * @param id          the point in time returned by a previous query, or null to pin the current searcher
+     * @param keepAliveMs the new keep alive, or null to keep the previous one
+     * @param action      the action receiving the point in time, null if it has been released
+     * @return the result of the action
+     * @throws IOException if the action failed
+     */
+    <T> T search(final String id, final Long keepAliveMs, final SearchAction<T> action) throws IOException {
+        expire();
+        final PointInTime pointInTime = id == null ? open(keepAliveMs) : pointInTimes.get(id);
+        if (pointInTime == null || !pointInTime.acquire(keepAliveMs))
+            throw new ServerException(Response.Status.NOT_FOUND, "Point in time not found or expired: " + id);
+        try {
+            return action.apply(pointInTime.lease.indexSearcher, pointInTime.lease.taxonomyReader,
+                    pointInTime.isClosed() ? null : pointInTime.id);
+        } finally {
+            pointInTime.release();
+        }
+    }
+
+    private synchronized PointInTime open(final Long keepAliveMs) throws IOException {
+        // The concurrent releases can only lower the count
+        if (pointInTimes.size() >= maxOpen)
+            throw new ServerException(Response.Status.SERVICE_UNAVAILABLE,
+                    "Too many open points in time (max_points_in_time: " + maxOpen +
+                            "): release them with a zero keep alive or wait for their expiration");
+        final PointInTime pointInTime =
+                new PointInTime(writerAndSearcher.lease(), keepAliveMs == null ? 0 : keepAliveMs);
+        pointInTimes.put(pointInTime.id, pointInTime);
+        return pointInTime;
+    }
+
+    /**
+     * Release the points in time which are not used and whose keep alive expired
+     */
+    void expire() {
+        if (pointInTimes.isEmpty())
+            return;
+        final long now = System.currentTimeMillis();
+        pointInTimes.values().removeIf(pointInTime -> pointInTime.expire(now));
+    }
+
+    @Override
+    public void close() {
+        pointInTimes.values().removeIf(pointInTime -> {
+            pointInTime.close();
+            return true;
+        });
+    }
+
+    private final class PointInTime {
+
+        private final String id;
+        private final WriterAndSearcher.Lease lease;
+        private long keepAliveMs;
+        private long expiration;
+        private int users;
+        private boolean closed;
+
+        private PointInTime(final WriterAndSearcher.Lease lease, final long keepAliveMs) {
+            this.id = UUID.randomUUID().toString();
+            this.lease = lease;
+            this.keepAliveMs = keepAliveMs;
+            this.expiration = System.currentTimeMillis() + keepAliveMs;
+        }
+
+        private synchronized boolean acquire(final Long newKeepAliveMs) {
+            if (closed)
+                return false;
+            if (newKeepAliveMs != null)
+                keepAliveMs = newKeepAliveMs;
+            if (keepAliveMs <= 0) {
+                // Released by the end of this query
+                closed = true;
+                pointInTimes.remove(id, this);
+            }
+            users++;
+            return true;
+        }
+
+        private synchronized void release() {
+            users--;
+            // The keep alive starts after the query
+            expiration = System.currentTimeMillis() + keepAliveMs;
+            if (closed && users == 0)
+                IOUtils.closeQuietly(lease);
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private synchronized boolean expire(final long now) {
+            if (closed || users > 0 || now < expiration)
+                return false;
+            closed = true;
+            IOUtils.closeQuietly(lease);
+            return true;
+        }
+
+        private synchronized void close() {
+            if (closed)
+                return;
+            closed = true;
+            if (users == 0)
+                IOUtils.closeQuietly(lease);
+        }
+    }
+}
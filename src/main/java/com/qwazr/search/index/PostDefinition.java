@@ -30,9 +30,18 @@ public abstract class PostDefinition {
 
 	final public Boolean update;
 
-	PostDefinition(Map<String, String> commitUserData, Boolean update) {
+	@JsonProperty("wait_for_durable")
+	final public Boolean waitForDurable;
+
+	@JsonProperty("wait_for_refresh")
+	final public Boolean waitForRefresh;
+
+	PostDefinition(Map<String, String> commitUserData, Boolean update, Boolean waitForDurable,
+			Boolean waitForRefresh) {
 		this.commitUserData = commitUserData;
 		this.update = update;
+		this.waitForDurable = waitForDurable;
+		this.waitForRefresh = waitForRefresh;
 	}
 
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
@@ -43,8 +52,10 @@ public abstract class PostDefinition {
 		@JsonCreator
 		Document(@JsonProperty("document") final Map<String, Object> document,
 				@JsonProperty("commit_user_data") final Map<String, String> commitUserData,
-				@JsonProperty("update") final Boolean update) {
-			super(commitUserData, update);
+				@JsonProperty("update") final Boolean update,
+				@JsonProperty("wait_for_durable") final Boolean waitForDurable,
+				@JsonProperty("wait_for_refresh") final Boolean waitForRefresh) {
+			super(commitUserData, update, waitForDurable, waitForRefresh);
 			this.document = document;
 		}
 	}
@@ -57,24 +68,46 @@ public abstract class PostDefinition {
 		@JsonCreator
 		Documents(@JsonProperty("documents") final List<Map<String, Object>> documents,
 				@JsonProperty("commit_user_data") final Map<String, String> commitUserData,
-				@JsonProperty("update") final Boolean update) {
-			super(commitUserData, update);
+				@JsonProperty("update") final Boolean update,
+				@JsonProperty("wait_for_durable") final Boolean waitForDurable,
+				@JsonProperty("wait_for_refresh") final Boolean waitForRefresh) {
+			super(commitUserData, update, waitForDurable, waitForRefresh);
 			this.documents = documents;
 		}
 	}
 
+	public static Document of(final Map<String, Object> document, final Map<String, String> commitUserData,
+			final Boolean update, final Boolean waitForDurable, final Boolean waitForRefresh) {
+		return new PostDefinition.Document(document, commitUserData, update, waitForDurable, waitForRefresh);
+	}
+
+	public static Document of(final Map<String, Object> document, final Map<String, String> commitUserData,
+			final Boolean update, final Boolean waitForDurable) {
+		return of(document, commitUserData, update, waitForDurable, null);
+	}
+
 	public static Document of(final Map<String, Object> document, final Map<String, String> commitUserData,
 			final Boolean update) {
-		return new PostDefinition.Document(document, commitUserData, update);
+		return of(document, commitUserData, update, null);
 	}
 
 	public static Document of(final Map<String, Object> document, final Map<String, String> commitUserData) {
 		return of(document, commitUserData, null);
 	}
 
+	public static Documents of(final List<Map<String, Object>> documents, final Map<String, String> commitUserData,
+			final Boolean update, final Boolean waitForDurable, final Boolean waitForRefresh) {
+		return new PostDefinition.Documents(documents, commitUserData, update, waitForDurable, waitForRefresh);
+	}
+
+	public static Documents of(final List<Map<String, Object>> documents, final Map<String, String> commitUserData,
+			final Boolean update, final Boolean waitForDurable) {
+		return of(documents, commitUserData, update, waitForDurable, null);
+	}
+
 	public static Documents of(final List<Map<String, Object>> documents, final Map<String, String> commitUserData,
 			final Boolean update) {
-		return new PostDefinition.Documents(documents, commitUserData, update);
+		return of(documents, commitUserData, update, null);
 	}
 
 	public static Documents of(final List<Map<String, Object>> documents, final Map<String, String> commitUserData) {
@@ -45,6 +45,20 @@ public class QueryBuilder {
 
 	Map<String, String> commitUserData;
 
+	Boolean cache;
+
+	String searchAfter;
+
+	String pointInTime;
+
+	Long pointInTimeKeepAliveMs;
+
+	Integer totalHitsThreshold;
+
+	Long timeoutMs;
+
+	Boolean documentCursors;
+
 	public QueryBuilder() {
 	}
 
@@ -63,6 +77,13 @@ public class QueryBuilder {
 		query = queryDef.query;
 		luceneQuery = queryDef.luceneQuery;
 		commitUserData = queryDef.commitUserData;
+		cache = queryDef.cache;
+		searchAfter = queryDef.searchAfter;
+		pointInTime = queryDef.pointInTime;
+		pointInTimeKeepAliveMs = queryDef.pointInTimeKeepAliveMs;
+		totalHitsThreshold = queryDef.totalHitsThreshold;
+		timeoutMs = queryDef.timeoutMs;
+		documentCursors = queryDef.documentCursors;
 	}
 
 	public QueryBuilder(final Query query) {
@@ -222,6 +243,41 @@ public class QueryBuilder {
 		return this;
 	}
 
+	public QueryBuilder cache(final Boolean cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	public QueryBuilder searchAfter(final String searchAfter) {
+		this.searchAfter = searchAfter;
+		return this;
+	}
+
+	public QueryBuilder pointInTime(final String pointInTime) {
+		this.pointInTime = pointInTime;
+		return this;
+	}
+
+	public QueryBuilder pointInTimeKeepAliveMs(final Long pointInTimeKeepAliveMs) {
+		this.pointInTimeKeepAliveMs = pointInTimeKeepAliveMs;
+		return this;
+	}
+
+	public QueryBuilder totalHitsThreshold(final Integer totalHitsThreshold) {
+		this.totalHitsThreshold = totalHitsThreshold;
+		return this;
+	}
+
+	public QueryBuilder timeoutMs(final Long timeoutMs) {
+		this.timeoutMs = timeoutMs;
+		return this;
+	}
+
+	public QueryBuilder documentCursors(final Boolean documentCursors) {
+		this.documentCursors = documentCursors;
+		return this;
+	}
+
 	public QueryDefinition build() {
 		return new QueryDefinition(this);
 	}
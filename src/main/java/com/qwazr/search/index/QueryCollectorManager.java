@@ -61,7 +61,7 @@ class QueryCollectorManager extends QueryCollectors implements CollectorManager<
                             (org.apache.lucene.facet.DrillDownQuery) queryExecution.query, this);
             facetsBuilder = new FacetsBuilder.WithSideways(queryExecution.queryContext, queryExecution.facetsConfig,
                     queryExecution.queryDef.facets, queryExecution.query, queryExecution.timeTracker,
-                    drillSidewaysResult).build();
+                    queryExecution.deadline, drillSidewaysResult).build();
 
         } else {
 
@@ -79,7 +79,7 @@ class QueryCollectorManager extends QueryCollectors implements CollectorManager<
                     null :
                     new FacetsBuilder.WithCollectors(queryExecution.queryContext, queryExecution.facetsConfig,
                             queryExecution.queryDef.facets, queryExecution.query, queryExecution.timeTracker,
-                            facetsCollector).build();
+                            queryExecution.deadline, facetsCollector).build();
         }
 
         return facetsBuilder;
@@ -116,6 +116,16 @@ class QueryCollectorManager extends QueryCollectors implements CollectorManager<
         return totalHits;
     }
 
+    @Override
+    final boolean isTotalHitsLowerBound() {
+        if (queryCollectorsList == null)
+            return false;
+        for (QueryCollectorsClassic queryCollectors : queryCollectorsList)
+            if (queryCollectors.isTotalHitsLowerBound())
+                return true;
+        return false;
+    }
+
     @Override
     public final TopDocs getTopDocs() {
         if (queryCollectorsList == null || queryCollectorsList.isEmpty())
@@ -38,6 +38,11 @@ abstract class QueryCollectors {
 
 	abstract Integer getTotalHits();
 
+	/**
+	 * @return true if the hits were counted up to the total hits threshold only
+	 */
+	abstract boolean isTotalHitsLowerBound();
+
 	abstract TopDocs getTopDocs() throws IOException;
 
 	abstract FacetsCollector getFacetsCollector() throws IOException;
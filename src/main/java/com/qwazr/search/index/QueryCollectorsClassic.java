@@ -21,8 +21,14 @@ import com.qwazr.utils.LoggerUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.facet.DrillSideways;
 import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
@@ -61,15 +67,22 @@ class QueryCollectorsClassic extends QueryCollectors {
         super(queryExecution);
         collectors = new ArrayList<>();
         facetsCollector = queryExecution.useDrillSideways ? null : buildFacetsCollector(queryExecution.queryDef.facets);
-        totalHitCountCollector = buildTotalHitsCollector(queryExecution.end);
-        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.end, queryExecution.bNeedScore);
+        // The documents before the cursor would count in the documents collected by each segment
+        final boolean earlyTerminate = queryExecution.end > 0 && queryExecution.searchAfter == null &&
+                canEarlyTerminate(queryExecution.queryContext.indexSearcher.getIndexReader(), queryExecution.sort);
+        totalHitCountCollector =
+                buildTotalHitsCollector(queryExecution.end, earlyTerminate, queryExecution.queryDef.totalHitsThreshold);
+        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.searchAfter, queryExecution.end,
+                queryExecution.bNeedScore, earlyTerminate);
         if (queryExecution.collectorConstructors != null) {
             userCollectors = new ArrayList<>();
             for (Pair<Constructor, Object[]> item : queryExecution.collectorConstructors)
                 userCollectors.add(add((BaseCollector) item.getLeft().newInstance(item.getRight())));
         } else
             userCollectors = null;
-        finalCollector = getFinalCollector();
+        finalCollector = queryExecution.deadline == null ?
+                getFinalCollector() :
+                queryExecution.deadline.wrap(getFinalCollector());
     }
 
     private <T extends Collector> T add(final T collector) {
@@ -88,31 +101,95 @@ class QueryCollectorsClassic extends QueryCollectors {
         }
     }
 
+    /**
+     * The query facets are also counted on the documents matched by the FacetsCollector
+     */
     private FacetsCollector buildFacetsCollector(final LinkedHashMap<String, FacetDefinition> facets) {
         if (facets == null || facets.isEmpty())
             return null;
-        for (FacetDefinition facet : facets.values())
-            if (facet.queries == null || facet.queries.isEmpty())
-                return add(new FacetsCollector());
-        return null;
+        return add(new FacetsCollector());
     }
 
-    private TopDocsCollector buildTopDocCollector(final Sort sort, final int numHits, final boolean bNeedScore)
-            throws IOException {
+    /**
+     * Check if the query sort is a prefix of the sort of the segments. The unsorted segments (written before the index
+     * sort was applied) are fully collected by the EarlyTerminatingSortingCollector.
+     *
+     * @param indexReader the reader of the searcher
+     * @param sort        the sort of the query
+     * @return true if at least one segment is sorted, and if all the sorted segments are compatible with the query sort
+     */
+    static boolean canEarlyTerminate(final IndexReader indexReader, final Sort sort) {
+        if (sort == null)
+            return false;
+        boolean sorted = false;
+        for (final LeafReaderContext leafReaderContext : indexReader.leaves()) {
+            final Sort indexSort = leafReaderContext.reader().getIndexSort();
+            if (indexSort == null)
+                continue;
+            if (!EarlyTerminatingSortingCollector.canEarlyTerminate(sort, indexSort))
+                return false;
+            sorted = true;
+        }
+        return sorted;
+    }
+
+    private TopDocsCollector buildTopDocCollector(final Sort sort, final ScoreDoc searchAfter, final int numHits,
+            final boolean bNeedScore, final boolean earlyTerminate) throws IOException {
         if (numHits == 0)
             return null;
         final TopDocsCollector topDocsCollector;
         if (sort != null)
-            topDocsCollector = TopFieldCollector.create(sort, numHits, true, bNeedScore, bNeedScore);
+            topDocsCollector =
+                    TopFieldCollector.create(sort, numHits, (FieldDoc) searchAfter, true, bNeedScore, bNeedScore);
         else
-            topDocsCollector = TopScoreDocCollector.create(numHits);
-        return add(topDocsCollector);
+            topDocsCollector = TopScoreDocCollector.create(numHits, searchAfter);
+        if (earlyTerminate)
+            add(new EarlyTerminatingSortingCollector(topDocsCollector, sort, numHits));
+        else
+            add(topDocsCollector);
+        return topDocsCollector;
     }
 
-    private TotalHitCountCollector buildTotalHitsCollector(final int numHits) {
-        if (numHits > 0)
+    /**
+     * When the collection of the top documents terminates early, the hits are still counted by a dedicated collector,
+     * which may stop at the threshold to let the collection terminate.
+     */
+    private TotalHitCountCollector buildTotalHitsCollector(final int numHits, final boolean earlyTerminate,
+            final Integer totalHitsThreshold) {
+        if (numHits > 0 && !earlyTerminate)
             return null;
-        return add(new TotalHitCountCollector());
+        return add(totalHitsThreshold == null ?
+                new TotalHitCountCollector() :
+                new ThresholdHitCountCollector(totalHitsThreshold));
+    }
+
+    /**
+     * Stops the collection (of the current and of the next segments) once the threshold is reached
+     */
+    private static final class ThresholdHitCountCollector extends TotalHitCountCollector {
+
+        private final int threshold;
+
+        private ThresholdHitCountCollector(final int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void doSetNextReader(final LeafReaderContext context) throws IOException {
+            if (isThresholdReached())
+                throw new CollectionTerminatedException();
+        }
+
+        @Override
+        public void collect(final int doc) {
+            super.collect(doc);
+            if (isThresholdReached())
+                throw new CollectionTerminatedException();
+        }
+
+        private boolean isThresholdReached() {
+            return getTotalHits() >= threshold;
+        }
     }
 
     @Override
@@ -123,12 +200,11 @@ class QueryCollectorsClassic extends QueryCollectors {
         if (queryExecution.useDrillSideways) {
 
             final DrillSideways.DrillSidewaysResult drillSidewaysResult =
-                    new DrillSideways(queryExecution.queryContext.indexSearcher, queryExecution.facetsConfig,
-                            queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.docValueReaderState)
-                            .search((org.apache.lucene.facet.DrillDownQuery) queryExecution.query, finalCollector);
+                    new MixedDrillSideways(queryExecution).search(
+                            (org.apache.lucene.facet.DrillDownQuery) queryExecution.query, finalCollector);
             facetsBuilder = new FacetsBuilder.WithSideways(queryExecution.queryContext, queryExecution.facetsConfig,
                     queryExecution.queryDef.facets, queryExecution.query, queryExecution.timeTracker,
-                    drillSidewaysResult).build();
+                    queryExecution.deadline, drillSidewaysResult).build();
 
         } else {
 
@@ -142,7 +218,7 @@ class QueryCollectorsClassic extends QueryCollectors {
                     null :
                     new FacetsBuilder.WithCollectors(queryExecution.queryContext, queryExecution.facetsConfig,
                             queryExecution.queryDef.facets, queryExecution.query, queryExecution.timeTracker,
-                            facetsCollector).build();
+                            queryExecution.deadline, facetsCollector).build();
 
         }
 
@@ -158,6 +234,12 @@ class QueryCollectorsClassic extends QueryCollectors {
         return 0;
     }
 
+    @Override
+    final boolean isTotalHitsLowerBound() {
+        return totalHitCountCollector instanceof ThresholdHitCountCollector &&
+                ((ThresholdHitCountCollector) totalHitCountCollector).isThresholdReached();
+    }
+
     @Override
     public final TopDocs getTopDocs() {
         return topDocsCollector == null ? null : topDocsCollector.topDocs(queryExecution.start, queryExecution.rows);
@@ -34,22 +34,33 @@ final class QueryContextImpl extends IndexContextImpl implements QueryContext, C
 	final IndexSearcher indexSearcher;
 	final IndexReader indexReader;
 	final TaxonomyReader taxonomyReader;
-	final SortedSetDocValuesReaderState docValueReaderState;
 	final FieldMapWrapper.Cache fieldMapWrappers;
 	final FieldMap fieldMap;
+	final String pointInTime;
+	private final QueryResultCache resultCache;
 
 	QueryContextImpl(final IndexInstance.Provider indexProvider, final ResourceLoader resourceLoader,
 			final ExecutorService executorService, final UpdatableAnalyzers indexAnalyzers,
 			final UpdatableAnalyzers queryAnalyzers, final FieldMap fieldMap,
 			final FieldMapWrapper.Cache fieldMapWrappers, final IndexSearcher indexSearcher,
-			final TaxonomyReader taxonomyReader) {
+			final TaxonomyReader taxonomyReader, final String pointInTime, final QueryResultCache resultCache) {
 		super(indexProvider, resourceLoader, executorService, indexAnalyzers, queryAnalyzers, fieldMap);
-		this.docValueReaderState = ((MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher).state;
 		this.fieldMap = fieldMap;
 		this.fieldMapWrappers = fieldMapWrappers;
 		this.indexSearcher = indexSearcher;
 		this.indexReader = indexSearcher.getIndexReader();
 		this.taxonomyReader = taxonomyReader;
+		this.pointInTime = pointInTime;
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * @param stateFacetField the field storing the sorted set facets
+	 * @return the state of the sorted set facets of the searcher, built on the first call
+	 * @throws IOException if the state cannot be built
+	 */
+	SortedSetDocValuesReaderState getDocValueReaderState(final String stateFacetField) throws IOException {
+		return ((MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher).getState(stateFacetField);
 	}
 
 	@Override
@@ -78,6 +89,13 @@ final class QueryContextImpl extends IndexContextImpl implements QueryContext, C
 
 	@Override
 	public ResultDefinition.WithMap searchMap(QueryDefinition queryDefinition) throws IOException {
+		if (resultCache == null || queryDefinition.cache == null || !queryDefinition.cache)
+			return searchMapNoCache(queryDefinition);
+		return resultCache.get(((MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher).generation,
+				queryDefinition, () -> searchMapNoCache(queryDefinition));
+	}
+
+	private ResultDefinition.WithMap searchMapNoCache(QueryDefinition queryDefinition) throws IOException {
 		final Set<String> returnedFields =
 				queryDefinition.returned_fields != null && queryDefinition.returned_fields.contains("*") ?
 						fieldMap.getStaticFieldSet() :
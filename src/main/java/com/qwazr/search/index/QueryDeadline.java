@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time budget of a query (timeout_ms). The cancellation is cooperative: each phase (the collection of every
+ * segment, the facets, the stored fields, the highlighting) checks the deadline and stops with what is ready.
+ */
+final class QueryDeadline {
+
+    /**
+     * The collectors check the clock once every 256 collected documents
+     */
+    private final static int CHECK_INTERVAL_MASK = 0xFF;
+
+    private final long deadlineNanos;
+    private volatile boolean timedOut;
+    private volatile boolean searchInterrupted;
+
+    private QueryDeadline(final long timeoutMs) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * @param timeoutMs the time budget of the query, or null
+     * @return a new deadline, or null if the query has no time budget
+     */
+    static QueryDeadline of(final Long timeoutMs) {
+        return timeoutMs == null ? null : new QueryDeadline(timeoutMs);
+    }
+
+    /**
+     * @return true if the deadline is passed
+     */
+    boolean isExpired() {
+        if (timedOut)
+            return true;
+        if (System.nanoTime() - deadlineNanos < 0)
+            return false;
+        timedOut = true;
+        return true;
+    }
+
+    /**
+     * @return true if one of the phases has been stopped by the deadline
+     */
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return true if some documents have not been collected: the hits and the counts are partial
+     */
+    boolean isSearchInterrupted() {
+        return searchInterrupted;
+    }
+
+    /**
+     * @param collector the collector of the query, or null
+     * @return a collector skipping the remaining documents once the deadline is passed
+     */
+    Collector wrap(final Collector collector) {
+        return collector == null ? null : new DeadlineCollector(collector);
+    }
+
+    private CollectionTerminatedException interrupt() {
+        searchInterrupted = true;
+        return new CollectionTerminatedException();
+    }
+
+    private final class DeadlineCollector extends FilterCollector {
+
+        private DeadlineCollector(final Collector in) {
+            super(in);
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(final LeafReaderContext context) throws IOException {
+            if (isExpired())
+                throw interrupt();
+            return new FilterLeafCollector(super.getLeafCollector(context)) {
+
+                private int count;
+
+                @Override
+                public void collect(final int doc) throws IOException {
+                    if ((++count & CHECK_INTERVAL_MASK) == 0 && isExpired())
+                        throw interrupt();
+                    super.collect(doc);
+                }
+            };
+        }
+    }
+}
@@ -61,6 +61,47 @@ public class QueryDefinition extends BaseQueryDefinition {
 	@JsonProperty("commit_user_data")
 	final public Map<String, String> commitUserData;
 
+	/**
+	 * Serve the result from the result cache of the index
+	 */
+	final public Boolean cache;
+
+	/**
+	 * The cursor returned by the previous page: the documents are collected after it
+	 */
+	@JsonProperty("search_after")
+	final public String searchAfter;
+
+	/**
+	 * The point in time returned by a previous query: the query runs on the same searcher
+	 */
+	@JsonProperty("point_in_time")
+	final public String pointInTime;
+
+	/**
+	 * Pin the searcher in a point in time kept alive this long after the query, zero releases it
+	 */
+	@JsonProperty("point_in_time_keep_alive_ms")
+	final public Long pointInTimeKeepAliveMs;
+
+	/**
+	 * Stop counting the hits once this number is reached: the total hits is then a lower bound
+	 */
+	@JsonProperty("total_hits_threshold")
+	final public Integer totalHitsThreshold;
+
+	/**
+	 * The time budget of the query in milliseconds: once expired, the result is partial and flagged timed_out
+	 */
+	@JsonProperty("timeout_ms")
+	final public Long timeoutMs;
+
+	/**
+	 * Return the search_after cursor of each document
+	 */
+	@JsonProperty("document_cursors")
+	final public Boolean documentCursors;
+
 	@JsonIgnore
 	final Query luceneQuery;
 
@@ -105,7 +146,14 @@ public class QueryDefinition extends BaseQueryDefinition {
 			@JsonProperty("facets") LinkedHashMap<String, FacetDefinition> facets,
 			@JsonProperty("highlighters") LinkedHashMap<String, HighlighterDefinition> highlighters,
 			@JsonProperty("query") AbstractQuery query,
-			@JsonProperty("commit_user_data") Map<String, String> commitUserData) {
+			@JsonProperty("commit_user_data") Map<String, String> commitUserData,
+			@JsonProperty("cache") Boolean cache,
+			@JsonProperty("search_after") String searchAfter,
+			@JsonProperty("point_in_time") String pointInTime,
+			@JsonProperty("point_in_time_keep_alive_ms") Long pointInTimeKeepAliveMs,
+			@JsonProperty("total_hits_threshold") Integer totalHitsThreshold,
+			@JsonProperty("timeout_ms") Long timeoutMs,
+			@JsonProperty("document_cursors") Boolean documentCursors) {
 		super(start, rows, returnedFields, queryDebug);
 		this.sorts = sorts;
 		this.collectors = collectors;
@@ -113,6 +161,13 @@ public class QueryDefinition extends BaseQueryDefinition {
 		this.highlighters = highlighters;
 		this.query = query;
 		this.commitUserData = commitUserData;
+		this.cache = cache;
+		this.searchAfter = searchAfter;
+		this.pointInTime = pointInTime;
+		this.pointInTimeKeepAliveMs = pointInTimeKeepAliveMs;
+		this.totalHitsThreshold = totalHitsThreshold;
+		this.timeoutMs = timeoutMs;
+		this.documentCursors = documentCursors;
 		luceneQuery = null;
 	}
 
@@ -125,6 +180,13 @@ public class QueryDefinition extends BaseQueryDefinition {
 		query = builder.query;
 		luceneQuery = builder.luceneQuery;
 		commitUserData = builder.commitUserData;
+		cache = builder.cache;
+		searchAfter = builder.searchAfter;
+		pointInTime = builder.pointInTime;
+		pointInTimeKeepAliveMs = builder.pointInTimeKeepAliveMs;
+		totalHitsThreshold = builder.totalHitsThreshold;
+		timeoutMs = builder.timeoutMs;
+		documentCursors = builder.documentCursors;
 	}
 
 	@Override
@@ -142,7 +204,13 @@ public class QueryDefinition extends BaseQueryDefinition {
 		return Objects.equals(query, q.query) && CollectionsUtils.equals(sorts, q.sorts) &&
 				CollectionsUtils.equals(collectors, q.collectors) && CollectionsUtils.equals(facets, q.facets) &&
 				CollectionsUtils.equals(highlighters, q.highlighters) &&
-				CollectionsUtils.equals(commitUserData, q.commitUserData);
+				CollectionsUtils.equals(commitUserData, q.commitUserData) && Objects.equals(cache, q.cache) &&
+				Objects.equals(searchAfter, q.searchAfter) &&
+				Objects.equals(pointInTime, q.pointInTime) &&
+				Objects.equals(pointInTimeKeepAliveMs, q.pointInTimeKeepAliveMs) &&
+				Objects.equals(totalHitsThreshold, q.totalHitsThreshold) &&
+				Objects.equals(timeoutMs, q.timeoutMs) &&
+				Objects.equals(documentCursors, q.documentCursors);
 	}
 
 	public static QueryBuilder of(final QueryDefinition queryDefinition) {
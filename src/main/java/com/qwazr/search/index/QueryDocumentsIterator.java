@@ -22,12 +22,22 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterate over all the documents matching a query. Each page is collected after the last document of the previous
+ * page, on the same point in time. Each page renews the keep alive of the point in time, the last page releases it.
+ */
 public class QueryDocumentsIterator<T> implements Iterator<T> {
 
+    /**
+     * How long the searcher is kept between two pages
+     */
+    public final static long POINT_IN_TIME_KEEP_ALIVE_MS = 60_000;
+
     private final AnnotatedIndexService<?> service;
     private final Class<T> recordClass;
 
     protected final QueryBuilder queryBuilder;
+    private final long keepAliveMs;
 
     private long count;
     private long pos;
@@ -45,18 +55,37 @@ public class QueryDocumentsIterator<T> implements Iterator<T> {
         queryBuilder.start(0);
         if (queryBuilder.rows == null || queryBuilder.rows < 1)
             queryBuilder.rows = 100;
+        this.keepAliveMs = queryBuilder.pointInTimeKeepAliveMs == null ?
+                POINT_IN_TIME_KEEP_ALIVE_MS :
+                queryBuilder.pointInTimeKeepAliveMs;
         nextExecution();
     }
 
     private synchronized boolean nextExecution() {
+        // The page reaching the last hit releases the point in time
+        final boolean lastPage = pos > 0 && pos + queryBuilder.rows >= count;
+        queryBuilder.pointInTimeKeepAliveMs(lastPage ? 0L : keepAliveMs);
         final ResultDefinition.WithObject<T> result = service.searchQuery(queryBuilder.build(), recordClass);
         count = result.total_hits;
         currentPos = 0;
         currentDocuments = result.documents;
-        queryBuilder.start(queryBuilder.start + queryBuilder.rows);
+        queryBuilder.searchAfter(result.search_after);
+        if (result.point_in_time != null) {
+            queryBuilder.pointInTime(result.point_in_time);
+            // The first page already holds all the hits
+            if (pos + (currentDocuments == null ? 0 : currentDocuments.size()) >= count)
+                releasePointInTime();
+        }
         return currentDocuments != null && !currentDocuments.isEmpty();
     }
 
+    private void releasePointInTime() {
+        service.searchQuery(
+                new QueryBuilder(queryBuilder.build()).rows(0).searchAfter(null).pointInTimeKeepAliveMs(0L).build(),
+                recordClass);
+        queryBuilder.pointInTime(null);
+    }
+
     @Override
     final public synchronized boolean hasNext() {
         return pos < count;
@@ -64,6 +93,8 @@ public class QueryDocumentsIterator<T> implements Iterator<T> {
 
     @Override
     public synchronized T next() {
+        if (pos >= count)
+            throw new NoSuchElementException();
         if (currentDocuments == null || currentPos >= currentDocuments.size())
             if (!nextExecution())
                 throw new NoSuchElementException();
@@ -29,6 +29,7 @@ import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 
@@ -45,12 +46,14 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
     final QueryContextImpl queryContext;
     final QueryDefinition queryDef;
     final TimeTracker timeTracker;
+    final QueryDeadline deadline;
     final Map<String, String> dimensions;
     final FacetsConfig facetsConfig;
     final int start;
     final int rows;
     final int end;
     final Sort sort;
+    final ScoreDoc searchAfter;
     final boolean bNeedScore;
     final boolean useDrillSideways;
     final Query query;
@@ -62,6 +65,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
             throws QueryNodeException, ReflectiveOperationException, ParseException, IOException {
 
         this.timeTracker = new TimeTracker();
+        this.deadline = QueryDeadline.of(queryDefinition.timeoutMs);
 
         this.queryContext = queryContext;
         this.queryDef = queryDefinition;
@@ -71,6 +75,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
                 queryDef.query == null ? new MatchAllDocsQuery() : queryDef.query.getQuery(queryContext);
 
         this.sort = queryDef.sorts == null ? null : SortUtils.buildSort(queryContext.fieldMap, queryDef.sorts);
+        this.searchAfter = queryDef.searchAfter == null ? null : SearchAfterCursor.decode(queryDef.searchAfter, sort);
 
         this.dimensions = queryDef.facets == null ? null : FacetsBuilder.getFields(queryDef.facets);
         this.facetsConfig = dimensions == null ? null : queryContext.fieldMap.getFacetsConfig(dimensions);
@@ -154,11 +159,23 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         final ResultDocumentsBuilder resultBuilder =
                 new ResultDocumentsBuilder(queryDef, topDocs, queryContext.indexSearcher, query, highlighters,
                         queryCollectors.getExternalResults(), timeTracker, facetsBuilder,
-                        totalHits == null ? 0 : totalHits, resultDocumentsInterface);
+                        totalHits == null ? 0 : totalHits, getTotalHitsRelation(queryCollectors),
+                        queryContext.pointInTime, deadline, resultDocumentsInterface);
 
         return resultDocuments.apply(resultBuilder);
     }
 
+    /**
+     * The relation is only returned when the query sets a threshold or a timeout
+     */
+    private ResultDefinition.TotalHitsRelation getTotalHitsRelation(final QueryCollectors queryCollectors) {
+        if (queryDef.totalHitsThreshold == null && deadline == null)
+            return null;
+        return queryCollectors.isTotalHitsLowerBound() || (deadline != null && deadline.isSearchInterrupted()) ?
+                ResultDefinition.TotalHitsRelation.greater_than_or_equal_to :
+                ResultDefinition.TotalHitsRelation.equal_to;
+    }
+
     final Explanation explain(final int docId) throws IOException {
         return queryContext.indexSearcher.explain(query, docId);
     }
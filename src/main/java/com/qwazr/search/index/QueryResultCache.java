@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A memory bounded LRU cache of the results of the queries of an index.
+ * <p>
+ * The key is the JSON form of the QueryDefinition. An entry is only served to a query running on the searcher
+ * generation which computed it: the first query using a newer searcher clears the cache. The generations keep
+ * increasing when the searcher factory of the index is recreated. The cached results are shared between the
+ * callers, they must not be modified.
+ */
+final class QueryResultCache {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(QueryResultCache.class);
+
+    /**
+     * The estimated size of an entry without its key and its documents
+     */
+    private final static int ENTRY_BYTES = 512;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries;
+    private long generation;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    QueryResultCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @FunctionalInterface
+    interface Search {
+        ResultDefinition.WithMap search() throws IOException;
+    }
+
+    /**
+     * @param searcherGeneration the generation of the searcher running the query
+     * @param queryDefinition    the query
+     * @param search             the execution of the query if the result is not cached
+     * @return the result, with the statistics of the cache
+     * @throws IOException if the execution of the query failed
+     */
+    ResultDefinition.WithMap get(final long searcherGeneration, final QueryDefinition queryDefinition,
+            final Search search) throws IOException {
+        final String key = getKey(queryDefinition);
+        if (key == null)
+            return search.search();
+        synchronized (entries) {
+            if (searcherGeneration > generation) {
+                clearEntries();
+                generation = searcherGeneration;
+            }
+            if (searcherGeneration == generation) {
+                final Entry entry = entries.get(key);
+                if (entry != null) {
+                    hitCount++;
+                    return new ResultDefinition.WithMap(entry.result, getStats(true));
+                }
+            }
+            missCount++;
+        }
+        final ResultDefinition.WithMap result = search.search();
+        final long weight = ENTRY_BYTES + key.length() * 2L + weigh(result);
+        synchronized (entries) {
+            // The searcher may have been reopened during the execution, a partial result is not kept
+            if (searcherGeneration != generation || weight > maxBytes || result.isTimedOut())
+                return new ResultDefinition.WithMap(result, getStats(false));
+            final Entry previous = entries.put(key, new Entry(result, weight));
+            if (previous != null)
+                size -= previous.weight;
+            size += weight;
+            final Iterator<Entry> iterator = entries.values().iterator();
+            while (size > maxBytes && iterator.hasNext()) {
+                size -= iterator.next().weight;
+                iterator.remove();
+                evictionCount++;
+            }
+            return new ResultDefinition.WithMap(result, getStats(false));
+        }
+    }
+
+    /**
+     * Remove all the entries, used when the fields or the analyzers are changed
+     */
+    void clear() {
+        synchronized (entries) {
+            clearEntries();
+        }
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        size = 0;
+    }
+
+    private ResultDefinition.CacheStats getStats(final boolean hit) {
+        return new ResultDefinition.CacheStats(hit, hitCount, missCount, evictionCount, entries.size(), size);
+    }
+
+    /**
+     * @return the JSON form of the query, or null if the query cannot be cached
+     */
+    private static String getKey(final QueryDefinition queryDefinition) {
+        // A Lucene query has no JSON form
+        if (queryDefinition.luceneQuery != null)
+            return null;
+        try {
+            return ObjectMappers.JSON.writeValueAsString(queryDefinition);
+        } catch (JsonProcessingException e) {
+            LOGGER.log(Level.WARNING, e, () -> "This query cannot be cached: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return an estimation of the number of bytes used by the documents and the facets of the result
+     */
+    private static long weigh(final ResultDefinition.WithMap result) {
+        long weight = 0;
+        if (result.documents != null) {
+            for (final ResultDocumentMap document : result.documents) {
+                weight += 64;
+                weight += weighObject(document.fields);
+                weight += weighObject(document.highlights);
+            }
+        }
+        weight += weighObject(result.facets);
+        weight += weighObject(result.collectors);
+        return weight;
+    }
+
+    private static long weighObject(final Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof CharSequence)
+            return 40 + ((CharSequence) value).length() * 2L;
+        if (value instanceof Map) {
+            long weight = 48;
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                weight += 32 + weighObject(entry.getKey()) + weighObject(entry.getValue());
+            return weight;
+        }
+        if (value instanceof Collection) {
+            long weight = 40;
+            for (final Object item : (Collection<?>) value)
+                weight += 8 + weighObject(item);
+            return weight;
+        }
+        if (value instanceof byte[])
+            return 16 + ((byte[]) value).length;
+        return 24;
+    }
+
+    private static final class Entry {
+
+        private final ResultDefinition.WithMap result;
+        private final long weight;
+
+        private Entry(final ResultDefinition.WithMap result, final long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Compiled accessors of the annotated records, replacing the reflective calls on the indexing and the hydration paths.
+ * <p>
+ * The accessors are built once per class and cached with the class itself: the getters are method handles, the
+ * no-arg constructors are spun by the LambdaMetafactory when the class is public, or method handles otherwise.
+ */
+final class RecordAccessors {
+
+	private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private final static MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private final static ClassValue<Map<String, MethodHandle>> GETTERS =
+			new ClassValue<Map<String, MethodHandle>>() {
+				@Override
+				protected Map<String, MethodHandle> computeValue(final Class<?> type) {
+					return new ConcurrentHashMap<>();
+				}
+			};
+
+	private final static ClassValue<Supplier<?>> CONSTRUCTORS = new ClassValue<Supplier<?>>() {
+		@Override
+		protected Supplier<?> computeValue(final Class<?> type) {
+			try {
+				return compileConstructor(type);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException("Cannot compile the constructor of " + type, e);
+			}
+		}
+	};
+
+	private RecordAccessors() {
+	}
+
+	/**
+	 * @param field an accessible field
+	 * @return a method handle of type (Object)Object reading the field
+	 */
+	static MethodHandle getter(final Field field) {
+		return GETTERS.get(field.getDeclaringClass()).computeIfAbsent(field.getName(), name -> {
+			try {
+				return LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				throw ServerException.of("Cannot access the field " + field, e);
+			}
+		});
+	}
+
+	/**
+	 * @param type a class having a no-arg constructor
+	 * @param <T>  the type of the record
+	 * @return a supplier creating new instances
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Supplier<T> constructor(final Class<T> type) {
+		return (Supplier<T>) CONSTRUCTORS.get(type);
+	}
+
+	/**
+	 * The generated class calls the constructor directly: the type must be visible from this class
+	 */
+	private static boolean isVisible(final Class<?> type) {
+		Class<?> current = type;
+		while (current != null) {
+			if (!Modifier.isPublic(current.getModifiers()))
+				return false;
+			current = current.getEnclosingClass();
+		}
+		try {
+			return Class.forName(type.getName(), false, RecordAccessors.class.getClassLoader()) == type;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static Supplier<?> compileConstructor(final Class<?> type) throws Throwable {
+		final Constructor<?> constructor = type.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		final MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+		if (isVisible(type) && Modifier.isPublic(constructor.getModifiers())) {
+			final CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "get",
+					MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle,
+					MethodType.methodType(type));
+			return (Supplier<?>) callSite.getTarget().invokeExact();
+		}
+		final MethodHandle genericHandle = handle.asType(MethodType.methodType(Object.class));
+		return () -> {
+			try {
+				return (Object) genericHandle.invokeExact();
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		};
+	}
+
+	/**
+	 * The getters of a set of fields, in the iteration order of the map
+	 */
+	static final class Getters {
+
+		final String[] names;
+		final MethodHandle[] handles;
+
+		Getters(final Map<String, Field> fields) {
+			names = new String[fields.size()];
+			handles = new MethodHandle[fields.size()];
+			int i = 0;
+			for (final Map.Entry<String, Field> entry : fields.entrySet()) {
+				names[i] = entry.getKey();
+				handles[i++] = getter(entry.getValue());
+			}
+		}
+
+		Object get(final int index, final Object record) {
+			try {
+				return (Object) handles[index].invokeExact(record);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -60,22 +60,20 @@ abstract class RecordBuilder {
 
 	}
 
-	final static class ForObject extends RecordBuilder implements BiConsumer<String, java.lang.reflect.Field> {
+	final static class ForObject extends RecordBuilder {
 
-		private final Object record;
+		private final RecordAccessors.Getters getters;
 
-		ForObject(final FieldMap fieldMap, final FieldConsumer fieldConsumer, final Object record) {
+		ForObject(final FieldMap fieldMap, final FieldConsumer fieldConsumer, final RecordAccessors.Getters getters) {
 			super(fieldMap, fieldConsumer);
-			this.record = record;
+			this.getters = getters;
 		}
 
-		@Override
-		final public void accept(final String fieldName, final java.lang.reflect.Field field) {
-			try {
-				addFieldValue(fieldName, field.get(record));
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e);
-			}
+		final void build(final Object record) {
+			termId = null;
+			final String[] names = getters.names;
+			for (int i = 0; i < names.length; i++)
+				addFieldValue(names[i], getters.get(i, record));
 		}
 
 	}
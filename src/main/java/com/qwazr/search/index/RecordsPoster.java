@@ -64,11 +64,11 @@ interface RecordsPoster {
 		private Documents(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
 				final TaxonomyWriter taxonomyWriter) {
 			super(fields, fieldMap, indexWriter, taxonomyWriter);
-			documentBuilder = new FieldConsumer.ForDocument();
+			documentBuilder = new FieldConsumer.ForDocument(fieldMap);
 		}
 
 		private Document getFacetedDoc() throws IOException {
-			final FacetsConfig facetsConfig = fieldMap.getFacetsConfig(documentBuilder.dimensions);
+			final FacetsConfig facetsConfig = fieldMap.getFacetsConfig();
 			return facetsConfig.build(taxonomyWriter, documentBuilder.document);
 		}
 
@@ -158,32 +158,36 @@ interface RecordsPoster {
 
 	final class UpdateObjectDocument extends Documents implements ObjectDocument {
 
+		private final RecordBuilder.ForObject recordBuilder;
+
 		private UpdateObjectDocument(final Map<String, java.lang.reflect.Field> fields, final FieldMap fieldMap,
 				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
 			super(fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder =
+					new RecordBuilder.ForObject(fieldMap, documentBuilder, new RecordAccessors.Getters(fields));
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			recordBuilder.build(record);
 			updateDocument(recordBuilder.termId);
 		}
 	}
 
 	final class AddObjectDocument extends Documents implements ObjectDocument {
 
+		private final RecordBuilder.ForObject recordBuilder;
+
 		private AddObjectDocument(final Map<String, java.lang.reflect.Field> fields, final FieldMap fieldMap,
 				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
 			super(fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder =
+					new RecordBuilder.ForObject(fieldMap, documentBuilder, new RecordAccessors.Getters(fields));
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			recordBuilder.build(record);
 			addDocument();
 		}
 	}
@@ -213,16 +217,18 @@ interface RecordsPoster {
 
 	final class UpdateObjectDocValues extends DocValues implements ObjectDocument {
 
+		private final RecordBuilder.ForObject recordBuilder;
+
 		UpdateObjectDocValues(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
 				final TaxonomyWriter taxonomyWriter) {
 			super(fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder =
+					new RecordBuilder.ForObject(fieldMap, documentBuilder, new RecordAccessors.Getters(fields));
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			recordBuilder.build(record);
 			updateDocValues(recordBuilder.termId);
 		}
 	}
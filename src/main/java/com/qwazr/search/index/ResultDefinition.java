@@ -15,9 +15,11 @@
  */
 package com.qwazr.search.index;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.qwazr.utils.TimeTracker;
 
 import javax.validation.constraints.NotNull;
@@ -31,59 +33,123 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 
 	final public TimeTracker.Status timer;
 	final public Long total_hits;
+	final public TotalHitsRelation total_hits_relation;
 	final public Float max_score;
 	final public List<T> documents;
 	final public Map<String, Map<String, Number>> facets;
 	final public String query;
 	final public Map<String, Object> collectors;
+	final public CacheStats cache;
+	final public String search_after;
+	final public String point_in_time;
+	final public Boolean timed_out;
 
 	public ResultDefinition() {
 		this.timer = null;
 		this.total_hits = null;
+		this.total_hits_relation = null;
 		this.documents = null;
 		this.facets = null;
 		this.collectors = null;
 		this.max_score = null;
 		this.query = null;
+		this.cache = null;
+		this.search_after = null;
+		this.point_in_time = null;
+		this.timed_out = null;
 	}
 
 	protected ResultDefinition(final ResultDocumentsBuilder builder, @NotNull final List<T> documents) {
 		this.query = builder.queryDebug;
 		this.timer = builder.timeTrackerStatus;
 		this.total_hits = builder.totalHits;
+		this.total_hits_relation = builder.totalHitsRelation;
 		this.max_score = builder.maxScore;
 		this.documents = documents;
 		this.facets = builder.facets;
 		this.collectors = builder.collectors;
+		this.cache = null;
+		this.search_after = builder.searchAfter;
+		this.point_in_time = builder.pointInTime;
+		this.timed_out = builder.timedOut;
 	}
 
 	protected ResultDefinition(final ResultDefinition<?> src, @NotNull final List<T> documents) {
 		this.query = src.query;
 		this.timer = src.timer;
 		this.total_hits = src.total_hits;
+		this.total_hits_relation = src.total_hits_relation;
 		this.max_score = src.max_score;
 		this.documents = documents;
 		this.facets = src.facets;
 		this.collectors = src.collectors;
+		this.cache = src.cache;
+		this.search_after = src.search_after;
+		this.point_in_time = src.point_in_time;
+		this.timed_out = src.timed_out;
+	}
+
+	protected ResultDefinition(final ResultDefinition<T> src, final CacheStats cache) {
+		this.query = src.query;
+		this.timer = src.timer;
+		this.total_hits = src.total_hits;
+		this.total_hits_relation = src.total_hits_relation;
+		this.max_score = src.max_score;
+		this.documents = src.documents;
+		this.facets = src.facets;
+		this.collectors = src.collectors;
+		this.cache = cache;
+		this.search_after = src.search_after;
+		this.point_in_time = src.point_in_time;
+		this.timed_out = src.timed_out;
 	}
 
 	ResultDefinition(TimeTracker timeTracker) {
 		query = null;
 		total_hits = 0L;
+		total_hits_relation = null;
 		documents = Collections.emptyList();
 		facets = null;
 		collectors = null;
 		max_score = null;
+		cache = null;
+		search_after = null;
+		point_in_time = null;
+		timed_out = null;
 		this.timer = timeTracker != null ? timeTracker.getStatus() : null;
 	}
 
+	/**
+	 * The result merged from the results of several shards
+	 */
+	ResultDefinition(final Long totalHits, final TotalHitsRelation totalHitsRelation, final Float maxScore,
+			final List<T> documents, final Map<String, Map<String, Number>> facets, final Boolean timedOut) {
+		query = null;
+		this.total_hits = totalHits;
+		this.total_hits_relation = totalHitsRelation;
+		this.documents = documents;
+		this.facets = facets;
+		collectors = null;
+		this.max_score = maxScore;
+		cache = null;
+		search_after = null;
+		point_in_time = null;
+		this.timed_out = timedOut;
+		this.timer = null;
+	}
+
 	protected ResultDefinition(long total_hits) {
 		query = null;
 		this.total_hits = total_hits;
+		total_hits_relation = null;
 		documents = Collections.emptyList();
 		facets = null;
 		collectors = null;
 		max_score = null;
+		cache = null;
+		search_after = null;
+		point_in_time = null;
+		timed_out = null;
 		this.timer = null;
 	}
 
@@ -97,6 +163,15 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 		return total_hits;
 	}
 
+	/**
+	 * @return greater_than_or_equal_to if the counting stopped at the total_hits_threshold of the query or at its
+	 * timeout, null if the query did not set any threshold or timeout
+	 */
+	@JsonIgnore
+	public TotalHitsRelation getTotalHitsRelation() {
+		return total_hits_relation;
+	}
+
 	@JsonIgnore
 	public Float getMaxScore() {
 		return max_score;
@@ -138,6 +213,29 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 		return query;
 	}
 
+	public CacheStats getCache() {
+		return cache;
+	}
+
+	@JsonIgnore
+	public String getSearchAfter() {
+		return search_after;
+	}
+
+	@JsonIgnore
+	public String getPointInTime() {
+		return point_in_time;
+	}
+
+	/**
+	 * @return true if the time budget of the query (timeout_ms) expired: the documents, the facets and the hits may be
+	 * partial
+	 */
+	@JsonIgnore
+	public boolean isTimedOut() {
+		return timed_out != null && timed_out;
+	}
+
 	public <O> O getCollector(String name) {
 		return collectors == null ? null : (O) collectors.get(name);
 	}
@@ -148,6 +246,10 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 				consumer.accept(document);
 	}
 
+	public enum TotalHitsRelation {
+		equal_to, greater_than_or_equal_to
+	}
+
 	@JsonInclude(Include.NON_NULL)
 	public static class WithMap extends ResultDefinition<ResultDocumentMap> {
 
@@ -161,6 +263,16 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 		public WithMap(int docs) {
 			super(docs);
 		}
+
+		WithMap(final WithMap src, final CacheStats cache) {
+			super(src, cache);
+		}
+
+		WithMap(final Long totalHits, final TotalHitsRelation totalHitsRelation, final Float maxScore,
+				final List<ResultDocumentMap> documents, final Map<String, Map<String, Number>> facets,
+				final Boolean timedOut) {
+			super(totalHits, totalHitsRelation, maxScore, documents, facets, timedOut);
+		}
 	}
 
 	public static class WithObject<T> extends ResultDefinition<ResultDocumentObject<T>> {
@@ -187,6 +299,35 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
 
 	}
 
+	/**
+	 * The state of the result cache of the index, when the query asked for it
+	 */
+	@JsonInclude(Include.NON_NULL)
+	public static class CacheStats {
+
+		/**
+		 * True if the result has been served from the cache
+		 */
+		final public Boolean hit;
+		final public Long hit_count;
+		final public Long miss_count;
+		final public Long eviction_count;
+		final public Integer cache_count;
+		final public Long cache_size;
+
+		@JsonCreator
+		public CacheStats(@JsonProperty("hit") Boolean hit, @JsonProperty("hit_count") Long hitCount,
+				@JsonProperty("miss_count") Long missCount, @JsonProperty("eviction_count") Long evictionCount,
+				@JsonProperty("cache_count") Integer cacheCount, @JsonProperty("cache_size") Long cacheSize) {
+			this.hit = hit;
+			this.hit_count = hitCount;
+			this.miss_count = missCount;
+			this.eviction_count = evictionCount;
+			this.cache_count = cacheCount;
+			this.cache_size = cacheSize;
+		}
+	}
+
 	interface Builder<T extends ResultDocumentAbstract> extends Function<ResultDocumentsBuilder, ResultDefinition<T>> {
 		ResultDocumentsInterface getResultDocuments();
 	}
@@ -29,25 +29,32 @@ public abstract class ResultDocumentAbstract {
 	@JsonProperty("shard_index")
 	final public int shardIndex;
 	final public Map<String, String> highlights;
+	/**
+	 * The cursor of the document, when the query asked for the document cursors
+	 */
+	@JsonProperty("search_after")
+	final public String searchAfter;
 
 	@JsonCreator
 	ResultDocumentAbstract(@JsonProperty("score") Float score, @JsonProperty("pos") Integer pos,
 			@JsonProperty("doc") Integer doc, @JsonProperty("shard_index") Integer shardIndex,
-			@JsonProperty("highlights") Map<String, String> highlights) {
+			@JsonProperty("highlights") Map<String, String> highlights,
+			@JsonProperty("search_after") String searchAfter) {
 		this.score = score == null ? 1.0F : score;
 		this.pos = pos == null ? -1 : pos;
 		this.highlights = highlights;
 		this.doc = doc == null ? -1 : doc;
 		this.shardIndex = shardIndex == null ? -1 : shardIndex;
+		this.searchAfter = searchAfter;
 	}
 
 	protected ResultDocumentAbstract(final ResultDocumentBuilder builder) {
 		this(builder.scoreDoc.score, builder.pos, builder.scoreDoc.doc, builder.scoreDoc.shardIndex,
-				builder.highlights);
+				builder.highlights, builder.searchAfter);
 	}
 
 	protected ResultDocumentAbstract(final ResultDocumentAbstract src) {
-		this(src.score, src.pos, src.doc, src.shardIndex, src.highlights);
+		this(src.score, src.pos, src.doc, src.shardIndex, src.highlights, src.searchAfter);
 	}
 
 	final public float getScore() {
@@ -80,4 +87,9 @@ public abstract class ResultDocumentAbstract {
 		return highlights;
 	}
 
+	@JsonIgnore
+	final public String getSearchAfter() {
+		return searchAfter;
+	}
+
 }
@@ -19,7 +19,6 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.utils.concurrent.ConcurrentUtils;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.StoredFieldVisitor;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 
 import javax.validation.constraints.NotNull;
@@ -38,6 +37,13 @@ abstract class ResultDocumentBuilder<T extends ResultDocumentAbstract> {
 
 	Map<String, String> highlights;
 
+	String searchAfter;
+
+	/**
+	 * Set by the thread loading the stored fields of the document
+	 */
+	boolean storedFieldsLoaded;
+
 	ResultDocumentBuilder(final int pos, final ScoreDoc scoreDoc) {
 		this.pos = pos;
 		this.scoreDoc = scoreDoc;
@@ -72,11 +78,23 @@ abstract class ResultDocumentBuilder<T extends ResultDocumentAbstract> {
 		ConcurrentUtils.forEachEx(returnedFields, this::setDocValuesField);
 	}
 
-	final void extractStoredReturnedFields(@NotNull final IndexSearcher searcher,
+	/**
+	 * @param leafStoredFields the stored fields of the segment of the document
+	 * @param leafDoc          the ID of the document in its segment
+	 * @param storedFields     the stored fields to extract, with the name of the returned field
+	 * @throws IOException if the stored fields cannot be read
+	 */
+	final void extractStoredReturnedFields(@NotNull final LeafStoredFields leafStoredFields, final int leafDoc,
 			@NotNull final Map<String, String> storedFields) throws IOException {
 		final Visitor visitor = new Visitor(storedFields);
-		searcher.doc(scoreDoc.doc, visitor);
+		leafStoredFields.visitDocument(leafDoc, visitor);
 		visitor.extract();
+		storedFieldsLoaded = true;
+	}
+
+	@FunctionalInterface
+	interface LeafStoredFields {
+		void visitDocument(int leafDoc, StoredFieldVisitor visitor) throws IOException;
 	}
 
 	private class Visitor extends StoredFieldVisitor {
@@ -35,11 +35,17 @@ public class ResultDocumentMap extends ResultDocumentAbstract {
 	public ResultDocumentMap(@JsonProperty("score") Float score, @JsonProperty("pos") Integer pos,
 			@JsonProperty("doc") Integer doc, @JsonProperty("shard_index") Integer shardIndex,
 			@JsonProperty("highlights") Map<String, String> highlights,
+			@JsonProperty("search_after") String searchAfter,
 			@JsonProperty("fields") LinkedHashMap<String, Object> fields) {
-		super(score, pos, doc, shardIndex, highlights);
+		super(score, pos, doc, shardIndex, highlights, searchAfter);
 		this.fields = fields;
 	}
 
+	public ResultDocumentMap(Float score, Integer pos, Integer doc, Integer shardIndex, Map<String, String> highlights,
+			LinkedHashMap<String, Object> fields) {
+		this(score, pos, doc, shardIndex, highlights, null, fields);
+	}
+
 	ResultDocumentMap(Builder builder) {
 		super(builder);
 		fields = builder.fields;
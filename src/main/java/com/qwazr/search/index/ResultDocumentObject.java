@@ -52,11 +52,7 @@ public class ResultDocumentObject<T> extends ResultDocumentAbstract {
 
 		Builder(final int pos, final ScoreDoc scoreDoc, final FieldMapWrapper<T> wrapper) {
 			super(pos, scoreDoc);
-			try {
-				this.record = wrapper.constructor.newInstance();
-			} catch (ReflectiveOperationException e) {
-				throw ServerException.of(e);
-			}
+			this.record = RecordAccessors.constructor(wrapper.constructor.getDeclaringClass()).get();
 			this.fieldMap = wrapper.fieldMap;
 		}
 
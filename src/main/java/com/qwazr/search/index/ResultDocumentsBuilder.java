@@ -24,6 +24,7 @@ import org.apache.lucene.search.TopDocs;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -35,30 +36,49 @@ class ResultDocumentsBuilder {
 	final TimeTracker.Status timeTrackerStatus;
 	final float maxScore;
 	final long totalHits;
+	final ResultDefinition.TotalHitsRelation totalHitsRelation;
+	final String searchAfter;
+	final String pointInTime;
+	final Boolean timedOut;
 
 	ResultDocumentsBuilder(final QueryDefinition queryDefinition, final TopDocs topDocs,
 			final IndexSearcher indexSearcher, final Query luceneQuery, final Map<String, HighlighterImpl> highlighters,
 			final Map<String, Object> externalCollectorsResults, final TimeTracker timeTracker,
-			final FacetsBuilder facetsBuilder, long totalHits, @NotNull final ResultDocumentsInterface resultDocuments)
+			final FacetsBuilder facetsBuilder, long totalHits,
+			final ResultDefinition.TotalHitsRelation totalHitsRelation, final String pointInTime,
+			final QueryDeadline deadline, @NotNull final ResultDocumentsInterface resultDocuments)
 			throws ReflectiveOperationException, IOException {
 
 		this.collectors = externalCollectorsResults;
 
+		// Once the deadline is passed, only the documents already loaded are returned
+		final TopDocs returnedDocs;
+
 		if (topDocs != null && topDocs.scoreDocs != null) {
 
 			this.maxScore = topDocs.getMaxScore();
 			int pos = 0;
-			for (ScoreDoc scoreDoc : topDocs.scoreDocs)
+			for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+				if (deadline != null && deadline.isExpired())
+					break;
 				resultDocuments.doc(indexSearcher, pos++, scoreDoc);
+			}
+			if (resultDocuments instanceof ResultDocumentsList)
+				pos = ((ResultDocumentsList<?>) resultDocuments).load(indexSearcher, deadline);
+			returnedDocs = pos == topDocs.scoreDocs.length ?
+					topDocs :
+					new TopDocs(topDocs.totalHits, Arrays.copyOf(topDocs.scoreDocs, pos), topDocs.getMaxScore());
 
 			if (timeTracker != null)
 				timeTracker.next("documents");
 
-			if (highlighters != null && topDocs.scoreDocs.length > 0) {
+			if (highlighters != null && returnedDocs.scoreDocs.length > 0) {
 
 				highlighters.forEach((name, highlighter) -> {
+					if (deadline != null && deadline.isExpired())
+						return;
 					try {
-						final String[] snippetsByDoc = highlighter.highlights(luceneQuery, topDocs);
+						final String[] snippetsByDoc = highlighter.highlights(luceneQuery, returnedDocs);
 						int pos2 = 0;
 						for (String snippet : snippetsByDoc)
 							resultDocuments.highlight(pos2++, name, snippet);
@@ -69,10 +89,19 @@ class ResultDocumentsBuilder {
 				if (timeTracker != null)
 					timeTracker.next("highlighting");
 			}
-		} else
+		} else {
 			this.maxScore = 0;
+			returnedDocs = topDocs;
+		}
 
 		this.totalHits = totalHits;
+		this.totalHitsRelation = totalHitsRelation;
+		this.searchAfter =
+				returnedDocs == null || returnedDocs.scoreDocs == null || returnedDocs.scoreDocs.length == 0 ?
+						null :
+						SearchAfterCursor.encode(returnedDocs.scoreDocs[returnedDocs.scoreDocs.length - 1]);
+		this.pointInTime = pointInTime;
+		this.timedOut = deadline == null ? null : deadline.isTimedOut();
 
 		this.facets = facetsBuilder == null ? null : facetsBuilder.results;
 		this.queryDebug = queryDefinition.query_debug != null && queryDefinition.query_debug && luceneQuery != null ?
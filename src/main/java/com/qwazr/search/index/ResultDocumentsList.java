@@ -18,16 +18,22 @@ package com.qwazr.search.index;
 import com.qwazr.search.field.Converters.MultiReader;
 import com.qwazr.search.field.Converters.ValueConverter;
 import com.qwazr.search.field.FieldTypeInterface;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
         implements ResultDocuments<T>, ResultDocumentsInterface {
@@ -36,10 +42,17 @@ abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
     private final Map<String, String> storedFields;
     private final Map<String, ValueConverter> returnedFieldsConverter;
     protected final int start;
+    private final boolean documentCursors;
+
+    /**
+     * Below this number of documents, the stored fields are read by the calling thread
+     */
+    private final static int PARALLEL_LOAD_MIN_DOCUMENTS = 64;
 
     ResultDocumentsList(final QueryContextImpl context, final QueryDefinition queryDefinition,
                         Set<String> returnedFields) {
         this.start = queryDefinition.getStartValue();
+        this.documentCursors = queryDefinition.documentCursors != null && queryDefinition.documentCursors;
 
         if (returnedFields == null)
             if (queryDefinition.returned_fields != null && !queryDefinition.returned_fields.isEmpty())
@@ -77,13 +90,93 @@ abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
         final ResultDocumentBuilder<T> builder = newResultDocumentBuilder(start + pos, scoreDoc);
         if (builder == null)
             return;
-        if (storedFields != null && !storedFields.isEmpty())
-            builder.extractStoredReturnedFields(searcher, storedFields);
-        if (returnedFieldsConverter != null && !returnedFieldsConverter.isEmpty())
-            builder.extractDocValuesReturnedFields(returnedFieldsConverter);
+        if (documentCursors)
+            builder.searchAfter = SearchAfterCursor.encode(scoreDoc);
         documentsBuilder.add(builder);
     }
 
+    /**
+     * Loads the returned fields of the documents. The stored fields are read segment by segment in the order of the
+     * document IDs, with one stored fields reader per segment: the compressed blocks shared by several documents are
+     * decompressed once. The segments of a large page are read in parallel by the executor of the searcher, the
+     * calling thread reads the segments rejected by a saturated executor.
+     *
+     * @param searcher the searcher of the query
+     * @param deadline the deadline of the query, or null
+     * @return the number of documents loaded. If the deadline is passed, only the first documents already loaded (in
+     * the order of the ranking) are kept.
+     * @throws IOException if the fields cannot be read
+     */
+    final int load(final IndexSearcher searcher, final QueryDeadline deadline) throws IOException {
+        if (storedFields != null && !storedFields.isEmpty() && !documentsBuilder.isEmpty()) {
+            loadStoredFields(searcher, deadline);
+            int loaded = 0;
+            while (loaded < documentsBuilder.size() && documentsBuilder.get(loaded).storedFieldsLoaded)
+                loaded++;
+            if (loaded < documentsBuilder.size())
+                documentsBuilder.subList(loaded, documentsBuilder.size()).clear();
+        }
+        if (returnedFieldsConverter != null && !returnedFieldsConverter.isEmpty())
+            for (ResultDocumentBuilder<T> builder : documentsBuilder)
+                builder.extractDocValuesReturnedFields(returnedFieldsConverter);
+        return documentsBuilder.size();
+    }
+
+    private void loadStoredFields(final IndexSearcher searcher, final QueryDeadline deadline) throws IOException {
+        final List<ResultDocumentBuilder<T>> sortedBuilders = new ArrayList<>(documentsBuilder);
+        sortedBuilders.sort(Comparator.comparingInt(builder -> builder.scoreDoc.doc));
+
+        // The documents are grouped by segment: the doc IDs are sorted, the segments are consecutive ranges
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final List<LeafDocuments> leafDocumentsList = new ArrayList<>();
+        LeafDocuments leafDocuments = null;
+        for (ResultDocumentBuilder<T> builder : sortedBuilders) {
+            final int doc = builder.scoreDoc.doc;
+            if (leafDocuments == null || doc >= leafDocuments.leafEnd) {
+                leafDocuments = new LeafDocuments(leaves.get(ReaderUtil.subIndex(doc, leaves)));
+                leafDocumentsList.add(leafDocuments);
+            }
+            leafDocuments.builders.add(builder);
+        }
+
+        final ExecutorService executorService =
+                leafDocumentsList.size() > 1 && sortedBuilders.size() >= PARALLEL_LOAD_MIN_DOCUMENTS &&
+                        searcher instanceof MultiThreadSearcherFactory.StateIndexSearcher ?
+                        ((MultiThreadSearcherFactory.StateIndexSearcher) searcher).searcherExecutor :
+                        null;
+        MultiSearch.execute(executorService, leafDocumentsList.size(), index -> {
+            leafDocumentsList.get(index).load(deadline);
+            return null;
+        });
+    }
+
+    private final class LeafDocuments {
+
+        private final LeafReaderContext leaf;
+        private final int leafEnd;
+        private final List<ResultDocumentBuilder<T>> builders;
+
+        private LeafDocuments(final LeafReaderContext leaf) {
+            this.leaf = leaf;
+            this.leafEnd = leaf.docBase + leaf.reader().maxDoc();
+            this.builders = new ArrayList<>();
+        }
+
+        private void load(final QueryDeadline deadline) throws IOException {
+            // The stored fields reader of a segment reader is owned by the calling thread
+            final LeafReader leafReader = leaf.reader();
+            final ResultDocumentBuilder.LeafStoredFields leafStoredFields = leafReader instanceof CodecReader ?
+                    ((CodecReader) leafReader).getFieldsReader()::visitDocument :
+                    leafReader::document;
+            for (ResultDocumentBuilder<T> builder : builders) {
+                if (deadline != null && deadline.isExpired())
+                    return;
+                builder.extractStoredReturnedFields(leafStoredFields, builder.scoreDoc.doc - leaf.docBase,
+                        storedFields);
+            }
+        }
+    }
+
     @Override
     final public void highlight(int pos, String name, String snippet) {
         documentsBuilder.get(pos).setHighlight(name, snippet);
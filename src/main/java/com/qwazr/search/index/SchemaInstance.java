@@ -24,6 +24,9 @@ import com.qwazr.utils.StringUtils;
 import com.qwazr.utils.concurrent.ReadWriteLock;
 import com.qwazr.utils.concurrent.ReadWriteSemaphores;
 import com.qwazr.utils.reflection.ConstructorParametersImpl;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.QueryCache;
 
 import javax.ws.rs.core.Response;
 import java.io.Closeable;
@@ -62,6 +65,8 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
     private final File settingsFile;
     private volatile SchemaSettingsDefinition settingsDefinition;
     private volatile Path backupRootDirectory;
+    private volatile QueryCache queryCache;
+    private final SearchExecutor searchExecutor;
 
     private final ReadWriteLock backupLock = ReadWriteLock.stamped();
 
@@ -78,6 +83,7 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
         this.service = service;
         this.schemaName = schemaDirectory.getName();
         this.schemaDirectory = schemaDirectory.toPath();
+        this.searchExecutor = new SearchExecutor(executorService, "search-" + schemaName);
         if (!Files.exists(this.schemaDirectory))
             Files.createDirectory(this.schemaDirectory);
 
@@ -100,6 +106,7 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
     @Override
     public void close() {
         indexMap.forEachValue(1, IOUtils::closeQuietly);
+        searchExecutor.shutdown();
     }
 
     IndexInstance createUpdate(final String indexName, final IndexSettingsDefinition settings) throws Exception {
@@ -133,6 +140,20 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
         }
     }
 
+    /**
+     * Apply the index sort if it was waiting for the fields of the index
+     *
+     * @param indexName The name of the index
+     */
+    void applyIndexSort(final String indexName) {
+        final IndexInstanceManager indexInstanceManager = checkIndexExists(indexName, indexMap.get(indexName));
+        try {
+            indexInstanceManager.applyIndexSort();
+        } catch (Exception e) {
+            throw ServerException.of(e);
+        }
+    }
+
     @Override
     public IndexInstance getIndex(String name) {
         return get(name, false);
@@ -332,6 +353,23 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
         checkSettings();
     }
 
+    /**
+     * @return the query cache shared by the indexes of the schema, or the default cache of the node
+     */
+    @Override
+    public QueryCache getQueryCache() {
+        final QueryCache cache = queryCache;
+        return cache == null ? IndexSearcher.getDefaultQueryCache() : cache;
+    }
+
+    /**
+     * @return the executor running the segment slices of the searchers of the indexes of the schema
+     */
+    @Override
+    public SearchExecutor getSearchExecutor() {
+        return searchExecutor;
+    }
+
     synchronized SchemaSettingsDefinition getSettings() {
         return settingsDefinition;
     }
@@ -340,11 +378,26 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
         if (settingsDefinition == null) {
             readWriteSemaphores.setReadSize(null);
             readWriteSemaphores.setWriteSize(null);
+            queryCache = null;
+            searchExecutor.setSettings(SchemaSettingsDefinition.EMPTY);
             return;
         }
         readWriteSemaphores.setReadSize(settingsDefinition.maxSimultaneousRead);
         readWriteSemaphores.setWriteSize(settingsDefinition.maxSimultaneousWrite);
 
+        // The searchers opened from now use the new cache
+        if (settingsDefinition.queryCacheMaxBytes == null && settingsDefinition.queryCacheMaxEntries == null)
+            queryCache = null;
+        else
+            queryCache = new LRUQueryCache(settingsDefinition.queryCacheMaxEntries == null ?
+                    SchemaSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_ENTRIES :
+                    settingsDefinition.queryCacheMaxEntries, settingsDefinition.queryCacheMaxBytes == null ?
+                    SchemaSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_BYTES :
+                    settingsDefinition.queryCacheMaxBytes);
+
+        // The searchers opened from now use the new slicing, the pool is resized immediately
+        searchExecutor.setSettings(settingsDefinition);
+
         if (!StringUtils.isEmpty(settingsDefinition.backupDirectoryPath))
             backupRootDirectory = new File(settingsDefinition.backupDirectoryPath).toPath();
         else
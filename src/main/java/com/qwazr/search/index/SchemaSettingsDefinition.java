@@ -24,29 +24,64 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class SchemaSettingsDefinition {
 
+    public static final int DEFAULT_QUERY_CACHE_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_QUERY_CACHE_MAX_BYTES = 32 * 1024 * 1024;
+    public static final int DEFAULT_SEARCH_QUEUE_SIZE = 1000;
+
     @JsonProperty("max_simultaneous_write")
     final public Integer maxSimultaneousWrite;
     @JsonProperty("max_simultaneous_read")
     final public Integer maxSimultaneousRead;
     @JsonProperty("backup_directory_path")
     final public String backupDirectoryPath;
+    @JsonProperty("query_cache_max_bytes")
+    final public Long queryCacheMaxBytes;
+    @JsonProperty("query_cache_max_entries")
+    final public Integer queryCacheMaxEntries;
+    @JsonProperty("search_threads")
+    final public Integer searchThreads;
+    @JsonProperty("search_queue_size")
+    final public Integer searchQueueSize;
+    @JsonProperty("slice_min_docs")
+    final public Integer sliceMinDocs;
+    @JsonProperty("max_slices_per_query")
+    final public Integer maxSlicesPerQuery;
+    @JsonProperty("partition_min_docs")
+    final public Integer partitionMinDocs;
 
     @JsonCreator
     private SchemaSettingsDefinition(@JsonProperty("max_simultaneous_write") final Integer maxSimultaneousWrite,
                                      @JsonProperty("max_simultaneous_read") final Integer maxSimultaneousRead,
-                                     @JsonProperty("backup_directory_path") final String backupDirectoryPath) {
+                                     @JsonProperty("backup_directory_path") final String backupDirectoryPath,
+                                     @JsonProperty("query_cache_max_bytes") final Long queryCacheMaxBytes,
+                                     @JsonProperty("query_cache_max_entries") final Integer queryCacheMaxEntries,
+                                     @JsonProperty("search_threads") final Integer searchThreads,
+                                     @JsonProperty("search_queue_size") final Integer searchQueueSize,
+                                     @JsonProperty("slice_min_docs") final Integer sliceMinDocs,
+                                     @JsonProperty("max_slices_per_query") final Integer maxSlicesPerQuery,
+                                     @JsonProperty("partition_min_docs") final Integer partitionMinDocs) {
         this.maxSimultaneousWrite = maxSimultaneousWrite;
         this.maxSimultaneousRead = maxSimultaneousRead;
         this.backupDirectoryPath = backupDirectoryPath;
+        this.queryCacheMaxBytes = queryCacheMaxBytes;
+        this.queryCacheMaxEntries = queryCacheMaxEntries;
+        this.searchThreads = searchThreads;
+        this.searchQueueSize = searchQueueSize;
+        this.sliceMinDocs = sliceMinDocs;
+        this.maxSlicesPerQuery = maxSlicesPerQuery;
+        this.partitionMinDocs = partitionMinDocs;
     }
 
     private SchemaSettingsDefinition(Builder builder) {
-        this(builder.maxSimultaneousWrite, builder.maxSimultaneousRead, builder.backupDirectoryPath);
+        this(builder.maxSimultaneousWrite, builder.maxSimultaneousRead, builder.backupDirectoryPath,
+                builder.queryCacheMaxBytes, builder.queryCacheMaxEntries, builder.searchThreads, builder.searchQueueSize,
+                builder.sliceMinDocs, builder.maxSlicesPerQuery, builder.partitionMinDocs);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(maxSimultaneousWrite, maxSimultaneousRead, backupDirectoryPath);
+        return Objects.hash(maxSimultaneousWrite, maxSimultaneousRead, backupDirectoryPath, queryCacheMaxBytes,
+                queryCacheMaxEntries, searchThreads, searchQueueSize, sliceMinDocs, maxSlicesPerQuery, partitionMinDocs);
     }
 
     @Override
@@ -60,6 +95,20 @@ public class SchemaSettingsDefinition {
             return false;
         if (!Objects.equals(backupDirectoryPath, def.backupDirectoryPath))
             return false;
+        if (!Objects.equals(queryCacheMaxBytes, def.queryCacheMaxBytes))
+            return false;
+        if (!Objects.equals(queryCacheMaxEntries, def.queryCacheMaxEntries))
+            return false;
+        if (!Objects.equals(searchThreads, def.searchThreads))
+            return false;
+        if (!Objects.equals(searchQueueSize, def.searchQueueSize))
+            return false;
+        if (!Objects.equals(sliceMinDocs, def.sliceMinDocs))
+            return false;
+        if (!Objects.equals(maxSlicesPerQuery, def.maxSlicesPerQuery))
+            return false;
+        if (!Objects.equals(partitionMinDocs, def.partitionMinDocs))
+            return false;
         return true;
     }
 
@@ -74,6 +123,13 @@ public class SchemaSettingsDefinition {
         public Integer maxSimultaneousWrite;
         public Integer maxSimultaneousRead;
         public String backupDirectoryPath;
+        public Long queryCacheMaxBytes;
+        public Integer queryCacheMaxEntries;
+        public Integer searchThreads;
+        public Integer searchQueueSize;
+        public Integer sliceMinDocs;
+        public Integer maxSlicesPerQuery;
+        public Integer partitionMinDocs;
 
         public Builder maxSimultaneousWrite(Integer maxSimultaneousWrite) {
             this.maxSimultaneousWrite = maxSimultaneousWrite;
@@ -90,6 +146,41 @@ public class SchemaSettingsDefinition {
             return this;
         }
 
+        public Builder queryCacheMaxBytes(Long queryCacheMaxBytes) {
+            this.queryCacheMaxBytes = queryCacheMaxBytes;
+            return this;
+        }
+
+        public Builder queryCacheMaxEntries(Integer queryCacheMaxEntries) {
+            this.queryCacheMaxEntries = queryCacheMaxEntries;
+            return this;
+        }
+
+        public Builder searchThreads(Integer searchThreads) {
+            this.searchThreads = searchThreads;
+            return this;
+        }
+
+        public Builder searchQueueSize(Integer searchQueueSize) {
+            this.searchQueueSize = searchQueueSize;
+            return this;
+        }
+
+        public Builder sliceMinDocs(Integer sliceMinDocs) {
+            this.sliceMinDocs = sliceMinDocs;
+            return this;
+        }
+
+        public Builder maxSlicesPerQuery(Integer maxSlicesPerQuery) {
+            this.maxSlicesPerQuery = maxSlicesPerQuery;
+            return this;
+        }
+
+        public Builder partitionMinDocs(Integer partitionMinDocs) {
+            this.partitionMinDocs = partitionMinDocs;
+            return this;
+        }
+
         public SchemaSettingsDefinition build() {
             return new SchemaSettingsDefinition(this);
         }
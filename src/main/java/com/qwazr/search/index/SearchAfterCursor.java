@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * The opaque form of the position of a document in the sorted hits: the document ID, the score and the sort values.
+ * The document ID only breaks the ties, the position remains valid if the index changes (but the order of the ties
+ * is only stable on the same point in time).
+ */
+final class SearchAfterCursor {
+
+    private final static int SCORE_DOC = -1;
+
+    private final static byte NULL = 0;
+    private final static byte BYTES = 1;
+    private final static byte LONG = 2;
+    private final static byte INT = 3;
+    private final static byte DOUBLE = 4;
+    private final static byte FLOAT = 5;
+
+    static String encode(final ScoreDoc scoreDoc) {
+        try (final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(scoreDoc.doc);
+            output.writeFloat(scoreDoc.score);
+            if (!(scoreDoc instanceof FieldDoc) || ((FieldDoc) scoreDoc).fields == null)
+                output.writeInt(SCORE_DOC);
+            else {
+                final Object[] fields = ((FieldDoc) scoreDoc).fields;
+                output.writeInt(fields.length);
+                for (final Object field : fields)
+                    writeField(output, field);
+            }
+            output.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw ServerException.of(e);
+        }
+    }
+
+    private static void writeField(final DataOutputStream output, final Object field) throws IOException {
+        if (field == null)
+            output.writeByte(NULL);
+        else if (field instanceof BytesRef) {
+            final BytesRef bytesRef = (BytesRef) field;
+            output.writeByte(BYTES);
+            output.writeInt(bytesRef.length);
+            output.write(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+        } else if (field instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) field);
+        } else if (field instanceof Integer) {
+            output.writeByte(INT);
+            output.writeInt((Integer) field);
+        } else if (field instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) field);
+        } else if (field instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) field);
+        } else
+            throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                    "This sort cannot be used with search_after: " + field.getClass().getName());
+    }
+
+    /**
+     * @param cursor the cursor returned by the previous page
+     * @param sort   the sort of the query, the cursor must have been built with the same sort
+     * @return a FieldDoc if the query is sorted, a ScoreDoc otherwise
+     */
+    static ScoreDoc decode(final String cursor, final Sort sort) {
+        try (final DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            final int doc = input.readInt();
+            final float score = input.readFloat();
+            final int count = input.readInt();
+            if (sort == null) {
+                if (count != SCORE_DOC)
+                    throw wrongCursor(cursor, "the query is not sorted");
+                return new ScoreDoc(doc, score);
+            }
+            if (count != sort.getSort().length)
+                throw wrongCursor(cursor, "the sort does not match");
+            final Object[] fields = new Object[count];
+            for (int i = 0; i < count; i++)
+                fields[i] = readField(input);
+            return new FieldDoc(doc, score, fields);
+        } catch (IOException | IllegalArgumentException e) {
+            throw wrongCursor(cursor, e.getMessage());
+        }
+    }
+
+    private static Object readField(final DataInputStream input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case BYTES:
+            final int length = input.readInt();
+            if (length < 0 || length > input.available())
+                throw new IOException("Wrong length: " + length);
+            final byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return new BytesRef(bytes);
+        case LONG:
+            return input.readLong();
+        case INT:
+            return input.readInt();
+        case DOUBLE:
+            return input.readDouble();
+        case FLOAT:
+            return input.readFloat();
+        default:
+            throw new IOException("Unknown type: " + type);
+        }
+    }
+
+    private static ServerException wrongCursor(final String cursor, final String reason) {
+        return new ServerException(Response.Status.NOT_ACCEPTABLE,
+                "Wrong search_after cursor (" + reason + "): " + cursor);
+    }
+}
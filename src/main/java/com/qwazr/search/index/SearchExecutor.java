@@ -0,0 +1,374 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor running the segment slices of the searchers of a schema.
+ * <p>
+ * When the schema sets search_threads, the slices run on a dedicated pool with a bounded queue: once the queue is
+ * full, the tasks are rejected with a RejectedExecutionException (the service answers 503). Otherwise the slices run on the shared executor of the node. The pool can be resized
+ * by changing the settings, the searchers already opened keep using this executor.
+ * <p>
+ * The big segments can also be split in partitions (ranges of document IDs) which are collected concurrently.
+ */
+final class SearchExecutor extends AbstractExecutorService {
+
+    private final static AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ExecutorService defaultExecutor;
+    private final String name;
+    private volatile ThreadPoolExecutor pool;
+    private volatile int sliceMinDocs;
+    private volatile int maxSlicesPerQuery;
+    private volatile int partitionMinDocs;
+
+    SearchExecutor(final ExecutorService defaultExecutor, final String name) {
+        this.defaultExecutor = defaultExecutor;
+        this.name = name;
+    }
+
+    /**
+     * Apply the search settings of the schema
+     */
+    synchronized void setSettings(final SchemaSettingsDefinition settings) {
+        sliceMinDocs = settings.sliceMinDocs == null ? 0 : settings.sliceMinDocs;
+        maxSlicesPerQuery = settings.maxSlicesPerQuery == null ? 0 : settings.maxSlicesPerQuery;
+        partitionMinDocs = settings.partitionMinDocs == null ? 0 : settings.partitionMinDocs;
+        final ThreadPoolExecutor previousPool = pool;
+        if (settings.searchThreads == null || settings.searchThreads <= 0) {
+            pool = null;
+            if (previousPool != null)
+                previousPool.shutdown();
+            return;
+        }
+        final int threads = settings.searchThreads;
+        final int queueSize = settings.searchQueueSize == null ?
+                SchemaSettingsDefinition.DEFAULT_SEARCH_QUEUE_SIZE :
+                settings.searchQueueSize;
+        if (previousPool != null && previousPool.getQueue().remainingCapacity() + previousPool.getQueue().size() ==
+                queueSize) {
+            // Growing: the maximum first, the core size cannot be greater than the maximum
+            if (threads > previousPool.getMaximumPoolSize()) {
+                previousPool.setMaximumPoolSize(threads);
+                previousPool.setCorePoolSize(threads);
+            } else {
+                previousPool.setCorePoolSize(threads);
+                previousPool.setMaximumPoolSize(threads);
+            }
+            return;
+        }
+        final ThreadPoolExecutor newPool =
+                new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                        new NamedThreadFactory(name + "-" + POOL_NUMBER.incrementAndGet()));
+        newPool.allowCoreThreadTimeOut(true);
+        pool = newPool;
+        if (previousPool != null)
+            previousPool.shutdown();
+    }
+
+    /**
+     * @return the executor given to a new searcher, null if the segments are searched by the calling thread
+     */
+    ExecutorService getSearcherExecutor() {
+        return pool == null && defaultExecutor == null ? null : this;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        for (; ; ) {
+            final ThreadPoolExecutor currentPool = pool;
+            if (currentPool == null) {
+                if (defaultExecutor != null)
+                    defaultExecutor.execute(command);
+                else
+                    command.run();
+                return;
+            }
+            try {
+                currentPool.execute(command);
+                return;
+            } catch (RejectedExecutionException e) {
+                // The pool has been replaced by a new one
+                if (currentPool.isShutdown() && currentPool != pool)
+                    continue;
+                throw new RejectedExecutionException("Too many concurrent searches, the search queue is full", e);
+            }
+        }
+    }
+
+    /**
+     * Group the segments: the segments smaller than slice_min_docs are merged in the same slice, and the number of
+     * slices is capped by max_slices_per_query.
+     * <p>
+     * A slice is a run of consecutive segments, and the slices follow the order of the doc IDs: the results of the
+     * collectors are merged in the order of the slices, the ties are then broken by doc ID as with a single collector
+     * (search_after relies on it).
+     *
+     * @param leaves the segments of the searcher
+     * @return the slices, or null to use the default slicing (one slice per segment)
+     */
+    IndexSearcher.LeafSlice[] slices(final List<LeafReaderContext> leaves) {
+        return slices(leaves, sliceMinDocs, maxSlicesPerQuery);
+    }
+
+    static IndexSearcher.LeafSlice[] slices(final List<LeafReaderContext> leaves, final int sliceMinDocs,
+            final int maxSlicesPerQuery) {
+        if (sliceMinDocs <= 0 && maxSlicesPerQuery <= 0)
+            return null;
+        final List<LeafReaderContext> orderedLeaves = new ArrayList<>(leaves);
+        orderedLeaves.sort(Comparator.comparingInt(leaf -> leaf.docBase));
+
+        List<Slice> slices = new ArrayList<>();
+        Slice current = null;
+        for (LeafReaderContext leaf : orderedLeaves) {
+            if (current == null || current.docs >= sliceMinDocs) {
+                current = new Slice();
+                slices.add(current);
+            }
+            current.add(leaf);
+        }
+
+        if (maxSlicesPerQuery > 0 && slices.size() > maxSlicesPerQuery)
+            slices = balance(orderedLeaves, maxSlicesPerQuery);
+
+        final IndexSearcher.LeafSlice[] leafSlices = new IndexSearcher.LeafSlice[slices.size()];
+        for (int i = 0; i < leafSlices.length; i++) {
+            final List<LeafReaderContext> sliceLeaves = slices.get(i).leaves;
+            leafSlices[i] = new IndexSearcher.LeafSlice(sliceLeaves.toArray(new LeafReaderContext[sliceLeaves.size()]));
+        }
+        return leafSlices;
+    }
+
+    /**
+     * Cut the ordered segments in at most maxSlices runs of about the same number of documents
+     */
+    private static List<Slice> balance(final List<LeafReaderContext> orderedLeaves, final int maxSlices) {
+        long remainingDocs = 0;
+        for (LeafReaderContext leaf : orderedLeaves)
+            remainingDocs += leaf.reader().maxDoc();
+        final List<Slice> slices = new ArrayList<>(maxSlices);
+        Slice current = null;
+        for (LeafReaderContext leaf : orderedLeaves) {
+            if (current != null && current.docs > 0 && slices.size() < maxSlices) {
+                // The remaining documents shared by the remaining slices (the current one included)
+                final double target = (double) remainingDocs / (maxSlices - slices.size() + 1);
+                if (current.docs + leaf.reader().maxDoc() / 2.0 > target) {
+                    remainingDocs -= current.docs;
+                    current = null;
+                }
+            }
+            if (current == null) {
+                current = new Slice();
+                slices.add(current);
+            }
+            current.add(leaf);
+        }
+        return slices;
+    }
+
+    /**
+     * Split the segments holding at least twice partition_min_docs in ranges of document IDs. The runs of the other
+     * segments are grouped like the slices. The partitions follow the order of the doc IDs, like the slices.
+     *
+     * @param leaves the segments of the searcher
+     * @return the partitions, or null if no segment is split
+     */
+    List<Partition> partitions(final List<LeafReaderContext> leaves) {
+        return partitions(leaves, partitionMinDocs, sliceMinDocs, maxSlicesPerQuery);
+    }
+
+    static List<Partition> partitions(final List<LeafReaderContext> leaves, final int partitionMinDocs,
+            final int sliceMinDocs, final int maxSlicesPerQuery) {
+        if (partitionMinDocs <= 0)
+            return null;
+        final List<LeafReaderContext> orderedLeaves = new ArrayList<>(leaves);
+        orderedLeaves.sort(Comparator.comparingInt(leaf -> leaf.docBase));
+        final List<Partition> partitions = new ArrayList<>();
+        final List<LeafReaderContext> wholeLeaves = new ArrayList<>();
+        boolean split = false;
+        for (LeafReaderContext leaf : orderedLeaves) {
+            final int maxDoc = leaf.reader().maxDoc();
+            int count = maxDoc / partitionMinDocs;
+            if (maxSlicesPerQuery > 0)
+                count = Math.min(count, maxSlicesPerQuery);
+            if (count < 2) {
+                wholeLeaves.add(leaf);
+                continue;
+            }
+            // The run of whole segments before this one is grouped first
+            addWholeLeaves(partitions, wholeLeaves, sliceMinDocs, maxSlicesPerQuery);
+            wholeLeaves.clear();
+            for (int i = 0; i < count; i++)
+                partitions.add(new Partition(new Range(leaf, (int) ((long) maxDoc * i / count),
+                        (int) ((long) maxDoc * (i + 1) / count))));
+            split = true;
+        }
+        if (!split)
+            return null;
+        addWholeLeaves(partitions, wholeLeaves, sliceMinDocs, maxSlicesPerQuery);
+        partitions.sort(Comparator.comparingInt((Partition partition) -> partition.ranges[0].leaf.docBase)
+                .thenComparingInt(partition -> partition.ranges[0].minDoc));
+        return partitions;
+    }
+
+    private static void addWholeLeaves(final List<Partition> partitions, final List<LeafReaderContext> wholeLeaves,
+            final int sliceMinDocs, final int maxSlicesPerQuery) {
+        if (wholeLeaves.isEmpty())
+            return;
+        final IndexSearcher.LeafSlice[] slices = slices(wholeLeaves, sliceMinDocs, maxSlicesPerQuery);
+        if (slices == null) {
+            for (LeafReaderContext leaf : wholeLeaves)
+                partitions.add(new Partition(new Range(leaf, 0, leaf.reader().maxDoc())));
+        } else {
+            for (IndexSearcher.LeafSlice slice : slices) {
+                final Range[] ranges = new Range[slice.leaves.length];
+                for (int i = 0; i < ranges.length; i++)
+                    ranges[i] = new Range(slice.leaves[i], 0, slice.leaves[i].reader().maxDoc());
+                partitions.add(new Partition(ranges));
+            }
+        }
+    }
+
+    /**
+     * A range of document IDs of a segment: from minDoc (inclusive) to maxDoc (exclusive)
+     */
+    static final class Range {
+
+        final LeafReaderContext leaf;
+        final int minDoc;
+        final int maxDoc;
+
+        private Range(final LeafReaderContext leaf, final int minDoc, final int maxDoc) {
+            this.leaf = leaf;
+            this.minDoc = minDoc;
+            this.maxDoc = maxDoc;
+        }
+    }
+
+    /**
+     * The ranges collected by one task. The ranges of a same segment are collected by distinct partitions (and
+     * distinct collectors), the collectors are merged by the reduce of the collector manager.
+     */
+    static final class Partition {
+
+        final Range[] ranges;
+
+        private Partition(final Range... ranges) {
+            this.ranges = ranges;
+        }
+
+        void search(final Weight weight, final Collector collector) throws IOException {
+            for (Range range : ranges) {
+                final LeafCollector leafCollector;
+                try {
+                    leafCollector = collector.getLeafCollector(range.leaf);
+                } catch (CollectionTerminatedException e) {
+                    // The collector does not need any document of this range
+                    continue;
+                }
+                final BulkScorer scorer = weight.bulkScorer(range.leaf);
+                if (scorer == null)
+                    continue;
+                try {
+                    scorer.score(leafCollector, range.leaf.reader().getLiveDocs(), range.minDoc, range.maxDoc);
+                } catch (CollectionTerminatedException e) {
+                    // The collector does not need the next documents of this range
+                }
+            }
+        }
+    }
+
+    private static final class Slice {
+
+        private final List<LeafReaderContext> leaves = new ArrayList<>();
+        private long docs;
+
+        private void add(final LeafReaderContext leaf) {
+            leaves.add(leaf);
+            docs += leaf.reader().maxDoc();
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        private NamedThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        final ThreadPoolExecutor currentPool = pool;
+        if (currentPool != null)
+            currentPool.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        final ThreadPoolExecutor currentPool = pool;
+        return currentPool == null ? Collections.emptyList() : currentPool.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        final ThreadPoolExecutor currentPool = pool;
+        return currentPool != null && currentPool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        final ThreadPoolExecutor currentPool = pool;
+        return currentPool != null && currentPool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final ThreadPoolExecutor currentPool = pool;
+        return currentPool == null || currentPool.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.concurrent.ConsumerEx;
+
+import javax.ws.rs.core.Response;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of the write operations accepted since the last Lucene commit.
+ * <p>
+ * An operation is appended once it has been applied to the IndexWriter, and the write is acknowledged once the log
+ * is synced. The concurrent writers share the fsync calls: one sync covers every operation appended before it.
+ * The log is split in generations. A commit rolls the log to a new generation, then the older generations, which
+ * are all included in the commit, are deleted.
+ */
+final class Translog implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(Translog.class);
+
+    private final static String PREFIX = "translog-";
+    private final static String SUFFIX = ".ndjson";
+
+    private final static ObjectWriter OPERATION_WRITER =
+            ObjectMappers.JSON.writerFor(Operation.class).without(SerializationFeature.INDENT_OUTPUT);
+    private final static ObjectReader OPERATION_READER = ObjectMappers.JSON.readerFor(Operation.class);
+
+    private final Path directory;
+    private final List<Path> replayPaths;
+
+    /**
+     * The operations hold the shared side while they are applied and appended, the roll takes the exclusive side
+     */
+    private final ReentrantReadWriteLock rollLock;
+    private final Object writeLock;
+    private final Object syncLock;
+
+    private long firstGeneration;
+    private long generation;
+    private FileChannel channel;
+    private long writtenPosition;
+    private volatile long syncedPosition;
+
+    Translog(final Path directory) throws IOException {
+        this.directory = directory;
+        if (!Files.exists(directory))
+            Files.createDirectory(directory);
+        final TreeMap<Long, Path> generations = new TreeMap<>();
+        try (final Stream<Path> stream = Files.list(directory)) {
+            stream.forEach(path -> {
+                final String fileName = path.getFileName().toString();
+                if (fileName.startsWith(PREFIX) && fileName.endsWith(SUFFIX))
+                    generations.put(Long.parseLong(
+                            fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length())), path);
+            });
+        }
+        rollLock = new ReentrantReadWriteLock(true);
+        writeLock = new Object();
+        syncLock = new Object();
+        replayPaths = new ArrayList<>(generations.values());
+        generation = generations.isEmpty() ? 0 : generations.lastKey();
+        firstGeneration = generations.isEmpty() ? generation + 1 : generations.firstKey();
+        channel = null;
+        writtenPosition = 0;
+        syncedPosition = 0;
+    }
+
+    /**
+     * Apply the operations found in the log
+     *
+     * @param consumer the receiver of the operations
+     * @return the number of replayed operations
+     * @throws IOException if the log cannot be read or if the consumer failed
+     */
+    int replay(final ConsumerEx<Operation, IOException> consumer) throws IOException {
+        int count = 0;
+        for (final Path path : replayPaths) {
+            try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty())
+                        continue;
+                    final Operation operation;
+                    try {
+                        operation = OPERATION_READER.readValue(line);
+                    } catch (IOException e) {
+                        // A torn write: this operation has never been acknowledged
+                        LOGGER.log(Level.WARNING, e, () -> "Truncated translog entry ignored: " + path);
+                        break;
+                    }
+                    consumer.accept(operation);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private Path getPath(final long gen) {
+        return directory.resolve(PREFIX + gen + SUFFIX);
+    }
+
+    /**
+     * Apply an operation and append it to the log, then wait for the log to be synced.
+     *
+     * @param operation the operation to log
+     * @param action    the action applying the operation to the index
+     * @return the number of documents changed by the action
+     * @throws IOException if the action or the log failed
+     */
+    int append(final OperationSupplier operation, final ActionEx action) throws IOException {
+        final int count;
+        final long position;
+        final Lock lock = rollLock.readLock();
+        lock.lock();
+        try {
+            count = action.apply();
+            if (count == 0)
+                return count;
+            position = write(OPERATION_WRITER.writeValueAsBytes(operation.get()));
+        } finally {
+            lock.unlock();
+        }
+        sync(position);
+        return count;
+    }
+
+    private long write(final byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+        buffer.put(bytes).put((byte) '\n').flip();
+        synchronized (writeLock) {
+            if (channel == null)
+                channel = FileChannel.open(getPath(++generation), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+            while (buffer.hasRemaining())
+                writtenPosition += channel.write(buffer);
+            return writtenPosition;
+        }
+    }
+
+    private void sync(final long position) throws IOException {
+        if (syncedPosition >= position)
+            return;
+        synchronized (syncLock) {
+            if (syncedPosition >= position)
+                return;
+            final long target;
+            final FileChannel currentChannel;
+            synchronized (writeLock) {
+                target = writtenPosition;
+                currentChannel = channel;
+            }
+            if (currentChannel != null)
+                currentChannel.force(false);
+            syncedPosition = target;
+        }
+    }
+
+    /**
+     * Start a new generation. Must be called before a commit.
+     *
+     * @return the first generation which is not included in the commit
+     * @throws IOException if the current generation cannot be closed
+     */
+    long roll() throws IOException {
+        final Lock lock = rollLock.writeLock();
+        lock.lock();
+        try {
+            synchronized (syncLock) {
+                synchronized (writeLock) {
+                    if (channel != null) {
+                        channel.force(false);
+                        channel.close();
+                        channel = null;
+                        syncedPosition = writtenPosition;
+                    }
+                    return generation + 1;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete the generations included in a successful commit
+     *
+     * @param nextGeneration the generation returned by {@link #roll()} before the commit
+     */
+    void trim(final long nextGeneration) {
+        final List<Path> paths = new ArrayList<>();
+        synchronized (writeLock) {
+            for (long gen = firstGeneration; gen < nextGeneration; gen++)
+                paths.add(getPath(gen));
+            firstGeneration = Math.max(firstGeneration, nextGeneration);
+        }
+        for (final Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e, () -> "Cannot delete the translog file: " + path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                if (channel == null)
+                    return;
+                channel.force(false);
+                channel.close();
+                channel = null;
+                syncedPosition = writtenPosition;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface OperationSupplier {
+        Operation get();
+    }
+
+    @FunctionalInterface
+    interface ActionEx {
+        int apply() throws IOException;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    static final class Operation {
+
+        enum Type {
+            post, doc_values
+        }
+
+        final public Type type;
+
+        final public Boolean update;
+
+        /**
+         * True when the values of the documents are encoded by {@link Values}
+         */
+        final public Boolean typed;
+
+        final public Collection<? extends Map<String, ?>> documents;
+
+        @JsonCreator
+        Operation(@JsonProperty("type") final Type type, @JsonProperty("update") final Boolean update,
+                @JsonProperty("typed") final Boolean typed,
+                @JsonProperty("documents") final Collection<? extends Map<String, ?>> documents) {
+            this.type = type;
+            this.update = update;
+            this.typed = typed;
+            this.documents = documents;
+        }
+
+        static Operation post(final boolean update, final Collection<? extends Map<String, ?>> documents) {
+            return new Operation(Type.post, update, null, documents);
+        }
+
+        static Operation docValues(final Collection<? extends Map<String, ?>> documents) {
+            return new Operation(Type.doc_values, false, null, documents);
+        }
+
+        /**
+         * The operation of annotated records, the values of the documents are encoded by {@link Values#encode}
+         */
+        static Operation records(final boolean docValues, final boolean update,
+                final Collection<? extends Map<String, ?>> documents) {
+            return new Operation(docValues ? Type.doc_values : Type.post, !docValues && update, true, documents);
+        }
+
+        /**
+         * @return the documents as they were posted
+         * @throws IOException if an encoded value cannot be read
+         */
+        Collection<? extends Map<String, ?>> getDocuments() throws IOException {
+            if (documents == null || typed == null || !typed)
+                return documents;
+            final List<Map<String, ?>> decoded = new ArrayList<>(documents.size());
+            for (final Map<String, ?> document : documents) {
+                final Map<String, Object> values = new LinkedHashMap<>();
+                for (final Map.Entry<String, ?> entry : document.entrySet())
+                    values.put(entry.getKey(), Values.decode(entry.getValue()));
+                decoded.add(values);
+            }
+            return decoded;
+        }
+    }
+
+    /**
+     * The JSON form of the values of the annotated records. The untyped JSON maps cannot tell a Long from an Integer,
+     * a Float from a Double, or a byte array from a string, while the field types index them differently. Every
+     * value keeps its Java type: a string is written as is, any other value is a single entry object whose key names
+     * the type. The other serializable objects are written with the Java serialization, the remaining values are
+     * rejected.
+     */
+    static final class Values {
+
+        private final static String INT = "int";
+        private final static String LONG = "long";
+        private final static String FLOAT = "float";
+        private final static String DOUBLE = "double";
+        private final static String BOOLEAN = "boolean";
+        private final static String BYTES = "bytes";
+        private final static String INT_ARRAY = "int[]";
+        private final static String LONG_ARRAY = "long[]";
+        private final static String FLOAT_ARRAY = "float[]";
+        private final static String DOUBLE_ARRAY = "double[]";
+        private final static String STRING_ARRAY = "String[]";
+        private final static String OBJECT_ARRAY = "Object[]";
+        private final static String COLLECTION = "collection";
+        private final static String MAP = "map";
+        private final static String SERIALIZED = "serialized";
+
+        static Object encode(final String fieldName, final Object value) {
+            if (value == null || value instanceof String)
+                return value;
+            if (value instanceof Integer)
+                return Collections.singletonMap(INT, value);
+            if (value instanceof Long)
+                return Collections.singletonMap(LONG, value);
+            if (value instanceof Float)
+                return Collections.singletonMap(FLOAT, value);
+            if (value instanceof Double)
+                return Collections.singletonMap(DOUBLE, value);
+            if (value instanceof Boolean)
+                return Collections.singletonMap(BOOLEAN, value);
+            if (value instanceof byte[])
+                return Collections.singletonMap(BYTES, Base64.getEncoder().encodeToString((byte[]) value));
+            if (value instanceof int[])
+                return Collections.singletonMap(INT_ARRAY, value);
+            if (value instanceof long[])
+                return Collections.singletonMap(LONG_ARRAY, value);
+            if (value instanceof float[])
+                return Collections.singletonMap(FLOAT_ARRAY, value);
+            if (value instanceof double[])
+                return Collections.singletonMap(DOUBLE_ARRAY, value);
+            if (value instanceof String[])
+                return Collections.singletonMap(STRING_ARRAY, value);
+            if (value instanceof Object[])
+                return Collections.singletonMap(OBJECT_ARRAY, encodeAll(fieldName, Arrays.asList((Object[]) value)));
+            if (value instanceof Collection)
+                return Collections.singletonMap(COLLECTION, encodeAll(fieldName, (Collection<?>) value));
+            if (value instanceof Map && ((Map<?, ?>) value).keySet().stream().allMatch(String.class::isInstance)) {
+                final Map<String, Object> map = new LinkedHashMap<>();
+                ((Map<?, ?>) value).forEach((key, item) -> map.put((String) key, encode(fieldName, item)));
+                return Collections.singletonMap(MAP, map);
+            }
+            if (value instanceof Serializable)
+                return Collections.singletonMap(SERIALIZED, serialize(fieldName, (Serializable) value));
+            throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                    "The value of the field " + fieldName + " cannot be written in the translog: " + value.getClass());
+        }
+
+        private static List<Object> encodeAll(final String fieldName, final Collection<?> values) {
+            final List<Object> list = new ArrayList<>(values.size());
+            for (final Object value : values)
+                list.add(encode(fieldName, value));
+            return list;
+        }
+
+        private static String serialize(final String fieldName, final Serializable value) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (final ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(value);
+            } catch (IOException e) {
+                throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                        "The value of the field " + fieldName + " cannot be written in the translog: " +
+                                value.getClass(), e);
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        }
+
+        static Object decode(final Object value) throws IOException {
+            if (!(value instanceof Map))
+                return value;
+            final Map.Entry<?, ?> entry = ((Map<?, ?>) value).entrySet().iterator().next();
+            final Object payload = entry.getValue();
+            switch ((String) entry.getKey()) {
+                case INT:
+                    return ((Number) payload).intValue();
+                case LONG:
+                    return ((Number) payload).longValue();
+                case FLOAT:
+                    // The non finite values are written as strings
+                    return payload instanceof Number ?
+                            ((Number) payload).floatValue() :
+                            Float.valueOf((String) payload);
+                case DOUBLE:
+                    return payload instanceof Number ?
+                            ((Number) payload).doubleValue() :
+                            Double.valueOf((String) payload);
+                case BOOLEAN:
+                    return payload;
+                case BYTES:
+                    return Base64.getDecoder().decode((String) payload);
+                case INT_ARRAY:
+                    return ObjectMappers.JSON.convertValue(payload, int[].class);
+                case LONG_ARRAY:
+                    return ObjectMappers.JSON.convertValue(payload, long[].class);
+                case FLOAT_ARRAY:
+                    return ObjectMappers.JSON.convertValue(payload, float[].class);
+                case DOUBLE_ARRAY:
+                    return ObjectMappers.JSON.convertValue(payload, double[].class);
+                case STRING_ARRAY:
+                    return ObjectMappers.JSON.convertValue(payload, String[].class);
+                case OBJECT_ARRAY:
+                    return decodeAll((Collection<?>) payload).toArray();
+                case COLLECTION:
+                    return decodeAll((Collection<?>) payload);
+                case MAP:
+                    final Map<String, Object> map = new LinkedHashMap<>();
+                    for (final Map.Entry<?, ?> item : ((Map<?, ?>) payload).entrySet())
+                        map.put((String) item.getKey(), decode(item.getValue()));
+                    return map;
+                case SERIALIZED:
+                    try (final ObjectInputStream input = new ObjectInputStream(
+                            new ByteArrayInputStream(Base64.getDecoder().decode((String) payload)))) {
+                        return input.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("Cannot read a serialized value of the translog", e);
+                    }
+                default:
+                    throw new IOException("Unknown value type in the translog: " + entry.getKey());
+            }
+        }
+
+        private static List<Object> decodeAll(final Collection<?> values) throws IOException {
+            final List<Object> list = new ArrayList<>(values.size());
+            for (final Object value : values)
+                list.add(decode(value));
+            return list;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.apache.lucene.index.IndexWriter;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 public interface WriteContext extends IndexContext {
@@ -45,6 +46,18 @@ public interface WriteContext extends IndexContext {
 
 	int postMappedDocuments(final PostDefinition.Documents post) throws IOException;
 
+	/**
+	 * Post the documents as they are read from the iterator, up to the given number of documents.
+	 *
+	 * @param documents    the source of the documents
+	 * @param maxDocuments the maximum number of documents to read
+	 * @param update       true to replace the documents having the same ID
+	 * @return the number of posted documents
+	 * @throws IOException if any I/O error occurs
+	 */
+	int postMappedDocuments(final Iterator<? extends Map<String, ?>> documents, final int maxDocuments,
+			final boolean update) throws IOException;
+
 	<T> int updateDocValues(final Map<String, Field> fields, final T document, final Map<String, String> commitUserData)
 			throws IOException;
 
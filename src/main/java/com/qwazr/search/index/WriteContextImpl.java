@@ -16,30 +16,47 @@
 package com.qwazr.search.index;
 
 import com.qwazr.search.analysis.UpdatableAnalyzers;
+import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.server.ServerException;
+import com.qwazr.utils.concurrent.ConsumerEx;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 
+	/**
+	 * The minimum number of documents given to each indexing thread
+	 */
+	private final static int MIN_PARTITION_SIZE = 100;
+
 	final IndexWriter indexWriter;
 	final TaxonomyWriter taxonomyWriter;
+	final int indexingThreads;
 
 	WriteContextImpl(final IndexInstance.Provider indexProvider, final ResourceLoader resourceLoader,
 			final ExecutorService executorService, final UpdatableAnalyzers indexAnalyzers,
 			final UpdatableAnalyzers queryAnalyzers, final FieldMap fieldMap, final IndexWriter indexWriter,
-			final TaxonomyWriter taxonomyWriter) {
+			final TaxonomyWriter taxonomyWriter, final int indexingThreads) {
 		super(indexProvider, resourceLoader, executorService, indexAnalyzers, queryAnalyzers, fieldMap);
 		this.indexWriter = indexWriter;
 		this.taxonomyWriter = taxonomyWriter;
+		this.indexingThreads = indexingThreads;
 	}
 
 	@Override
@@ -60,13 +77,161 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		return poster.getCount();
 	}
 
-	private <T> int postObjectDocs(final RecordsPoster.ObjectDocument poster, final Collection<T> documents,
-			final Map<String, String> commitUserData) throws IOException {
-		for (final Object document : documents)
-			poster.accept(document);
+	private <T> int postObjectDocs(final PosterFactory<RecordsPoster.ObjectDocument> posterFactory,
+			final Map<String, Field> fields, final Collection<T> documents, final Map<String, String> commitUserData)
+			throws IOException {
+		final Field idField = fields.get(FieldDefinition.ID_FIELD);
+		final RecordAccessors.Getters idGetter = idField == null ?
+				null :
+				new RecordAccessors.Getters(Collections.singletonMap(FieldDefinition.ID_FIELD, idField));
+		final int count =
+				postBatch(documents, record -> idGetter == null ? null : idGetter.get(0, record), posterFactory);
 		if (commitUserData != null)
 			setLiveCommitData(commitUserData, true);
-		return poster.getCount();
+		return count;
+	}
+
+	private int postMappedDocs(final PosterFactory<RecordsPoster.MapDocument> posterFactory,
+			final PostDefinition.Documents post) throws IOException {
+		final int count = this.<Map<String, ?>, RecordsPoster.MapDocument>postBatch(post.documents,
+				document -> document.get(FieldDefinition.ID_FIELD), posterFactory);
+		if (post.commitUserData != null)
+			setLiveCommitData(post.commitUserData, true);
+		return count;
+	}
+
+	/**
+	 * Post a batch of documents. If several indexing threads are allowed, the batch is split in partitions which
+	 * are posted concurrently, each one by its own poster. The documents sharing the same ID belong to the same
+	 * partition, their order is kept.
+	 */
+	private <T, P extends RecordsPoster & ConsumerEx<T, IOException>> int postBatch(
+			final Collection<? extends T> documents, final Function<T, Object> idGetter,
+			final PosterFactory<P> posterFactory) throws IOException {
+		final int partitionCount =
+				executorService == null ? 1 : Math.min(indexingThreads, documents.size() / MIN_PARTITION_SIZE);
+		if (partitionCount <= 1) {
+			final P poster = posterFactory.newPoster();
+			for (final T document : documents)
+				poster.accept(document);
+			return poster.getCount();
+		}
+
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		final List<Partition<T, P>> partitions = new ArrayList<>(partitionCount);
+		for (int i = 0; i < partitionCount; i++)
+			partitions.add(new Partition<>(posterFactory.newPoster(), failed));
+		int position = 0;
+		for (final T document : documents) {
+			final Object id = idGetter.apply(document);
+			final int index = id == null ? position % partitionCount : Math.floorMod(id.hashCode(), partitionCount);
+			partitions.get(index).add(position++, document);
+		}
+
+		// The current thread posts the first partition itself
+		final List<Future<?>> futures = new ArrayList<>(partitionCount - 1);
+		for (int i = 1; i < partitionCount; i++)
+			futures.add(executorService.submit(partitions.get(i)));
+		try {
+			partitions.get(0).run();
+		} finally {
+			awaitAll(futures);
+		}
+
+		int count = 0;
+		Partition<T, P> firstFailure = null;
+		for (final Partition<T, P> partition : partitions) {
+			count += partition.poster.getCount();
+			if (partition.error != null &&
+					(firstFailure == null || partition.errorPosition < firstFailure.errorPosition))
+				firstFailure = partition;
+		}
+		if (firstFailure == null)
+			return count;
+		// The failure of the first document in the batch order is thrown, the others are suppressed
+		final Exception error = firstFailure.error;
+		for (final Partition<T, P> partition : partitions)
+			if (partition.error != null && partition != firstFailure)
+				error.addSuppressed(partition.error);
+		if (error instanceof IOException)
+			throw (IOException) error;
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		throw ServerException.of(error);
+	}
+
+	/**
+	 * Every partition must be done before the writer is released
+	 */
+	private static void awaitAll(final List<Future<?>> futures) {
+		boolean interrupted = false;
+		Error fatalError = null;
+		for (final Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Error)
+						fatalError = (Error) e.getCause();
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (fatalError != null)
+			throw fatalError;
+	}
+
+	@FunctionalInterface
+	private interface PosterFactory<P extends RecordsPoster> {
+
+		P newPoster() throws IOException;
+	}
+
+	private final static class Partition<T, P extends RecordsPoster & ConsumerEx<T, IOException>>
+			implements Runnable {
+
+		private final P poster;
+		private final AtomicBoolean failed;
+		private final List<Integer> positions;
+		private final List<T> documents;
+
+		private volatile Exception error;
+		private volatile int errorPosition;
+
+		private Partition(final P poster, final AtomicBoolean failed) {
+			this.poster = poster;
+			this.failed = failed;
+			this.positions = new ArrayList<>();
+			this.documents = new ArrayList<>();
+		}
+
+		private void add(final int position, final T document) {
+			positions.add(position);
+			documents.add(document);
+		}
+
+		@Override
+		public void run() {
+			final int size = documents.size();
+			for (int i = 0; i < size; i++) {
+				// Like a sequential post, stop as soon as one document failed
+				if (failed.get())
+					return;
+				try {
+					poster.accept(documents.get(i));
+				} catch (Exception e) {
+					errorPosition = positions.get(i);
+					error = e;
+					failed.set(true);
+					return;
+				}
+			}
+		}
 	}
 
 	public final void setLiveCommitData(Map<String, String> commitUserData, boolean doIncrementVersion) {
@@ -89,9 +254,8 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 			final Map<String, String> commitUserData, final boolean update) throws IOException {
 		if (documents == null || documents.isEmpty())
 			return 0;
-		final RecordsPoster.ObjectDocument poster =
-				RecordsPoster.create(fields, fieldMap, indexWriter, taxonomyWriter, update);
-		return postObjectDocs(poster, documents, commitUserData);
+		return postObjectDocs(() -> RecordsPoster.create(fields, fieldMap, indexWriter, taxonomyWriter, update),
+				fields, documents, commitUserData);
 	}
 
 	@Override
@@ -126,9 +290,18 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 	public final int postMappedDocuments(final PostDefinition.Documents post) throws IOException {
 		if (post == null || post.documents == null || post.documents.isEmpty())
 			return 0;
-		final RecordsPoster.MapDocument poster =
-				RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter, post.update == null ? true : post.update);
-		return postMappedDocs(poster, post);
+		final boolean update = post.update == null ? true : post.update;
+		return postMappedDocs(() -> RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter, update), post);
+	}
+
+	@Override
+	public final int postMappedDocuments(final Iterator<? extends Map<String, ?>> documents, final int maxDocuments,
+			final boolean update) throws IOException {
+		final RecordsPoster.MapDocument poster = RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter, update);
+		int read = 0;
+		while (read++ < maxDocuments && documents.hasNext())
+			poster.accept(documents.next());
+		return poster.getCount();
 	}
 
 	@Override
@@ -146,9 +319,9 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 			final Map<String, String> commitUserData) throws IOException {
 		if (documents == null || documents.isEmpty())
 			return 0;
-		final RecordsPoster.UpdateObjectDocValues poster =
-				new RecordsPoster.UpdateObjectDocValues(fields, fieldMap, indexWriter, taxonomyWriter);
-		return postObjectDocs(poster, documents, commitUserData);
+		return postObjectDocs(
+				() -> new RecordsPoster.UpdateObjectDocValues(fields, fieldMap, indexWriter, taxonomyWriter), fields,
+				documents, commitUserData);
 	}
 
 	@Override
@@ -164,8 +337,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 	public final int updateMappedDocsValues(final PostDefinition.Documents post) throws IOException, ServerException {
 		if (post == null || post.documents == null || post.documents.isEmpty())
 			return 0;
-		final RecordsPoster.MapDocument poster =
-				new RecordsPoster.UpdateMapDocValues(fieldMap, indexWriter, taxonomyWriter);
-		return postMappedDocs(poster, post);
+		return postMappedDocs(() -> new RecordsPoster.UpdateMapDocValues(fieldMap, indexWriter, taxonomyWriter),
+				post);
 	}
 }
@@ -15,10 +15,12 @@
  */
 package com.qwazr.search.index;
 
+import com.qwazr.server.ServerException;
 import com.qwazr.utils.IOUtils;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ReferenceManager;
 
@@ -34,18 +36,38 @@ interface WriterAndSearcher extends Closeable {
 
 	<T> T search(final SearchAction<T> action) throws IOException;
 
+	/**
+	 * Acquire the current searcher until the returned lease is closed.
+	 *
+	 * @return a new lease
+	 * @throws IOException if the searcher cannot be acquired
+	 */
+	Lease lease() throws IOException;
+
 	<T> T write(final WriteAction<T> action) throws IOException;
 
 	void commit() throws IOException;
 
+	/**
+	 * Wait until every operation completed by the writer is visible to the searchers.
+	 *
+	 * @throws IOException if the refresh failed
+	 */
+	void awaitRefresh() throws IOException;
+
 	IndexWriter getIndexWriter();
 
 	abstract class Common implements WriterAndSearcher {
 
+		private final static double MIN_STALE_SEC = 0.025;
+
 		final IndexWriter indexWriter;
+		private final int refreshIntervalMs;
+		private volatile ControlledRealTimeReopenThread<?> reopenThread;
 
-		protected Common(final IndexWriter indexWriter) {
+		protected Common(final IndexWriter indexWriter, final int refreshIntervalMs) {
 			this.indexWriter = indexWriter;
+			this.refreshIntervalMs = refreshIntervalMs;
 		}
 
 		@Override
@@ -53,6 +75,53 @@ interface WriterAndSearcher extends Closeable {
 			return indexWriter;
 		}
 
+		/**
+		 * Start the background refresh of the given manager, replacing the previous one.
+		 * Nothing is started for a read only index or if no refresh interval is set.
+		 */
+		final synchronized <T> void startReopenThread(final ReferenceManager<T> referenceManager) {
+			stopReopenThread();
+			if (indexWriter == null || refreshIntervalMs <= 0)
+				return;
+			final double maxStaleSec = refreshIntervalMs / 1000d;
+			final ControlledRealTimeReopenThread<T> thread =
+					new ControlledRealTimeReopenThread<>(indexWriter, referenceManager, maxStaleSec,
+							Math.min(MIN_STALE_SEC, maxStaleSec));
+			thread.setName("reopen-" + indexWriter.getDirectory());
+			thread.setDaemon(true);
+			thread.start();
+			reopenThread = thread;
+		}
+
+		final synchronized void stopReopenThread() {
+			if (reopenThread == null)
+				return;
+			IOUtils.closeQuietly(reopenThread);
+			reopenThread = null;
+		}
+
+		/**
+		 * Without a background refresh, the commit makes the changes visible.
+		 */
+		final void refreshAfterCommit() throws IOException {
+			if (reopenThread == null)
+				refresh();
+		}
+
+		@Override
+		final public void awaitRefresh() throws IOException {
+			final ControlledRealTimeReopenThread<?> thread = reopenThread;
+			if (thread == null) {
+				refresh();
+				return;
+			}
+			try {
+				thread.waitForGeneration(indexWriter.getMaxCompletedSequenceNumber());
+			} catch (InterruptedException e) {
+				throw ServerException.of(e);
+			}
+		}
+
 	}
 
 	@FunctionalInterface
@@ -65,12 +134,13 @@ interface WriterAndSearcher extends Closeable {
 		private final SearcherManagerFactory searcherManagerFactory;
 		private volatile ReferenceManager<IndexSearcher> searcherManager;
 
-		WithIndex(final IndexWriter indexWriter, final SearcherManagerFactory searcherManagerFactory)
-				throws IOException {
-			super(indexWriter);
+		WithIndex(final IndexWriter indexWriter, final SearcherManagerFactory searcherManagerFactory,
+				final int refreshIntervalMs) throws IOException {
+			super(indexWriter, refreshIntervalMs);
 			this.searcherManagerFactory = searcherManagerFactory;
 			this.searcherManager = searcherManagerFactory.supply();
 			refresh();
+			startReopenThread(searcherManager);
 		}
 
 		@Override
@@ -82,6 +152,7 @@ interface WriterAndSearcher extends Closeable {
 		final synchronized public void reload() throws IOException {
 			final ReferenceManager<IndexSearcher> oldSearcherManager = searcherManager;
 			searcherManager = searcherManagerFactory.supply();
+			startReopenThread(searcherManager);
 			oldSearcherManager.close();
 		}
 
@@ -97,6 +168,14 @@ interface WriterAndSearcher extends Closeable {
 			}
 		}
 
+		@Override
+		final public Lease lease() throws IOException {
+			final ReferenceManager<IndexSearcher> sm =
+					Objects.requireNonNull(searcherManager, "No SearchManager available");
+			final IndexSearcher searcher = sm.acquire();
+			return new Lease(searcher, null, () -> sm.release(searcher));
+		}
+
 		@Override
 		final public <T> T write(final WriteAction<T> action) throws IOException {
 			return action.apply(indexWriter, null);
@@ -106,11 +185,12 @@ interface WriterAndSearcher extends Closeable {
 		public void commit() throws IOException {
 			indexWriter.flush();
 			indexWriter.commit();
-			refresh();
+			refreshAfterCommit();
 		}
 
 		@Override
 		public synchronized void close() {
+			stopReopenThread();
 			if (searcherManager != null) {
 				IOUtils.closeQuietly(searcherManager);
 				searcherManager = null;
@@ -133,12 +213,14 @@ interface WriterAndSearcher extends Closeable {
 		private volatile SearcherTaxonomyManager searcherTaxonomyManager;
 
 		WithIndexAndTaxo(final IndexWriter indexWriter, final SnapshotDirectoryTaxonomyWriter taxonomyWriter,
-				final SearcherTaxonomyManagerFactory searcherTaxonomyManagerFactory) throws IOException {
-			super(indexWriter);
+				final SearcherTaxonomyManagerFactory searcherTaxonomyManagerFactory, final int refreshIntervalMs)
+				throws IOException {
+			super(indexWriter, refreshIntervalMs);
 			this.taxonomyWriter = taxonomyWriter;
 			this.searcherTaxonomyManagerFactory = searcherTaxonomyManagerFactory;
 			this.searcherTaxonomyManager = searcherTaxonomyManagerFactory.supply();
 			refresh();
+			startReopenThread(searcherTaxonomyManager);
 		}
 
 		@Override
@@ -150,6 +232,7 @@ interface WriterAndSearcher extends Closeable {
 		final synchronized public void reload() throws IOException {
 			final SearcherTaxonomyManager oldSearcherManager = searcherTaxonomyManager;
 			searcherTaxonomyManager = searcherTaxonomyManagerFactory.supply();
+			startReopenThread(searcherTaxonomyManager);
 			oldSearcherManager.close();
 		}
 
@@ -165,6 +248,14 @@ interface WriterAndSearcher extends Closeable {
 			}
 		}
 
+		@Override
+		final public Lease lease() throws IOException {
+			final SearcherTaxonomyManager sm =
+					Objects.requireNonNull(searcherTaxonomyManager, "No SearcherTaxonomyManager available");
+			final SearcherTaxonomyManager.SearcherAndTaxonomy reference = sm.acquire();
+			return new Lease(reference.searcher, reference.taxonomyReader, () -> sm.release(reference));
+		}
+
 		@Override
 		final public <T> T write(final WriteAction<T> action) throws IOException {
 			return action.apply(indexWriter, taxonomyWriter);
@@ -176,11 +267,12 @@ interface WriterAndSearcher extends Closeable {
 			taxonomyWriter.commit();
 			indexWriter.flush();
 			indexWriter.commit();
-			refresh();
+			refreshAfterCommit();
 		}
 
 		@Override
 		public synchronized void close() {
+			stopReopenThread();
 			if (searcherTaxonomyManager != null) {
 				IOUtils.closeQuietly(searcherTaxonomyManager);
 				searcherTaxonomyManager = null;
@@ -194,6 +286,29 @@ interface WriterAndSearcher extends Closeable {
 		}
 	}
 
+	/**
+	 * A searcher (and its taxonomy reader) kept open until the lease is closed, even if the manager is closed or
+	 * refreshed meanwhile.
+	 */
+	final class Lease implements Closeable {
+
+		final IndexSearcher indexSearcher;
+		final TaxonomyReader taxonomyReader;
+		private final Closeable release;
+
+		private Lease(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader,
+				final Closeable release) {
+			this.indexSearcher = indexSearcher;
+			this.taxonomyReader = taxonomyReader;
+			this.release = release;
+		}
+
+		@Override
+		public void close() throws IOException {
+			release.close();
+		}
+	}
+
 	@FunctionalInterface
 	interface SearchAction<T> {
 		T apply(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader) throws IOException;
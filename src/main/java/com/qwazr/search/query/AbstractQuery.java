@@ -37,6 +37,7 @@ import java.io.IOException;
         @JsonSubTypes.Type(value = CommonTermsQuery.class), @JsonSubTypes.Type(value = ConstantScoreQuery.class),
         @JsonSubTypes.Type(value = CustomScoreQuery.class),
         @JsonSubTypes.Type(value = DisjunctionMaxQuery.class),
+        @JsonSubTypes.Type(value = DocIdsQuery.class),
         @JsonSubTypes.Type(value = DoubleDocValuesExactQuery.class),
         @JsonSubTypes.Type(value = DoubleDocValuesRangeQuery.class),
         @JsonSubTypes.Type(value = DoubleExactQuery.class),
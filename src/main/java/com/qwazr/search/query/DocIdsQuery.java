@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2017 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.query;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.qwazr.search.index.QueryContext;
+import com.qwazr.search.query.lucene.DocIdSetQuery;
+import org.apache.lucene.search.Query;
+
+import java.util.Arrays;
+
+/**
+ * Matches the documents having the given internal doc IDs. A doc ID is only valid for a given searcher: this query is
+ * used with a point in time.
+ */
+public class DocIdsQuery extends AbstractQuery<DocIdsQuery> {
+
+	@JsonProperty("doc_ids")
+	final public int[] docIds;
+
+	@JsonCreator
+	public DocIdsQuery(@JsonProperty("doc_ids") final int... docIds) {
+		super(DocIdsQuery.class);
+		this.docIds = docIds;
+	}
+
+	@Override
+	@JsonIgnore
+	protected boolean isEqual(final DocIdsQuery query) {
+		return Arrays.equals(docIds, query.docIds);
+	}
+
+	@Override
+	final public Query getQuery(final QueryContext queryContext) {
+		return new DocIdSetQuery(docIds == null ? new int[0] : docIds);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.query.lucene;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Matches the documents having the given doc IDs (the IDs of the top level reader)
+ */
+public final class DocIdSetQuery extends org.apache.lucene.search.Query {
+
+	private final int[] docIds;
+
+	public DocIdSetQuery(final int... docIds) {
+		this.docIds = docIds.clone();
+		Arrays.sort(this.docIds);
+	}
+
+	@Override
+	final public Weight createWeight(final IndexSearcher searcher, final boolean needsScores) {
+		return new ConstantScoreWeight(this) {
+			@Override
+			final public String toString() {
+				return "weight(" + DocIdSetQuery.this + ")";
+			}
+
+			@Override
+			final public Scorer scorer(final LeafReaderContext context) throws IOException {
+				final int maxDoc = context.reader().maxDoc();
+				int pos = Arrays.binarySearch(docIds, context.docBase);
+				if (pos < 0)
+					pos = -pos - 1;
+				final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+				int previous = -1;
+				for (; pos < docIds.length; pos++) {
+					final int doc = docIds[pos] - context.docBase;
+					if (doc >= maxDoc)
+						break;
+					if (doc != previous)
+						builder.add(doc);
+					previous = doc;
+				}
+				if (previous == -1)
+					return null;
+				final DocIdSetIterator iterator = builder.build().iterator();
+				return iterator == null ? null : new ConstantScoreScorer(this, score(), iterator);
+			}
+		};
+	}
+
+	@Override
+	public String toString(final String field) {
+		return "docIds(" + docIds.length + ")";
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return sameClassAs(o) && Arrays.equals(docIds, ((DocIdSetQuery) o).docIds);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * classHash() + Arrays.hashCode(docIds);
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.field.Converters;
+
+import com.qwazr.search.index.BytesRefUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MultiReaderTest {
+
+	private final static int SEGMENT_SIZE = 50;
+
+	/**
+	 * The documents of the second segment have no doc values
+	 */
+	private final static boolean[] SEGMENTS_WITH_DOC_VALUES = { true, false, true };
+
+	private static RAMDirectory directory;
+	private static DirectoryReader reader;
+
+	/**
+	 * The value of each document, null if the document has no doc values
+	 */
+	private static List<Integer> values;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		directory = new RAMDirectory();
+		values = new ArrayList<>();
+		try (final IndexWriter writer = new IndexWriter(directory,
+				new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE))) {
+			for (boolean withDocValues : SEGMENTS_WITH_DOC_VALUES) {
+				for (int i = 0; i < SEGMENT_SIZE; i++) {
+					final int value = values.size();
+					final Document document = new Document();
+					document.add(new StringField("id", Integer.toString(value), Field.Store.NO));
+					if (withDocValues) {
+						document.add(new NumericDocValuesField("numeric", value));
+						document.add(new SortedDocValuesField("sorted", new BytesRef(sorted(value))));
+						for (String term : sortedSet(value))
+							document.add(new SortedSetDocValuesField("sortedSet", new BytesRef(term)));
+						document.add(new BinaryDocValuesField("binary", new BytesRef(binary(value))));
+						for (long number : sortedNumeric(value))
+							document.add(new SortedNumericDocValuesField("sortedNumeric", number));
+					} else
+						document.add(new StoredField("stored", value));
+					writer.addDocument(document);
+					values.add(withDocValues ? value : null);
+				}
+				writer.commit();
+			}
+		}
+		reader = DirectoryReader.open(directory);
+		Assert.assertEquals(SEGMENTS_WITH_DOC_VALUES.length, reader.leaves().size());
+	}
+
+	@AfterClass
+	public static void cleanup() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	private static String sorted(final int value) {
+		return "sorted" + (value % 7);
+	}
+
+	private static List<String> sortedSet(final int value) {
+		return Arrays.asList("a" + (value % 2), "b" + (value % 5));
+	}
+
+	private static String binary(final int value) {
+		return "binary" + value;
+	}
+
+	private static long[] sortedNumeric(final int value) {
+		return new long[] { value, value * 2L };
+	}
+
+	private static void checkDocValues(final MultiReader multiReader) throws IOException {
+		for (int docId = 0; docId < values.size(); docId++) {
+			final Integer value = values.get(docId);
+			if (value == null) {
+				Assert.assertEquals(0, multiReader.getNumericDocValues(docId, "numeric"));
+				Assert.assertEquals("", multiReader.getSortedDocValues(docId, "sorted"));
+				Assert.assertEquals(Collections.emptyList(), multiReader.getSortedSetDocValues(docId, "sortedSet"));
+				Assert.assertEquals(BytesRefUtils.EMPTY, multiReader.getBinaryDocValues(docId, "binary"));
+				Assert.assertEquals(0, multiReader.getSortedNumericDocValues(docId, "sortedNumeric").length);
+			} else {
+				Assert.assertEquals((long) value, multiReader.getNumericDocValues(docId, "numeric"));
+				Assert.assertEquals(sorted(value), multiReader.getSortedDocValues(docId, "sorted"));
+				Assert.assertEquals(sortedSet(value), multiReader.getSortedSetDocValues(docId, "sortedSet"));
+				Assert.assertEquals(binary(value), multiReader.getBinaryDocValues(docId, "binary").utf8ToString());
+				Assert.assertArrayEquals(sortedNumeric(value),
+						multiReader.getSortedNumericDocValues(docId, "sortedNumeric"));
+			}
+		}
+	}
+
+	@Test
+	public void docValuesAcrossSegments() throws IOException {
+		final MultiReader multiReader = new MultiReader(reader);
+		checkDocValues(multiReader);
+		// The second pass reuses the doc values and the terms already loaded
+		checkDocValues(multiReader);
+	}
+
+	@Test
+	public void unknownField() throws IOException {
+		final MultiReader multiReader = new MultiReader(reader);
+		for (int docId = 0; docId < values.size(); docId++) {
+			Assert.assertEquals(0, multiReader.getNumericDocValues(docId, "unknown"));
+			Assert.assertEquals("", multiReader.getSortedDocValues(docId, "unknown"));
+			Assert.assertTrue(multiReader.getSortedSetDocValues(docId, "unknown").isEmpty());
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.field;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.SmartField;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.QueryParser;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.server.ServerException;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+public class SmartFieldPreAnalyzedTest extends AbstractIndexTest {
+
+	private static AnnotatedIndexService<Record> indexService;
+
+	@BeforeClass
+	public static void setup() throws IOException, URISyntaxException, InterruptedException {
+		indexService = initIndexService(Record.class);
+		indexService.postDocument(new Record(1, "=The Quick Fox= the quick fox"));
+		indexService.postDocument(new Record(2, "=Lazy dogs= lazy,s=0,e=4 dogs,s=5,e=9"));
+	}
+
+	@Test
+	public void tokenStream() throws IOException {
+		try (final PreAnalyzedTokenStream tokenStream = PreAnalyzedTokenStream.of(
+				"=A b\\=c= a,s=0,e=1 b\\,c,i=2,p=AAE=")) {
+			Assert.assertEquals("A b=c", tokenStream.storedValue);
+			final CharTermAttribute term = tokenStream.getAttribute(CharTermAttribute.class);
+			final PositionIncrementAttribute posInc = tokenStream.getAttribute(PositionIncrementAttribute.class);
+			final OffsetAttribute offset = tokenStream.getAttribute(OffsetAttribute.class);
+			final PayloadAttribute payload = tokenStream.getAttribute(PayloadAttribute.class);
+			tokenStream.reset();
+			Assert.assertTrue(tokenStream.incrementToken());
+			Assert.assertEquals("a", term.toString());
+			Assert.assertEquals(1, posInc.getPositionIncrement());
+			Assert.assertEquals(0, offset.startOffset());
+			Assert.assertEquals(1, offset.endOffset());
+			Assert.assertNull(payload.getPayload());
+			Assert.assertTrue(tokenStream.incrementToken());
+			Assert.assertEquals("b,c", term.toString());
+			Assert.assertEquals(2, posInc.getPositionIncrement());
+			Assert.assertEquals(2, offset.startOffset());
+			Assert.assertEquals(5, offset.endOffset());
+			Assert.assertEquals(new BytesRef(new byte[] { 0, 1 }), payload.getPayload());
+			Assert.assertFalse(tokenStream.incrementToken());
+			tokenStream.end();
+		}
+	}
+
+	@Test(expected = ServerException.class)
+	public void wrongAttribute() {
+		PreAnalyzedTokenStream.of("term,x=1");
+	}
+
+	@Test
+	public void search() throws IOException, ReflectiveOperationException {
+		final ResultDefinition.WithObject<Record> result = indexService.searchQuery(
+				QueryDefinition.of(QueryParser.of("text").setQueryString("dogs").build()).returnedField("*").build(),
+				Record.class);
+		Assert.assertEquals(1, result.total_hits, 0);
+		Assert.assertEquals("Lazy dogs", result.documents.get(0).record.text);
+		Assert.assertEquals(1, indexService.searchQuery(
+				QueryDefinition.of(QueryParser.of("text").setQueryString("quick").build()).build()).total_hits, 0);
+	}
+
+	@Index(name = "SmartFieldPreAnalyzed", schema = "TestQueries")
+	static public class Record {
+
+		@SmartField(name = FieldDefinition.ID_FIELD, type = SmartFieldDefinition.Type.LONG, index = true, stored = true)
+		final public long id;
+
+		// The query analyzer matches the (simulated) external analysis: lower cased terms
+		@SmartField(type = SmartFieldDefinition.Type.TEXT,
+				index = true,
+				stored = true,
+				preAnalyzed = true,
+				queryAnalyzerClass = StandardAnalyzer.class)
+		final public String text;
+
+		Record(long id, String text) {
+			this.id = id;
+			this.text = text;
+		}
+
+		public Record() {
+			this(0, null);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.IndexField;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.LongExactQuery;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class AnnotatedTranslogTest {
+
+    @Index(name = "AnnotatedTranslog", schema = "TestTranslog", translog = true)
+    public static class Record {
+
+        @IndexField(name = FieldDefinition.ID_FIELD, template = FieldDefinition.Template.StringField, stored = true)
+        public String id;
+
+        public Record() {
+        }
+
+        Record(final String id) {
+            this.id = id;
+        }
+    }
+
+    @Index(name = "AnnotatedTranslogValues", schema = "TestTranslog", translog = true)
+    public static class ValuesRecord {
+
+        @IndexField(name = FieldDefinition.ID_FIELD, template = FieldDefinition.Template.StringField, stored = true)
+        public String id;
+
+        @IndexField(template = FieldDefinition.Template.StoredField)
+        public Long smallLong;
+
+        @IndexField(template = FieldDefinition.Template.StoredField)
+        public Float floatValue;
+
+        @IndexField(template = FieldDefinition.Template.StoredField)
+        public byte[] binary;
+
+        @IndexField(template = FieldDefinition.Template.LongPoint, stored = true)
+        public List<Long> longs;
+
+        public ValuesRecord() {
+        }
+
+        ValuesRecord(final String id, final long... longs) {
+            this.id = id;
+            this.smallLong = 5L;
+            this.floatValue = 0.1f;
+            this.binary = new byte[] { 0, 1, 2, (byte) 255 };
+            this.longs = new ArrayList<>();
+            for (long value : longs)
+                this.longs.add(value);
+        }
+    }
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Copies the files of an open index: the uncommitted segments are not referenced by the last commit, the copy
+     * looks like an index after a crash.
+     */
+    private static void copyOpenIndex(final Path source, final Path target) throws IOException {
+        try (final Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if ("write.lock".equals(path.getFileName().toString()))
+                    continue;
+                final Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path))
+                    Files.createDirectories(copy);
+                else
+                    Files.copy(path, copy);
+            }
+        }
+    }
+
+    private static <T> AnnotatedIndexService<T> createIndex(final IndexManager indexManager, final Class<T> recordClass)
+            throws URISyntaxException, IOException {
+        final AnnotatedIndexService<T> service = indexManager.getService(recordClass);
+        service.createUpdateSchema();
+        service.createUpdateIndex();
+        service.createUpdateFields();
+        return service;
+    }
+
+    @Test
+    public void replayAfterCrash() throws IOException, URISyntaxException, InterruptedException {
+        final Path rootDirectory = Files.createTempDirectory("qwazr_translog_test");
+        final Path crashDirectory = Files.createTempDirectory("qwazr_translog_crash");
+
+        try (final IndexManager indexManager = new IndexManager(rootDirectory, executor)) {
+            final AnnotatedIndexService<Record> service = createIndex(indexManager, Record.class);
+
+            // The annotation does not set any commit latency: the default of the translog applies
+            final IndexStatus createdStatus = service.getIndexStatus();
+            Assert.assertNull(createdStatus.settings.commitMaxLatencyMs);
+            Assert.assertTrue(createdStatus.settings.translog);
+
+            service.postDocument(new Record("1"));
+            service.postDocument(new Record("2"));
+
+            // The writes are acknowledged by the translog, not by a Lucene commit
+            Assert.assertTrue(service.getIndexStatus().hasUncommittedChanges);
+            copyOpenIndex(rootDirectory, crashDirectory);
+        }
+
+        try (final IndexManager indexManager = new IndexManager(crashDirectory, executor)) {
+            final AnnotatedIndexService<Record> service = indexManager.getService(Record.class);
+            final ResultDefinition.WithObject<Record> result =
+                    service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).build());
+            Assert.assertEquals(2L, (long) result.total_hits);
+        }
+    }
+
+    /**
+     * The replayed values keep their Java types: the stored fields hold the same values as before the crash
+     */
+    @Test
+    public void replayTypedValues() throws IOException, URISyntaxException {
+        final Path rootDirectory = Files.createTempDirectory("qwazr_translog_test");
+        final Path crashDirectory = Files.createTempDirectory("qwazr_translog_crash");
+
+        try (final IndexManager indexManager = new IndexManager(rootDirectory, executor)) {
+            final AnnotatedIndexService<ValuesRecord> service = createIndex(indexManager, ValuesRecord.class);
+            service.postDocument(new ValuesRecord("1", 1L, Long.MAX_VALUE));
+            service.postDocuments(Arrays.asList(new ValuesRecord("2", 2L), new ValuesRecord("3", 3L, 30L, 300L)));
+            Assert.assertTrue(service.getIndexStatus().hasUncommittedChanges);
+            copyOpenIndex(rootDirectory, crashDirectory);
+        }
+
+        try (final IndexManager indexManager = new IndexManager(crashDirectory, executor)) {
+            final AnnotatedIndexService<ValuesRecord> service = indexManager.getService(ValuesRecord.class);
+            final ResultDefinition.WithMap result = service.searchQueryWithMap(
+                    QueryDefinition.of(new MatchAllDocsQuery()).returnedField("*").rows(10).build());
+            Assert.assertEquals(3L, (long) result.total_hits);
+            for (ResultDocumentMap document : result.documents) {
+                Assert.assertEquals(5L, document.fields.get("smallLong"));
+                Assert.assertEquals(0.1f, document.fields.get("floatValue"));
+                Assert.assertArrayEquals(new byte[] { 0, 1, 2, (byte) 255 }, (byte[]) document.fields.get("binary"));
+            }
+
+            // Every value of the multi-valued field is indexed
+            for (long value : new long[] { 1L, Long.MAX_VALUE, 2L, 3L, 30L, 300L })
+                Assert.assertEquals(1L, (long) service.searchQuery(
+                        QueryDefinition.of(new LongExactQuery("longs", value)).build()).total_hits);
+            final ResultDefinition.WithMap three = service.searchQueryWithMap(
+                    QueryDefinition.of(new LongExactQuery("longs", 30L)).returnedField("longs").build());
+            Assert.assertArrayEquals(new long[] { 3L, 30L, 300L }, (long[]) three.documents.get(0).fields.get("longs"));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.index.IndexWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommitSchedulerTest {
+
+    static class CountingWriterAndSearcher implements WriterAndSearcher {
+
+        final AtomicInteger commits = new AtomicInteger();
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public void reload() {
+        }
+
+        @Override
+        public <T> T search(final SearchAction<T> action) throws IOException {
+            return action.apply(null, null);
+        }
+
+        @Override
+        public Lease lease() {
+            return null;
+        }
+
+        @Override
+        public <T> T write(final WriteAction<T> action) throws IOException {
+            return action.apply(null, null);
+        }
+
+        @Override
+        public void commit() {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            commits.incrementAndGet();
+        }
+
+        @Override
+        public void awaitRefresh() {
+        }
+
+        @Override
+        public IndexWriter getIndexWriter() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void concurrentWritersShareCommits() throws Exception {
+        final CountingWriterAndSearcher writerAndSearcher = new CountingWriterAndSearcher();
+        final int writers = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (final CommitScheduler scheduler = new CommitScheduler(writerAndSearcher, IndexSettingsDefinition.EMPTY,
+                "test")) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++)
+                futures.add(executor.submit(() -> {
+                    scheduler.commit(1, false);
+                    return null;
+                }));
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        Assert.assertTrue(writerAndSearcher.commits.get() > 0);
+        Assert.assertTrue(writerAndSearcher.commits.get() < writers);
+    }
+
+    @Test
+    public void maxLatencyDefersCommit() throws Exception {
+        final CountingWriterAndSearcher writerAndSearcher = new CountingWriterAndSearcher();
+        final IndexSettingsDefinition settings = IndexSettingsDefinition.of().commitMaxLatencyMs(200).build();
+        try (final CommitScheduler scheduler = new CommitScheduler(writerAndSearcher, settings, "test")) {
+            scheduler.commit(1, false);
+            scheduler.commit(1, false);
+            Assert.assertEquals(0, writerAndSearcher.commits.get());
+            Thread.sleep(1000);
+            Assert.assertEquals(1, writerAndSearcher.commits.get());
+            scheduler.commit(1, true);
+            Assert.assertEquals(2, writerAndSearcher.commits.get());
+        }
+    }
+
+    @Test
+    public void maxDocsForcesCommit() throws Exception {
+        final CountingWriterAndSearcher writerAndSearcher = new CountingWriterAndSearcher();
+        final IndexSettingsDefinition settings =
+                IndexSettingsDefinition.of().commitMaxLatencyMs(60000).commitMaxDocs(10).build();
+        try (final CommitScheduler scheduler = new CommitScheduler(writerAndSearcher, settings, "test")) {
+            scheduler.commit(5, false);
+            Assert.assertEquals(0, writerAndSearcher.commits.get());
+            scheduler.commit(5, false);
+            Assert.assertEquals(1, writerAndSearcher.commits.get());
+        }
+    }
+}
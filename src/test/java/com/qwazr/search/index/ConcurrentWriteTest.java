@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentWriteTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+    private final static int WRITERS = 8;
+    private final static int DOCS_PER_WRITER = 100;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException, InterruptedException {
+        initIndexManager();
+        initIndexService();
+    }
+
+    @Test
+    public void concurrentPostAndDeleteAll() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                final int writer = w;
+                futures.add(executor.submit(() -> {
+                    final List<IndexRecord.NoTaxonomy> records = new ArrayList<>();
+                    for (int i = 0; i < DOCS_PER_WRITER; i++)
+                        records.add(new IndexRecord.NoTaxonomy(writer + "-" + i).textField("text " + i));
+                    indexService.postDocuments(records);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        Assert.assertEquals(WRITERS * DOCS_PER_WRITER, indexService.getIndexStatus().numDocs, 0);
+
+        indexService.deleteAll();
+        Assert.assertEquals(0, indexService.getIndexStatus().numDocs, 0);
+    }
+}
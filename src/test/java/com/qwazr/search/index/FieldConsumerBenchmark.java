@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.CustomFieldDefinition;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SmartFieldDefinition;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation rate of the document building, with and without the recycling of the fields.
+ * <p>
+ * The main method runs it with the GC profiler: compare the gc.alloc.rate.norm of both benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldConsumerBenchmark {
+
+    private final static int DOCUMENTS = 1000;
+
+    private FieldMap fieldMap;
+    private List<Map<String, Object>> documents;
+
+    @Setup
+    public void setup() {
+        final LinkedHashMap<String, FieldDefinition> fields = new LinkedHashMap<>();
+        fields.put(FieldDefinition.ID_FIELD,
+                CustomFieldDefinition.of().template(FieldDefinition.Template.StringField).stored(true).build());
+        fields.put("title",
+                SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT).index(true).stored(true).build());
+        fields.put("category",
+                SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT).index(true).sort(true).build());
+        fields.put("price",
+                SmartFieldDefinition.of().type(SmartFieldDefinition.Type.DOUBLE).sort(true).stored(true).build());
+        fields.put("stock",
+                SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).index(true).sort(true).build());
+        fields.put("rank", CustomFieldDefinition.of().template(FieldDefinition.Template.IntPoint).build());
+        fieldMap = new FieldMap(fields, null);
+
+        documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final Map<String, Object> document = new LinkedHashMap<>();
+            document.put(FieldDefinition.ID_FIELD, Integer.toString(i));
+            document.put("title", "Title " + i);
+            document.put("category", "category" + (i % 10));
+            document.put("price", i * 1.5d);
+            document.put("stock", (long) i);
+            document.put("rank", i % 100);
+            documents.add(document);
+        }
+    }
+
+    private void build(final FieldConsumer consumer, final Document document, final Blackhole blackhole) {
+        final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, consumer);
+        for (final Map<String, Object> map : documents) {
+            map.forEach(recordBuilder);
+            blackhole.consume(document.getFields().size());
+            consumer.reset();
+        }
+    }
+
+    @Benchmark
+    public void newFields(final Blackhole blackhole) {
+        final Document document = new Document();
+        build(new FieldConsumer() {
+
+            @Override
+            public void reset() {
+                document.clear();
+            }
+
+            @Override
+            public void accept(final String genericFieldName, final String concreteFieldName, final Field field) {
+                document.add(field);
+            }
+        }, document, blackhole);
+    }
+
+    @Benchmark
+    public void recycledFields(final Blackhole blackhole) {
+        final FieldConsumer.ForDocument consumer = new FieldConsumer.ForDocument(fieldMap);
+        build(consumer, consumer.document, blackhole);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FieldConsumerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
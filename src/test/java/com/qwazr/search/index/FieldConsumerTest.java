@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.CustomFieldDefinition;
+import com.qwazr.search.field.FieldDefinition;
+import org.apache.lucene.document.Field;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+public class FieldConsumerTest {
+
+    @Test
+    public void fieldsAreRecycled() {
+        final LinkedHashMap<String, FieldDefinition> fields = new LinkedHashMap<>();
+        fields.put("tag", CustomFieldDefinition.of().template(FieldDefinition.Template.StringField).build());
+        final FieldConsumer.ForDocument consumer = new FieldConsumer.ForDocument(new FieldMap(fields, null));
+
+        final Field first = consumer.stringField("tag", "a", Field.Store.NO);
+        final Field second = consumer.stringField("tag", "b", Field.Store.NO);
+        // Two values of a multivalued field are distinct instances
+        Assert.assertNotSame(first, second);
+        consumer.accept("tag", "tag", first);
+        consumer.accept("tag", "tag", second);
+        Assert.assertEquals(2, consumer.document.getFields().size());
+
+        consumer.reset();
+        Assert.assertEquals(0, consumer.document.getFields().size());
+
+        Assert.assertSame(first, consumer.stringField("tag", "c", Field.Store.NO));
+        Assert.assertEquals("c", first.stringValue());
+        Assert.assertSame(second, consumer.stringField("tag", "d", Field.Store.NO));
+        Assert.assertEquals("d", second.stringValue());
+        // Another kind of field gets its own instance
+        Assert.assertNotSame(first, consumer.stringField("tag", "e", Field.Store.YES));
+        Assert.assertEquals(12L, consumer.longPoint("tag", 12L).numericValue());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SmartFieldDefinition;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+public class IndexSortTest {
+
+    private static FieldMap fieldMap() {
+        final LinkedHashMap<String, FieldDefinition> fields = new LinkedHashMap<>();
+        fields.put("date", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).sort(true).build());
+        fields.put("price", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.DOUBLE).sort(true).build());
+        return new FieldMap(fields, null);
+    }
+
+    @Test
+    public void buildIndexSort() {
+        final IndexSettingsDefinition settings = IndexSettingsDefinition.of()
+                .indexSort("date", QueryDefinition.SortEnum.descending)
+                .build();
+        final Sort indexSort = IndexInstanceBuilder.buildIndexSort(settings, fieldMap(), "test");
+        Assert.assertNotNull(indexSort);
+        Assert.assertEquals(1, indexSort.getSort().length);
+        Assert.assertTrue(indexSort.getSort()[0].getReverse());
+
+        // The fields are not known yet
+        Assert.assertNull(IndexInstanceBuilder.buildIndexSort(settings, null, "test"));
+        Assert.assertNull(IndexInstanceBuilder.buildIndexSort(
+                IndexSettingsDefinition.of().indexSort("unknown", QueryDefinition.SortEnum.ascending).build(),
+                fieldMap(), "test"));
+        Assert.assertNull(IndexInstanceBuilder.buildIndexSort(IndexSettingsDefinition.of().build(), fieldMap(), "test"));
+    }
+
+    @Test
+    public void canEarlyTerminate() throws IOException {
+        final SortField date = new SortedNumericSortField("date", SortField.Type.LONG, true);
+        final SortField price = new SortedNumericSortField("price", SortField.Type.DOUBLE);
+        try (final RAMDirectory directory = new RAMDirectory()) {
+            final IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+            config.setIndexSort(new Sort(date, price));
+            try (final IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                final Document document = new Document();
+                document.add(new SortedNumericDocValuesField("date", 1L));
+                indexWriter.addDocument(document);
+                indexWriter.commit();
+            }
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                Assert.assertTrue(QueryCollectorsClassic.canEarlyTerminate(reader, new Sort(date)));
+                Assert.assertTrue(QueryCollectorsClassic.canEarlyTerminate(reader, new Sort(date, price)));
+                Assert.assertFalse(QueryCollectorsClassic.canEarlyTerminate(reader, new Sort(price)));
+                Assert.assertFalse(QueryCollectorsClassic.canEarlyTerminate(reader,
+                        new Sort(new SortedNumericSortField("date", SortField.Type.LONG, false))));
+                Assert.assertFalse(QueryCollectorsClassic.canEarlyTerminate(reader, null));
+            }
+        }
+    }
+}
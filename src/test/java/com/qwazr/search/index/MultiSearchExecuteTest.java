@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MultiSearchExecuteTest {
+
+    private final static int COUNT = 16;
+
+    private static void checkResults(final List<Integer> results) {
+        Assert.assertEquals(COUNT, results.size());
+        for (int i = 0; i < COUNT; i++)
+            Assert.assertEquals(i * 2, (int) results.get(i));
+    }
+
+    @Test
+    public void withoutExecutor() throws IOException {
+        checkResults(MultiSearch.execute(null, COUNT, index -> index * 2));
+    }
+
+    @Test
+    public void withExecutor() throws IOException, InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            checkResults(MultiSearch.execute(executor, COUNT, index -> index * 2));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void queuedWorkersAreCancelled() throws IOException, InterruptedException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // The only thread is busy: the workers stay in the queue, the calling thread runs the whole batch
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            checkResults(MultiSearch.execute(executor, COUNT, index -> index * 2));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MultiThreadSearcherFactoryTest {
+
+    private final static String FIELD = FieldDefinition.DEFAULT_SORTEDSET_FACET_FIELD;
+
+    private static RAMDirectory directory;
+    private static DirectoryReader reader;
+    private static ExecutorService executorService;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        directory = new RAMDirectory();
+        final FacetsConfig facetsConfig = new FacetsConfig();
+        facetsConfig.setIndexFieldName("category", FIELD);
+        try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < 100; i++) {
+                final Document document = new Document();
+                document.add(new SortedSetDocValuesFacetField("category", "cat" + (i % 10)));
+                writer.addDocument(facetsConfig.build(document));
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException, InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+        reader.close();
+        directory.close();
+    }
+
+    private static MultiThreadSearcherFactory newFactory(final ExecutorService executorService) {
+        return MultiThreadSearcherFactory.of(executorService, null, false, null, () -> null, null);
+    }
+
+    @Test
+    public void noStateWithoutFacets() throws IOException {
+        final MultiThreadSearcherFactory factory = newFactory(executorService);
+        final MultiThreadSearcherFactory.StateIndexSearcher searcher = factory.newSearcher(reader, null);
+        Assert.assertEquals(100, searcher.search(new MatchAllDocsQuery(), 10).totalHits);
+        Assert.assertTrue(searcher.states.isEmpty());
+        // Nothing to build in the background for the next searcher
+        Assert.assertTrue(factory.newSearcher(reader, null).states.isEmpty());
+    }
+
+    @Test
+    public void concurrentStateBuiltOnce() throws IOException, InterruptedException, ExecutionException {
+        final MultiThreadSearcherFactory.StateIndexSearcher searcher = newFactory(null).newSearcher(reader, null);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<SortedSetDocValuesReaderState>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return searcher.getState(FIELD);
+            }));
+        start.countDown();
+        final SortedSetDocValuesReaderState state = futures.get(0).get();
+        Assert.assertNotNull(state);
+        // Each build returns a new state: the queries share the only one
+        for (Future<SortedSetDocValuesReaderState> future : futures)
+            Assert.assertSame(state, future.get());
+        Assert.assertEquals(1, searcher.states.size());
+        Assert.assertSame(state, searcher.getState(FIELD));
+    }
+
+    @Test
+    public void backgroundStateOnlyWhenUsed() throws IOException, InterruptedException, ExecutionException {
+        final MultiThreadSearcherFactory factory = newFactory(executorService);
+
+        // The first searcher builds the state for a query
+        final MultiThreadSearcherFactory.StateIndexSearcher first = factory.newSearcher(reader, null);
+        Assert.assertNotNull(first.getState(FIELD));
+
+        // The next searcher builds it in the background, before any query
+        final MultiThreadSearcherFactory.StateIndexSearcher second = factory.newSearcher(reader, null);
+        Assert.assertEquals(1, second.states.size());
+        Assert.assertNotNull(second.states.get(FIELD).get());
+        Assert.assertTrue(second.usedStates.isEmpty());
+
+        // No query used the state of the second searcher: the third one does not build it
+        final MultiThreadSearcherFactory.StateIndexSearcher third = factory.newSearcher(reader, null);
+        Assert.assertTrue(third.states.isEmpty());
+    }
+
+    @Test
+    public void generationsAcrossFactories() throws IOException {
+        final long first = newFactory(null).newSearcher(reader, null).generation;
+        // A recreated factory does not restart the generations: its searchers are the newest ones
+        final MultiThreadSearcherFactory factory = newFactory(null);
+        final long second = factory.newSearcher(reader, null).generation;
+        Assert.assertTrue(second > first);
+        Assert.assertTrue(factory.newSearcher(reader, null).generation > second);
+    }
+
+    @Test
+    public void requestSearcherNotRemembered() throws IOException {
+        final MultiThreadSearcherFactory factory = newFactory(executorService);
+        // The states used by a request searcher are not built in the background for the next searcher
+        final MultiThreadSearcherFactory.StateIndexSearcher request = factory.newRequestSearcher(reader);
+        Assert.assertNotNull(request.getState(FIELD));
+        Assert.assertTrue(factory.newSearcher(reader, null).states.isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.IndexField;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelPostTest extends AbstractIndexTest {
+
+    private final static int DISTINCT_IDS = 1000;
+
+    private static AnnotatedIndexService<Record> indexService;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException, InterruptedException {
+        indexService = initIndexService(Record.class);
+    }
+
+    @Test
+    public void sameIdKeepsBatchOrder() throws IOException, InterruptedException, ReflectiveOperationException {
+        final List<Record> records = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_IDS * 3; i++)
+            records.add(new Record(Integer.toString(i % DISTINCT_IDS), "v" + i));
+        indexService.postDocuments(records);
+        Assert.assertEquals(DISTINCT_IDS, indexService.getIndexStatus().numDocs, 0);
+        for (int i = 0; i < DISTINCT_IDS; i++)
+            Assert.assertEquals("v" + (i + DISTINCT_IDS * 2), indexService.getDocument(Integer.toString(i)).value);
+    }
+
+    @Test
+    public void failureIsReported() {
+        final List<Map<String, Object>> documents = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_IDS; i++) {
+            final Map<String, Object> document = new HashMap<>();
+            document.put(FieldDefinition.ID_FIELD, Integer.toString(i));
+            document.put(i == DISTINCT_IDS / 2 ? "unknownField" : "value", "v" + i);
+            documents.add(document);
+        }
+        try {
+            indexManager.getService()
+                    .postMappedDocuments(indexService.getSchemaName(), indexService.getIndexName(),
+                            PostDefinition.of(documents, null));
+            Assert.fail("The document with an unknown field should fail");
+        } catch (WebApplicationException e) {
+            Assert.assertTrue(ExceptionUtils.getRootCause(e).getMessage().contains("unknownField"));
+        }
+    }
+
+    @Index(name = "ParallelPost", schema = "TestQueries", indexingThreads = 4)
+    static public class Record {
+
+        @IndexField(name = FieldDefinition.ID_FIELD, template = FieldDefinition.Template.StringField, stored = true)
+        final public String id;
+
+        @IndexField(template = FieldDefinition.Template.StringField, stored = true)
+        final public String value;
+
+        public Record() {
+            this(null, null);
+        }
+
+        Record(final String id, final String value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class PointInTimesTest {
+
+    private final static int MAX_OPEN = 2;
+
+    private RAMDirectory directory;
+    private WriterAndSearcher writerAndSearcher;
+    private PointInTimes pointInTimes;
+
+    @Before
+    public void setup() throws IOException {
+        directory = new RAMDirectory();
+        final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        writerAndSearcher =
+                new WriterAndSearcher.WithIndex(indexWriter, () -> new SearcherManager(indexWriter, null), 0);
+        pointInTimes = new PointInTimes(writerAndSearcher, MAX_OPEN);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        pointInTimes.close();
+        writerAndSearcher.close();
+        directory.close();
+    }
+
+    private String open() throws IOException {
+        return pointInTimes.search(null, 60_000L, (indexSearcher, taxonomyReader, pointInTime) -> pointInTime);
+    }
+
+    private void release(final String id) throws IOException {
+        Assert.assertNull(pointInTimes.search(id, 0L, (indexSearcher, taxonomyReader, pointInTime) -> pointInTime));
+    }
+
+    @Test
+    public void maxOpen() throws IOException {
+        final String first = open();
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(open());
+        try {
+            open();
+            Assert.fail("The point in time should be refused");
+        } catch (ServerException e) {
+            Assert.assertEquals(503, e.getStatusCode());
+        }
+        // The open points in time are still served
+        Assert.assertEquals(first,
+                pointInTimes.search(first, null, (indexSearcher, taxonomyReader, pointInTime) -> pointInTime));
+        // A released point in time leaves room for a new one
+        release(first);
+        Assert.assertNotNull(open());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.ObjectMappers;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class QueryCachingPolicyTest {
+
+    private static Query booleanQuery() {
+        return new BooleanQuery.Builder().add(new TermQuery(new Term("a", "b")), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term("a", "c")), BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    @Test
+    public void heavyFilters() {
+        final MultiThreadSearcherFactory.FirstUseCachingPolicy policy =
+                new MultiThreadSearcherFactory.FirstUseCachingPolicy(true);
+        Assert.assertTrue(MultiThreadSearcherFactory.FirstUseCachingPolicy.isHeavy(
+                TermRangeQuery.newStringRange("a", "b", "c", true, true)));
+        Assert.assertTrue(MultiThreadSearcherFactory.FirstUseCachingPolicy.isHeavy(LongPoint.newRangeQuery("a", 1, 2)));
+        Assert.assertEquals(1, policy.minFrequencyToCache(LongPoint.newRangeQuery("a", 1, 2)));
+        Assert.assertFalse(MultiThreadSearcherFactory.FirstUseCachingPolicy.isHeavy(booleanQuery()));
+        Assert.assertTrue(policy.minFrequencyToCache(booleanQuery()) > 1);
+    }
+
+    @Test
+    public void firstUse() {
+        final MultiThreadSearcherFactory.FirstUseCachingPolicy policy =
+                new MultiThreadSearcherFactory.FirstUseCachingPolicy(false);
+        Assert.assertEquals(1, policy.minFrequencyToCache(booleanQuery()));
+        Assert.assertEquals(1, policy.minFrequencyToCache(LongPoint.newRangeQuery("a", 1, 2)));
+    }
+
+    @Test
+    public void settings() throws IOException {
+        final IndexSettingsDefinition indexSettings =
+                IndexSettingsDefinition.of().queryCachePolicy(IndexSettingsDefinition.QueryCachePolicy.HEAVY_FILTERS)
+                        .build();
+        Assert.assertEquals(indexSettings, ObjectMappers.JSON.readValue(
+                ObjectMappers.JSON.writeValueAsString(indexSettings), IndexSettingsDefinition.class));
+        final SchemaSettingsDefinition schemaSettings =
+                SchemaSettingsDefinition.of().queryCacheMaxBytes(1024L * 1024).queryCacheMaxEntries(100).build();
+        Assert.assertEquals(schemaSettings, ObjectMappers.JSON.readValue(
+                ObjectMappers.JSON.writeValueAsString(schemaSettings), SchemaSettingsDefinition.class));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the reflective record access with the compiled accessors of {@link RecordAccessors}.
+ * <p>
+ * Run it with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.qwazr.search.index.RecordAccessorsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordAccessorsBenchmark {
+
+    private Record record;
+    private Field[] fields;
+    private MethodHandle[] getters;
+    private Constructor<Record> constructor;
+    private Supplier<Record> supplier;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        record = new Record();
+        fields = Record.class.getDeclaredFields();
+        getters = new MethodHandle[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].setAccessible(true);
+            getters[i] = RecordAccessors.getter(fields[i]);
+        }
+        constructor = Record.class.getDeclaredConstructor();
+        supplier = RecordAccessors.constructor(Record.class);
+    }
+
+    @Benchmark
+    public void reflectiveGet(final Blackhole blackhole) throws IllegalAccessException {
+        for (final Field field : fields)
+            blackhole.consume(field.get(record));
+    }
+
+    @Benchmark
+    public void compiledGet(final Blackhole blackhole) throws Throwable {
+        for (final MethodHandle getter : getters)
+            blackhole.consume((Object) getter.invokeExact((Object) record));
+    }
+
+    @Benchmark
+    public Record reflectiveNewInstance() throws ReflectiveOperationException {
+        return constructor.newInstance();
+    }
+
+    @Benchmark
+    public Record compiledNewInstance() {
+        return supplier.get();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecordAccessorsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Record {
+
+        public String id = "id";
+        public String title = "title";
+        public String content = "content";
+        public String category = "category";
+        public String[] tags = { "a", "b" };
+        public int intValue = 1;
+        public long longValue = 2L;
+        public float floatValue = 3F;
+        public double doubleValue = 4D;
+        public Integer boxedInt = 5;
+        public Long boxedLong = 6L;
+        public String author = "author";
+        public String language = "en";
+        public long timestamp = 7L;
+        public Double price = 8D;
+        public String url = "url";
+        public String summary = "summary";
+        public Integer rank = 9;
+        public boolean active = true;
+        public String status = "status";
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RecordAccessorsTest {
+
+    private static Map<String, Field> fields(final Class<?> type, final String... names)
+            throws NoSuchFieldException {
+        final Map<String, Field> fields = new LinkedHashMap<>();
+        for (final String name : names) {
+            final Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            fields.put(name, field);
+        }
+        return fields;
+    }
+
+    @Test
+    public void getters() throws NoSuchFieldException {
+        final RecordAccessors.Getters getters =
+                new RecordAccessors.Getters(fields(PrivateRecord.class, "id", "count", "empty"));
+        final PrivateRecord record = new PrivateRecord();
+        Assert.assertArrayEquals(new String[] { "id", "count", "empty" }, getters.names);
+        Assert.assertEquals("id1", getters.get(0, record));
+        Assert.assertEquals(12, getters.get(1, record));
+        Assert.assertNull(getters.get(2, record));
+        Assert.assertSame(getters.handles[0], RecordAccessors.getter(PrivateRecord.class.getDeclaredField("id")));
+    }
+
+    @Test
+    public void constructors() {
+        Assert.assertNotNull(RecordAccessors.constructor(PublicRecord.class).get());
+        Assert.assertNotNull(RecordAccessors.constructor(PrivateRecord.class).get());
+        Assert.assertSame(RecordAccessors.constructor(PublicRecord.class),
+                RecordAccessors.constructor(PublicRecord.class));
+        Assert.assertNotSame(RecordAccessors.constructor(PublicRecord.class).get(),
+                RecordAccessors.constructor(PublicRecord.class).get());
+    }
+
+    public static class PublicRecord {
+    }
+
+    private static class PrivateRecord {
+
+        private final String id = "id1";
+        private final int count = 12;
+        private String empty;
+
+        private PrivateRecord() {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.IndexField;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Collections;
+
+public class RefreshIntervalTest extends AbstractIndexTest {
+
+    private static AnnotatedIndexService<Record> indexService;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException, InterruptedException {
+        indexService = initIndexService(Record.class);
+    }
+
+    private long countDocs() {
+        return indexService.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).build()).total_hits;
+    }
+
+    @Test
+    public void waitForRefresh() {
+        final IndexServiceInterface service = indexManager.getService();
+        for (int i = 1; i <= 10; i++) {
+            service.postMappedDocument(indexService.getSchemaName(), indexService.getIndexName(),
+                    PostDefinition.of(Collections.singletonMap(FieldDefinition.ID_FIELD, Integer.toString(i)), null,
+                            null, null, true));
+            Assert.assertEquals(i, countDocs());
+        }
+    }
+
+    @Index(name = "RefreshInterval", schema = "TestQueries", refreshIntervalMs = 60000)
+    static public class Record {
+
+        @IndexField(name = FieldDefinition.ID_FIELD, template = FieldDefinition.Template.StringField, stored = true)
+        public String id;
+    }
+}
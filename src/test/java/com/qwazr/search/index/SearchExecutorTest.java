@@ -0,0 +1,386 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.ObjectMappers;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchExecutorTest {
+
+    private final static int[] SEGMENT_SIZES = { 1000, 500, 10, 20, 30, 40 };
+
+    private static RAMDirectory directory;
+    private static DirectoryReader reader;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        directory = new RAMDirectory();
+        try (final IndexWriter writer = new IndexWriter(directory,
+                new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            for (int size : SEGMENT_SIZES) {
+                for (int i = 0; i < size; i++)
+                    writer.addDocument(new Document());
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        Assert.assertEquals(SEGMENT_SIZES.length, reader.leaves().size());
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    private static int countLeaves(final IndexSearcher.LeafSlice[] slices) {
+        int count = 0;
+        for (IndexSearcher.LeafSlice slice : slices)
+            count += slice.leaves.length;
+        return count;
+    }
+
+    @Test
+    public void defaultSlices() {
+        Assert.assertNull(SearchExecutor.slices(reader.leaves(), 0, 0));
+    }
+
+    @Test
+    public void mergeSmallSegments() {
+        final IndexSearcher.LeafSlice[] slices = SearchExecutor.slices(reader.leaves(), 100, 0);
+        // 1000 | 500 | 10 + 20 + 30 + 40
+        Assert.assertEquals(3, slices.length);
+        Assert.assertEquals(1, slices[0].leaves.length);
+        Assert.assertEquals(1, slices[1].leaves.length);
+        Assert.assertEquals(4, slices[2].leaves.length);
+        Assert.assertEquals(SEGMENT_SIZES.length, countLeaves(slices));
+    }
+
+    @Test
+    public void maxSlices() {
+        final IndexSearcher.LeafSlice[] slices = SearchExecutor.slices(reader.leaves(), 0, 2);
+        Assert.assertEquals(2, slices.length);
+        // The biggest segment stays alone
+        Assert.assertEquals(1, slices[0].leaves.length);
+        Assert.assertEquals(1000, slices[0].leaves[0].reader().maxDoc());
+        Assert.assertEquals(SEGMENT_SIZES.length, countLeaves(slices));
+    }
+
+    private static void checkDocIdOrder(final IndexSearcher.LeafSlice[] slices) {
+        int nextDocBase = 0;
+        for (IndexSearcher.LeafSlice slice : slices) {
+            for (LeafReaderContext leaf : slice.leaves) {
+                Assert.assertEquals(nextDocBase, leaf.docBase);
+                nextDocBase += leaf.reader().maxDoc();
+            }
+        }
+        Assert.assertEquals(reader.maxDoc(), nextDocBase);
+    }
+
+    @Test
+    public void slicesFollowDocIds() {
+        checkDocIdOrder(SearchExecutor.slices(reader.leaves(), 100, 0));
+        checkDocIdOrder(SearchExecutor.slices(reader.leaves(), 0, 2));
+        checkDocIdOrder(SearchExecutor.slices(reader.leaves(), 0, 3));
+        checkDocIdOrder(SearchExecutor.slices(reader.leaves(), 25, 4));
+    }
+
+    @Test
+    public void defaultPartitions() {
+        Assert.assertNull(SearchExecutor.partitions(reader.leaves(), 0, 0, 0));
+        // No segment holds twice 600 documents
+        Assert.assertNull(SearchExecutor.partitions(reader.leaves(), 600, 0, 0));
+    }
+
+    @Test
+    public void splitBigSegments() {
+        final List<SearchExecutor.Partition> partitions = SearchExecutor.partitions(reader.leaves(), 250, 100, 0);
+        // 250 * 4 | 250 * 2 | 10 + 20 + 30 + 40
+        Assert.assertEquals(7, partitions.size());
+        int docs = 0;
+        int previousMaxDoc = 0;
+        for (int i = 0; i < 4; i++) {
+            final SearchExecutor.Range range = partitions.get(i).ranges[0];
+            Assert.assertEquals(1000, range.leaf.reader().maxDoc());
+            Assert.assertEquals(previousMaxDoc, range.minDoc);
+            previousMaxDoc = range.maxDoc;
+        }
+        Assert.assertEquals(1000, previousMaxDoc);
+        Assert.assertEquals(4, partitions.get(6).ranges.length);
+        for (SearchExecutor.Partition partition : partitions)
+            for (SearchExecutor.Range range : partition.ranges)
+                docs += range.maxDoc - range.minDoc;
+        Assert.assertEquals(reader.maxDoc(), docs);
+    }
+
+    @Test
+    public void maxPartitions() {
+        final List<SearchExecutor.Partition> partitions = SearchExecutor.partitions(reader.leaves(), 100, 0, 3);
+        // 1000 / 3 | 500 / 3 | 10 | 20 | 30 | 40 with at most 3 slices for the small segments
+        Assert.assertEquals(9, partitions.size());
+    }
+
+    private static void checkDocIdOrder(final List<SearchExecutor.Partition> partitions) {
+        int nextDoc = 0;
+        for (SearchExecutor.Partition partition : partitions) {
+            for (SearchExecutor.Range range : partition.ranges) {
+                Assert.assertEquals(nextDoc, range.leaf.docBase + range.minDoc);
+                nextDoc = range.leaf.docBase + range.maxDoc;
+            }
+        }
+        Assert.assertEquals(reader.maxDoc(), nextDoc);
+    }
+
+    @Test
+    public void partitionsFollowDocIds() {
+        checkDocIdOrder(SearchExecutor.partitions(reader.leaves(), 250, 100, 0));
+        checkDocIdOrder(SearchExecutor.partitions(reader.leaves(), 100, 0, 3));
+        checkDocIdOrder(SearchExecutor.partitions(reader.leaves(), 100, 25, 0));
+        checkDocIdOrder(SearchExecutor.partitions(reader.leaves(), 5, 0, 0));
+    }
+
+        private static class HitsCollector {
+
+        private final TopScoreDocCollector topDocs = TopScoreDocCollector.create(10);
+        private final TotalHitCountCollector totalHits = new TotalHitCountCollector();
+        private final FacetsCollector facets = new FacetsCollector();
+        private final Collector collector = MultiCollector.wrap(topDocs, totalHits, facets);
+    }
+
+    private static class HitsCollectorManager implements CollectorManager<Collector, HitsCollectorManager> {
+
+        private final List<HitsCollector> hitsCollectors = new ArrayList<>();
+
+        @Override
+        public Collector newCollector() {
+            final HitsCollector hitsCollector = new HitsCollector();
+            hitsCollectors.add(hitsCollector);
+            return hitsCollector.collector;
+        }
+
+        @Override
+        public HitsCollectorManager reduce(final Collection<Collector> collectors) {
+            return this;
+        }
+
+        int getTotalHits() {
+            int totalHits = 0;
+            for (HitsCollector hitsCollector : hitsCollectors)
+                totalHits += hitsCollector.totalHits.getTotalHits();
+            return totalHits;
+        }
+
+        int getFacetsHits() {
+            int totalHits = 0;
+            for (HitsCollector hitsCollector : hitsCollectors)
+                for (FacetsCollector.MatchingDocs matchingDocs : hitsCollector.facets.getMatchingDocs())
+                    totalHits += matchingDocs.totalHits;
+            return totalHits;
+        }
+
+        TopDocs getTopDocs() {
+            final TopDocs[] topDocs = new TopDocs[hitsCollectors.size()];
+            for (int i = 0; i < topDocs.length; i++)
+                topDocs[i] = hitsCollectors.get(i).topDocs.topDocs();
+            return TopDocs.merge(10, topDocs);
+        }
+    }
+
+    @Test
+    public void partitionedSearch() throws IOException {
+        final SearchExecutor executor = new SearchExecutor(null, "test");
+        try {
+            executor.setSettings(SchemaSettingsDefinition.of().searchThreads(4).partitionMinDocs(100).build());
+            final IndexSearcher searcher =
+                    MultiThreadSearcherFactory.of(null, () -> executor, false, null, () -> null, null)
+                            .newSearcher(reader, null);
+            final HitsCollectorManager result = searcher.search(new MatchAllDocsQuery(), new HitsCollectorManager());
+            // 10 + 5 partitions for the big segments, 4 for the small ones
+            Assert.assertEquals(19, result.hitsCollectors.size());
+            Assert.assertEquals(reader.numDocs(), result.getTotalHits());
+            Assert.assertEquals(reader.numDocs(), result.getFacetsHits());
+            final TopDocs topDocs = result.getTopDocs();
+            Assert.assertEquals(reader.numDocs(), topDocs.totalHits);
+            for (int i = 0; i < topDocs.scoreDocs.length; i++)
+                Assert.assertEquals(i, topDocs.scoreDocs[i].doc);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void partitionedSearchOnSaturatedPool() throws IOException, InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(null, "test");
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.setSettings(
+                    SchemaSettingsDefinition.of().searchThreads(1).searchQueueSize(1).partitionMinDocs(100).build());
+            final IndexSearcher searcher =
+                    MultiThreadSearcherFactory.of(null, () -> executor, false, null, () -> null, null)
+                            .newSearcher(reader, null);
+            final CountDownLatch running = new CountDownLatch(1);
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            running.await();
+            executor.execute(() -> {
+            }); // Queued
+            // Every partition is rejected and collected by the calling thread
+            final HitsCollectorManager result = searcher.search(new MatchAllDocsQuery(), new HitsCollectorManager());
+            Assert.assertEquals(19, result.hitsCollectors.size());
+            Assert.assertEquals(reader.numDocs(), result.getTotalHits());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void partitionFailure() throws IOException {
+        final SearchExecutor executor = new SearchExecutor(null, "test");
+        try {
+            executor.setSettings(SchemaSettingsDefinition.of().searchThreads(4).partitionMinDocs(100).build());
+            final IndexSearcher searcher =
+                    MultiThreadSearcherFactory.of(null, () -> executor, false, null, () -> null, null)
+                            .newSearcher(reader, null);
+            final AtomicInteger collecting = new AtomicInteger();
+            final CollectorManager<Collector, Void> failingManager = new CollectorManager<Collector, Void>() {
+
+                @Override
+                public Collector newCollector() {
+                    return new Collector() {
+
+                        @Override
+                        public LeafCollector getLeafCollector(final LeafReaderContext context) throws IOException {
+                            collecting.incrementAndGet();
+                            try {
+                                if (context.docBase == 0)
+                                    throw new IOException("Partition failure");
+                                Thread.sleep(10);
+                                throw new CollectionTerminatedException();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            } finally {
+                                collecting.decrementAndGet();
+                            }
+                        }
+
+                        @Override
+                        public boolean needsScores() {
+                            return false;
+                        }
+                    };
+                }
+
+                @Override
+                public Void reduce(final Collection<Collector> collectors) {
+                    return null;
+                }
+            };
+            try {
+                searcher.search(new MatchAllDocsQuery(), failingManager);
+                Assert.fail("IOException not thrown");
+            } catch (IOException e) {
+                // The cause is thrown as is, once no partition is still collecting
+                Assert.assertEquals("Partition failure", e.getMessage());
+                Assert.assertEquals(0, collecting.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void rejection() throws InterruptedException {
+        final SearchExecutor executor = new SearchExecutor(null, "test");
+        try {
+            Assert.assertNull(executor.getSearcherExecutor());
+            executor.setSettings(SchemaSettingsDefinition.of().searchThreads(1).searchQueueSize(1).build());
+            Assert.assertSame(executor, executor.getSearcherExecutor());
+            final CountDownLatch running = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            running.await();
+            executor.execute(() -> {
+            }); // Queued
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail("The queue should be full");
+            } catch (RejectedExecutionException e) {
+                Assert.assertNotNull(e.getMessage());
+            }
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void settings() throws IOException {
+        final SchemaSettingsDefinition schemaSettings = SchemaSettingsDefinition.of()
+                .searchThreads(8)
+                .searchQueueSize(100)
+                .sliceMinDocs(100000)
+                .maxSlicesPerQuery(4)
+                .partitionMinDocs(500000)
+                .build();
+        Assert.assertEquals(schemaSettings, ObjectMappers.JSON.readValue(
+                ObjectMappers.JSON.writeValueAsString(schemaSettings), SchemaSettingsDefinition.class));
+    }
+}
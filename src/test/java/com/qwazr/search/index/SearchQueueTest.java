@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.IndexField;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.ClassicMaxCollector;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The searches of a schema whose search pool (search_threads=1, search_queue_size=1) is saturated
+ */
+public class SearchQueueTest {
+
+    private final static String SCHEMA = "TestSearchQueue";
+
+    private final static int SEGMENTS = 4;
+    private final static int SEGMENT_SIZE = 50;
+
+    @Index(name = "SearchQueue", schema = SCHEMA)
+    public static class Record {
+
+        @IndexField(name = FieldDefinition.ID_FIELD, template = FieldDefinition.Template.StringField, stored = true)
+        public String id;
+
+        @IndexField(template = FieldDefinition.Template.StoredField)
+        public String value;
+
+        public Record() {
+        }
+
+        Record(final int id) {
+            this.id = Integer.toString(id);
+            this.value = "value" + id;
+        }
+    }
+
+    private static ExecutorService executor;
+    private static IndexManager indexManager;
+    private static AnnotatedIndexService<Record> service;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        executor = Executors.newCachedThreadPool();
+        indexManager = new IndexManager(Files.createTempDirectory("qwazr_search_queue"), executor);
+        service = indexManager.getService(Record.class);
+        // A single slice: an idle pool always accepts the search
+        service.createUpdateSchema(
+                SchemaSettingsDefinition.of().searchThreads(1).searchQueueSize(1).maxSlicesPerQuery(1).build());
+        service.createUpdateIndex();
+        service.createUpdateFields();
+        // One segment per batch
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            final List<Record> records = new ArrayList<>();
+            for (int i = 0; i < SEGMENT_SIZE; i++)
+                records.add(new Record(segment * SEGMENT_SIZE + i));
+            service.postDocuments(records);
+        }
+    }
+
+    @AfterClass
+    public static void cleanup() throws InterruptedException {
+        indexManager.close();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Occupies the only thread and the only queue slot of the search pool until it is closed
+     */
+    private static final class Saturation implements AutoCloseable {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Saturation() throws InterruptedException {
+            final SearchExecutor searchExecutor = indexManager.get(SCHEMA).getSearchExecutor();
+            final CountDownLatch running = new CountDownLatch(1);
+            searchExecutor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            running.await();
+            searchExecutor.execute(done::countDown);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            release.countDown();
+            done.await();
+        }
+    }
+
+    @Test
+    public void rejectedSearchIsUnavailable() throws InterruptedException {
+        try (final Saturation saturation = new Saturation()) {
+            service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).build());
+            Assert.fail("The search should be rejected");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(503, e.getResponse().getStatus());
+        }
+        // The pool is available again
+        Assert.assertEquals(SEGMENTS * SEGMENT_SIZE,
+                (long) service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).build()).total_hits);
+    }
+
+    @Test
+    public void pageLoadedBySaturatedPool() throws InterruptedException {
+        // The classic collectors are collected by the calling thread, the stored fields of the page are then loaded
+        // segment by segment on the saturated pool
+        final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery())
+                .collector("max", ClassicMaxCollector.class)
+                .returnedField("*")
+                .rows(SEGMENTS * SEGMENT_SIZE)
+                .build();
+        final ResultDefinition.WithObject<Record> result;
+        try (final Saturation saturation = new Saturation()) {
+            result = service.searchQuery(query);
+        }
+        Assert.assertEquals(SEGMENTS * SEGMENT_SIZE, (long) result.total_hits);
+        Assert.assertEquals(SEGMENTS * SEGMENT_SIZE, result.documents.size());
+        for (ResultDocumentObject<Record> document : result.documents)
+            Assert.assertEquals("value" + document.record.id, document.record.value);
+    }
+}
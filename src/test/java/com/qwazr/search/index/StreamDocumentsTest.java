@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StreamDocumentsTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException, InterruptedException {
+        initIndexManager();
+        initIndexService();
+    }
+
+    @Before
+    public void cleanup() {
+        indexService.deleteAll();
+    }
+
+    private static Map<String, Object> document(final int id) {
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put(FieldDefinition.ID_FIELD, Integer.toString(id));
+        document.put("textField", "text " + id);
+        return document;
+    }
+
+    private List<Integer> postStream(final byte[] bytes, final Integer chunkSize) {
+        return indexManager.getService()
+                .postMappedDocumentsStream(indexService.getSchemaName(), indexService.getIndexName(), null, chunkSize,
+                        new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void ndjsonChunks() throws IOException {
+        final StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 25; i++)
+            ndjson.append(ObjectMappers.JSON.writeValueAsString(document(i))).append('\n');
+        final List<Integer> counts = postStream(ndjson.toString().getBytes(StandardCharsets.UTF_8), 10);
+        Assert.assertEquals(Arrays.asList(10, 10, 5), counts);
+        Assert.assertEquals(25, indexService.getIndexStatus().numDocs, 0);
+    }
+
+    @Test
+    public void smileStream() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (final JsonGenerator generator = ObjectMappers.SMILE.getFactory().createGenerator(output)) {
+            for (int i = 0; i < 15; i++)
+                ObjectMappers.SMILE.writeValue(generator, document(i));
+        }
+        final List<Integer> counts = postStream(output.toByteArray(), null);
+        Assert.assertEquals(Arrays.asList(15), counts);
+        Assert.assertEquals(15, indexService.getIndexStatus().numDocs, 0);
+    }
+}
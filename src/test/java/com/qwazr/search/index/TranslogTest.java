@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class TranslogTest {
+
+    private static Translog.Operation post(final int id) {
+        return Translog.Operation.post(true,
+                Collections.singletonList(Collections.singletonMap(FieldDefinition.ID_FIELD, Integer.toString(id))));
+    }
+
+    private static List<Translog.Operation> replay(final Path directory) throws IOException {
+        final List<Translog.Operation> operations = new ArrayList<>();
+        try (final Translog translog = new Translog(directory)) {
+            Assert.assertEquals(translog.replay(operations::add), operations.size());
+        }
+        return operations;
+    }
+
+    @Test
+    public void replayAfterRestart() throws IOException {
+        final Path directory = Files.createTempDirectory("translog");
+        try (final Translog translog = new Translog(directory)) {
+            for (int i = 0; i < 10; i++) {
+                final int id = i;
+                Assert.assertEquals(1, translog.append(() -> post(id), () -> 1));
+            }
+            // An action which did not change anything is not logged
+            Assert.assertEquals(0, translog.append(() -> post(-1), () -> 0));
+        }
+        final List<Translog.Operation> operations = replay(directory);
+        Assert.assertEquals(10, operations.size());
+        for (int i = 0; i < 10; i++) {
+            final Translog.Operation operation = operations.get(i);
+            Assert.assertEquals(Translog.Operation.Type.post, operation.type);
+            Assert.assertTrue(operation.update);
+            final Map<String, ?> document = operation.documents.iterator().next();
+            Assert.assertEquals(Integer.toString(i), document.get(FieldDefinition.ID_FIELD));
+        }
+    }
+
+    @Test
+    public void rollAndTrim() throws IOException {
+        final Path directory = Files.createTempDirectory("translog");
+        try (final Translog translog = new Translog(directory)) {
+            translog.append(() -> post(1), () -> 1);
+            translog.append(() -> post(2), () -> 1);
+            final long nextGeneration = translog.roll();
+            translog.append(() -> post(3), () -> 1);
+            translog.trim(nextGeneration);
+        }
+        final List<Translog.Operation> operations = replay(directory);
+        Assert.assertEquals(1, operations.size());
+        Assert.assertEquals("3", operations.get(0).documents.iterator().next().get(FieldDefinition.ID_FIELD));
+
+        try (final Translog translog = new Translog(directory)) {
+            translog.trim(translog.roll());
+        }
+        Assert.assertTrue(replay(directory).isEmpty());
+    }
+
+    @Test
+    public void tornEntryIsIgnored() throws IOException {
+        final Path directory = Files.createTempDirectory("translog");
+        try (final Translog translog = new Translog(directory)) {
+            translog.append(() -> post(1), () -> 1);
+        }
+        try (final Stream<Path> paths = Files.list(directory)) {
+            final Path path = paths.findFirst().orElseThrow(AssertionError::new);
+            Files.write(path, "{\"type\":\"post\",\"docu".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        }
+        Assert.assertEquals(1, replay(directory).size());
+    }
+}
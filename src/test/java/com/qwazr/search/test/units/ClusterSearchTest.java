@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.FacetDefinition;
+import com.qwazr.search.index.IndexManager;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.TermQuery;
+import com.qwazr.utils.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Several embedded nodes, each one holding a shard of the index. The results of the cluster search are compared with
+ * the results of a single node holding all the documents.
+ */
+public class ClusterSearchTest {
+
+	private final static int SHARDS = 3;
+	private final static int COUNT = 60;
+
+	private static ExecutorService executorService;
+	private static List<Path> directories;
+	private static List<IndexManager> nodes;
+	private static IndexServiceInterface reference;
+	private static String schemaName;
+	private static String indexName;
+
+	private static AnnotatedIndexService<IndexRecord.NoTaxonomy> createNode() throws IOException, URISyntaxException {
+		final Path directory = Files.createTempDirectory("ClusterSearchTest");
+		directories.add(directory);
+		final IndexManager indexManager = new IndexManager(directory, executorService);
+		nodes.add(indexManager);
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> service =
+				indexManager.getService(IndexRecord.NoTaxonomy.class);
+		service.createUpdateSchema();
+		service.createUpdateIndex();
+		service.createUpdateFields();
+		return service;
+	}
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		executorService = Executors.newCachedThreadPool();
+		directories = new ArrayList<>();
+		nodes = new ArrayList<>();
+		final Map<String, IndexServiceInterface> shards = new LinkedHashMap<>();
+		final List<List<IndexRecord.NoTaxonomy>> shardRecords = new ArrayList<>();
+		final List<AnnotatedIndexService<IndexRecord.NoTaxonomy>> shardServices = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			final AnnotatedIndexService<IndexRecord.NoTaxonomy> service = createNode();
+			shardServices.add(service);
+			shardRecords.add(new ArrayList<>());
+			shards.put("shard" + i, nodes.get(i).getService());
+		}
+		for (IndexManager node : nodes)
+			node.registerClusterShards(shards::get);
+		// Only the coordinating node lists the shards, the other nodes search their own documents
+		final IndexServiceInterface coordinator = nodes.get(0).getService();
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> coordinatorService = shardServices.get(0);
+		coordinator.createUpdateIndex(coordinatorService.getSchemaName(), coordinatorService.getIndexName(),
+				IndexSettingsDefinition.of(coordinatorService.getIndexStatus().settings)
+						.clusterShard(shards.keySet().toArray(new String[0]))
+						.build());
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> referenceService = createNode();
+		reference = nodes.get(SHARDS).getService();
+		schemaName = referenceService.getSchemaName();
+		indexName = referenceService.getIndexName();
+
+		final List<IndexRecord.NoTaxonomy> records = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			final IndexRecord.NoTaxonomy record = new IndexRecord.NoTaxonomy(Integer.toString(i)).sortedIntDocValue(i)
+					.textField(i % 3 == 0 ? "red" : "blue")
+					.sortedSetDocValuesFacetField("facet" + (i % 5));
+			records.add(record);
+			shardRecords.get(i % SHARDS).add(record);
+		}
+		for (int i = 0; i < SHARDS; i++)
+			shardServices.get(i).postDocuments(shardRecords.get(i));
+		referenceService.postDocuments(records);
+	}
+
+	@AfterClass
+	public static void cleanup() throws IOException {
+		for (IndexManager node : nodes)
+			node.close();
+		executorService.shutdown();
+		for (Path directory : directories)
+			FileUtils.deleteDirectory(directory);
+	}
+
+	private static ResultDefinition.WithMap checkCluster(final QueryDefinition query) {
+		final ResultDefinition.WithMap expected = reference.searchQuery(schemaName, indexName, query, false);
+		final ResultDefinition.WithMap result = nodes.get(0).getService().searchCluster(schemaName, indexName, query);
+		Assert.assertEquals(expected.total_hits, result.total_hits);
+		Assert.assertEquals(expected.documents.size(), result.documents.size());
+		return result;
+	}
+
+	@Test
+	public void sortedPaging() {
+		final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery())
+				.sort("sortedIntDocValue", QueryDefinition.SortEnum.descending)
+				.returnedField(FieldDefinition.ID_FIELD)
+				.start(7)
+				.rows(10)
+				.build();
+		final ResultDefinition.WithMap result = checkCluster(query);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(Integer.toString(COUNT - 1 - 7 - i),
+					result.documents.get(i).fields.get(FieldDefinition.ID_FIELD));
+			Assert.assertEquals(7 + i, result.documents.get(i).pos);
+		}
+	}
+
+	@Test
+	public void relevance() {
+		final ResultDefinition.WithMap result = checkCluster(
+				QueryDefinition.of(new TermQuery("textField", "red")).returnedField(FieldDefinition.ID_FIELD).build());
+		float score = Float.MAX_VALUE;
+		for (int i = 0; i < result.documents.size(); i++) {
+			Assert.assertTrue(result.documents.get(i).score <= score);
+			score = result.documents.get(i).score;
+			Assert.assertEquals(0,
+					Integer.parseInt((String) result.documents.get(i).fields.get(FieldDefinition.ID_FIELD)) % 3);
+		}
+	}
+
+	@Test
+	public void mergedFacets() {
+		final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery())
+				.facet("sortedSetDocValuesFacetField", new FacetDefinition())
+				.rows(0)
+				.build();
+		final ResultDefinition.WithMap expected = reference.searchQuery(schemaName, indexName, query, false);
+		final ResultDefinition.WithMap result = checkCluster(query);
+		final Map<String, Number> expectedFacet = expected.getFacet("sortedSetDocValuesFacetField");
+		final Map<String, Number> facet = result.getFacet("sortedSetDocValuesFacetField");
+		Assert.assertEquals(expectedFacet.keySet(), facet.keySet());
+		expectedFacet.forEach((label, count) -> Assert.assertEquals(count.longValue(), facet.get(label).longValue()));
+	}
+
+	@Test
+	public void localSearchWithoutShards() {
+		final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build();
+		final ResultDefinition.WithMap result = nodes.get(1).getService().searchCluster(schemaName, indexName, query);
+		Assert.assertEquals(COUNT / SHARDS, (long) result.total_hits);
+	}
+
+	@Test
+	public void pointInTimeRejected() {
+		try {
+			nodes.get(0)
+					.getService()
+					.searchCluster(schemaName, indexName,
+							QueryDefinition.of(new MatchAllDocsQuery()).pointInTimeKeepAliveMs(1000L).build());
+			Assert.fail("Exception not thrown");
+		} catch (WebApplicationException e) {
+			Assert.assertEquals(406, e.getResponse().getStatus());
+		}
+	}
+}
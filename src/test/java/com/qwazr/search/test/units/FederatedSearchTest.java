@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.FacetDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.index.SchemaSettingsDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class FederatedSearchTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private final static int COUNT = 20;
+	private final static String SECOND_INDEX = "FederatedSecond";
+	private final static Set<String> SECOND_INDEXES = Collections.singleton(SECOND_INDEX);
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> secondService =
+				new AnnotatedIndexService<>(indexManager.getService(), IndexRecord.NoTaxonomy.class, null,
+						SECOND_INDEX, null);
+		secondService.createUpdateIndex();
+		secondService.createUpdateFields();
+		final List<IndexRecord.NoTaxonomy> evens = new ArrayList<>();
+		final List<IndexRecord.NoTaxonomy> odds = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			final IndexRecord.NoTaxonomy record = new IndexRecord.NoTaxonomy(Integer.toString(i)).sortedIntDocValue(i)
+					.sortedSetDocValuesFacetField(i % 2 == 0 ? "even" : "odd");
+			(i % 2 == 0 ? evens : odds).add(record);
+		}
+		indexService.postDocuments(evens);
+		secondService.postDocuments(odds);
+	}
+
+	@Test
+	public void globalSortAndPaging() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = indexService.searchFederated(SECOND_INDEXES,
+				QueryDefinition.of(new MatchAllDocsQuery())
+						.sort("sortedIntDocValue", QueryDefinition.SortEnum.ascending)
+						.returnedField(FieldDefinition.ID_FIELD)
+						.start(5)
+						.rows(10)
+						.build());
+		Assert.assertEquals(COUNT, (long) result.total_hits);
+		Assert.assertEquals(10, result.documents.size());
+		for (int i = 0; i < 10; i++)
+			Assert.assertEquals(Integer.toString(i + 5), result.documents.get(i).record.id);
+	}
+
+	@Test
+	public void mergedFacets() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = indexService.searchFederated(SECOND_INDEXES,
+				QueryDefinition.of(new MatchAllDocsQuery())
+						.facet("sortedSetDocValuesFacetField", new FacetDefinition())
+						.rows(0)
+						.build());
+		final Map<String, Number> facet = result.getFacet("sortedSetDocValuesFacetField");
+		Assert.assertNotNull(facet);
+		Assert.assertEquals(COUNT / 2, facet.get("even").intValue());
+		Assert.assertEquals(COUNT / 2, facet.get("odd").intValue());
+	}
+
+	@Test
+	public void allIndexes() {
+		final ResultDefinition.WithMap result = indexManager.getService()
+				.searchFederated(indexService.getSchemaName(), "*", null,
+						QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build());
+		Assert.assertEquals(COUNT, (long) result.total_hits);
+	}
+
+	@Test(timeout = 30000)
+	public void fewerReadPermitsThanIndexes() {
+		// The indexes of the schema share one read semaphore
+		indexService.createUpdateSchema(SchemaSettingsDefinition.of().maxSimultaneousRead(1).build());
+		try {
+			final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result =
+					indexService.searchFederated(SECOND_INDEXES,
+							QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build());
+			Assert.assertEquals(COUNT, (long) result.total_hits);
+		} finally {
+			indexService.createUpdateSchema(SchemaSettingsDefinition.of().build());
+		}
+	}
+
+	@Test
+	public void pointInTimeRejected() {
+		try {
+			indexService.searchFederated(SECOND_INDEXES,
+					QueryDefinition.of(new MatchAllDocsQuery()).pointInTimeKeepAliveMs(1000L).build());
+			Assert.fail("Exception not thrown");
+		} catch (WebApplicationException e) {
+			Assert.assertEquals(406, e.getResponse().getStatus());
+		}
+	}
+}
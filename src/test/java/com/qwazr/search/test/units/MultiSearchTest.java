@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.TermQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MultiSearchTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private final static int COUNT = 50;
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		final List<IndexRecord.NoTaxonomy> documents = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			documents.add(new IndexRecord.NoTaxonomy(Integer.toString(i)));
+		indexService.postDocuments(documents);
+	}
+
+	@Test
+	public void resultsInOrder() {
+		final List<QueryDefinition> queries = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			queries.add(QueryDefinition.of(new TermQuery(FieldDefinition.ID_FIELD, Integer.toString(i)))
+					.returnedField(FieldDefinition.ID_FIELD)
+					.build());
+		queries.add(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build());
+
+		final List<ResultDefinition.WithObject<IndexRecord.NoTaxonomy>> results = indexService.searchQueries(queries);
+		Assert.assertEquals(queries.size(), results.size());
+		for (int i = 0; i < COUNT; i++) {
+			final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = results.get(i);
+			Assert.assertEquals(1, (long) result.total_hits);
+			Assert.assertEquals(Integer.toString(i), result.documents.get(0).record.id);
+		}
+		Assert.assertEquals(COUNT, (long) results.get(COUNT).total_hits);
+	}
+
+	@Test
+	public void sameAsSingleSearch() {
+		final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery()).start(5).rows(10).build();
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> single = indexService.searchQuery(query);
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> multi =
+				indexService.searchQueries(Arrays.asList(query, query)).get(1);
+		Assert.assertEquals(single.total_hits, multi.total_hits);
+		Assert.assertEquals(single.documents.size(), multi.documents.size());
+		for (int i = 0; i < single.documents.size(); i++)
+			Assert.assertEquals(single.documents.get(i).getDoc(), multi.documents.get(i).getDoc());
+	}
+
+	@Test
+	public void pointInTimeRejected() {
+		try {
+			indexService.searchQueries(Arrays.asList(QueryDefinition.of(new MatchAllDocsQuery()).build(),
+					QueryDefinition.of(new MatchAllDocsQuery()).pointInTimeKeepAliveMs(1000L).build()));
+			Assert.fail("Exception not thrown");
+		} catch (WebApplicationException e) {
+			Assert.assertEquals(406, e.getResponse().getStatus());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+public class QueryResultCacheTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		indexService.postDocument(new IndexRecord.NoTaxonomy("1").textField("First"));
+		indexService.postDocument(new IndexRecord.NoTaxonomy("2").textField("Second"));
+	}
+
+	@Test
+	public void hitAndInvalidation() throws IOException, InterruptedException {
+		final QueryDefinition cachedQuery =
+				QueryDefinition.of(new MatchAllDocsQuery()).returnedField("*").cache(true).build();
+
+		final ResultDefinition.WithMap first = indexService.searchQueryWithMap(cachedQuery);
+		Assert.assertNotNull(first.cache);
+		Assert.assertFalse(first.cache.hit);
+		Assert.assertEquals(2L, (long) first.total_hits);
+
+		final ResultDefinition.WithMap second = indexService.searchQueryWithMap(cachedQuery);
+		Assert.assertTrue(second.cache.hit);
+		Assert.assertEquals(first.total_hits, second.total_hits);
+		Assert.assertEquals(first.documents, second.documents);
+		Assert.assertEquals(first.cache.hit_count + 1, (long) second.cache.hit_count);
+
+		// A query not requesting the cache is always executed
+		final ResultDefinition.WithMap notCached =
+				indexService.searchQueryWithMap(QueryDefinition.of(new MatchAllDocsQuery()).build());
+		Assert.assertNull(notCached.cache);
+
+		// The new document reopens the searcher, the cached result is obsolete
+		indexService.postDocument(new IndexRecord.NoTaxonomy("3").textField("Third"));
+		final ResultDefinition.WithMap third = indexService.searchQueryWithMap(cachedQuery);
+		Assert.assertFalse(third.cache.hit);
+		Assert.assertEquals(3L, (long) third.total_hits);
+		Assert.assertTrue(indexService.searchQueryWithMap(cachedQuery).cache.hit);
+	}
+}
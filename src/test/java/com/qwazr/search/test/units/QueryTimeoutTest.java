@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryTimeoutTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private final static int COUNT = 100;
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		final List<IndexRecord.NoTaxonomy> documents = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			documents.add(new IndexRecord.NoTaxonomy(Integer.toString(i)));
+		indexService.postDocuments(documents);
+	}
+
+	private ResultDefinition.WithObject<IndexRecord.NoTaxonomy> search(final Long timeoutMs) {
+		return indexService.searchQuery(
+				QueryDefinition.of(new MatchAllDocsQuery()).rows(10).timeoutMs(timeoutMs).build());
+	}
+
+	@Test
+	public void withoutTimeout() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(null);
+		Assert.assertEquals(COUNT, (long) result.total_hits);
+		Assert.assertNull(result.timed_out);
+		Assert.assertNull(result.total_hits_relation);
+		Assert.assertFalse(result.isTimedOut());
+	}
+
+	@Test
+	public void timeoutNotReached() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(60000L);
+		Assert.assertEquals(COUNT, (long) result.total_hits);
+		Assert.assertEquals(Boolean.FALSE, result.timed_out);
+		Assert.assertEquals(ResultDefinition.TotalHitsRelation.equal_to, result.total_hits_relation);
+		Assert.assertEquals(10, result.documents.size());
+	}
+
+	@Test
+	public void timeoutExpired() {
+		// The deadline is already passed when the collection starts
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(0L);
+		Assert.assertTrue(result.isTimedOut());
+		Assert.assertEquals(0, (long) result.total_hits);
+		Assert.assertEquals(ResultDefinition.TotalHitsRelation.greater_than_or_equal_to, result.total_hits_relation);
+		Assert.assertTrue(result.getDocuments().isEmpty());
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.QueryBuilder;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.index.ResultDocumentObject;
+import com.qwazr.search.index.SchemaSettingsDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.TermQuery;
+import com.qwazr.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchAfterTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private final static int SEGMENTS = 4;
+
+	private static int count;
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		count = RandomUtils.nextInt(150, 250);
+		// Several segments, for the slices
+		for (int segment = 0; segment < SEGMENTS; segment++) {
+			final List<IndexRecord.NoTaxonomy> documents = new ArrayList<>();
+			for (int i = segment; i < count; i += SEGMENTS)
+				documents.add(newRecord(i));
+			indexService.postDocuments(documents);
+		}
+	}
+
+	private static IndexRecord.NoTaxonomy newRecord(final int id) {
+		return new IndexRecord.NoTaxonomy(Integer.toString(id)).sortedDocValue(RandomUtils.alphanumeric(3))
+				.intDocValue(RandomUtils.nextInt(0, 10));
+	}
+
+	/**
+	 * Apply the search settings of the schema to a new searcher: a document is updated to reopen the index
+	 */
+	private void withSearchSettings(final SchemaSettingsDefinition settings, final Runnable test)
+			throws IOException, InterruptedException {
+		indexService.createUpdateSchema(settings);
+		try {
+			indexService.postDocument(newRecord(0));
+			test.run();
+		} finally {
+			indexService.createUpdateSchema(SchemaSettingsDefinition.of().build());
+		}
+	}
+
+	private List<String> getIds(final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result) {
+		final List<String> ids = new ArrayList<>();
+		for (ResultDocumentObject<IndexRecord.NoTaxonomy> document : result.documents)
+			ids.add(document.record.id);
+		return ids;
+	}
+
+	private void checkPages(final QueryBuilder builder) {
+		final List<String> expectedIds = getIds(indexService.searchQuery(builder.rows(count).build()));
+		Assert.assertEquals(count, expectedIds.size());
+
+		final List<String> ids = new ArrayList<>();
+		builder.rows(RandomUtils.nextInt(7, 20)).pointInTimeKeepAliveMs(10_000L);
+		for (; ; ) {
+			final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = indexService.searchQuery(builder.build());
+			Assert.assertEquals(count, (long) result.total_hits);
+			if (result.documents.isEmpty())
+				break;
+			ids.addAll(getIds(result));
+			Assert.assertNotNull(result.search_after);
+			Assert.assertNotNull(result.point_in_time);
+			builder.searchAfter(result.search_after).pointInTime(result.point_in_time);
+		}
+		Assert.assertEquals(expectedIds, ids);
+	}
+
+	@Test
+	public void withoutSort() {
+		checkPages(QueryDefinition.of(new MatchAllDocsQuery()).returnedField("*"));
+	}
+
+	@Test
+	public void withSort() {
+		checkPages(QueryDefinition.of(new MatchAllDocsQuery())
+				.returnedField("*")
+				.sort("intDocValue", QueryDefinition.SortEnum.descending)
+				.sort("sortedDocValue", QueryDefinition.SortEnum.ascending));
+	}
+
+	@Test
+	public void withSlices() throws IOException, InterruptedException {
+		// Slices of several segments, the collectors see the ties of MatchAllDocs
+		withSearchSettings(SchemaSettingsDefinition.of().searchThreads(2).sliceMinDocs(count / 3).build(), () -> {
+			withoutSort();
+			withSort();
+		});
+	}
+
+	@Test
+	public void withPartitions() throws IOException, InterruptedException {
+		// Each segment is split in two partitions
+		withSearchSettings(
+				SchemaSettingsDefinition.of().searchThreads(2).partitionMinDocs(count / (SEGMENTS * 2)).build(),
+				() -> {
+					withoutSort();
+					withSort();
+				});
+	}
+
+	@Test
+	public void pointInTime() throws IOException, InterruptedException {
+		final QueryBuilder builder = QueryDefinition.of(new MatchAllDocsQuery()).rows(1).pointInTimeKeepAliveMs(10_000L);
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> first = indexService.searchQuery(builder.build());
+		final long totalHits = first.total_hits;
+		final String pointInTime = first.point_in_time;
+		Assert.assertNotNull(pointInTime);
+
+		// The new document is not visible from the point in time
+		indexService.postDocument(new IndexRecord.NoTaxonomy("new"));
+		Assert.assertEquals(totalHits + 1,
+				(long) indexService.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).build()).total_hits);
+		builder.pointInTime(pointInTime).pointInTimeKeepAliveMs(null);
+		Assert.assertEquals(totalHits, (long) indexService.searchQuery(builder.build()).total_hits);
+
+		// A zero keep alive releases the point in time
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> last =
+				indexService.searchQuery(builder.pointInTimeKeepAliveMs(0L).build());
+		Assert.assertEquals(totalHits, (long) last.total_hits);
+		Assert.assertNull(last.point_in_time);
+		try {
+			indexService.searchQuery(builder.pointInTimeKeepAliveMs(null).build());
+			Assert.fail("Exception not thrown");
+		} catch (WebApplicationException e) {
+			Assert.assertEquals(404, e.getResponse().getStatus());
+		}
+
+		// The other tests expect the initial documents
+		indexService.deleteByQuery(QueryDefinition.of(new TermQuery(FieldDefinition.ID_FIELD, "new")).build());
+	}
+}
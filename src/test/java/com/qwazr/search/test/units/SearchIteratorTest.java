@@ -15,8 +15,11 @@
  */
 package com.qwazr.search.test.units;
 
+import com.qwazr.search.annotations.AnnotatedIndexService;
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.QueryDocumentsIterator;
+import com.qwazr.search.index.ResultDefinition;
 import com.qwazr.search.query.IntExactQuery;
 import com.qwazr.search.query.MatchAllDocsQuery;
 import com.qwazr.search.query.TermQuery;
@@ -25,6 +28,7 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import javax.ws.rs.WebApplicationException;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -100,6 +104,73 @@ public class SearchIteratorTest extends AbstractIndexTest.WithIndexRecord.NoTaxo
 		checkIterate(iterator, ids);
 	}
 
+	@Test
+	public void releasePointInTime() throws URISyntaxException {
+		final List<QueryDefinition> queries = new ArrayList<>();
+		final List<String> pointInTimes = new ArrayList<>();
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> service =
+				new AnnotatedIndexService<IndexRecord.NoTaxonomy>(indexManager.getService(),
+						IndexRecord.NoTaxonomy.class) {
+					@Override
+					public <C> ResultDefinition.WithObject<C> searchQuery(final QueryDefinition query,
+							final Class<C> objectClass) {
+						queries.add(query);
+						final ResultDefinition.WithObject<C> result = super.searchQuery(query, objectClass);
+						pointInTimes.add(result.point_in_time);
+						return result;
+					}
+				};
+		final Set<String> ids = new HashSet<>();
+		documents.forEach(r -> ids.add(r.id));
+		checkIterate(new QueryDocumentsIterator<>(service,
+				QueryDefinition.of(new MatchAllDocsQuery()).rows(100).returnedField("*").build(),
+				IndexRecord.NoTaxonomy.class), ids);
+
+		// Each page renews the keep alive, the last one releases the point in time
+		Assert.assertEquals((documents.size() + 99) / 100, queries.size());
+		for (int i = 0; i < queries.size() - 1; i++) {
+			Assert.assertEquals(QueryDocumentsIterator.POINT_IN_TIME_KEEP_ALIVE_MS,
+					(long) queries.get(i).pointInTimeKeepAliveMs);
+			Assert.assertNotNull(pointInTimes.get(i));
+		}
+		Assert.assertEquals(0L, (long) queries.get(queries.size() - 1).pointInTimeKeepAliveMs);
+		Assert.assertNull(pointInTimes.get(pointInTimes.size() - 1));
+		try {
+			indexService.searchQuery(
+					QueryDefinition.of(new MatchAllDocsQuery()).pointInTime(pointInTimes.get(0)).build());
+			Assert.fail("Exception not thrown");
+		} catch (WebApplicationException e) {
+			Assert.assertEquals(404, e.getResponse().getStatus());
+		}
+	}
+
+	@Test
+	public void releaseSinglePage() throws URISyntaxException {
+		final List<QueryDefinition> queries = new ArrayList<>();
+		final AnnotatedIndexService<IndexRecord.NoTaxonomy> service =
+				new AnnotatedIndexService<IndexRecord.NoTaxonomy>(indexManager.getService(),
+						IndexRecord.NoTaxonomy.class) {
+					@Override
+					public <C> ResultDefinition.WithObject<C> searchQuery(final QueryDefinition query,
+							final Class<C> objectClass) {
+						queries.add(query);
+						return super.searchQuery(query, objectClass);
+					}
+				};
+		final Set<String> ids = new HashSet<>();
+		documents.forEach(r -> ids.add(r.id));
+		checkIterate(new QueryDocumentsIterator<>(service,
+				QueryDefinition.of(new MatchAllDocsQuery()).rows(documents.size()).returnedField("*").build(),
+				IndexRecord.NoTaxonomy.class), ids);
+
+		// The page holding all the hits is followed by the release of the point in time
+		Assert.assertEquals(2, queries.size());
+		Assert.assertEquals(0, (int) queries.get(1).rows);
+		Assert.assertEquals(0L, (long) queries.get(1).pointInTimeKeepAliveMs);
+		Assert.assertNull(queries.get(0).pointInTime);
+		Assert.assertNotNull(queries.get(1).pointInTime);
+	}
+
 	@Test
 	public void iterateNone() throws ReflectiveOperationException {
 
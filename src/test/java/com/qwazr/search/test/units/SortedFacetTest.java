@@ -199,4 +199,22 @@ public class SortedFacetTest extends AbstractIndexTest.WithIndexRecord.NoTaxonom
 		Assert.assertEquals(1, facetResult.size());
 		Assert.assertEquals(expected, facetResult.get(facetName).intValue());
 	}
+
+	@Test
+	public void queriesCountWithSearchQuery() {
+		final String searchTerm = getRandomFacetValue();
+		final FacetDefinition.Builder builder = FacetDefinition.of();
+		for (String facetTerm : facetValues)
+			builder.query(facetTerm, FacetPathQuery.of("sortedSetDocValuesFacetField").path(facetTerm).build());
+		final ResultDefinition result = indexService.searchQuery(
+				QueryDefinition.of(FacetPathQuery.of("sortedSetDocValuesFacetField").path(searchTerm).build())
+						.facet("sortedSetDocValuesFacetField", builder.build())
+						.build());
+		final int expected = facetTerms.get(searchTerm).get();
+		Assert.assertEquals(expected, result.total_hits.intValue());
+		final Map<String, Number> facetResult = result.getFacet("sortedSetDocValuesFacetField");
+		Assert.assertEquals(facetValues.size(), facetResult.size());
+		for (String facetTerm : facetValues)
+			Assert.assertEquals(facetTerm.equals(searchTerm) ? expected : 0, facetResult.get(facetTerm).intValue());
+	}
 }
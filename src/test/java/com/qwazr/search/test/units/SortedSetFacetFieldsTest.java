@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.annotations.SmartField;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SmartFieldDefinition;
+import com.qwazr.search.index.FacetDefinition;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.AbstractQuery;
+import com.qwazr.search.query.DrillDownQuery;
+import com.qwazr.search.query.FacetPathQuery;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+public class SortedSetFacetFieldsTest extends AbstractIndexTest {
+
+	private static AnnotatedIndexService<Record> indexService;
+
+	@BeforeClass
+	public static void setup() throws IOException, URISyntaxException, InterruptedException {
+		indexService = new AnnotatedIndexService<>(initIndexManager().getService(), Record.class, null, null,
+				IndexSettingsDefinition.of(Record.class.getAnnotation(Index.class))
+						.sortedSetFacetField("category", "$facets$category")
+						.build());
+		indexService.createUpdateSchema();
+		indexService.createUpdateIndex();
+		indexService.createUpdateFields();
+		indexService.postDocument(new Record(1, "news", "tag1", "tag2"));
+		indexService.postDocument(new Record(2, "news", "tag2"));
+		indexService.postDocument(new Record(3, "blog", "tag1"));
+	}
+
+	private ResultDefinition.WithObject<Record> search(final AbstractQuery query, final long expectedHits) {
+		final ResultDefinition.WithObject<Record> result = indexService.searchQuery(QueryDefinition.of(query)
+				.queryDebug(true)
+				.facet("category", FacetDefinition.of().build())
+				.facet("tags", FacetDefinition.of().build())
+				.build());
+		Assert.assertEquals(expectedHits, (long) result.total_hits);
+		return result;
+	}
+
+	private void checkFacet(final ResultDefinition result, final String dimension, final Object... labelsCounts) {
+		final Map<String, Number> facet = result.getFacet(dimension);
+		Assert.assertNotNull(facet);
+		Assert.assertEquals(labelsCounts.length / 2, facet.size());
+		for (int i = 0; i < labelsCounts.length; i += 2)
+			Assert.assertEquals(labelsCounts[i + 1], facet.get(labelsCounts[i]).intValue());
+	}
+
+	@Test
+	public void facets() {
+		final ResultDefinition result = search(new MatchAllDocsQuery(), 3);
+		checkFacet(result, "category", "news", 2, "blog", 1);
+		checkFacet(result, "tags", "tag1", 2, "tag2", 2);
+	}
+
+	@Test
+	public void facetPathQuery() {
+		final ResultDefinition result = search(FacetPathQuery.of("category").path("news").build(), 2);
+		Assert.assertEquals("$facets$category:ft€category\u001Fnews", result.query);
+		checkFacet(result, "category", "news", 2);
+		checkFacet(result, "tags", "tag1", 1, "tag2", 2);
+	}
+
+	@Test
+	public void drillSideways() {
+		final ResultDefinition result =
+				search(new DrillDownQuery(new MatchAllDocsQuery(), true).filter("category", "blog"), 1);
+		checkFacet(result, "category", "news", 2, "blog", 1);
+		checkFacet(result, "tags", "tag1", 1);
+	}
+
+	@Index(name = "SortedSetFacetFields", schema = "TestQueries")
+	static public class Record {
+
+		@SmartField(name = FieldDefinition.ID_FIELD, type = SmartFieldDefinition.Type.LONG, index = true, stored = true)
+		final public long id;
+
+		@SmartField(type = SmartFieldDefinition.Type.TEXT, facet = true)
+		final public String category;
+
+		@SmartField(type = SmartFieldDefinition.Type.TEXT, facet = true)
+		final public String[] tags;
+
+		Record(long id, String category, String... tags) {
+			this.id = id;
+			this.category = category;
+			this.tags = tags;
+		}
+
+		public Record() {
+			this(0, null);
+		}
+	}
+}
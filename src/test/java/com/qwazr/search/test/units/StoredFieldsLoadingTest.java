@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.index.ResultDocumentObject;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StoredFieldsLoadingTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private final static int SEGMENTS = 4;
+	private final static int SEGMENT_SIZE = 50;
+	private final static int COUNT = SEGMENTS * SEGMENT_SIZE;
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		// One segment per batch, the ranking interleaves the segments
+		for (int segment = 0; segment < SEGMENTS; segment++) {
+			final List<IndexRecord.NoTaxonomy> records = new ArrayList<>();
+			for (int i = 0; i < SEGMENT_SIZE; i++) {
+				final int value = i * SEGMENTS + segment;
+				records.add(new IndexRecord.NoTaxonomy(Integer.toString(value)).storedField("stored" + value)
+						.sortedIntDocValue(value));
+			}
+			indexService.postDocuments(records);
+		}
+	}
+
+	private void checkRankOrder(final int start, final int rows) {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = indexService.searchQuery(
+				QueryDefinition.of(new MatchAllDocsQuery())
+						.sort("sortedIntDocValue", QueryDefinition.SortEnum.descending)
+						.returnedField("storedField", "sortedIntDocValue")
+						.start(start)
+						.rows(rows)
+						.build());
+		Assert.assertEquals(COUNT, (long) result.total_hits);
+		Assert.assertEquals(Math.min(rows, COUNT - start), result.documents.size());
+		int pos = start;
+		for (ResultDocumentObject<IndexRecord.NoTaxonomy> doc : result.documents) {
+			final int value = COUNT - 1 - pos;
+			Assert.assertEquals(pos++, doc.pos);
+			Assert.assertEquals("stored" + value, doc.record.storedField);
+			Assert.assertEquals(value, (int) doc.record.sortedIntDocValue);
+		}
+	}
+
+	@Test
+	public void smallPage() {
+		checkRankOrder(5, 10);
+	}
+
+	@Test
+	public void largePage() {
+		checkRankOrder(0, COUNT);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2018 Emmanuel Keller / QWAZR
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TotalHitsThresholdTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+	private static int count;
+
+	@BeforeClass
+	public static void setup() throws IOException, InterruptedException, URISyntaxException {
+		initIndexService();
+		count = RandomUtils.nextInt(50, 100);
+		// Several commits to get several segments
+		for (int j = 0; j < 3; j++) {
+			final List<IndexRecord.NoTaxonomy> documents = new ArrayList<>();
+			for (int i = 0; i < count; i++)
+				documents.add(new IndexRecord.NoTaxonomy(j + "-" + i));
+			indexService.postDocuments(documents);
+		}
+		count *= 3;
+	}
+
+	private ResultDefinition.WithObject<IndexRecord.NoTaxonomy> search(final int rows, final Integer threshold) {
+		return indexService.searchQuery(
+				QueryDefinition.of(new MatchAllDocsQuery()).rows(rows).totalHitsThreshold(threshold).build());
+	}
+
+	@Test
+	public void withoutThreshold() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(0, null);
+		Assert.assertEquals(count, (long) result.total_hits);
+		Assert.assertNull(result.total_hits_relation);
+	}
+
+	@Test
+	public void thresholdReached() {
+		final int threshold = RandomUtils.nextInt(1, count - 1);
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(0, threshold);
+		// With concurrent slices, each slice stops at the threshold
+		Assert.assertTrue(result.total_hits >= threshold);
+		Assert.assertTrue(result.total_hits < count);
+		Assert.assertEquals(ResultDefinition.TotalHitsRelation.greater_than_or_equal_to, result.total_hits_relation);
+	}
+
+	@Test
+	public void thresholdNotReached() {
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(0, count + 1);
+		Assert.assertEquals(count, (long) result.total_hits);
+		Assert.assertEquals(ResultDefinition.TotalHitsRelation.equal_to, result.total_hits_relation);
+	}
+
+	@Test
+	public void withRows() {
+		// The top documents collect all the hits, the count is exact
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = search(10, 5);
+		Assert.assertEquals(count, (long) result.total_hits);
+		Assert.assertEquals(ResultDefinition.TotalHitsRelation.equal_to, result.total_hits_relation);
+		Assert.assertEquals(10, result.documents.size());
+	}
+}